@@ -1812,6 +1812,8 @@ public class PackageBuilder {
         ClassDefinition def = new ClassDefinition( fullName,
                                                    fullSuperType,
                                                    interfaces );
+        // wrapper fields are stored as primitives
+        def.setCompact( typeDescr.getAnnotationNames().contains( TypeDeclaration.ATTR_COMPACT ) );
 
         for ( String annotationName : typeDescr.getAnnotationNames() ) {
             Class annotation = resolveAnnotation( annotationName,
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.lang.dsl;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the DSL mapping entries whose key pattern may match a text, scanning
+ * the text once whatever the number of entries.
+ *
+ * Each key pattern is reduced to the longest word it can not match without,
+ * and the words of all the entries are compiled into an Aho-Corasick trie.
+ * Scanning a text with the trie yields the entries whose word occurs in it,
+ * and only their key patterns have to be tried. The entries without such a
+ * word, like the ones using alternatives or case insensitive matching, are
+ * always tried.
+ */
+public class DSLMappingIndex {
+
+    private static final Pattern    inlineFlags = Pattern.compile( "\\(\\?[idmsuxU-]" );
+
+    private final DSLMappingEntry[] entries;
+
+    /** The entries to try whatever the text */
+    private final BitSet            unindexed;
+
+    private final Node              root;
+
+    public DSLMappingIndex(final List<DSLMappingEntry> entries) {
+        this.entries = entries.toArray( new DSLMappingEntry[entries.size()] );
+        this.unindexed = new BitSet( this.entries.length );
+        this.root = new Node();
+        for ( int i = 0; i < this.entries.length; i++ ) {
+            String literal = getRequiredLiteral( this.entries[i].getKeyPattern() );
+            if ( literal == null ) {
+                this.unindexed.set( i );
+            } else {
+                this.root.add( literal,
+                               i );
+            }
+        }
+        this.root.link();
+    }
+
+    public DSLMappingEntry[] getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Returns the positions of the entries that may match the given text.
+     */
+    public BitSet getCandidates(final CharSequence text) {
+        BitSet candidates = (BitSet) this.unindexed.clone();
+        addCandidates( text,
+                       candidates );
+        return candidates;
+    }
+
+    /**
+     * Adds the positions of the entries that may match the given text.
+     */
+    public void addCandidates(final CharSequence text,
+                              final BitSet candidates) {
+        Node node = this.root;
+        for ( int i = 0, length = text.length(); i < length; i++ ) {
+            node = node.next( text.charAt( i ) );
+            for ( int entry : node.outputs ) {
+                candidates.set( entry );
+            }
+        }
+    }
+
+    /**
+     * Returns the longest word that any text matched by the given pattern
+     * contains, or null if there is none the pattern can be relied on for.
+     * Only the words outside of groups and character classes are considered,
+     * dropping the last letter of a word followed by a quantifier.
+     */
+    static String getRequiredLiteral(final Pattern pattern) {
+        if ( pattern == null || (pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL)) != 0 ) {
+            return null;
+        }
+        final String regex = pattern.pattern();
+        if ( regex.indexOf( "\\Q" ) >= 0 || inlineFlags.matcher( regex ).find() ) {
+            return null;
+        }
+
+        String longest = null;
+        final StringBuilder word = new StringBuilder();
+        int depth = 0;
+        boolean inClass = false;
+        for ( int i = 0, length = regex.length(); i < length; i++ ) {
+            final char c = regex.charAt( i );
+            if ( c == '\\' ) {
+                if ( i + 1 < length && "xu0cpPNkQE".indexOf( regex.charAt( i + 1 ) ) >= 0 ) {
+                    // escapes spanning more than one character
+                    return null;
+                }
+                longest = longest( longest,
+                                   word );
+                i++;
+            } else if ( inClass ) {
+                inClass = c != ']';
+            } else if ( c == '[' ) {
+                longest = longest( longest,
+                                   word );
+                inClass = true;
+            } else if ( c == '(' ) {
+                longest = longest( longest,
+                                   word );
+                depth++;
+            } else if ( c == ')' ) {
+                depth--;
+            } else if ( c == '|' && depth == 0 ) {
+                // any of the alternatives may match
+                return null;
+            } else if ( Character.isLetterOrDigit( c ) || c == '_' ) {
+                if ( depth == 0 ) {
+                    word.append( c );
+                }
+            } else {
+                if ( c == '?' || c == '*' || c == '+' || c == '{' ) {
+                    // the quantified letter is not required
+                    if ( word.length() > 0 ) {
+                        word.setLength( word.length() - 1 );
+                    }
+                }
+                longest = longest( longest,
+                                   word );
+            }
+        }
+        return longest( longest,
+                        word );
+    }
+
+    private static String longest(final String longest,
+                                  final StringBuilder word) {
+        String result = longest;
+        if ( word.length() > 1 && (longest == null || word.length() > longest.length()) ) {
+            result = word.toString();
+        }
+        word.setLength( 0 );
+        return result;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<Character, Node>( 4 );
+        private Node                       fail;
+        private int[]                      outputs  = new int[0];
+
+        private void add(final String literal,
+                         final int entry) {
+            Node node = this;
+            for ( int i = 0; i < literal.length(); i++ ) {
+                Character c = Character.valueOf( literal.charAt( i ) );
+                Node child = node.children.get( c );
+                if ( child == null ) {
+                    child = new Node();
+                    node.children.put( c,
+                                       child );
+                }
+                node = child;
+            }
+            node.outputs = append( node.outputs,
+                                   new int[]{entry} );
+        }
+
+        /**
+         * Sets the failure links breadth first, this being the root.
+         */
+        private void link() {
+            final LinkedList<Node> queue = new LinkedList<Node>();
+            for ( Node child : this.children.values() ) {
+                child.fail = this;
+                queue.add( child );
+            }
+            while ( !queue.isEmpty() ) {
+                final Node node = queue.removeFirst();
+                for ( Map.Entry<Character, Node> entry : node.children.entrySet() ) {
+                    final Node child = entry.getValue();
+                    Node fail = node.fail;
+                    while ( fail != this && !fail.children.containsKey( entry.getKey() ) ) {
+                        fail = fail.fail;
+                    }
+                    Node target = fail.children.get( entry.getKey() );
+                    child.fail = target != null && target != child ? target : this;
+                    child.outputs = append( child.outputs,
+                                            child.fail.outputs );
+                    queue.add( child );
+                }
+            }
+            this.fail = this;
+        }
+
+        private Node next(final char c) {
+            final Character key = Character.valueOf( c );
+            Node node = this;
+            while ( true ) {
+                Node child = node.children.get( key );
+                if ( child != null ) {
+                    return child;
+                }
+                if ( node.fail == node ) {
+                    // the root
+                    return node;
+                }
+                node = node.fail;
+            }
+        }
+
+        private static int[] append(final int[] first,
+                                    final int[] second) {
+            if ( second.length == 0 ) {
+                return first;
+            }
+            int[] result = new int[first.length + second.length];
+            System.arraycopy( first,
+                              0,
+                              result,
+                              0,
+                              first.length );
+            System.arraycopy( second,
+                              0,
+                              result,
+                              first.length,
+                              second.length );
+            return result;
+        }
+    }
+
+}
@@ -22,7 +22,9 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -76,6 +78,16 @@ public class DefaultExpander
     private final List<DSLMappingEntry> consequence  = new LinkedList<DSLMappingEntry>();
     private final List<DSLMappingEntry> cleanup      = new LinkedList<DSLMappingEntry>();
 
+    // The indexes of the entries above, built on the first expansion
+    private DSLMappingIndex             keywordIndex;
+    private DSLMappingIndex             conditionIndex;
+    private DSLMappingIndex             consequenceIndex;
+    private DSLMappingIndex             cleanupIndex;
+
+    // The expansions of the lines that do not depend on the previous ones
+    private final Map<String, Expansion> conditionCache   = new ExpansionCache();
+    private final Map<String, Expansion> consequenceCache = new ExpansionCache();
+
     private Map<String, Integer>        useKeyword;
     private Map<String, Integer>        useWhen;
     private Map<String, Integer>        useThen;
@@ -121,6 +133,12 @@ public class DefaultExpander
                 this.consequence.add( entry );
             }
         }
+        this.keywordIndex = null;
+        this.conditionIndex = null;
+        this.consequenceIndex = null;
+        this.conditionCache.clear();
+        this.consequenceCache.clear();
+
         if ( mapping.getOption( "result" ) ) showResult = true;
         if ( mapping.getOption( "steps" ) ) showSteps = true;
         if ( mapping.getOption( "keyword" ) ) showKeyword = true;
@@ -160,6 +178,12 @@ public class DefaultExpander
             useWhen = new HashMap<String, Integer>();
             useThen = new HashMap<String, Integer>();
         }
+        if ( this.conditionIndex == null ) {
+            this.keywordIndex = new DSLMappingIndex( this.keywords );
+            this.conditionIndex = new DSLMappingIndex( this.condition );
+            this.consequenceIndex = new DSLMappingIndex( this.consequence );
+            this.cleanupIndex = new DSLMappingIndex( this.cleanup );
+        }
 
         drl = expandKeywords( drl );
         drl = cleanupExpressions( drl );
@@ -303,7 +327,9 @@ public class DefaultExpander
      */
     private String cleanupExpressions(String drl) {
         // execute cleanup
-        for ( final DSLMappingEntry entry : this.cleanup ) {
+        final BitSet candidates = this.cleanupIndex.getCandidates( drl );
+        for ( int i = candidates.nextSetBit( 0 ); i >= 0; i = candidates.nextSetBit( i + 1 ) ) {
+            final DSLMappingEntry entry = this.cleanupIndex.getEntries()[i];
             drl = entry.getKeyPattern().matcher( drl ).replaceAll( entry.getValuePattern() );
         }
         return drl;
@@ -327,7 +353,8 @@ public class DefaultExpander
         substitutions = new ArrayList<Map<String, String>>();
         // apply all keywords templates
         drl = substitute( drl,
-                          this.keywords,
+                          this.keywordIndex,
+                          null,
                           0,
                           useKeyword,
                           false );
@@ -397,12 +424,15 @@ public class DefaultExpander
     }
 
     /**
-     * Perform the substitutions.
+     * Perform the substitutions, taking the expansion of the line from the
+     * cache if it was expanded already.
      * 
      * @param exp
      *            a DSLR source line to be expanded
-     * @param entries
-     *            the appropriate DSL keys and values
+     * @param index
+     *            the index of the appropriate DSL keys and values
+     * @param cache
+     *            the cache of expanded lines, if any
      * @param line
      *            line number
      * @param use
@@ -410,11 +440,13 @@ public class DefaultExpander
      * @return the expanden line
      */
     private String substitute(String exp,
-                              List<DSLMappingEntry> entries,
+                              DSLMappingIndex index,
+                              Map<String, Expansion> cache,
                               int line,
                               Map<String, Integer> use,
                               boolean showSingleSteps) {
-        if ( entries.size() == 0 ) {
+        final DSLMappingEntry[] entries = index.getEntries();
+        if ( entries.length == 0 ) {
             if ( line > 0 ) {
                 this.addError( new ExpanderException( "No mapping entries for expanding: " + exp,
                                                       line ) );
@@ -424,8 +456,35 @@ public class DefaultExpander
         if ( showSingleSteps ) {
             System.out.println( "to expand: |" + exp + "|" );
         }
+        // the usage and the steps are reported for each line
+        if ( showUsage || showSingleSteps ) {
+            cache = null;
+        }
+        if ( cache != null ) {
+            Expansion expansion = cache.get( exp );
+            if ( expansion != null ) {
+                for ( int i = 0; i < expansion.substitutionCount; i++ ) {
+                    substitutions.add( expansion.substitution );
+                }
+                return expansion.result;
+            }
+        }
+        final String original = exp;
+        boolean contextual = false;
+        int substitutionCount = 0;
+
+        final BitSet candidates;
+        if ( showUsage ) {
+            // every entry is reported, even if unused
+            candidates = new BitSet( entries.length );
+            candidates.set( 0,
+                            entries.length );
+        } else {
+            candidates = index.getCandidates( exp );
+        }
         Map<String, String> key2value = new HashMap<String, String>();
-        for ( final DSLMappingEntry entry : entries ) {
+        for ( int ientry = candidates.nextSetBit( 0 ); ientry >= 0; ientry = candidates.nextSetBit( ientry + 1 ) ) {
+            final DSLMappingEntry entry = entries[ientry];
             Map<String, Integer> vars = entry.getVariables();
             String mappingKey = entry.getMappingKey();
             String vp = entry.getValuePattern();
@@ -481,6 +540,7 @@ public class DefaultExpander
                 // Try to find any matches from previous lines.
                 Matcher varRefMat = varRefPat.matcher( vp );
                 while ( varRefMat.find() ) {
+                    contextual = true;
                     String theKey = varRefMat.group( 1 );
                     String theFunc = varRefMat.group( 2 );
                     for ( int ientry = substitutions.size() - 1; ientry >= 0; ientry-- ) {
@@ -500,6 +560,7 @@ public class DefaultExpander
                 // add the new set of substitutions
                 if ( key2value.size() > 0 ) {
                     substitutions.add( key2value );
+                    substitutionCount++;
                 }
 
                 // now replace the target
@@ -510,8 +571,17 @@ public class DefaultExpander
                 }
                 startPos = m.start() + vp.length();
                 m.reset( exp );
+                // the replacement may bring the words of later entries
+                index.addCandidates( exp,
+                                     candidates );
             }
         }
+        if ( cache != null && !contextual ) {
+            cache.put( original,
+                       new Expansion( exp,
+                                      key2value,
+                                      substitutionCount ) );
+        }
         return exp;
     }
 
@@ -548,7 +618,8 @@ public class DefaultExpander
                 // regular expansion - expand the expression
                 expanded[lastExpanded] =
                         substitute( expanded[lastExpanded],
-                                    this.condition,
+                                    this.conditionIndex,
+                                    this.conditionCache,
                                     i + lineOffset,
                                     useWhen,
                                     showSteps );
@@ -617,7 +688,8 @@ public class DefaultExpander
             } else { // regular expansions
                 expanded[lastExpanded] =
                         substitute( expanded[lastExpanded],
-                                    this.consequence,
+                                    this.consequenceIndex,
+                                    this.consequenceCache,
                                     i + lineOffset,
                                     useThen,
                                     showSteps );
@@ -707,6 +779,37 @@ public class DefaultExpander
         return !this.errors.isEmpty();
     }
 
+    // The expansion of a line, with the substitutions it adds for the next lines
+    private static class Expansion {
+        private final String              result;
+        private final Map<String, String> substitution;
+        private final int                 substitutionCount;
+
+        private Expansion(final String result,
+                          final Map<String, String> substitution,
+                          final int substitutionCount) {
+            this.result = result;
+            this.substitution = substitution;
+            this.substitutionCount = substitutionCount;
+        }
+    }
+
+    private static class ExpansionCache extends LinkedHashMap<String, Expansion> {
+        private static final long serialVersionUID = 510l;
+
+        private static final int  MAX_SIZE         = 4096;
+
+        private ExpansionCache() {
+            super( 16,
+                   0.75f,
+                   true );
+        }
+
+        protected boolean removeEldestEntry(final Map.Entry<String, Expansion> eldest) {
+            return size() > MAX_SIZE;
+        }
+    }
+
     //Container for information relating to constraint substitution on LHS expansion 
     //where a DSL Sentence begins with "-". The pattern's constraints are deemed to
     //be between the first "(" and related matching ")". The constraint can include
@@ -52,6 +52,9 @@ import org.mvel2.MVEL;
  */
 public class RuleBuilder {
 
+    /** The calls and variables through which a consequence can change the working memory or the agenda */
+    private static final java.util.regex.Pattern WRITES = java.util.regex.Pattern.compile( "\\b(insert|insertLogical|update|modify|modifyRetract|modifyInsert|retract|drools|kcontext)\\b" );
+
     // Constructor
     public RuleBuilder() {
     }
@@ -101,8 +104,35 @@ public class RuleBuilder {
             for ( String name : ruleDescr.getNamedConsequences().keySet() ) {
                 context.getDialect().getConsequenceBuilder().build( context, name );
             }
+
+            context.getRule().setReadOnly( isReadOnly( ruleDescr ) );
+        }
+
+    }
+
+    /**
+     * Returns whether none of the consequences of the rule refers to the
+     * knowledge helper nor to the methods changing the working memory. The
+     * consequences are only looked at as text, so this errs on the side of
+     * caution, but it does not see the changes made through the globals.
+     */
+    private boolean isReadOnly(final RuleDescr ruleDescr) {
+        if ( !isReadOnly( ruleDescr.getConsequence() ) ) {
+            return false;
+        }
+        for ( Object consequence : ruleDescr.getNamedConsequences().values() ) {
+            if ( !isReadOnly( consequence ) ) {
+                return false;
+            }
         }
+        return true;
+    }
 
+    private boolean isReadOnly(final Object consequence) {
+        if ( consequence == null ) {
+            return true;
+        }
+        return consequence instanceof String && !WRITES.matcher( (String) consequence ).find();
     }
 
     public void buildMetaAttributes(final RuleBuildContext context ) {
@@ -16,6 +16,7 @@
 
 package org.drools.rule.builder.dialect.java;
 
+import java.beans.Introspector;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,6 +33,7 @@ import org.drools.compiler.BoundIdentifiers;
 import org.drools.compiler.DescrBuildError;
 import org.drools.core.util.ClassUtils;
 import org.drools.lang.descr.RuleDescr;
+import org.drools.reteoo.PropertyReactiveUtil;
 import org.drools.reteoo.RuleTerminalNode.SortDeclarations;
 import org.drools.rule.Declaration;
 import org.drools.rule.builder.ConsequenceBuilder;
@@ -68,6 +70,8 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
 
     private final Pattern lineBreakFinder = Pattern.compile( "\\r\\n|\\r|\\n" );
 
+    private final Pattern setterFinder    = Pattern.compile( "\\s*set(\\w+)\\s*\\(" );
+
     /* (non-Javadoc)
      * @see org.drools.semantics.java.builder.ConsequenceBuilder#buildConsequence(org.drools.semantics.java.builder.BuildContext, org.drools.semantics.java.builder.BuildUtils, org.drools.lang.descr.RuleDescr)
      */
@@ -664,7 +668,7 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
                                                           d.getEnd() );
            
            if ( d instanceof JavaModifyBlockDescr ) {
-               rewriteModifyDescr( context, d, originalBlock, consequence, declr, obj );
+               rewriteModifyDescr( context, d, originalBlock, consequence, declr, obj, ret );
            } else if ( d instanceof JavaUpdateBlockDescr ) {
                rewriteUpdateDescr( d, originalBlock, consequence, declr, obj );
            } else if ( d instanceof JavaRetractBlockDescr ) {
@@ -679,7 +683,8 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
                                        String originalBlock,
                                        StringBuilder consequence,
                                        Declaration declr,
-                                       String obj) {
+                                       String obj,
+                                       Class< ? > type) {
         int end = originalBlock.indexOf( "{" );
         if( end == -1 ){
             // no block
@@ -695,8 +700,16 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
                                                 end ) );
         
            int start = end + 1;
+           // the properties set by the expressions, if they are all setter calls
+           List<String> properties = PropertyReactiveUtil.isPropertyReactive( type ) ? new ArrayList<String>() : null;
            // adding each of the expressions:
            for ( String exprStr : ((JavaModifyBlockDescr)d).getExpressions() ) {
+               String property = properties != null ? getSetProperty( exprStr ) : null;
+               if ( property != null ) {
+                   properties.add( property );
+               } else {
+                   properties = null;
+               }
                end = originalBlock.indexOf( exprStr,
                                             start );
                addLineBreaks( consequence,
@@ -712,10 +725,19 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
            addLineBreaks( consequence,
                           originalBlock.substring( end ) );
 
-           if ( declr != null && !declr.isInternalFact() ) {
-               consequence.append( "drools.update( " + obj + "__Handle__ ); }" );
+           String handle = ( declr != null && !declr.isInternalFact() ) ? obj + "__Handle__" : obj + "__Handle2__";
+           if ( properties != null && !properties.isEmpty() ) {
+               // the fact is property reactive, so only the set properties are propagated as modified
+               consequence.append( "drools.update( " + handle + ", " + obj + ", new String[] { " );
+               for ( int i = 0; i < properties.size(); i++ ) {
+                   if ( i > 0 ) {
+                       consequence.append( ", " );
+                   }
+                   consequence.append( "\"" + properties.get( i ) + "\"" );
+               }
+               consequence.append( " } ); }" );
            } else {
-               consequence.append( "drools.update( " + obj + "__Handle2__ ); }" );
+               consequence.append( "drools.update( " + handle + " ); }" );
            }
            
            return declr != null;
@@ -749,6 +771,42 @@ public class JavaConsequenceBuilder extends AbstractJavaRuleBuilder
            return declr != null;
        }
 
+    /**
+     * Returns the property written by a modify expression that is a single
+     * setter call, such as setAge( $a.getAge() + 1 ), or null for anything
+     * else. Chained calls like setAge( 1 ).setName( "x" ) return null, since
+     * what they write cannot be told from the expression.
+     */
+    private String getSetProperty(String expr) {
+        Matcher setter = setterFinder.matcher( expr );
+        if ( !setter.lookingAt() ) {
+            return null;
+        }
+        int depth = 1;
+        char quote = 0;
+        int i = setter.end();
+        for ( ; i < expr.length() && depth > 0; i++ ) {
+            char c = expr.charAt( i );
+            if ( quote != 0 ) {
+                if ( c == '\\' ) {
+                    i++;
+                } else if ( c == quote ) {
+                    quote = 0;
+                }
+            } else if ( c == '"' || c == '\'' ) {
+                quote = c;
+            } else if ( c == '(' ) {
+                depth++;
+            } else if ( c == ')' ) {
+                depth--;
+            }
+        }
+        if ( depth > 0 || expr.substring( i ).trim().length() > 0 ) {
+            return null;
+        }
+        return Introspector.decapitalize( setter.group( 1 ) );
+    }
+
     /**
      * @param consequence
      * @param chunk
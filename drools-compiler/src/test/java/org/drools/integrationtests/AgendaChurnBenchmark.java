@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.integrationtests;
+
+import java.io.StringReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import org.drools.Cheese;
+import org.drools.FactHandle;
+import org.drools.RuleBase;
+import org.drools.RuleBaseConfiguration;
+import org.drools.RuleBaseFactory;
+import org.drools.StatefulSession;
+import org.drools.compiler.PackageBuilder;
+
+/**
+ * Measures the garbage collections caused by activations created and
+ * cancelled without firing, with the default agenda and with the salience
+ * bucket agenda groups and the reuse of activations.
+ */
+public class AgendaChurnBenchmark {
+
+    private static final String DRL = "package org.drools.test\n" +
+                                      "import org.drools.Cheese\n" +
+                                      "rule high salience 10\n" +
+                                      "when\n" +
+                                      "    Cheese( price > 5 )\n" +
+                                      "then\n" +
+                                      "end\n" +
+                                      "rule low\n" +
+                                      "when\n" +
+                                      "    Cheese( price <= 5 )\n" +
+                                      "then\n" +
+                                      "end\n";
+
+    public static void main(final String[] args) throws Exception {
+        int facts = args.length > 0 ? Integer.parseInt( args[0] ) : 1000;
+        int updates = args.length > 1 ? Integer.parseInt( args[1] ) : 2000000;
+        int rounds = args.length > 2 ? Integer.parseInt( args[2] ) : 5;
+
+        RuleBaseConfiguration lean = new RuleBaseConfiguration();
+        lean.setProperty( "drools.agendaGroupFactory",
+                          "org.drools.common.SalienceBucketAgendaGroupFactory" );
+        lean.setAgendaItemPoolSize( facts );
+
+        for ( int i = 0; i < rounds; i++ ) {
+            run( "default",
+                 new RuleBaseConfiguration(),
+                 facts,
+                 updates );
+            run( "lean   ",
+                 lean,
+                 facts,
+                 updates );
+        }
+    }
+
+    private static void run(String name,
+                            RuleBaseConfiguration conf,
+                            int facts,
+                            int updates) throws Exception {
+        PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( DRL ) );
+        RuleBase ruleBase = RuleBaseFactory.newRuleBase( conf );
+        ruleBase.addPackage( builder.getPackage() );
+        StatefulSession session = ruleBase.newStatefulSession();
+
+        Cheese[] cheeses = new Cheese[facts];
+        FactHandle[] handles = new FactHandle[facts];
+        for ( int i = 0; i < facts; i++ ) {
+            cheeses[i] = new Cheese( "stilton",
+                                     i % 10 );
+            handles[i] = session.insert( cheeses[i] );
+        }
+
+        System.gc();
+        long collections = getCollectionCount();
+        long collectionTime = getCollectionTime();
+        long start = System.nanoTime();
+        for ( int i = 0; i < updates; i++ ) {
+            // most updates cancel the activation of a rule and create one of the other
+            int index = i % facts;
+            cheeses[index].setPrice( (cheeses[index].getPrice() + 3) % 10 );
+            session.update( handles[index],
+                            cheeses[index] );
+        }
+        long time = System.nanoTime() - start;
+
+        System.out.println( name + " " + time / updates + "ns/update, " + (getCollectionCount() - collections) + " collections, " + (getCollectionTime() - collectionTime) + "ms in collections" );
+        session.dispose();
+    }
+
+    private static long getCollectionCount() {
+        long count = 0;
+        for ( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            count += Math.max( 0,
+                               bean.getCollectionCount() );
+        }
+        return count;
+    }
+
+    private static long getCollectionTime() {
+        long time = 0;
+        for ( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            time += Math.max( 0,
+                              bean.getCollectionTime() );
+        }
+        return time;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.integrationtests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.Cheese;
+import org.drools.KnowledgeBase;
+import org.drools.KnowledgeBaseFactory;
+import org.drools.builder.KnowledgeBuilder;
+import org.drools.builder.KnowledgeBuilderFactory;
+import org.drools.builder.ResourceType;
+import org.drools.command.Command;
+import org.drools.command.CommandFactory;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+import org.drools.io.ResourceFactory;
+import org.drools.runtime.ExecutionResults;
+import org.drools.runtime.StatelessKnowledgeSession;
+import org.drools.runtime.help.impl.BinaryCommandCodec;
+import org.drools.runtime.rule.QueryResults;
+import org.drools.runtime.rule.QueryResultsRow;
+import org.junit.Test;
+
+public class BinaryCommandCodecTest {
+
+    @Test
+    public void testQueryResultsRoundTrip() throws Exception {
+        String str = "";
+        str += "package org.drools.test  \n";
+        str += "import org.drools.Cheese \n";
+        str += "query cheeses \n";
+        str += "    stilton : Cheese(type == 'stilton') \n";
+        str += "    cheddar : Cheese(type == 'cheddar', price == stilton.price) \n";
+        str += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+        StatelessKnowledgeSession ksession = kbase.newStatelessKnowledgeSession();
+
+        List<Command> cmds = new ArrayList<Command>();
+        cmds.add( CommandFactory.newInsert( new Cheese( "stilton",
+                                                        1 ) ) );
+        cmds.add( CommandFactory.newInsert( new Cheese( "cheddar",
+                                                        1 ) ) );
+        cmds.add( CommandFactory.newInsert( new Cheese( "cheddar",
+                                                        2 ) ) );
+        cmds.add( CommandFactory.newQuery( "cheeses",
+                                           "cheeses" ) );
+
+        BinaryCommandCodec codec = new BinaryCommandCodec();
+        BatchExecutionCommandImpl batch = (BatchExecutionCommandImpl) codec.decode( codec.encode( CommandFactory.newBatchExecution( cmds ) ) );
+
+        // the session returns its own query results, not flat ones
+        ExecutionResults results = (ExecutionResults) ksession.execute( batch );
+        ExecutionResults decoded = (ExecutionResults) codec.decode( codec.encode( results ) );
+
+        QueryResults queryResults = (QueryResults) decoded.getValue( "cheeses" );
+        assertEquals( 1,
+                      queryResults.size() );
+        assertEquals( 2,
+                      queryResults.getIdentifiers().length );
+        QueryResultsRow row = queryResults.iterator().next();
+        assertEquals( new Cheese( "stilton",
+                                  1 ),
+                      row.get( "stilton" ) );
+        assertEquals( new Cheese( "cheddar",
+                                  1 ),
+                      row.get( "cheddar" ) );
+        assertNotNull( row.getFactHandle( "cheddar" ) );
+    }
+
+}
@@ -1,19 +1,31 @@
 package org.drools.integrationtests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.drools.Cheese;
+import org.drools.FactHandle;
 import org.drools.Person;
 import org.drools.RuleBase;
 import org.drools.RuleBaseConfiguration;
 import org.drools.RuleBaseFactory;
+import org.drools.StatefulSession;
 import org.drools.WorkingMemory;
+import org.drools.base.ClassObjectType;
 import org.drools.common.InternalFactHandle;
+import org.drools.common.InternalWorkingMemory;
 import org.drools.compiler.PackageBuilder;
+import org.drools.reteoo.BetaMemory;
+import org.drools.reteoo.JoinNode;
+import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.rule.EntryPoint;
 import org.drools.rule.Package;
 import org.junit.Test;
 
@@ -115,4 +127,72 @@ public class LRUnlinkingTest {
 
     }
 
+    @Test
+    public void lazyLeftMemory() throws Exception {
+        String str = "package org.drools\n" +
+                     "global java.util.List results\n" +
+                     "rule \"likes\"\n" +
+                     "when\n" +
+                     "    Cheese( $type : type )\n" +
+                     "    $person : Person( likes == $type )\n" +
+                     "then\n" +
+                     "    results.add( $person );\n" +
+                     "end\n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( str ) );
+
+        final RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setLRUnlinkingEnabled( true );
+        conf.setLazyLeftMemoryEnabled( true );
+        RuleBase ruleBase = RuleBaseFactory.newRuleBase( conf );
+        ruleBase.addPackage( builder.getPackage() );
+
+        final StatefulSession session = ruleBase.newStatefulSession();
+        final List<Person> results = new ArrayList<Person>();
+        session.setGlobal( "results",
+                           results );
+
+        final ObjectTypeNode otn = ((ReteooRuleBase) ruleBase).getRete().getObjectTypeNodes( EntryPoint.DEFAULT ).get( new ClassObjectType( Person.class ) );
+        final JoinNode join = (JoinNode) otn.getSinkPropagator().getSinks()[0];
+        final BetaMemory memory = (BetaMemory) ((InternalWorkingMemory) session).getNodeMemory( join );
+
+        // no person yet, so the cheeses are not stored
+        session.insert( new Cheese( "stilton" ) );
+        session.insert( new Cheese( "brie" ) );
+        assertTrue( memory.isLeftUnlinked() );
+        assertEquals( 0,
+                      memory.getLeftTupleMemory().size() );
+
+        final Person bob = new Person( "bob" );
+        bob.setLikes( "stilton" );
+        FactHandle handle = session.insert( bob );
+        assertFalse( memory.isLeftUnlinked() );
+        assertEquals( 2,
+                      memory.getLeftTupleMemory().size() );
+        session.fireAllRules();
+        assertEquals( 1,
+                      results.size() );
+
+        // the last person gone, the cheeses are released
+        session.retract( handle );
+        assertTrue( memory.isLeftUnlinked() );
+        assertEquals( 0,
+                      memory.getLeftTupleMemory().size() );
+
+        session.insert( new Cheese( "cheddar" ) );
+        handle = session.insert( bob );
+        session.fireAllRules();
+        assertEquals( 2,
+                      results.size() );
+        assertEquals( 3,
+                      memory.getLeftTupleMemory().size() );
+
+        session.retract( handle );
+        session.insert( bob );
+        session.fireAllRules();
+        assertEquals( 3,
+                      results.size() );
+    }
+
 }
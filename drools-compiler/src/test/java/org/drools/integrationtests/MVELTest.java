@@ -29,9 +29,11 @@ import static org.junit.Assert.*;
 import org.drools.base.ClassFieldReader;
 import org.drools.base.ClassObjectType;
 import org.drools.base.extractors.MVELClassFieldReader;
+import org.drools.base.mvel.MVELCompilationUnit.PropertyHandlerFactoryFixer;
 import org.drools.base.mvel.MVELDebugHandler;
 import org.drools.base.mvel.MVELPredicateExpression;
 import org.drools.base.mvel.MVELReturnValueExpression;
+import org.drools.base.mvel.MVELTieredStatement;
 import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderFactory;
 import org.drools.builder.ResourceType;
@@ -128,6 +130,55 @@ public class MVELTest {
                       list.get( 0 ) );
     }
 
+    @Test
+    public void testHotStatementsArePromoted() throws Exception {
+        String str = "";
+        str += "package org.drools \n";
+        str += "global java.util.List list \n";
+        str += "rule rule1 \n";
+        str += "    dialect \"mvel\" \n";
+        str += "when \n";
+        str += "    $I : Integer( intValue > 2 ) \n";
+        str += "    eval( $I.intValue() % 2 == 0 ) \n";
+        str += "then \n";
+        str += "    list.add( $I.intValue() * 10 ); \n";
+        str += "end \n";
+
+        System.setProperty( MVELTieredStatement.THRESHOLD_PROPERTY,
+                            "3" );
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        try {
+            kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ),
+                          ResourceType.DRL );
+        } finally {
+            System.clearProperty( MVELTieredStatement.THRESHOLD_PROPERTY );
+        }
+        assertFalse( kbuilder.hasErrors() );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        long promoted = MVELTieredStatement.getPromotedCount();
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        List list = new ArrayList();
+        ksession.setGlobal( "list",
+                            list );
+        for ( int i = 0; i < 20; i++ ) {
+            ksession.insert( i );
+        }
+        ksession.fireAllRules();
+
+        // the results do not change when the statements switch to bytecode
+        assertEquals( 8,
+                      list.size() );
+        assertTrue( list.contains( 40 ) );
+        assertTrue( list.contains( 180 ) );
+        if ( PropertyHandlerFactoryFixer.getPropertyHandlerClass().isEmpty() ) {
+            // the eval was executed enough times, the consequence is never promoted
+            assertTrue( MVELTieredStatement.getPromotedCount() >= promoted + 1 );
+        }
+    }
+
     @Test
     public void testEvalWithBigDecimal() throws Exception {
         String str = "";
@@ -0,0 +1,32 @@
+package org.drools.integrationtests;
+
+import org.drools.PropertyReactive;
+
+@PropertyReactive
+public class PropertyReactiveCounter {
+
+    private String name;
+    private int    count;
+
+    public PropertyReactiveCounter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PropertyReactiveCounter setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public PropertyReactiveCounter setCount(int count) {
+        this.count = count;
+        return this;
+    }
+}
@@ -0,0 +1,141 @@
+package org.drools.integrationtests;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.KnowledgeBase;
+import org.drools.KnowledgeBaseFactory;
+import org.drools.builder.KnowledgeBuilder;
+import org.drools.builder.KnowledgeBuilderFactory;
+import org.drools.builder.ResourceType;
+import org.drools.impl.StatefulKnowledgeSessionImpl;
+import org.drools.io.ResourceFactory;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+import org.junit.Test;
+
+public class PropertyReactiveTest {
+
+    @Test
+    public void testModifyOnlyPropagatesToPatternsReadingTheProperties() {
+        String drl = "";
+        drl += "package org.test\n";
+        drl += "import org.drools.integrationtests.PropertyReactiveCounter\n";
+        drl += "global java.util.List list\n";
+        drl += "rule increment\n";
+        drl += "when\n";
+        drl += "   $c : PropertyReactiveCounter( name == \"a\" )\n";
+        drl += "then\n";
+        drl += "   list.add( \"increment\" );\n";
+        drl += "   modify( $c ) { setCount( $c.getCount() + 1 ) }\n";
+        drl += "end\n";
+        drl += "rule limit\n";
+        drl += "when\n";
+        drl += "   PropertyReactiveCounter( count >= 2 )\n";
+        drl += "then\n";
+        drl += "   list.add( \"limit\" );\n";
+        drl += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newReaderResource( new StringReader( drl ) ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        List<String> list = new ArrayList<String>();
+        ksession.setGlobal( "list",
+                            list );
+
+        PropertyReactiveCounter counter = new PropertyReactiveCounter( "a" );
+        FactHandle handle = ksession.insert( counter );
+
+        // the modify of count does not match the increment rule again
+        ksession.fireAllRules( 10 );
+        assertEquals( 1,
+                      counter.getCount() );
+        assertEquals( 1,
+                      list.size() );
+
+        counter.setCount( 5 );
+        ((StatefulKnowledgeSessionImpl) ksession).update( handle,
+                                                          counter,
+                                                          "count" );
+        ksession.fireAllRules( 10 );
+        assertEquals( 5,
+                      counter.getCount() );
+        assertEquals( "limit",
+                      list.get( 1 ) );
+        assertEquals( 2,
+                      list.size() );
+
+        // increment matches again, and its modify matches limit again
+        ((StatefulKnowledgeSessionImpl) ksession).update( handle,
+                                                          counter,
+                                                          "name" );
+        ksession.fireAllRules( 10 );
+        assertEquals( 6,
+                      counter.getCount() );
+        assertEquals( 4,
+                      list.size() );
+        assertEquals( "increment",
+                      list.get( 2 ) );
+        assertEquals( "limit",
+                      list.get( 3 ) );
+
+        ksession.dispose();
+    }
+
+    @Test
+    public void testChainedSettersPropagateAllProperties() {
+        String drl = "";
+        drl += "package org.test\n";
+        drl += "import org.drools.integrationtests.PropertyReactiveCounter\n";
+        drl += "global java.util.List list\n";
+        drl += "rule rename\n";
+        drl += "when\n";
+        drl += "   $c : PropertyReactiveCounter( name == \"a\" )\n";
+        drl += "then\n";
+        drl += "   list.add( \"rename\" );\n";
+        drl += "   modify( $c ) { setCount( 1 ).setName( \"b\" ) }\n";
+        drl += "end\n";
+        drl += "rule renamed\n";
+        drl += "when\n";
+        drl += "   PropertyReactiveCounter( name == \"b\" )\n";
+        drl += "then\n";
+        drl += "   list.add( \"renamed\" );\n";
+        drl += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newReaderResource( new StringReader( drl ) ),
+                      ResourceType.DRL );
+        assertFalse( kbuilder.getErrors().toString(),
+                     kbuilder.hasErrors() );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        List<String> list = new ArrayList<String>();
+        ksession.setGlobal( "list",
+                            list );
+
+        ksession.insert( new PropertyReactiveCounter( "a" ) );
+
+        // the chained call also sets name, so the whole fact is propagated
+        ksession.fireAllRules( 10 );
+        assertEquals( 2,
+                      list.size() );
+        assertEquals( "rename",
+                      list.get( 0 ) );
+        assertEquals( "renamed",
+                      list.get( 1 ) );
+
+        ksession.dispose();
+    }
+
+}
@@ -1,6 +1,7 @@
 package org.drools.integrationtests;
 
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -1062,6 +1063,54 @@ public class TruthMaintenanceTest {
         //System.err.println(reportWMObjects(kSession));
     }
     
+    @Test
+    public void testLogicalInsertionsEqualityBehaviour() throws Exception {
+        String str = "package org.drools\n" +
+                "\n" +
+                "rule \"justify\"\n" +
+                "when\n" +
+                "    Cheese( $type : type )\n" +
+                "then\n" +
+                "    insertLogical( new String( $type ) );\n" +
+                "end\n";
+
+        final PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( str ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setAssertBehaviour( RuleBaseConfiguration.AssertBehaviour.EQUALITY );
+        RuleBase ruleBase = getRuleBase( conf );
+        ruleBase.addPackage( builder.getPackage() );
+        final StatefulSession session = ruleBase.newStatefulSession();
+
+        final org.drools.FactHandle cheese = session.insert( new Cheese( "stilton",
+                                                                         10 ) );
+        session.fireAllRules();
+        assertEquals( 1,
+                      session.getObjects( new ClassObjectFilter( String.class ) ).size() );
+
+        // the stated equal object takes over the justified handle
+        final org.drools.FactHandle justified = session.getFactHandle( "stilton" );
+        assertSame( justified,
+                    session.insert( new String( "stilton" ) ) );
+        assertSame( justified,
+                    session.insert( new String( "stilton" ) ) );
+
+        session.retract( cheese );
+        session.fireAllRules();
+        assertEquals( 1,
+                      session.getObjects( new ClassObjectFilter( String.class ) ).size() );
+
+        session.retract( justified );
+        assertNull( session.getFactHandle( "stilton" ) );
+        assertNotSame( justified,
+                       session.insert( new String( "stilton" ) ) );
+        assertEquals( 1,
+                      session.getObjects( new ClassObjectFilter( String.class ) ).size() );
+    }
+
     public InternalFactHandle getFactHandle(FactHandle factHandle,
                                             StatefulSession session) {
         Map<Integer, FactHandle> handles = new HashMap<Integer, FactHandle>();
@@ -28,6 +28,7 @@ import org.drools.builder.KnowledgeBuilderFactory;
 import org.drools.builder.ResourceType;
 import org.drools.compiler.DroolsParserException;
 import org.drools.compiler.PackageBuilder;
+import org.drools.conf.MostlySequentialOption;
 import org.drools.conf.Option;
 import org.drools.conf.SequentialOption;
 import org.drools.event.rule.ActivationCancelledEvent;
@@ -44,7 +45,9 @@ import org.drools.event.rule.ObjectUpdatedEvent;
 import org.drools.event.rule.WorkingMemoryEventListener;
 import org.drools.integrationtests.DynamicRulesTest;
 import org.drools.integrationtests.SerializationHelper;
+import org.drools.impl.KnowledgeBaseImpl;
 import org.drools.io.ResourceFactory;
+import org.drools.reteoo.ReteooBuilder;
 import org.drools.rule.Package;
 import org.drools.runtime.StatelessKnowledgeSession;
 import org.drools.runtime.rule.WorkingMemory;
@@ -155,6 +158,167 @@ public class SequentialTest {
         ksession.execute( new Message( "help" ) );
     }
     
+    @Test
+    public void testMostlySequential() throws Exception {
+        String str = "";
+        str += "package org.drools.test\n";
+        str += "import org.drools.Cheese\n";
+        str += "global java.util.List list\n";
+        str += "rule report salience 10\n";
+        str += "when\n";
+        str += "    $c : Cheese( )\n";
+        str += "then\n";
+        str += "    list.add( \"report:\" + $c.getType() );\n";
+        str += "end\n";
+        str += "rule discount salience 5\n";
+        str += "when\n";
+        str += "    $c : Cheese( price > 10 )\n";
+        str += "then\n";
+        str += "    modify( $c ) { setPrice( 10 ) };\n";
+        str += "    list.add( \"discount:\" + $c.getType() );\n";
+        str += "end\n";
+        str += "rule cheap\n";
+        str += "when\n";
+        str += "    $c : Cheese( price <= 10 )\n";
+        str += "then\n";
+        str += "    list.add( \"cheap:\" + $c.getType() );\n";
+        str += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ), ResourceType.DRL );
+
+        if ( kbuilder.hasErrors() ) {
+            fail( kbuilder.getErrors().toString() );
+        }
+
+        KnowledgeBaseConfiguration kconf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+        kconf.setProperty( MostlySequentialOption.PROPERTY_NAME, "true" );
+
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( kconf );
+        kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+        kbase    = SerializationHelper.serializeObject( kbase );
+        Package pkg = ((KnowledgeBaseImpl) kbase).ruleBase.getPackage( "org.drools.test" );
+        assertTrue( pkg.getRule( "report" ).isReadOnly() );
+        assertFalse( pkg.getRule( "discount" ).isReadOnly() );
+        assertTrue( pkg.getRule( "cheap" ).isReadOnly() );
+
+        StatelessKnowledgeSession ksession = kbase.newStatelessKnowledgeSession();
+        List list = new ArrayList();
+        ksession.setGlobal( "list", list );
+        ksession.execute( Arrays.asList( new Object[]{new Cheese( "stilton", 20 ), new Cheese( "brie", 5 )} ) );
+
+        // the read only rules fire their activations in the order they were created,
+        // and the modified cheese is reported again before the cheap cheeses
+        assertEquals( Arrays.asList( "report:stilton", "report:brie", "discount:stilton", "report:stilton", "cheap:brie", "cheap:stilton" ),
+                      list );
+    }
+
+    @Test
+    public void testMostlySequentialActivationGroup() throws Exception {
+        String str = "";
+        str += "package org.drools.test\n";
+        str += "import org.drools.Cheese\n";
+        str += "global java.util.List list\n";
+        str += "rule first activation-group \"cheese\"\n";
+        str += "when\n";
+        str += "    $c : Cheese( )\n";
+        str += "then\n";
+        str += "    list.add( drools.getRule().getName() );\n";
+        str += "end\n";
+        str += "rule second activation-group \"cheese\"\n";
+        str += "when\n";
+        str += "    $c : Cheese( )\n";
+        str += "then\n";
+        str += "    list.add( \"second\" );\n";
+        str += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ), ResourceType.DRL );
+
+        if ( kbuilder.hasErrors() ) {
+            fail( kbuilder.getErrors().toString() );
+        }
+
+        List expected = null;
+        for ( String mostlySequential : new String[]{"false", "true"} ) {
+            KnowledgeBaseConfiguration kconf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+            kconf.setProperty( MostlySequentialOption.PROPERTY_NAME, mostlySequential );
+
+            KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( kconf );
+            kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+            // firing a rule of an activation group cancels the other activations of the group
+            Package pkg = ((KnowledgeBaseImpl) kbase).ruleBase.getPackage( "org.drools.test" );
+            assertTrue( pkg.getRule( "second" ).isReadOnly() );
+            assertFalse( ReteooBuilder.isSequential( pkg.getRule( "second" ) ) );
+
+            StatelessKnowledgeSession ksession = kbase.newStatelessKnowledgeSession();
+            List list = new ArrayList();
+            ksession.setGlobal( "list", list );
+            ksession.execute( new Cheese( "stilton", 15 ) );
+
+            assertEquals( 1, list.size() );
+            if ( expected == null ) {
+                expected = list;
+            } else {
+                // the same rule of the group wins in both modes
+                assertEquals( expected, list );
+            }
+        }
+    }
+
+    @Test
+    public void testMostlySequentialRecentWriterFiresFirst() throws Exception {
+        String str = "";
+        str += "package org.drools.test\n";
+        str += "import org.drools.Cheese\n";
+        str += "import org.drools.Person\n";
+        str += "global java.util.List list\n";
+        str += "rule reader\n";
+        str += "when\n";
+        str += "    $c : Cheese( )\n";
+        str += "then\n";
+        str += "    list.add( drools.getRule().getName() );\n";
+        str += "end\n";
+        str += "rule writer\n";
+        str += "when\n";
+        str += "    $c : Cheese( )\n";
+        str += "    Person( )\n";
+        str += "then\n";
+        str += "    list.add( drools.getRule().getName() );\n";
+        str += "    retract( $c );\n";
+        str += "end\n";
+
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( str.getBytes() ), ResourceType.DRL );
+
+        if ( kbuilder.hasErrors() ) {
+            fail( kbuilder.getErrors().toString() );
+        }
+
+        for ( String mostlySequential : new String[]{"false", "true"} ) {
+            KnowledgeBaseConfiguration kconf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+            kconf.setProperty( MostlySequentialOption.PROPERTY_NAME, mostlySequential );
+
+            KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase( kconf );
+            kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+            Package pkg = ((KnowledgeBaseImpl) kbase).ruleBase.getPackage( "org.drools.test" );
+            assertTrue( ReteooBuilder.isSequential( pkg.getRule( "reader" ) ) );
+            assertFalse( ReteooBuilder.isSequential( pkg.getRule( "writer" ) ) );
+
+            StatelessKnowledgeSession ksession = kbase.newStatelessKnowledgeSession();
+            List list = new ArrayList();
+            ksession.setGlobal( "list", list );
+            // the person makes the writer activation more recent than the reader one,
+            // so at equal salience the writer fires first and retracts the cheese
+            ksession.execute( Arrays.asList( new Object[]{new Cheese( "stilton", 15 ), new Person( "mark" )} ) );
+
+            assertEquals( Arrays.asList( new Object[]{"writer"} ), list );
+        }
+    }
+
     @Test
     public void testEvents() throws Exception {
         String str = "";
@@ -0,0 +1,55 @@
+package org.drools.lang.dsl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DSLMappingIndexTest {
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals( "Person",
+                      DSLMappingIndex.getRequiredLiteral( Pattern.compile( "(?:(?<=^)|(?<=\\W))There\\s+is\\s+a\\s+Person\\s+(.*?)$" ) ) );
+        // the optional letter is not required
+        assertEquals( "Cheese",
+                      DSLMappingIndex.getRequiredLiteral( Pattern.compile( "Cheeses?\\s+(.*?)" ) ) );
+        assertNull( DSLMappingIndex.getRequiredLiteral( Pattern.compile( "Person|Cheese" ) ) );
+        assertNull( DSLMappingIndex.getRequiredLiteral( Pattern.compile( "(?i)Person" ) ) );
+        assertNull( DSLMappingIndex.getRequiredLiteral( Pattern.compile( "(foo|bar)\\s+(.*?)" ) ) );
+    }
+
+    @Test
+    public void testCandidates() {
+        List<DSLMappingEntry> entries = new ArrayList<DSLMappingEntry>();
+        entries.add( entry( "There is a Person" ) );
+        entries.add( entry( "There is a Cheese" ) );
+        entries.add( entry( "{first} {second}" ) );
+        entries.add( entry( "the cheese is {type}" ) );
+        DSLMappingIndex index = new DSLMappingIndex( entries );
+
+        BitSet candidates = index.getCandidates( "There is a Person" );
+        assertTrue( candidates.get( 0 ) );
+        assertFalse( candidates.get( 1 ) );
+        assertTrue( candidates.get( 2 ) );
+        assertFalse( candidates.get( 3 ) );
+
+        index.addCandidates( "and the cheese is old",
+                             candidates );
+        assertTrue( candidates.get( 3 ) );
+    }
+
+    private static DSLMappingEntry entry(String key) {
+        return new AntlrDSLMappingEntry( DSLMappingEntry.CONDITION,
+                                         DSLMappingEntry.EMPTY_METADATA,
+                                         key,
+                                         "",
+                                         key.replaceAll( "\\{\\w+\\}",
+                                                         "(.*?)" ),
+                                         "" );
+    }
+
+}
@@ -94,6 +94,34 @@ public class DefaultExpanderTest {
         //System.err.println(ex.expand( "rule 'x' \n when \n foo \n then \n end" ));
     }
 
+    @Test
+    public void testExpandRepeatedLines() throws Exception {
+        DSLMappingFile file = new DSLTokenizedMappingFile();
+        String dsl = "[when]There is a baby=There is a Person aged 1\n" +
+                     "[when]There is a Person aged {age}=Person( age == {age} )\n" +
+                     "[then]Log {msg}=System.out.println( \"{msg}\" );";
+        file.parseAndLoad( new StringReader( dsl ) );
+        assertEquals( 0,
+                      file.getErrors().size() );
+        DefaultExpander ex = new DefaultExpander();
+        ex.addDSLMapping( file.getMapping() );
+
+        String rule = "rule x\nwhen\n There is a baby\n There is a Person aged 30\nthen\n Log hello\nend\n";
+        String drl = ex.expand( rule + rule.replace( "rule x",
+                                                     "rule y" ) );
+        assertFalse( ex.getErrors().toString(),
+                     ex.hasErrors() );
+
+        // the expansion of the first entry is expanded by the second one, and
+        // the second rule gets the cached expansions of the first one
+        assertEquals( 2,
+                      drl.split( "Person\\( age == 1 \\)" ).length - 1 );
+        assertEquals( 2,
+                      drl.split( "Person\\( age == 30 \\)" ).length - 1 );
+        assertEquals( 2,
+                      drl.split( "System.out.println\\( \"hello\" \\);" ).length - 1 );
+    }
+
     @Test
     public void testANTLRExpandParts() throws Exception {
         DSLTokenizedMappingFile file = new DSLTokenizedMappingFile();
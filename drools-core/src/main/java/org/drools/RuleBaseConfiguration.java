@@ -31,6 +31,7 @@ import org.drools.builder.conf.DeclarativeAgendaOption;
 import org.drools.builder.conf.LRUnlinkingOption;
 import org.drools.common.AgendaGroupFactory;
 import org.drools.common.ArrayAgendaGroupFactory;
+import org.drools.common.MostlySequentialAgendaGroupFactory;
 import org.drools.common.PriorityQueueAgendaGroupFactory;
 import org.drools.concurrent.DefaultExecutorService;
 import org.drools.conf.AlphaThresholdOption;
@@ -41,11 +42,13 @@ import org.drools.conf.EventProcessingOption;
 import org.drools.conf.IndexLeftBetaMemoryOption;
 import org.drools.conf.IndexRightBetaMemoryOption;
 import org.drools.conf.KnowledgeBaseOption;
+import org.drools.conf.LazyLeftMemoryOption;
 import org.drools.conf.LogicalOverrideOption;
 import org.drools.conf.MBeansOption;
 import org.drools.conf.MaintainTMSOption;
 import org.drools.conf.MaxThreadsOption;
 import org.drools.conf.MultiValueKnowledgeBaseOption;
+import org.drools.conf.MostlySequentialOption;
 import org.drools.conf.MultithreadEvaluationOption;
 import org.drools.conf.RemoveIdentitiesOption;
 import org.drools.conf.SequentialAgendaOption;
@@ -86,6 +89,7 @@ import org.mvel2.MVEL;
  * drools.maintainTms = &lt;true|false&gt;
  * drools.sequential = &lt;true|false&gt;
  * drools.sequential.agenda = &lt;sequential|dynamic&gt;
+ * drools.mostlySequential = &lt;true|false&gt;
  * drools.removeIdentities = &lt;true|false&gt;
  * drools.shareAlphaNodes  = &lt;true|false&gt;
  * drools.shareBetaNodes = &lt;true|false&gt;
@@ -97,6 +101,8 @@ import org.mvel2.MVEL;
  * drools.logicalOverride = &lt;discard|preserve&gt;
  * drools.executorService = &lt;qualified class name&gt;
  * drools.conflictResolver = &lt;qualified class name&gt;
+ * drools.agendaGroupFactory = &lt;qualified class name&gt;
+ * drools.agendaItemPoolSize = &lt;0..n&gt;
  * drools.consequenceExceptionHandler = &lt;qualified class name&gt;
  * drools.ruleBaseUpdateHandler = &lt;qualified class name&gt;
  * drools.sessionClock = &lt;qualified class name&gt;
@@ -105,6 +111,7 @@ import org.mvel2.MVEL;
  * drools.mbeans = &lt;enabled|disabled&gt;
  * drools.classLoaderCacheEnabled = &lt;true|false&gt;
  * drools.lrUnlinkingEnabled = &lt;true|false&gt; 
+ * drools.lazyLeftMemory = &lt;true|false&gt;
  * drools.declarativeAgendaEnabled =  &lt;true|false&gt; 
  * </pre>
  */
@@ -122,6 +129,7 @@ public class RuleBaseConfiguration
 
     private boolean                        sequential;
     private SequentialAgenda               sequentialAgenda;
+    private boolean                        mostlySequential;
 
     private boolean                        maintainTms;
     private boolean                        removeIdentities;
@@ -138,6 +146,7 @@ public class RuleBaseConfiguration
     private String                         ruleBaseUpdateHandler;
     private boolean                        classLoaderCacheEnabled;
     private boolean                        lrUnlinkingEnabled;
+    private boolean                        lazyLeftMemory;
 
     private boolean                        declarativeAgenda;
     
@@ -153,6 +162,11 @@ public class RuleBaseConfiguration
     private boolean                        mbeansEnabled;
 
     private ConflictResolver               conflictResolver;
+
+    private AgendaGroupFactory             agendaGroupFactory;
+
+    // the number of cancelled activations each session keeps for reuse
+    private int                            agendaItemPoolSize;
     
     private Map<String, ActivationListenerFactory> activationListeners;
 
@@ -193,6 +207,10 @@ public class RuleBaseConfiguration
         out.writeBoolean( classLoaderCacheEnabled );
         out.writeBoolean( lrUnlinkingEnabled );
         out.writeBoolean(  declarativeAgenda );
+        out.writeObject( agendaGroupFactory );
+        out.writeInt( agendaItemPoolSize );
+        out.writeBoolean( mostlySequential );
+        out.writeBoolean( lazyLeftMemory );
     }
 
     public void readExternal(ObjectInput in) throws IOException,
@@ -222,6 +240,10 @@ public class RuleBaseConfiguration
         classLoaderCacheEnabled = in.readBoolean();
         lrUnlinkingEnabled = in.readBoolean();
         declarativeAgenda = in.readBoolean();
+        agendaGroupFactory = (AgendaGroupFactory) in.readObject();
+        agendaItemPoolSize = in.readInt();
+        mostlySequential = in.readBoolean();
+        lazyLeftMemory = in.readBoolean();
     }
 
     /**
@@ -273,6 +295,8 @@ public class RuleBaseConfiguration
             setSequentialAgenda( SequentialAgenda.determineSequentialAgenda( StringUtils.isEmpty( value ) ? "sequential" : value ) );
         } else if ( name.equals( SequentialOption.PROPERTY_NAME ) ) {
             setSequential( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
+        } else if ( name.equals( MostlySequentialOption.PROPERTY_NAME ) ) {
+            setMostlySequential( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
         } else if ( name.equals( MaintainTMSOption.PROPERTY_NAME ) ) {
             setMaintainTms( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
         } else if ( name.equals( RemoveIdentitiesOption.PROPERTY_NAME ) ) {
@@ -301,6 +325,10 @@ public class RuleBaseConfiguration
             setRuleBaseUpdateHandler( StringUtils.isEmpty( value ) ? "" : value );
         } else if ( name.equals( "drools.conflictResolver" ) ) {
             setConflictResolver( determineConflictResolver( StringUtils.isEmpty( value ) ? DepthConflictResolver.class.getName() : value ) );
+        } else if ( name.equals( "drools.agendaGroupFactory" ) ) {
+            setAgendaGroupFactory( determineAgendaGroupFactory( StringUtils.isEmpty( value ) ? PriorityQueueAgendaGroupFactory.class.getName() : value ) );
+        } else if ( name.equals( "drools.agendaItemPoolSize" ) ) {
+            setAgendaItemPoolSize( StringUtils.isEmpty( value ) ? 0 : Integer.parseInt( value ) );
         } else if ( name.equals( "drools.advancedProcessRuleIntegration" ) ) {
             setAdvancedProcessRuleIntegration( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
         } else if ( name.equals( MultithreadEvaluationOption.PROPERTY_NAME ) ) {
@@ -315,6 +343,8 @@ public class RuleBaseConfiguration
             setClassLoaderCacheEnabled( StringUtils.isEmpty( value ) ? true : Boolean.valueOf( value ) );
         } else if ( name.equals( LRUnlinkingOption.PROPERTY_NAME ) ) {
             setLRUnlinkingEnabled( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
+        } else if ( name.equals( LazyLeftMemoryOption.PROPERTY_NAME ) ) {
+            setLazyLeftMemoryEnabled( StringUtils.isEmpty( value ) ? false : Boolean.valueOf( value ) );
         }
     }
 
@@ -328,6 +358,8 @@ public class RuleBaseConfiguration
             return getSequentialAgenda().toExternalForm();
         } else if ( name.equals( SequentialOption.PROPERTY_NAME ) ) {
             return Boolean.toString( isSequential() );
+        } else if ( name.equals( MostlySequentialOption.PROPERTY_NAME ) ) {
+            return Boolean.toString( isMostlySequential() );
         } else if ( name.equals( MaintainTMSOption.PROPERTY_NAME ) ) {
             return Boolean.toString( isMaintainTms() );
         } else if ( name.equals( RemoveIdentitiesOption.PROPERTY_NAME ) ) {
@@ -356,6 +388,10 @@ public class RuleBaseConfiguration
             return getRuleBaseUpdateHandler();
         } else if ( name.equals( "drools.conflictResolver" ) ) {
             return getConflictResolver().getClass().getName();
+        } else if ( name.equals( "drools.agendaGroupFactory" ) ) {
+            return this.agendaGroupFactory.getClass().getName();
+        } else if ( name.equals( "drools.agendaItemPoolSize" ) ) {
+            return Integer.toString( getAgendaItemPoolSize() );
         } else if ( name.equals( "drools.advancedProcessRuleIntegration" ) ) {
             return Boolean.toString( isAdvancedProcessRuleIntegration() );
         } else if ( name.equals( MultithreadEvaluationOption.PROPERTY_NAME ) ) {
@@ -370,6 +406,8 @@ public class RuleBaseConfiguration
             return Boolean.toString( isClassLoaderCacheEnabled() );
         } else if ( name.equals( LRUnlinkingOption.PROPERTY_NAME ) ) {
             return Boolean.toString( isLRUnlinkingEnabled() );
+        } else if ( name.equals( LazyLeftMemoryOption.PROPERTY_NAME ) ) {
+            return Boolean.toString( isLazyLeftMemoryEnabled() );
         }
 
         return null;
@@ -409,6 +447,9 @@ public class RuleBaseConfiguration
         setSequential( Boolean.valueOf( this.chainedProperties.getProperty( SequentialOption.PROPERTY_NAME,
                                                                             "false" ) ).booleanValue() );
 
+        setMostlySequential( Boolean.valueOf( this.chainedProperties.getProperty( MostlySequentialOption.PROPERTY_NAME,
+                                                                                  "false" ) ).booleanValue() );
+
         setMaintainTms( Boolean.valueOf( this.chainedProperties.getProperty( MaintainTMSOption.PROPERTY_NAME,
                                                                              "true" ) ).booleanValue() );
 
@@ -449,6 +490,12 @@ public class RuleBaseConfiguration
         setConflictResolver( determineConflictResolver( this.chainedProperties.getProperty( "drools.conflictResolver",
                                                         "org.drools.conflict.DepthConflictResolver" ) ) );
 
+        setAgendaGroupFactory( determineAgendaGroupFactory( this.chainedProperties.getProperty( "drools.agendaGroupFactory",
+                                                                                                "org.drools.common.PriorityQueueAgendaGroupFactory" ) ) );
+
+        setAgendaItemPoolSize( Integer.parseInt( this.chainedProperties.getProperty( "drools.agendaItemPoolSize",
+                                                                                     "0" ) ) );
+
         setAdvancedProcessRuleIntegration( Boolean.valueOf( this.chainedProperties.getProperty( "drools.advancedProcessRuleIntegration",
                                                                                                 "false" ) ).booleanValue() );
 
@@ -469,6 +516,8 @@ public class RuleBaseConfiguration
         
         setLRUnlinkingEnabled( Boolean.valueOf( this.chainedProperties.getProperty( LRUnlinkingOption.PROPERTY_NAME,
                                                                                     "false" ) ) );
+        setLazyLeftMemoryEnabled( Boolean.valueOf( this.chainedProperties.getProperty( LazyLeftMemoryOption.PROPERTY_NAME,
+                                                                                       "false" ) ) );
         setDeclarativeAgendaEnabled( Boolean.valueOf( this.chainedProperties.getProperty( DeclarativeAgendaOption.PROPERTY_NAME,
                                                                                           "false" ) ) );        
 
@@ -508,6 +557,23 @@ public class RuleBaseConfiguration
         return this.sequential;
     }
 
+    /**
+     * Enables the mostly sequential mode: the activations of the rules whose
+     * consequences were found at build time not to change the working memory
+     * are fired in the precomputed order of the sequential mode, without
+     * going through the agenda heap, while the other rules keep the normal
+     * Rete semantics. Unlike the sequential mode, it does not restrict the
+     * sessions that can be created. It is ignored in sequential mode.
+     */
+    public void setMostlySequential(boolean mostlySequential) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.mostlySequential = mostlySequential;
+    }
+
+    public boolean isMostlySequential() {
+        return this.mostlySequential && !this.sequential;
+    }
+
     public boolean isMaintainTms() {
         return this.maintainTms;
     }
@@ -647,11 +713,50 @@ public class RuleBaseConfiguration
             } else {
                 return PriorityQueueAgendaGroupFactory.getInstance();
             }
+        } else if ( isMostlySequential() ) {
+            return MostlySequentialAgendaGroupFactory.getInstance();
         } else {
-            return PriorityQueueAgendaGroupFactory.getInstance();
+            return this.agendaGroupFactory;
         }
     }
 
+    public void setAgendaGroupFactory(AgendaGroupFactory agendaGroupFactory) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.agendaGroupFactory = agendaGroupFactory;
+    }
+
+    private AgendaGroupFactory determineAgendaGroupFactory(String className) {
+        Class clazz = null;
+        try {
+            clazz = this.classLoader.loadClass( className );
+        } catch ( ClassNotFoundException e ) {
+            throw new IllegalArgumentException( "agenda group factory '" + className + "' not found" );
+        }
+
+        try {
+            return (AgendaGroupFactory) clazz.getMethod( "getInstance",
+                                                         null ).invoke( null,
+                                                                        null );
+        } catch ( Exception e ) {
+            throw new IllegalArgumentException( "Unable to set Agenda Group Factory '" + className + "'" );
+        }
+    }
+
+    public int getAgendaItemPoolSize() {
+        return this.agendaItemPoolSize;
+    }
+
+    /**
+     * Sets the number of cancelled activations each session keeps to reuse
+     * them for the next activations, 0 to disable the pool. Only the
+     * sessions without agenda event listeners reuse activations, as the
+     * listeners may keep references to them.
+     */
+    public void setAgendaItemPoolSize(int agendaItemPoolSize) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.agendaItemPoolSize = agendaItemPoolSize;
+    }
+
     public SequentialAgenda getSequentialAgenda() {
         return this.sequentialAgenda;
     }
@@ -746,6 +851,26 @@ public class RuleBaseConfiguration
         }
     }
 
+    /**
+     * @return whether or not the left memories are only populated while
+     * their right memories have facts.
+     */
+    public boolean isLazyLeftMemoryEnabled() {
+        return this.lazyLeftMemory;
+    }
+
+    /**
+     * Enable lazy left memories, on top of Left & Right Unlinking, which
+     * must be enabled too. A join node then does not store the partial
+     * matches from its left input while its right input has no fact, and
+     * releases the ones it stored when its last fact is retracted. They are
+     * rebuilt from the left input when the next fact arrives.
+     * @param enabled
+     */
+    public void setLazyLeftMemoryEnabled(boolean enabled) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.lazyLeftMemory = enabled;
+    }
     
     public boolean isDeclarativeAgenda() {
         return this.declarativeAgenda;
@@ -1107,6 +1232,8 @@ public class RuleBaseConfiguration
             return (T) (this.maintainTms ? MaintainTMSOption.YES : MaintainTMSOption.NO);
         } else if ( SequentialOption.class.equals( option ) ) {
             return (T) (this.sequential ? SequentialOption.YES : SequentialOption.NO);
+        } else if ( MostlySequentialOption.class.equals( option ) ) {
+            return (T) (this.mostlySequential ? MostlySequentialOption.YES : MostlySequentialOption.NO);
         } else if ( RemoveIdentitiesOption.class.equals( option ) ) {
             return (T) (this.removeIdentities ? RemoveIdentitiesOption.YES : RemoveIdentitiesOption.NO);
         } else if ( ShareAlphaNodesOption.class.equals( option ) ) {
@@ -1148,6 +1275,8 @@ public class RuleBaseConfiguration
             return (T) (this.isClassLoaderCacheEnabled() ? ClassLoaderCacheOption.ENABLED : ClassLoaderCacheOption.DISABLED);
         } else if ( LRUnlinkingOption.class.equals( option ) ) {
             return (T) (this.isLRUnlinkingEnabled() ? LRUnlinkingOption.ENABLED : LRUnlinkingOption.DISABLED);
+        } else if ( LazyLeftMemoryOption.class.equals( option ) ) {
+            return (T) (this.lazyLeftMemory ? LazyLeftMemoryOption.ENABLED : LazyLeftMemoryOption.DISABLED);
         } else if ( DeclarativeAgendaOption.class.equals( option )  ) {
             return (T) (this.isDeclarativeAgenda() ? DeclarativeAgendaOption.ENABLED : DeclarativeAgendaOption.DISABLED);
         }
@@ -1160,6 +1289,8 @@ public class RuleBaseConfiguration
             setMaintainTms( ((MaintainTMSOption) option).isMaintainTMS() );
         } else if ( option instanceof SequentialOption ) {
             setSequential( ((SequentialOption) option).isSequential() );
+        } else if ( option instanceof MostlySequentialOption ) {
+            setMostlySequential( ((MostlySequentialOption) option).isMostlySequential() );
         } else if ( option instanceof RemoveIdentitiesOption ) {
             setRemoveIdentities( ((RemoveIdentitiesOption) option).isRemoveIdentities() );
         } else if ( option instanceof ShareAlphaNodesOption ) {
@@ -1194,6 +1325,8 @@ public class RuleBaseConfiguration
             setClassLoaderCacheEnabled( ((ClassLoaderCacheOption) option).isClassLoaderCacheEnabled() );
         } else if ( option instanceof LRUnlinkingOption ) {
             setLRUnlinkingEnabled( ((LRUnlinkingOption) option).isLRUnlinkingEnabled() );
+        } else if ( option instanceof LazyLeftMemoryOption ) {
+            setLazyLeftMemoryEnabled( ((LazyLeftMemoryOption) option).isLazyLeftMemoryEnabled() );
         } else if ( option instanceof DeclarativeAgendaOption ) {
             setDeclarativeAgendaEnabled( ((DeclarativeAgendaOption) option).isDeclarativeAgendaEnabled() );
         }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.audit;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.audit.event.LogEvent;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Reads the files written by BinaryWorkingMemoryFileLogger back into
+ * LogEvents, and converts them to the XML format written by
+ * WorkingMemoryFileLogger, so existing tooling such as the audit view can
+ * open them.
+ */
+public class BinaryAuditLogReader {
+
+    private BinaryAuditLogReader() {
+    }
+
+    /**
+     * Returns the existing log files for the given base name, oldest first.
+     * Files deleted by rotation are skipped.
+     */
+    public static List<File> getLogFiles(final String fileName) {
+        final List<File> files = new ArrayList<File>();
+        // older files may have been deleted, so look for the first one left
+        final File dir = new File( fileName ).getAbsoluteFile().getParentFile();
+        final String prefix = new File( fileName ).getName() + ".";
+        int first = Integer.MAX_VALUE;
+        final String[] names = dir == null ? null : dir.list();
+        if ( names != null ) {
+            for ( String name : names ) {
+                if ( name.startsWith( prefix ) && name.endsWith( RollingAuditLogFile.EXTENSION ) ) {
+                    try {
+                        int index = Integer.parseInt( name.substring( prefix.length(),
+                                                                      name.length() - RollingAuditLogFile.EXTENSION.length() ) );
+                        first = Math.min( first,
+                                          index );
+                    } catch ( NumberFormatException e ) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        if ( first == Integer.MAX_VALUE ) {
+            return files;
+        }
+        for ( int i = first;; i++ ) {
+            File file = RollingAuditLogFile.getFile( fileName,
+                                                     i );
+            if ( !file.exists() ) {
+                return files;
+            }
+            files.add( file );
+        }
+    }
+
+    /**
+     * Reads all the events logged under the given base name, oldest first.
+     */
+    public static List<LogEvent> readEvents(final String fileName) throws IOException {
+        final List<LogEvent> events = new ArrayList<LogEvent>();
+        for ( File file : getLogFiles( fileName ) ) {
+            readEvents( file,
+                        events );
+        }
+        return events;
+    }
+
+    /**
+     * Reads all the events of a single log file, adding them to the given list.
+     */
+    public static void readEvents(final File file,
+                                  final List<LogEvent> events) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile( file,
+                                                           "r" );
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY,
+                                                   0,
+                                                   channel.size() );
+            if ( buffer.remaining() < BinaryLogEventCodec.FILE_HEADER_SIZE || buffer.getInt() != BinaryLogEventCodec.MAGIC ) {
+                throw new IOException( file + " is not a binary audit log" );
+            }
+            final int version = buffer.getInt();
+            if ( version != BinaryLogEventCodec.VERSION ) {
+                throw new IOException( file + " has unsupported audit log version " + version );
+            }
+            LogEvent event;
+            while ( (event = BinaryLogEventCodec.decode( buffer )) != null ) {
+                events.add( event );
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes all the events logged under the given base name to xmlFileName
+     * as an XStream object stream, as WorkingMemoryFileLogger does.
+     */
+    public static void convertToXml(final String fileName,
+                                    final String xmlFileName) throws IOException {
+        final XStream xstream = new XStream();
+        final FileWriter writer = new FileWriter( xmlFileName );
+        try {
+            writer.write( "<object-stream>\n" );
+            for ( File file : getLogFiles( fileName ) ) {
+                final List<LogEvent> events = new ArrayList<LogEvent>();
+                readEvents( file,
+                            events );
+                for ( LogEvent event : events ) {
+                    writer.write( xstream.toXML( event ) + "\n" );
+                }
+            }
+            writer.write( "</object-stream>\n" );
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Converts a binary audit log to XML from the command line:
+     * BinaryAuditLogReader &lt;fileName&gt; &lt;xmlFileName&gt;
+     */
+    public static void main(final String[] args) throws IOException {
+        if ( args.length != 2 ) {
+            System.err.println( "Usage: BinaryAuditLogReader <fileName> <xmlFileName>" );
+            return;
+        }
+        convertToXml( args[0],
+                      args[1] );
+    }
+
+}
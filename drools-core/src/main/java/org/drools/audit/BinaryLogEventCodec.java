@@ -0,0 +1,292 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.audit;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.drools.audit.event.ActivationLogEvent;
+import org.drools.audit.event.LogEvent;
+import org.drools.audit.event.ObjectLogEvent;
+import org.drools.audit.event.RuleBaseLogEvent;
+import org.drools.audit.event.RuleFlowGroupLogEvent;
+import org.drools.audit.event.RuleFlowLogEvent;
+import org.drools.audit.event.RuleFlowNodeLogEvent;
+import org.drools.audit.event.RuleFlowVariableLogEvent;
+
+/**
+ * Encodes and decodes LogEvents to and from the binary audit record layout.
+ *
+ * Every record starts with a fixed header:
+ * <pre>
+ * int  length     total record length in bytes, including the header
+ * int  type       LogEvent.getType()
+ * long timestamp  System.currentTimeMillis() when the event was logged
+ * byte kind       the LogEvent subclass, one of the KIND_ constants
+ * </pre>
+ * followed by the fields of that subclass, in constructor order. Strings are
+ * written as an int byte count (-1 for null) followed by UTF-8 bytes.
+ *
+ * A length of 0 marks the end of the written part of a log file, since the
+ * length is the last thing written for each record.
+ */
+final class BinaryLogEventCodec {
+
+    static final int            MAGIC               = 0x44524C41;             // "DRLA"
+    static final int            VERSION             = 1;
+    static final int            FILE_HEADER_SIZE    = 8;
+    static final int            RECORD_HEADER_SIZE  = 17;
+
+    static final byte           KIND_PLAIN          = 0;
+    static final byte           KIND_OBJECT         = 1;
+    static final byte           KIND_ACTIVATION     = 2;
+    static final byte           KIND_RULEBASE       = 3;
+    static final byte           KIND_RULEFLOW       = 4;
+    static final byte           KIND_RULEFLOW_GROUP = 5;
+    static final byte           KIND_RULEFLOW_NODE  = 6;
+    static final byte           KIND_RULEFLOW_VAR   = 7;
+
+    private static final String UTF8                = "UTF-8";
+
+    private BinaryLogEventCodec() {
+    }
+
+    /**
+     * Encodes the given event into the buffer, starting at position 0. The
+     * length slot is left as 0, so that the writer can publish it last.
+     *
+     * @return the encoded buffer, flipped for reading; this is a new, larger
+     *         buffer if the given one was too small
+     */
+    static ByteBuffer encode(final LogEvent event,
+                             final long timestamp,
+                             ByteBuffer buffer) {
+        while ( true ) {
+            buffer.clear();
+            try {
+                buffer.putInt( 0 );
+                buffer.putInt( event.getType() );
+                buffer.putLong( timestamp );
+                encodeBody( event,
+                            buffer );
+                buffer.flip();
+                return buffer;
+            } catch ( BufferOverflowException e ) {
+                buffer = ByteBuffer.allocate( buffer.capacity() * 2 );
+            }
+        }
+    }
+
+    private static void encodeBody(final LogEvent event,
+                                   final ByteBuffer buffer) {
+        if ( event instanceof ObjectLogEvent ) {
+            ObjectLogEvent e = (ObjectLogEvent) event;
+            buffer.put( KIND_OBJECT );
+            buffer.putLong( e.getFactId() );
+            putString( buffer,
+                       e.getObjectToString() );
+        } else if ( event instanceof ActivationLogEvent ) {
+            ActivationLogEvent e = (ActivationLogEvent) event;
+            buffer.put( KIND_ACTIVATION );
+            putString( buffer,
+                       e.getActivationId() );
+            putString( buffer,
+                       e.getRule() );
+            putString( buffer,
+                       e.getDeclarations() );
+            putString( buffer,
+                       e.getRuleFlowGroup() );
+        } else if ( event instanceof RuleBaseLogEvent ) {
+            RuleBaseLogEvent e = (RuleBaseLogEvent) event;
+            buffer.put( KIND_RULEBASE );
+            putString( buffer,
+                       e.getPackageName() );
+            putString( buffer,
+                       e.getRuleName() );
+        } else if ( event instanceof RuleFlowGroupLogEvent ) {
+            RuleFlowGroupLogEvent e = (RuleFlowGroupLogEvent) event;
+            buffer.put( KIND_RULEFLOW_GROUP );
+            putString( buffer,
+                       e.getGroupName() );
+            buffer.putInt( e.getSize() );
+        } else if ( event instanceof RuleFlowNodeLogEvent ) {
+            RuleFlowNodeLogEvent e = (RuleFlowNodeLogEvent) event;
+            buffer.put( KIND_RULEFLOW_NODE );
+            putProcess( buffer,
+                        e );
+            putString( buffer,
+                       e.getNodeId() );
+            putString( buffer,
+                       e.getNodeName() );
+            putString( buffer,
+                       e.getNodeInstanceId() );
+        } else if ( event instanceof RuleFlowVariableLogEvent ) {
+            RuleFlowVariableLogEvent e = (RuleFlowVariableLogEvent) event;
+            buffer.put( KIND_RULEFLOW_VAR );
+            putProcess( buffer,
+                        e );
+            putString( buffer,
+                       e.getVariableId() );
+            putString( buffer,
+                       e.getVariableInstanceId() );
+            putString( buffer,
+                       e.getObjectToString() );
+        } else if ( event instanceof RuleFlowLogEvent ) {
+            buffer.put( KIND_RULEFLOW );
+            putProcess( buffer,
+                        (RuleFlowLogEvent) event );
+        } else {
+            buffer.put( KIND_PLAIN );
+        }
+    }
+
+    /**
+     * Decodes the record starting at the buffer's current position. The
+     * position is left at the start of the next record.
+     *
+     * @return the decoded event, or null if there are no more records
+     */
+    static LogEvent decode(final ByteBuffer buffer) {
+        if ( buffer.remaining() < RECORD_HEADER_SIZE ) {
+            return null;
+        }
+        final int start = buffer.position();
+        final int length = buffer.getInt();
+        if ( length == 0 ) {
+            buffer.position( start );
+            return null;
+        }
+        final int type = buffer.getInt();
+        buffer.getLong(); // timestamp
+        final byte kind = buffer.get();
+
+        LogEvent event;
+        switch ( kind ) {
+            case KIND_OBJECT : {
+                long factId = buffer.getLong();
+                event = new ObjectLogEvent( type,
+                                            factId,
+                                            getString( buffer ) );
+                break;
+            }
+            case KIND_ACTIVATION :
+                event = new ActivationLogEvent( type,
+                                                getString( buffer ),
+                                                getString( buffer ),
+                                                getString( buffer ),
+                                                getString( buffer ) );
+                break;
+            case KIND_RULEBASE :
+                event = new RuleBaseLogEvent( type,
+                                              getString( buffer ),
+                                              getString( buffer ) );
+                break;
+            case KIND_RULEFLOW_GROUP : {
+                String groupName = getString( buffer );
+                event = new RuleFlowGroupLogEvent( type,
+                                                   groupName,
+                                                   buffer.getInt() );
+                break;
+            }
+            case KIND_RULEFLOW_NODE : {
+                String processId = getString( buffer );
+                String processName = getString( buffer );
+                long processInstanceId = buffer.getLong();
+                event = new RuleFlowNodeLogEvent( type,
+                                                  getString( buffer ),
+                                                  getString( buffer ),
+                                                  getString( buffer ),
+                                                  processId,
+                                                  processName,
+                                                  processInstanceId );
+                break;
+            }
+            case KIND_RULEFLOW_VAR : {
+                String processId = getString( buffer );
+                String processName = getString( buffer );
+                long processInstanceId = buffer.getLong();
+                String variableId = getString( buffer );
+                String variableInstanceId = getString( buffer );
+                event = new RuleFlowVariableLogEvent( type,
+                                                      variableId,
+                                                      variableInstanceId,
+                                                      processId,
+                                                      processName,
+                                                      processInstanceId,
+                                                      getString( buffer ) );
+                break;
+            }
+            case KIND_RULEFLOW : {
+                String processId = getString( buffer );
+                String processName = getString( buffer );
+                event = new RuleFlowLogEvent( type,
+                                              processId,
+                                              processName,
+                                              buffer.getLong() );
+                break;
+            }
+            case KIND_PLAIN :
+                event = new LogEvent( type );
+                break;
+            default :
+                throw new IllegalStateException( "Unknown audit record kind " + kind + " at offset " + start );
+        }
+        buffer.position( start + length );
+        return event;
+    }
+
+    private static void putProcess(final ByteBuffer buffer,
+                                   final RuleFlowLogEvent event) {
+        putString( buffer,
+                   event.getProcessId() );
+        putString( buffer,
+                   event.getProcessName() );
+        buffer.putLong( event.getProcessInstanceId() );
+    }
+
+    private static void putString(final ByteBuffer buffer,
+                                  final String value) {
+        if ( value == null ) {
+            buffer.putInt( -1 );
+            return;
+        }
+        try {
+            byte[] bytes = value.getBytes( UTF8 );
+            buffer.putInt( bytes.length );
+            buffer.put( bytes );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get( bytes );
+        try {
+            return new String( bytes,
+                               UTF8 );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+}
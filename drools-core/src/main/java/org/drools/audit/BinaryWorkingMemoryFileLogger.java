@@ -0,0 +1,179 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.audit;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+
+import org.drools.WorkingMemory;
+import org.drools.audit.event.LogEvent;
+import org.drools.event.KnowledgeRuntimeEventManager;
+
+/**
+ * A logger of events generated by a working memory that appends every event
+ * as a binary record to a set of rolling, memory-mapped files. Unlike
+ * WorkingMemoryFileLogger, events are not buffered in memory nor serialized
+ * to XML, and logging an event does not take a lock, so it can be left on
+ * for production sessions.
+ *
+ * A new file is started when the current one is full or, if a rotation
+ * interval is set, older than that interval. Use BinaryAuditLogReader to read
+ * the events back or to convert the log into the XML format used by the
+ * audit view.
+ */
+public class BinaryWorkingMemoryFileLogger extends WorkingMemoryLogger {
+
+    private static final int              INITIAL_RECORD_SIZE = 512;
+
+    private String                        fileName            = "event";
+    private int                           maxFileSize         = 16 * 1024 * 1024;
+    private long                          rotationInterval    = 0;
+    private int                           maxFiles            = 0;
+
+    private volatile RollingAuditLogFile  log;
+    private volatile boolean              stopped;
+    private ThreadLocal<ByteBuffer>       recordBuffers       = new RecordBufferThreadLocal();
+
+    public BinaryWorkingMemoryFileLogger() {
+    }
+
+    public BinaryWorkingMemoryFileLogger(final WorkingMemory workingMemory) {
+        super( workingMemory );
+    }
+
+    public BinaryWorkingMemoryFileLogger(final KnowledgeRuntimeEventManager session) {
+        super( session );
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        super.readExternal( in );
+        fileName = (String) in.readObject();
+        maxFileSize = in.readInt();
+        rotationInterval = in.readLong();
+        maxFiles = in.readInt();
+        recordBuffers = new RecordBufferThreadLocal();
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal( out );
+        out.writeObject( fileName );
+        out.writeInt( maxFileSize );
+        out.writeLong( rotationInterval );
+        out.writeInt( maxFiles );
+    }
+
+    /**
+     * Sets the base name of the files the events are logged in. No extension
+     * should be given, since .N.alog is appended for the Nth file. The default
+     * is event, in the current working directory. Must be set before the first
+     * event is logged.
+     */
+    public void setFileName(final String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Sets the size in bytes of each log file. The default is 16MB.
+     */
+    public void setMaxFileSize(final int maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a new log file is started,
+     * regardless of how full the current one is. The default, 0, only rotates
+     * on size.
+     */
+    public void setRotationInterval(final long rotationInterval) {
+        this.rotationInterval = rotationInterval;
+    }
+
+    /**
+     * Sets the number of log files to keep, older ones being deleted. The
+     * default, 0, keeps all of them.
+     */
+    public void setMaxFiles(final int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * @see org.drools.audit.WorkingMemoryLogger
+     */
+    public void logEventCreated(final LogEvent logEvent) {
+        final RollingAuditLogFile log = getLog();
+        if ( log == null ) {
+            return;
+        }
+        final long timestamp = System.currentTimeMillis();
+        final ByteBuffer buffer = this.recordBuffers.get();
+        final ByteBuffer record = BinaryLogEventCodec.encode( logEvent,
+                                                              timestamp,
+                                                              buffer );
+        if ( record != buffer ) {
+            this.recordBuffers.set( record );
+        }
+        // dropped if stop() closed the log in the meantime
+        log.append( record,
+                    timestamp );
+    }
+
+    /**
+     * Flushes and closes the current log file. Events logged afterwards are
+     * ignored.
+     */
+    public void stop() {
+        synchronized ( this ) {
+            this.stopped = true;
+            if ( this.log != null ) {
+                this.log.close();
+            }
+        }
+    }
+
+    /**
+     * @return the log, opened on first use, or null once the logger is stopped
+     */
+    private RollingAuditLogFile getLog() {
+        RollingAuditLogFile log = this.log;
+        if ( log == null ) {
+            synchronized ( this ) {
+                if ( this.stopped ) {
+                    return null;
+                }
+                log = this.log;
+                if ( log == null ) {
+                    log = new RollingAuditLogFile( this.fileName,
+                                                   this.maxFileSize,
+                                                   this.rotationInterval,
+                                                   this.maxFiles );
+                    this.log = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    private static class RecordBufferThreadLocal extends ThreadLocal<ByteBuffer> {
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate( INITIAL_RECORD_SIZE );
+        }
+    }
+
+}
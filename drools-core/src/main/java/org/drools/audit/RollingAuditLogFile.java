@@ -0,0 +1,285 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A sequence of memory-mapped audit log files. Records are appended without
+ * locking: each writer reserves its slice of the current file with a CAS on
+ * the write position, copies its bytes in and publishes the record by writing
+ * its length last. Only rotation, which happens when a file is full or older
+ * than the rotation interval, is serialized.
+ *
+ * Files are named fileName.N.alog, N starting at 0. If maxFiles is greater
+ * than 0 the oldest files are deleted once that number is exceeded.
+ */
+public class RollingAuditLogFile {
+
+    public static final String       EXTENSION        = ".alog";
+
+    private final String             fileName;
+    private final int                maxFileSize;
+    private final long               rotationInterval;
+    private final int                maxFiles;
+
+    private final AtomicReference<Segment> current = new AtomicReference<Segment>();
+    private final LinkedList<File>   files            = new LinkedList<File>();
+    private final Object             rotationLock     = new Object();
+    private int                      nextIndex        = 0;
+    private volatile boolean         closed           = false;
+
+    /**
+     * @param fileName the base name of the log files, without extension
+     * @param maxFileSize the size in bytes each file is mapped with
+     * @param rotationInterval the maximum age of a file in milliseconds before
+     *        a new one is started, 0 to only rotate on size
+     * @param maxFiles the number of files to keep, 0 to keep all of them
+     */
+    public RollingAuditLogFile(final String fileName,
+                               final int maxFileSize,
+                               final long rotationInterval,
+                               final int maxFiles) {
+        if ( maxFileSize <= BinaryLogEventCodec.FILE_HEADER_SIZE + BinaryLogEventCodec.RECORD_HEADER_SIZE ) {
+            throw new IllegalArgumentException( "maxFileSize is too small: " + maxFileSize );
+        }
+        this.fileName = fileName;
+        this.maxFileSize = maxFileSize;
+        this.rotationInterval = rotationInterval;
+        this.maxFiles = maxFiles;
+        synchronized ( this.rotationLock ) {
+            this.current.set( openSegment( maxFileSize,
+                                           System.currentTimeMillis() ) );
+        }
+    }
+
+    public static File getFile(final String fileName,
+                               final int index) {
+        return new File( fileName + "." + index + EXTENSION );
+    }
+
+    /**
+     * Appends a record encoded by BinaryLogEventCodec. The buffer must be
+     * flipped and its length slot must still be 0.
+     *
+     * @return false if the log has been closed and the record was dropped
+     */
+    public boolean append(final ByteBuffer record,
+                          final long timestamp) {
+        final int length = record.remaining();
+        while ( true ) {
+            if ( this.closed ) {
+                return false;
+            }
+            final Segment segment = this.current.get();
+            if ( !segment.enter() ) {
+                // sealed under our feet, pick up its replacement
+                continue;
+            }
+            try {
+                if ( this.rotationInterval <= 0 || timestamp - segment.created < this.rotationInterval ) {
+                    final int offset = segment.reserve( length );
+                    if ( offset >= 0 ) {
+                        segment.write( offset,
+                                       record );
+                        return true;
+                    }
+                }
+            } finally {
+                segment.exit();
+            }
+            rotate( segment,
+                    length,
+                    timestamp );
+        }
+    }
+
+    /**
+     * Flushes and closes the current file. Further appends are dropped.
+     */
+    public void close() {
+        synchronized ( this.rotationLock ) {
+            if ( this.closed ) {
+                return;
+            }
+            this.closed = true;
+            this.current.get().seal();
+        }
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    private void rotate(final Segment full,
+                        final int recordLength,
+                        final long timestamp) {
+        synchronized ( this.rotationLock ) {
+            if ( this.closed || this.current.get() != full ) {
+                // someone else already rotated
+                return;
+            }
+            final int capacity = Math.max( this.maxFileSize,
+                                           recordLength + BinaryLogEventCodec.FILE_HEADER_SIZE );
+            this.current.set( openSegment( capacity,
+                                           timestamp ) );
+            full.seal();
+            if ( this.maxFiles > 0 ) {
+                // only sealed, hence unmapped, files are ever removed here
+                while ( this.files.size() > this.maxFiles ) {
+                    this.files.removeFirst().delete();
+                }
+            }
+        }
+    }
+
+    private Segment openSegment(final int capacity,
+                                final long timestamp) {
+        final File file = getFile( this.fileName,
+                                   this.nextIndex++ );
+        try {
+            final Segment segment = new Segment( file,
+                                                 capacity,
+                                                 timestamp );
+            this.files.add( file );
+            return segment;
+        } catch ( final IOException e ) {
+            throw new RuntimeException( "Could not create the log file " + file + ".  Please make sure that directory that the log file should be placed in does exist.",
+                                        e );
+        }
+    }
+
+    private static class Segment {
+        private final File             path;
+        private final RandomAccessFile file;
+        private final FileChannel      channel;
+        private final MappedByteBuffer buffer;
+        private final int              capacity;
+        private final long             created;
+        private final AtomicInteger    position = new AtomicInteger( BinaryLogEventCodec.FILE_HEADER_SIZE );
+        private final AtomicInteger    writers  = new AtomicInteger();
+        private volatile boolean       sealed;
+
+        Segment(final File file,
+                final int capacity,
+                final long created) throws IOException {
+            this.path = file;
+            this.file = new RandomAccessFile( file,
+                                              "rw" );
+            this.file.setLength( 0 );
+            this.channel = this.file.getChannel();
+            this.buffer = this.channel.map( FileChannel.MapMode.READ_WRITE,
+                                            0,
+                                            capacity );
+            this.capacity = capacity;
+            this.created = created;
+            this.buffer.putInt( 0,
+                                BinaryLogEventCodec.MAGIC );
+            this.buffer.putInt( 4,
+                                BinaryLogEventCodec.VERSION );
+        }
+
+        boolean enter() {
+            this.writers.incrementAndGet();
+            if ( this.sealed ) {
+                this.writers.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        void exit() {
+            this.writers.decrementAndGet();
+        }
+
+        /**
+         * @return the offset reserved for a record of the given length, or -1
+         *         if it does not fit
+         */
+        int reserve(final int length) {
+            while ( true ) {
+                final int offset = this.position.get();
+                if ( offset + length > this.capacity ) {
+                    return -1;
+                }
+                if ( this.position.compareAndSet( offset,
+                                                  offset + length ) ) {
+                    return offset;
+                }
+            }
+        }
+
+        void write(final int offset,
+                   final ByteBuffer record) {
+            final int length = record.remaining();
+            final ByteBuffer target = this.buffer.duplicate();
+            target.position( offset + 4 );
+            record.position( record.position() + 4 );
+            target.put( record );
+            // publishing the length makes the record visible to readers
+            this.buffer.putInt( offset,
+                                length );
+        }
+
+        void seal() {
+            this.sealed = true;
+            // wait for writers that reserved space before the seal
+            while ( this.writers.get() > 0 ) {
+                Thread.yield();
+            }
+            try {
+                this.buffer.force();
+                unmap( this.buffer );
+                this.channel.close();
+                this.file.close();
+            } catch ( final IOException e ) {
+                throw new RuntimeException( "Could not close the log file " + this.path,
+                                            e );
+            }
+        }
+
+        /**
+         * Releases the mapping now rather than when the buffer is garbage
+         * collected, as a file that is still mapped cannot be deleted on some
+         * platforms. Only safe once no writer can touch the buffer any more.
+         * Where the JVM does not expose the buffer's cleaner the mapping is
+         * left to the garbage collector.
+         */
+        private static void unmap(final MappedByteBuffer buffer) {
+            try {
+                final Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+                cleanerMethod.setAccessible( true );
+                final Object cleaner = cleanerMethod.invoke( buffer );
+                if ( cleaner != null ) {
+                    cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+                }
+            } catch ( final Exception e ) {
+                // not available on this JVM
+            }
+        }
+    }
+
+}
@@ -47,6 +47,7 @@ import org.drools.base.extractors.MVELClassFieldReader;
 import org.drools.base.extractors.SelfReferenceClassFieldReader;
 import org.drools.common.InternalWorkingMemory;
 import org.drools.core.util.asm.ClassFieldInspector;
+import org.drools.factmodel.ClassBuilder;
 import org.mvel2.asm.ClassWriter;
 import org.mvel2.asm.Label;
 import org.mvel2.asm.MethodVisitor;
@@ -119,6 +120,10 @@ public class ClassFieldAccessorFactory {
                     final byte[] bytes = dumpReader( clazz,
                                                      className,
                                                      getterMethod,
+                                                     getCompactValueMethod( clazz,
+                                                                            fieldName,
+                                                                            fieldType ),
+                                                     fieldName,
                                                      fieldType,
                                                      clazz.isInterface() );
                     // use bytes to get a class 
@@ -192,6 +197,8 @@ public class ClassFieldAccessorFactory {
     private byte[] dumpReader(final Class< ? > originalClass,
                               final String className,
                               final Method getterMethod,
+                              final Method valueMethod,
+                              final String fieldName,
                               final Class< ? > fieldType,
                               final boolean isInterface) throws Exception {
 
@@ -216,6 +223,19 @@ public class ClassFieldAccessorFactory {
                         getterMethod,
                         cw );
 
+        if ( valueMethod != null ) {
+            // a wrapper stored as a primitive, read it without boxing
+            buildGetMethod( originalClass,
+                            className,
+                            superClass,
+                            valueMethod,
+                            cw );
+            buildCompactIsNullMethod( originalClass,
+                                      className,
+                                      fieldName,
+                                      cw );
+        }
+
         cw.visitEnd();
 
         return cw.toByteArray();
@@ -416,6 +436,97 @@ public class ClassFieldAccessorFactory {
         mv.visitEnd();
     }
 
+    /**
+     * Creates the isNullValue method reading whether a field of a
+     * compact class declared with ClassBuilder is set, not its value
+     *
+     * @param originalClass
+     * @param className
+     * @param fieldName
+     * @param cw
+     */
+    protected void buildCompactIsNullMethod(final Class< ? > originalClass,
+                                            final String className,
+                                            final String fieldName,
+                                            final ClassWriter cw) {
+        final MethodVisitor mv = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                                                 "isNullValue",
+                                                 Type.getMethodDescriptor( Type.BOOLEAN_TYPE,
+                                                                           new Type[]{Type.getType( InternalWorkingMemory.class ), Type.getType( Object.class )} ),
+                                                 null,
+                                                 null );
+        mv.visitCode();
+
+        // return object == null || !((<originalClass>) object).__isSet$<field>();
+        final Label l0 = new Label();
+        mv.visitLabel( l0 );
+        final Label isNull = new Label();
+        mv.visitVarInsn( Opcodes.ALOAD,
+                         2 );
+        mv.visitJumpInsn( Opcodes.IFNULL,
+                          isNull );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                         2 );
+        mv.visitTypeInsn( Opcodes.CHECKCAST,
+                          Type.getInternalName( originalClass ) );
+        mv.visitMethodInsn( Opcodes.INVOKEVIRTUAL,
+                            Type.getInternalName( originalClass ),
+                            ClassBuilder.COMPACT_SET_PREFIX + fieldName,
+                            "()Z" );
+        mv.visitJumpInsn( Opcodes.IFEQ,
+                          isNull );
+        mv.visitInsn( Opcodes.ICONST_0 );
+        mv.visitInsn( Opcodes.IRETURN );
+        mv.visitLabel( isNull );
+        mv.visitInsn( Opcodes.ICONST_1 );
+        mv.visitInsn( Opcodes.IRETURN );
+        final Label l1 = new Label();
+        mv.visitLabel( l1 );
+        mv.visitLocalVariable( "this",
+                               "L" + className + ";",
+                               null,
+                               l0,
+                               l1,
+                               0 );
+        mv.visitLocalVariable( "workingMemory",
+                               Type.getDescriptor( InternalWorkingMemory.class ),
+                               null,
+                               l0,
+                               l1,
+                               1 );
+        mv.visitLocalVariable( "object",
+                               Type.getDescriptor( Object.class ),
+                               null,
+                               l0,
+                               l1,
+                               2 );
+        mv.visitMaxs( 0,
+                      0 );
+        mv.visitEnd();
+    }
+
+    /**
+     * Returns the method of a compact class declared with ClassBuilder
+     * that returns the primitive value of the given wrapper field, or null
+     * if the field is not stored as a primitive.
+     */
+    private Method getCompactValueMethod(final Class< ? > clazz,
+                                         final String fieldName,
+                                         final Class< ? > fieldType) {
+        if ( fieldType.isPrimitive() || clazz.isInterface() ) {
+            return null;
+        }
+        try {
+            final Method valueMethod = clazz.getMethod( ClassBuilder.COMPACT_VALUE_PREFIX + fieldName,
+                                                        (Class[]) null );
+            clazz.getMethod( ClassBuilder.COMPACT_SET_PREFIX + fieldName,
+                             (Class[]) null );
+            return valueMethod.getReturnType().isPrimitive() ? valueMethod : null;
+        } catch ( final NoSuchMethodException e ) {
+            return null;
+        }
+    }
+
     /**
      * Creates the set method for the given field definition
      *
@@ -40,6 +40,7 @@ import org.drools.core.util.LinkedListEntry;
 import org.drools.event.rule.ActivationCancelledCause;
 import org.drools.impl.StatefulKnowledgeSessionImpl;
 import org.drools.reteoo.LeftTuple;
+import org.drools.reteoo.PropertyReactiveUtil;
 import org.drools.reteoo.ReteooWorkingMemory;
 import org.drools.rule.Declaration;
 import org.drools.rule.GroupElement;
@@ -294,6 +295,21 @@ public class DefaultKnowledgeHelper
         }
     }
     
+    public void update(final FactHandle handle,
+                       final Object newObject,
+                       final String... modifiedProperties) {
+        ((InternalWorkingMemoryEntryPoint) ((InternalFactHandle) handle).getEntryPoint()).update( handle,
+                                                                                                  newObject,
+                                                                                                  PropertyReactiveUtil.getModificationMask( newObject.getClass(),
+                                                                                                                                            modifiedProperties ),
+                                                                                                  this.activation.getRule(),
+                                                                                                  this.activation );
+        if ( getIdentityMap() != null ) {
+            this.getIdentityMap().put( newObject,
+                                       handle );
+        }
+    }
+    
     public void update(final FactHandle handle) {
         ((InternalWorkingMemoryEntryPoint) ((InternalFactHandle) handle).getEntryPoint()).update( handle,
                                                                                                   ((InternalFactHandle)handle).getObject(),
@@ -221,6 +221,13 @@ public class SequentialKnowledgeHelper
         
     }
 
+    public void update(FactHandle handle,
+                       Object newObject,
+                       String... modifiedProperties) {
+        update( handle,
+                newObject );
+    }
+
     public void update(FactHandle newObject) {
         // TODO Auto-generated method stub
         
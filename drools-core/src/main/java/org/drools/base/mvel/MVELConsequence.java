@@ -23,6 +23,7 @@ import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.HashMap;
 
+import org.drools.RuleBase;
 import org.drools.WorkingMemory;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
@@ -50,6 +51,10 @@ public class MVELConsequence
 
     private Serializable        expr;
 
+    private MVELTieredStatement statement;
+
+    private transient volatile FunctionFactory functionFactory;
+
     public MVELConsequence() {
     }
 
@@ -72,6 +77,11 @@ public class MVELConsequence
 
     public void compile(MVELDialectRuntimeData runtimeData) {
         expr = unit.getCompiledExpression( runtimeData );
+        statement = new MVELTieredStatement( unit,
+                                             runtimeData,
+                                             expr,
+                                             false );
+        functionFactory = null;
     }
 
     public void evaluate(final KnowledgeHelper knowledgeHelper,
@@ -79,21 +89,23 @@ public class MVELConsequence
         VariableResolverFactory factory = unit.getFactory( knowledgeHelper, knowledgeHelper.getRule(), knowledgeHelper, (LeftTuple) knowledgeHelper.getTuple(), null, (InternalWorkingMemory) workingMemory, workingMemory.getGlobalResolver()  );
         
         // do we have any functions for this namespace?
-        Package pkg = workingMemory.getRuleBase().getPackage( "MAIN" );
-        if ( pkg != null ) {
-            MVELDialectRuntimeData data = (MVELDialectRuntimeData) pkg.getDialectRuntimeRegistry().getDialectData( this.id );
-            factory.setNextFactory( data.getFunctionFactory() );
+        VariableResolverFactory functions = getFunctionFactory( workingMemory.getRuleBase() );
+        if ( functions != null ) {
+            factory.setNextFactory( functions );
         }
 
-        CompiledExpression compexpr = (CompiledExpression) this.expr;
-
-        pkg = knowledgeHelper.getWorkingMemory().getRuleBase().getPackage(knowledgeHelper.getRule().getPackage() );
-
-        ClassLoader tempClassLoader = Thread.currentThread().getContextClassLoader();
-        Thread.currentThread().setContextClassLoader( ((InternalRuleBase) workingMemory.getRuleBase()).getRootClassLoader() );
+        final Thread thread = Thread.currentThread();
+        final ClassLoader tempClassLoader = thread.getContextClassLoader();
+        final ClassLoader rootClassLoader = ((InternalRuleBase) workingMemory.getRuleBase()).getRootClassLoader();
+        // the context class loader is usually the root one already
+        final boolean swap = tempClassLoader != rootClassLoader;
+        if ( swap ) {
+            thread.setContextClassLoader( rootClassLoader );
+        }
 
         try {
             if ( MVELDebugHandler.isDebugMode() ) {
+                CompiledExpression compexpr = (CompiledExpression) this.expr;
                 if ( MVELDebugHandler.verbose ) {
                     System.out.println( "Executing expression " + compexpr.getSourceName() );
                     System.out.println( DebugTools.decompile( compexpr ) );
@@ -102,13 +114,35 @@ public class MVELConsequence
                                       knowledgeHelper,
                                       factory );
             } else {
-                MVEL.executeExpression( compexpr,
-                                        knowledgeHelper,
+                this.statement.execute( knowledgeHelper,
                                         factory );
             }
         } finally {
-            Thread.currentThread().setContextClassLoader( tempClassLoader );
+            if ( swap ) {
+                thread.setContextClassLoader( tempClassLoader );
+            }
+        }
+    }
+
+    /**
+     * Returns the function factory of the MAIN package, looked up on the first
+     * firing in a rule base rather than on every firing. It cannot be resolved
+     * in compile, which only sees the dialect data of the rule's own package.
+     */
+    private VariableResolverFactory getFunctionFactory(final RuleBase ruleBase) {
+        FunctionFactory cached = this.functionFactory;
+        if ( cached == null || cached.ruleBase != ruleBase ) {
+            VariableResolverFactory functions = null;
+            Package pkg = ruleBase.getPackage( "MAIN" );
+            if ( pkg != null ) {
+                MVELDialectRuntimeData data = (MVELDialectRuntimeData) pkg.getDialectRuntimeRegistry().getDialectData( this.id );
+                functions = data.getFunctionFactory();
+            }
+            cached = new FunctionFactory( ruleBase,
+                                          functions );
+            this.functionFactory = cached;
         }
+        return cached.functions;
     }
 
     public Serializable getCompExpr() {
@@ -119,4 +153,15 @@ public class MVELConsequence
         return "default";
     }
 
+    private static class FunctionFactory {
+        private final RuleBase                ruleBase;
+        private final VariableResolverFactory functions;
+
+        FunctionFactory(final RuleBase ruleBase,
+                        final VariableResolverFactory functions) {
+            this.ruleBase = ruleBase;
+            this.functions = functions;
+        }
+    }
+
 }
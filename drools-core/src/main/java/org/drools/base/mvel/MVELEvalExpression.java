@@ -32,7 +32,6 @@ import org.drools.rule.ReturnValueRestriction.ReturnValueContextEntry;
 import org.drools.WorkingMemory;
 import org.drools.spi.EvalExpression;
 import org.drools.spi.Tuple;
-import org.mvel2.MVEL;
 import org.mvel2.integration.VariableResolverFactory;
 
 public class MVELEvalExpression
@@ -48,6 +47,8 @@ public class MVELEvalExpression
 
     private Serializable        expr;
 
+    private MVELTieredStatement statement;
+
     public MVELEvalExpression() {
     }
 
@@ -70,6 +71,10 @@ public class MVELEvalExpression
 
     public void compile(MVELDialectRuntimeData runtimeData) {
         expr = unit.getCompiledExpression( runtimeData );
+        statement = new MVELTieredStatement( unit,
+                                             runtimeData,
+                                             expr,
+                                             true );
     }
 
     public Object createContext() {
@@ -98,8 +103,7 @@ public class MVELEvalExpression
             factory.setNextFactory( data.getFunctionFactory() );
         }
 
-        final Boolean result = (Boolean) MVEL.executeExpression( this.expr,
-                                                                 null,
+        final Boolean result = (Boolean) this.statement.execute( null,
                                                                  factory );
         return result.booleanValue();
     }
@@ -119,6 +123,7 @@ public class MVELEvalExpression
                                                            id );
         // expr should be stateless, so it should be fine to share the reference
         clone.expr = expr;
+        clone.statement = statement;
         
         return clone;
     }
@@ -30,7 +30,6 @@ import org.drools.rule.MVELDialectRuntimeData;
 import org.drools.rule.Package;
 import org.drools.spi.PredicateExpression;
 import org.drools.spi.Tuple;
-import org.mvel2.MVEL;
 import org.mvel2.integration.VariableResolverFactory;
 
 public class MVELPredicateExpression
@@ -45,6 +44,8 @@ public class MVELPredicateExpression
 
     private Serializable        expr;
 
+    private MVELTieredStatement statement;
+
     public MVELPredicateExpression() {
     }
 
@@ -67,6 +68,10 @@ public class MVELPredicateExpression
 
     public void compile( MVELDialectRuntimeData runtimeData ) {
         expr = unit.getCompiledExpression( runtimeData );
+        statement = new MVELTieredStatement( unit,
+                                             runtimeData,
+                                             expr,
+                                             true );
     }
 
     public Object createContext() {
@@ -97,8 +102,7 @@ public class MVELPredicateExpression
             factory.setNextFactory( data.getFunctionFactory() );
         }               
 
-        final Boolean result = (Boolean) MVEL.executeExpression( this.expr,
-                                                                 object,
+        final Boolean result = (Boolean) this.statement.execute( object,
                                                                  factory );
         return result.booleanValue();
     }
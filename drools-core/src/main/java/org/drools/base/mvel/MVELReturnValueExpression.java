@@ -33,7 +33,6 @@ import org.drools.rule.ReturnValueRestriction.ReturnValueContextEntry;
 import org.drools.spi.FieldValue;
 import org.drools.spi.ReturnValueExpression;
 import org.drools.spi.Tuple;
-import org.mvel2.MVEL;
 import org.mvel2.integration.VariableResolverFactory;
 
 public class MVELReturnValueExpression
@@ -48,6 +47,8 @@ public class MVELReturnValueExpression
 
     private Serializable        expr;
 
+    private MVELTieredStatement statement;
+
     public MVELReturnValueExpression() {
     }
 
@@ -70,6 +71,10 @@ public class MVELReturnValueExpression
 
     public void compile(MVELDialectRuntimeData runtimeData) {
         expr = unit.getCompiledExpression( runtimeData );
+        statement = new MVELTieredStatement( unit,
+                                             runtimeData,
+                                             expr,
+                                             true );
     }
     
     public Object createContext() {
@@ -101,8 +106,7 @@ public class MVELReturnValueExpression
             factory.setNextFactory( data.getFunctionFactory() );
         }
 
-        return org.drools.base.FieldFactory.getFieldValue( MVEL.executeExpression( this.expr,
-                                                                                   object,
+        return org.drools.base.FieldFactory.getFieldValue( this.statement.execute( object,
                                                                                    factory ) );
     }
 
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.base.mvel;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.base.mvel.MVELCompilationUnit.PropertyHandlerFactoryFixer;
+import org.drools.rule.MVELDialectRuntimeData;
+import org.mvel2.MVEL;
+import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.OptimizerFactory;
+import org.mvel2.optimizers.impl.asm.ASMAccessorOptimizer;
+
+/**
+ * Executes a compiled MVEL statement in two tiers.
+ *
+ * The statement is first executed as compiled by the MVELCompilationUnit,
+ * with reflective accessors. Once it has been executed more times than the
+ * threshold, it is compiled again and its accessors are optimized into
+ * generated bytecode by the ASM optimizer, on the first execution of the new
+ * statement. If that execution succeeds the new statement replaces the old
+ * one, so the other threads keep executing the reflective one until the
+ * bytecode is ready. If it fails the new statement is dropped, the reflective
+ * one is kept and executed again, so crossing the threshold never turns a
+ * working statement into a failing one.
+ *
+ * Only repeatable statements, those without side effects, are promoted. MVEL
+ * can only build the accessors by executing the statement, and executing a
+ * consequence again after a failure would repeat its side effects, so
+ * consequences keep their reflective accessors.
+ *
+ * MVEL optimizes an accessor when it is first reached, and the ASM optimizer
+ * is only set for the promoting execution. Accessors on branches that
+ * execution did not take are optimized later with the default optimizer,
+ * which MVELCompilationUnit sets to SAFE_REFLECTIVE. So only the accessors on
+ * the path of the promoting execution end up in bytecode, which covers the
+ * whole of straight-line statements such as most constraints.
+ *
+ * The threshold is read from the drools.mvel.compileThreshold system property,
+ * a value of 0 or less disables the promotion. Statements are not promoted in
+ * debug mode, nor while MVEL property handlers are registered, as the ASM
+ * optimizer does not support them.
+ */
+public class MVELTieredStatement {
+
+    public static final String           THRESHOLD_PROPERTY = "drools.mvel.compileThreshold";
+
+    public static final int              DEFAULT_THRESHOLD  = 500;
+
+    private static final AtomicLong      promoted           = new AtomicLong();
+
+    private static final AtomicLong      failed             = new AtomicLong();
+
+    private final MVELCompilationUnit    unit;
+
+    private final MVELDialectRuntimeData runtimeData;
+
+    private final int                    threshold;
+
+    private volatile Serializable        statement;
+
+    /** Only approximate, as it is not incremented atomically */
+    private int                          invocations;
+
+    private volatile boolean             done;
+
+    private volatile boolean             optimized;
+
+    /**
+     * @param repeatable true if executing the statement has no side effects,
+     *        so that it can be promoted: a failed optimizing execution is then
+     *        executed again reflectively
+     */
+    public MVELTieredStatement(final MVELCompilationUnit unit,
+                               final MVELDialectRuntimeData runtimeData,
+                               final Serializable statement,
+                               final boolean repeatable) {
+        this.unit = unit;
+        this.runtimeData = runtimeData;
+        this.statement = statement;
+        this.threshold = Integer.getInteger( THRESHOLD_PROPERTY,
+                                             DEFAULT_THRESHOLD ).intValue();
+        this.done = this.threshold <= 0 || !repeatable;
+    }
+
+    /**
+     * Returns the number of statements optimized into bytecode so far.
+     */
+    public static long getPromotedCount() {
+        return promoted.get();
+    }
+
+    /**
+     * Returns the number of statements that could not be optimized into
+     * bytecode, and kept being executed reflectively.
+     */
+    public static long getFailedCount() {
+        return failed.get();
+    }
+
+    public Serializable getStatement() {
+        return this.statement;
+    }
+
+    public boolean isPromoted() {
+        return this.optimized;
+    }
+
+    public Object execute(final Object ctx,
+                          final VariableResolverFactory factory) {
+        if ( !this.done && ++this.invocations >= this.threshold ) {
+            return promote( ctx,
+                            factory );
+        }
+        return MVEL.executeExpression( this.statement,
+                                       ctx,
+                                       factory );
+    }
+
+    private Object promote(final Object ctx,
+                           final VariableResolverFactory factory) {
+        Serializable recompiled = null;
+        synchronized ( this ) {
+            if ( !this.done ) {
+                this.done = true;
+                if ( !MVELDebugHandler.isDebugMode() && PropertyHandlerFactoryFixer.getPropertyHandlerClass().isEmpty() ) {
+                    try {
+                        recompiled = this.unit.getCompiledExpression( this.runtimeData );
+                    } catch ( RuntimeException e ) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        }
+        if ( recompiled == null ) {
+            return MVEL.executeExpression( this.statement,
+                                           ctx,
+                                           factory );
+        }
+
+        // the accessors are optimized when the statement is first executed
+        Object result = null;
+        RuntimeException failure = null;
+        OptimizerFactory.setThreadAccessorOptimizer( ASMAccessorOptimizer.class );
+        try {
+            result = MVEL.executeExpression( recompiled,
+                                             ctx,
+                                             factory );
+        } catch ( RuntimeException e ) {
+            failure = e;
+        } finally {
+            OptimizerFactory.clearThreadAccessorOptimizer();
+        }
+
+        if ( failure != null ) {
+            failed.incrementAndGet();
+            return MVEL.executeExpression( this.statement,
+                                           ctx,
+                                           factory );
+        }
+        this.statement = recompiled;
+        this.optimized = true;
+        promoted.incrementAndGet();
+        return result;
+    }
+
+}
@@ -16,18 +16,297 @@
 
 package org.drools.command.impl;
 
-import org.drools.command.Command;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import org.drools.SystemEventListenerFactory;
+import org.drools.command.Command;
+import org.drools.command.Context;
+import org.drools.command.runtime.DisposeCommand;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.InsertElementsCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
 
+/**
+ * Executes the commands asynchronously, in the order they were submitted, on
+ * a single worker thread owned by this interceptor, so the session is only
+ * ever used by one thread.
+ *
+ * The commands wait in a bounded queue, submitting a command blocking while
+ * the queue is full. The worker takes all the waiting commands at once, runs
+ * each sequence of consecutive insert commands as a single command through
+ * the next command service and, if fireAllRules is set, fires the rules once
+ * after all the inserts it took. The futures of these inserts complete once
+ * the rules are fired, failing if the rules could not be fired.
+ *
+ * Once the worker stops, on shutdown or dispose, the commands left in the
+ * queue are cancelled and the next command submitted starts a new worker.
+ */
 public class AsynchronousInterceptor extends AbstractInterceptor {
 
+    public static final int                          DEFAULT_CAPACITY = 1000;
+
+    private final BlockingQueue<PendingCommand< ? >> queue;
+
+    private final boolean                            fireAllRules;
+
+    private Thread                                   worker;
+
+    private volatile boolean                         running;
+
+    public AsynchronousInterceptor() {
+        this( DEFAULT_CAPACITY,
+              true );
+    }
+
+    public AsynchronousInterceptor(int capacity,
+                                   boolean fireAllRules) {
+        this.queue = new ArrayBlockingQueue<PendingCommand< ? >>( capacity );
+        this.fireAllRules = fireAllRules;
+    }
+
+    /**
+     * Queues the command and returns null without waiting for its result.
+     */
     public <T> T execute(final Command<T> command) {
-        new Thread(new Runnable() {
-            public void run() {
-                executeNext(command);
-            }
-        }).start();
+        submit( command );
         return null;
     }
 
+    /**
+     * Queues the command, waiting while the queue is full, and returns the
+     * future result of its execution.
+     */
+    public <T> Future<T> submit(final Command<T> command) {
+        PendingCommand<T> pending = newPendingCommand( command );
+        if ( Thread.currentThread() == this.worker ) {
+            // a command executing a command would wait for itself
+            pending.run();
+            return pending;
+        }
+        startWorker();
+        try {
+            this.queue.put( pending );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while queueing " + command,
+                                        e );
+        }
+        synchronized ( this ) {
+            // the worker stopped before taking the command, either cancelling
+            // it with the other leftovers or having drained the queue before
+            // the command was put
+            if ( !this.running && !pending.isDone() ) {
+                startWorker();
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Stops the worker once the commands already queued are executed.
+     */
+    public void shutdown() {
+        if ( !this.running ) {
+            return;
+        }
+        PendingCommand< ? > stop = newPendingCommand( null );
+        try {
+            this.queue.put( stop );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized ( this ) {
+            // the worker already stopped, the next one must not
+            if ( !this.running ) {
+                this.queue.remove( stop );
+            }
+        }
+    }
+
+    private synchronized void startWorker() {
+        if ( this.running ) {
+            return;
+        }
+        this.running = true;
+        this.worker = new Thread( new Runnable() {
+                                      public void run() {
+                                          work();
+                                      }
+                                  },
+                                  "AsynchronousInterceptor" );
+        this.worker.setDaemon( true );
+        this.worker.start();
+    }
+
+    private void work() {
+        List<PendingCommand< ? >> batch = new ArrayList<PendingCommand< ? >>();
+        List<PendingCommand< ? >> inserts = new ArrayList<PendingCommand< ? >>();
+        List<PendingCommand< ? >> inserted = new ArrayList<PendingCommand< ? >>();
+        List<Object> results = new ArrayList<Object>();
+        boolean stop = false;
+        while ( !stop ) {
+            try {
+                batch.add( this.queue.take() );
+            } catch ( InterruptedException e ) {
+                return;
+            }
+            this.queue.drainTo( batch );
+
+            for ( PendingCommand< ? > pending : batch ) {
+                if ( stop || pending.command == null ) {
+                    stop = true;
+                    pending.cancel( false );
+                } else if ( isInsert( pending.command ) ) {
+                    inserts.add( pending );
+                } else {
+                    executeInserts( inserts,
+                                    inserted,
+                                    results );
+                    pending.run();
+                    stop = pending.command instanceof DisposeCommand;
+                }
+            }
+            executeInserts( inserts,
+                            inserted,
+                            results );
+            RuntimeException failure = null;
+            if ( !inserted.isEmpty() && this.fireAllRules && !stop ) {
+                try {
+                    executeNext( new FireAllRulesCommand() );
+                } catch ( RuntimeException e ) {
+                    SystemEventListenerFactory.getSystemEventListener().exception( "Unable to fire the rules after " + inserted.size() + " inserts",
+                                                                                    e );
+                    failure = e;
+                }
+            }
+            // the inserts only complete once the rules they activated are fired
+            for ( int i = 0; i < inserted.size(); i++ ) {
+                if ( failure == null ) {
+                    inserted.get( i ).complete( results.get( i ) );
+                } else {
+                    inserted.get( i ).fail( failure );
+                }
+            }
+            inserted.clear();
+            results.clear();
+            batch.clear();
+        }
+        // the leftovers are cancelled along with the transition, before a
+        // new worker can be started, so none of them is meant for that worker
+        synchronized ( this ) {
+            this.running = false;
+            this.worker = null;
+            for ( PendingCommand< ? > pending = this.queue.poll(); pending != null; pending = this.queue.poll() ) {
+                pending.cancel( false );
+            }
+        }
+    }
+
+    /**
+     * Executes the given inserts, as a single command if there are several
+     * of them, adding the ones that succeeded and their results to the
+     * given lists without completing their futures. The futures of the
+     * inserts that failed are failed, all of them if the batch failed, as
+     * when its transaction is rolled back.
+     */
+    private void executeInserts(List<PendingCommand< ? >> inserts,
+                                List<PendingCommand< ? >> inserted,
+                                List<Object> results) {
+        if ( inserts.isEmpty() ) {
+            return;
+        }
+        try {
+            if ( inserts.size() == 1 ) {
+                results.add( executeNext( inserts.get( 0 ).command ) );
+            } else {
+                results.addAll( executeNext( new InsertBatchCommand( new ArrayList<PendingCommand< ? >>( inserts ) ) ) );
+            }
+            inserted.addAll( inserts );
+        } catch ( RuntimeException e ) {
+            for ( PendingCommand< ? > pending : inserts ) {
+                pending.fail( e );
+            }
+        }
+        inserts.clear();
+    }
+
+    private <T> PendingCommand<T> newPendingCommand(Command<T> command) {
+        return new PendingCommand<T>( new CommandCall<T>( command ) );
+    }
+
+    private static boolean isInsert(Command< ? > command) {
+        return command instanceof InsertObjectCommand || command instanceof InsertElementsCommand;
+    }
+
+    private class PendingCommand<T> extends FutureTask<T> {
+        private final Command<T> command;
+
+        PendingCommand(final CommandCall<T> call) {
+            super( call );
+            this.command = call.command;
+        }
+
+        /**
+         * Completes this command, executed outside of its future.
+         */
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            set( (T) result );
+        }
+
+        void fail(Throwable t) {
+            setException( t );
+        }
+    }
+
+    private class CommandCall<T>
+        implements
+        Callable<T> {
+        private final Command<T> command;
+
+        CommandCall(final Command<T> command) {
+            this.command = command;
+        }
+
+        public T call() throws Exception {
+            return executeNext( this.command );
+        }
+    }
+
+    /**
+     * Executes a sequence of insert commands, returning their results in
+     * order. The first insert to fail fails the whole batch, the futures
+     * being left to the interceptor to complete once the batch is over.
+     */
+    private static class InsertBatchCommand
+        implements
+        GenericCommand<List<Object>> {
+
+        private static final long               serialVersionUID = 510l;
+
+        private final List<PendingCommand< ? >> inserts;
+
+        InsertBatchCommand(List<PendingCommand< ? >> inserts) {
+            this.inserts = inserts;
+        }
+
+        public List<Object> execute(Context context) {
+            List<Object> results = new ArrayList<Object>( this.inserts.size() );
+            for ( PendingCommand< ? > pending : this.inserts ) {
+                results.add( ((GenericCommand< ? >) pending.command).execute( context ) );
+            }
+            return results;
+        }
+
+        public String toString() {
+            return "insert batch of " + this.inserts.size() + " commands";
+        }
+    }
+
 }
@@ -17,65 +17,299 @@
 
 package org.drools.command.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+
 import org.drools.command.Context;
 import org.drools.command.ContextManager;
+import org.drools.runtime.StatefulKnowledgeSession;
+
+/**
+ * A context bounded in number of entries, in total weight and in idle time.
+ *
+ * The entries are kept in access order, so getting or setting an entry and
+ * evicting the least recently used one take constant time. Once the context
+ * holds more entries or more weight than allowed, the least recently used
+ * entries are evicted. The entries not accessed for the entry eviction time
+ * are evicted when they are next looked up, and when the context is swept,
+ * at most once per eviction wake up time, as entries are set.
+ *
+ * Evicted entries are handed to the eviction listener, which may persist
+ * them; without a listener, the evicted sessions are disposed. The entries
+ * removed explicitly are not.
+ */
+public class ContextImplWithEviction extends ContextImpl {
+
+    private static final Logger log                = Logger.getLogger( ContextImplWithEviction.class.getName() );
+
+    /**
+     * Weighs the entries of the context, for the weight limit.
+     */
+    public static interface Weigher {
+        int weigh(String identifier,
+                  Object value);
+    }
+
+    /**
+     * Notified of the entries evicted from the context, outside of its lock.
+     */
+    public static interface EvictionListener {
+        void evicted(String identifier,
+                     Object value);
+    }
 
-public class ContextImplWithEviction extends ContextImpl{
+    private static final class Entry {
+        private final Object value;
+        private final int    weight;
+        private long         lastAccess;
+
+        Entry(Object value,
+              int weight,
+              long lastAccess) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /** The entries, from the least to the most recently used */
+    private final LinkedHashMap<String, Entry> entries            = new LinkedHashMap<String, Entry>( 16,
+                                                                                                      0.75f,
+                                                                                                      true );
+
+    private boolean                            evictionEnabled    = true;
 
-    private  Logger log = Logger.getLogger( ContextImplWithEviction.class.getName() );
-    
-    private Map<String, Long> evictionMap = new ConcurrentHashMap<String, Long>();
-    
-    private boolean           evictionEnabled = true;
-    //I need a way to set up this parameters 
-    
     //time to look up for evicted entries
-    private long              evictionWakeUpTime = 5 * 60 * 1000 ; // 5 minutes
+    private long                               evictionWakeUpTime = 5 * 60 * 1000;                               // 5 minutes
     //Time that the entry is valid
-    private long              entryEvictionTime = 60 * 60 * 1000;  // 1 hour
-    
-    //private LinkedBlockingQueue<ChangeSet> queue;
-    
-    public ContextImplWithEviction(String name, ContextManager manager, Context delegate) {
-        super(name, manager, delegate);
-    }
-
-    public ContextImplWithEviction(String name, ContextManager manager) {
-        super(name, manager);
-        
-    }
-    
-    @Override
-    public Object get(String identifier){
-        Object result = super.get(identifier);
-        if(evictionEnabled && identifier != null && result != null){
-            long currentTimeStamp = System.currentTimeMillis();
-            evictionMap.put(identifier, currentTimeStamp);
-            log.log(Level.FINE,"Updating key=" +identifier +"@"+super.getName()+":"+currentTimeStamp);
+    private long                               entryEvictionTime  = 60 * 60 * 1000;                              // 1 hour
+
+    private int                                maxEntries         = Integer.MAX_VALUE;
+
+    private long                               maxWeight          = Long.MAX_VALUE;
+
+    private Weigher                            weigher;
+
+    private EvictionListener                   evictionListener;
+
+    private long                               weight;
+
+    private long                               nextSweep;
+
+    private long                               hits;
+    private long                               misses;
+    private long                               evictions;
+
+    public ContextImplWithEviction(String name,
+                                   ContextManager manager,
+                                   Context delegate) {
+        super( name,
+               manager,
+               delegate );
+    }
+
+    public ContextImplWithEviction(String name,
+                                   ContextManager manager) {
+        super( name,
+               manager );
+    }
+
+    public Object get(String identifier) {
+        Object result = null;
+        List<Object> evicted = null;
+        synchronized ( this ) {
+            Entry entry = this.entries.get( identifier );
+            if ( entry != null ) {
+                long now = currentTimeMillis();
+                if ( this.evictionEnabled && now - entry.lastAccess > this.entryEvictionTime ) {
+                    evicted = new ArrayList<Object>( 2 );
+                    evict( identifier,
+                           entry,
+                           evicted );
+                } else {
+                    entry.lastAccess = now;
+                    result = entry.value;
+                }
+            }
+            if ( result == null ) {
+                this.misses++;
+            } else {
+                this.hits++;
+            }
         }
-        return result;
+        notifyEvicted( evicted );
+        // looks up the delegate
+        return result != null ? result : super.get( identifier );
     }
-    
-    @Override
+
     public void set(String name,
                     Object object) {
-        if(evictionEnabled){
-            long currentTimeStamp = System.currentTimeMillis();
-            evictionMap.put(name, currentTimeStamp );
-            log.log(Level.FINE,"Setting key=" +name +"@"+super.getName()+":"+currentTimeStamp);
+        List<Object> evicted = null;
+        synchronized ( this ) {
+            long now = currentTimeMillis();
+            int entryWeight = this.weigher == null ? 1 : this.weigher.weigh( name,
+                                                                           object );
+            Entry previous = this.entries.put( name,
+                                               new Entry( object,
+                                                          entryWeight,
+                                                          now ) );
+            if ( previous != null ) {
+                this.weight -= previous.weight;
+            }
+            this.weight += entryWeight;
+            if ( this.evictionEnabled ) {
+                evicted = evict( now );
+            }
+        }
+        notifyEvicted( evicted );
+    }
+
+    public synchronized void remove(String name) {
+        Entry entry = this.entries.remove( name );
+        if ( entry != null ) {
+            this.weight -= entry.weight;
+        }
+    }
+
+    /**
+     * Evicts the entries not accessed for the entry eviction time.
+     */
+    public void evictExpired() {
+        List<Object> evicted = new ArrayList<Object>();
+        synchronized ( this ) {
+            evictExpired( currentTimeMillis(),
+                          evicted );
+        }
+        notifyEvicted( evicted );
+    }
+
+    private List<Object> evict(long now) {
+        List<Object> evicted = null;
+        if ( now >= this.nextSweep ) {
+            evicted = new ArrayList<Object>();
+            evictExpired( now,
+                          evicted );
+        }
+        // keeps at least the entry just set
+        Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+        while ( (this.entries.size() > this.maxEntries || this.weight > this.maxWeight) && this.entries.size() > 1 ) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            if ( evicted == null ) {
+                evicted = new ArrayList<Object>();
+            }
+            evicted( eldest.getKey(),
+                     eldest.getValue(),
+                     evicted );
         }
-        super.set(name, object);
+        return evicted;
     }
-    
+
+    private void evictExpired(long now,
+                              List<Object> evicted) {
+        this.nextSweep = now + this.evictionWakeUpTime;
+        // the least recently used entries come first
+        for ( Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if ( now - eldest.getValue().lastAccess <= this.entryEvictionTime ) {
+                break;
+            }
+            it.remove();
+            evicted( eldest.getKey(),
+                     eldest.getValue(),
+                     evicted );
+        }
+    }
+
+    private void evict(String identifier,
+                       Entry entry,
+                       List<Object> evicted) {
+        this.entries.remove( identifier );
+        evicted( identifier,
+                 entry,
+                 evicted );
+    }
+
+    private void evicted(String identifier,
+                         Entry entry,
+                         List<Object> evicted) {
+        this.weight -= entry.weight;
+        this.evictions++;
+        evicted.add( identifier );
+        evicted.add( entry.value );
+    }
+
+    /**
+     * Hands the evicted identifiers and values, in pairs, to the listener.
+     */
+    private void notifyEvicted(List<Object> evicted) {
+        if ( evicted == null ) {
+            return;
+        }
+        for ( int i = 0; i < evicted.size(); i += 2 ) {
+            String identifier = (String) evicted.get( i );
+            Object value = evicted.get( i + 1 );
+            try {
+                if ( this.evictionListener != null ) {
+                    this.evictionListener.evicted( identifier,
+                                                   value );
+                } else if ( value instanceof StatefulKnowledgeSession ) {
+                    ((StatefulKnowledgeSession) value).dispose();
+                }
+            } catch ( RuntimeException e ) {
+                log.log( Level.WARNING,
+                         "Unable to release the evicted entry " + identifier + "@" + getName(),
+                         e );
+            }
+        }
+    }
+
+    /**
+     * Returns the current time, in milliseconds, used for the idle times.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
     public long getEvictionWakeUpTime() {
         return evictionWakeUpTime;
     }
 
-    public Map<String, Long> getEvictionMap() {
+    /**
+     * Returns the time each entry was last accessed, by identifier.
+     */
+    public synchronized Map<String, Long> getEvictionMap() {
+        Map<String, Long> evictionMap = new HashMap<String, Long>();
+        for ( Map.Entry<String, Entry> entry : this.entries.entrySet() ) {
+            evictionMap.put( entry.getKey(),
+                             entry.getValue().lastAccess );
+        }
         return evictionMap;
     }
 
@@ -95,9 +329,49 @@ public class ContextImplWithEviction extends ContextImpl{
         this.entryEvictionTime = entryEvictionTime;
     }
 
-    public void setEvictionWakeUpTime(long evictionWakeUpTime) {
+    public synchronized void setEvictionWakeUpTime(long evictionWakeUpTime) {
         this.evictionWakeUpTime = evictionWakeUpTime;
+        this.nextSweep = 0;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the total weight of the entries, as weighed by the weigher, above
+     * which the least recently used entries are evicted.
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public Weigher getWeigher() {
+        return weigher;
+    }
+
+    /**
+     * Sets how to weigh the entries set from now on, each weighing 1 by
+     * default.
+     */
+    public void setWeigher(Weigher weigher) {
+        this.weigher = weigher;
+    }
+
+    public EvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
     }
-    
 
 }
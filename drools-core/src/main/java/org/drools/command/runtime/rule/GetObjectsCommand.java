@@ -59,6 +59,10 @@ public class GetObjectsCommand
         this.filter = filter;
     }
 
+    public ObjectFilter getFilter() {
+        return this.filter;
+    }
+
     public Collection execute(Context context) {
         StatefulKnowledgeSession ksession = ((KnowledgeCommandContext) context).getStatefulKnowledgesession();
         
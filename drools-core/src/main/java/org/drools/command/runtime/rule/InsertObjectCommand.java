@@ -140,6 +140,14 @@ public class InsertObjectCommand
         this.entryPoint = entryPoint;
     }
 
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    public void setDisconnected(boolean disconnected) {
+        this.disconnected = disconnected;
+    }
+
     public String toString() {
         return "session.entryPoints(" + ((this.entryPoint == null ) ? "DEFAULT" : this.entryPoint) + ").insert(" + object + ");";
     }
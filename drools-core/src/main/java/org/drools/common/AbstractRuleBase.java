@@ -35,7 +35,6 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.drools.PackageIntegrationException;
 import org.drools.RuleBase;
@@ -102,7 +101,7 @@ abstract public class AbstractRuleBase
     private transient ObjectHashSet                       statefulSessions;
 
     // lock for entire rulebase, used for dynamic updates
-    private final ReentrantReadWriteLock                  lock                         = new ReentrantReadWriteLock();
+    private final DistributedReadWriteLock                lock                         = new DistributedReadWriteLock();
 
     /**
      * This lock is used when adding to, or reading the <field>statefulSessions</field>
@@ -148,7 +147,7 @@ abstract public class AbstractRuleBase
         createRulebaseId( id );
         this.factHandleFactory = factHandleFactory;
 
-        if ( this.config.isSequential() ) {
+        if ( this.config.isSequential() || this.config.isMostlySequential() ) {
             this.agendaGroupRuleTotals = new HashMap();
         }
 
@@ -438,7 +437,7 @@ abstract public class AbstractRuleBase
             this.eventSupport.fireBeforeRuleBaseLocked();
         }
         // Always lock to increase the counter
-        this.lock.writeLock().lock();
+        this.lock.writeLock();
         if ( firstLock ) {
             this.additionsSinceLock = 0;
             this.removalsSinceLock = 0;
@@ -451,18 +450,18 @@ abstract public class AbstractRuleBase
         if ( lastUnlock ) {
             this.eventSupport.fireBeforeRuleBaseUnlocked();
         }
-        this.lock.writeLock().unlock();
+        this.lock.writeUnlock();
         if ( lastUnlock ) {
             this.eventSupport.fireAfterRuleBaseUnlocked();
         }
     }
 
     public void readLock() {
-        this.lock.readLock().lock();
+        this.lock.readLock();
     }
 
     public void readUnlock() {
-        this.lock.readLock().unlock();
+        this.lock.readUnlock();
     }
 
     /**
@@ -65,6 +65,7 @@ import org.drools.event.WorkingMemoryEventSupport;
 import org.drools.event.process.ProcessEventListener;
 import org.drools.event.process.ProcessEventManager;
 import org.drools.management.DroolsManagementAgent;
+import org.drools.management.PartitionManagerMonitor;
 import org.drools.marshalling.ObjectMarshallingStrategy;
 import org.drools.marshalling.impl.ObjectMarshallingStrategyStore;
 import org.drools.reteoo.EntryPointNode;
@@ -351,6 +352,13 @@ public abstract class AbstractWorkingMemory
     private void initManagementBeans() {
         if ( this.ruleBase.getConfiguration().isMBeansEnabled() ) {
             DroolsManagementAgent.getInstance().registerKnowledgeSession( this );
+            if ( this.partitionManager != null ) {
+                PartitionManagerMonitor mbean = new PartitionManagerMonitor( this,
+                                                                             this.partitionManager );
+                DroolsManagementAgent.getInstance().registerMBean( this,
+                                                                   mbean,
+                                                                   mbean.getName() );
+            }
         }
     }
 
@@ -420,7 +428,8 @@ public abstract class AbstractWorkingMemory
      */
     private void initPartitionManagers() {
         if ( this.ruleBase.getConfiguration().isMultithreadEvaluation() ) {
-            this.partitionManager = new PartitionManager( this );
+            this.partitionManager = new PartitionManager( this,
+                                                          getPartitionThreads() );
 
             for ( RuleBasePartitionId partitionId : this.ruleBase.getPartitionIds() ) {
                 this.partitionManager.manage( partitionId );
@@ -436,9 +445,8 @@ public abstract class AbstractWorkingMemory
         startOperation();
         try {
             if ( this.ruleBase.getConfiguration().isMultithreadEvaluation() ) {
-                int maxThreads = (this.ruleBase.getConfiguration().getMaxThreads() > 0) ? this.ruleBase.getConfiguration().getMaxThreads() : this.ruleBase.getPartitionIds().size();
                 if ( this.threadPool.compareAndSet( null,
-                                                    createExecutorService( maxThreads ) ) ) {
+                                                    createExecutorService( getPartitionThreads() ) ) ) {
                     this.partitionManager.setPool( this.threadPool.get() );
                 }
             }
@@ -447,6 +455,10 @@ public abstract class AbstractWorkingMemory
         }
     }
 
+    private int getPartitionThreads() {
+        return (this.ruleBase.getConfiguration().getMaxThreads() > 0) ? this.ruleBase.getConfiguration().getMaxThreads() : this.ruleBase.getPartitionIds().size();
+    }
+
     private ExternalExecutorService createExecutorService(final int maxThreads) {
         return new ExternalExecutorService( Executors.newFixedThreadPool( maxThreads ) );
     }
@@ -980,6 +992,32 @@ public abstract class AbstractWorkingMemory
                                        activation );
     }
 
+    public void update(final org.drools.runtime.rule.FactHandle factHandle,
+                       final Object object,
+                       final long modificationMask,
+                       final Rule rule,
+                       final Activation activation) throws FactException {
+        this.defaultEntryPoint.update( factHandle,
+                                       object,
+                                       modificationMask,
+                                       rule,
+                                       activation );
+    }
+
+    /**
+     * Updates a property reactive fact of which only the given properties
+     * changed.
+     *
+     * @see NamedEntryPoint#update(org.drools.runtime.rule.FactHandle, Object, String...)
+     */
+    public void update(final org.drools.runtime.rule.FactHandle factHandle,
+                       final Object object,
+                       final String... modifiedProperties) throws FactException {
+        this.defaultEntryPoint.update( factHandle,
+                                       object,
+                                       modifiedProperties );
+    }
+
     public void executeQueuedActions() {
         try {
             startOperation();
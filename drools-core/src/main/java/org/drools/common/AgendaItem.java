@@ -121,6 +121,32 @@ public class AgendaItem
         this.index = -1;
     }
 
+    /**
+     * Reinitializes this activation, released by the agenda, as a new one.
+     */
+    void reset(final long activationNumber,
+               final LeftTuple tuple,
+               final int salience,
+               final PropagationContext context,
+               final RuleTerminalNode rtn) {
+        this.tuple = tuple;
+        this.context = context;
+        this.salience = salience;
+        this.rtn = rtn;
+        this.activationNumber = activationNumber;
+        this.index = -1;
+        this.sequenence = 0;
+        this.queue = null;
+        this.justified = null;
+        this.blocked = null;
+        this.blockers = null;
+        this.activated = false;
+        this.agendaGroup = null;
+        this.activationGroupNode = null;
+        this.activationNode = null;
+        this.factHandle = null;
+    }
+
     // ------------------------------------------------------------
     // Instance methods
     // ------------------------------------------------------------
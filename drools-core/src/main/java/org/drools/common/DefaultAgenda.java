@@ -122,6 +122,14 @@ public class DefaultAgenda
     
     private ObjectTypeConf activationObjectTypeConf;
 
+    /** The released activations to reuse, null if they are not reused */
+    private AgendaItem[]                                        agendaItemPool;
+
+    private int                                                 agendaItemPoolCount;
+
+    /** The activation whose consequence is being evaluated */
+    private Activation                                          firing;
+
     // ------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------
@@ -179,12 +187,27 @@ public class DefaultAgenda
         }
         
         this.declarativeAgenda =  rb.getConfiguration().isDeclarativeAgenda();
+
+        // with a declarative agenda the activations are facts, so they are never reused
+        if ( rb.getConfiguration().getAgendaItemPoolSize() > 0 && !this.declarativeAgenda ) {
+            this.agendaItemPool = new AgendaItem[rb.getConfiguration().getAgendaItemPoolSize()];
+        }
     }
 
     public AgendaItem createAgendaItem(final LeftTuple tuple,
                                        final int salience,
                                        final PropagationContext context,
                                        final RuleTerminalNode rtn) {
+        if ( this.agendaItemPoolCount > 0 ) {
+            final AgendaItem item = this.agendaItemPool[--this.agendaItemPoolCount];
+            this.agendaItemPool[this.agendaItemPoolCount] = null;
+            item.reset( activationCounter++,
+                        tuple,
+                        salience,
+                        context,
+                        rtn );
+            return item;
+        }
         return new AgendaItem( activationCounter++,
                                tuple,
                                salience,
@@ -192,6 +215,39 @@ public class DefaultAgenda
                                rtn );
     }
 
+    /**
+     * Keeps the given activation, whose tuple was retracted, to reuse it
+     * for a next activation. The activation is only kept if nothing refers
+     * to it anymore: it is neither on the agenda nor firing, it justifies
+     * no logical insertion, and no agenda event listener could have kept it.
+     *
+     * @return true if the activation was kept, and detached from its tuple
+     */
+    public boolean releaseAgendaItem(final AgendaItem item) {
+        if ( this.agendaItemPool == null || this.agendaItemPoolCount == this.agendaItemPool.length ) {
+            return false;
+        }
+        if ( item.getClass() != AgendaItem.class || item == this.firing || item.isActivated() || item.getIndex() != -1 ) {
+            return false;
+        }
+        if ( item.getLogicalDependencies() != null && !item.getLogicalDependencies().isEmpty() ) {
+            return false;
+        }
+        if ( !((EventSupport) this.workingMemory).getAgendaEventSupport().isEmpty() ) {
+            return false;
+        }
+        if ( item.getTuple() != null && item.getTuple().getObject() == item ) {
+            item.getTuple().setObject( null );
+        }
+        item.reset( 0,
+                    null,
+                    0,
+                    null,
+                    null );
+        this.agendaItemPool[this.agendaItemPoolCount++] = item;
+        return true;
+    }
+
     public ScheduledAgendaItem createScheduledAgendaItem(final LeftTuple tuple,
                                                          final PropagationContext context,
                                                          final RuleTerminalNode rtn) {
@@ -1060,6 +1116,8 @@ public class DefaultAgenda
         // on an empty pattern
         // we need to make sure it re-activates
         this.workingMemory.startOperation();
+        final Activation previousFiring = this.firing;
+        this.firing = activation;
         try {
             increaseDormantActivations();
 
@@ -1135,6 +1193,7 @@ public class DefaultAgenda
             
             unstageActivations();
         } finally {
+            this.firing = previousFiring;
             this.workingMemory.endOperation();
         }
     }
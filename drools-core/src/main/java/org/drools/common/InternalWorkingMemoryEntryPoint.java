@@ -40,6 +40,18 @@ public interface InternalWorkingMemoryEntryPoint extends WorkingMemoryEntryPoint
                        Rule rule,
                        Activation activation) throws FactException;
 
+    /**
+     * Updates the fact, propagating the modification only to the patterns
+     * that read one of the properties of the given mask.
+     *
+     * @see org.drools.reteoo.PropertyReactiveUtil
+     */
+    public void update(org.drools.runtime.rule.FactHandle handle,
+                       Object object,
+                       long modificationMask,
+                       Rule rule,
+                       Activation activation) throws FactException;
+
     public EntryPoint getEntryPoint();
     public InternalWorkingMemory getInternalWorkingMemory();
 
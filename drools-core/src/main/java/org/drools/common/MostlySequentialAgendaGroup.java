@@ -0,0 +1,355 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import org.drools.core.util.BinaryHeapQueue;
+import org.drools.core.util.Queueable;
+import org.drools.spi.Activation;
+import org.drools.spi.PropagationContext;
+
+/**
+ * <code>AgendaGroup</code> implementation for the mostly sequential mode.
+ *
+ * The activations of the rules with a sequence, that is the rules whose
+ * consequences do not change the working memory, are kept in an array
+ * indexed by that sequence, which orders the rules of the agenda group by
+ * decreasing salience as in sequential mode, each entry listing the
+ * activations of its rule in the order they were added. Adding and removing
+ * them takes constant time. The activations of the other rules are kept in
+ * the usual <code>BinaryHeapQueue</code>.
+ *
+ * The next activation is the one of both heads that the conflict resolver
+ * of the queue puts first, so that at equal salience a more recent
+ * activation of a rule changing the working memory still fires before an
+ * activation of a rule that does not, as it would in the queue alone.
+ */
+public class MostlySequentialAgendaGroup
+    implements
+    InternalAgendaGroup {
+
+    private static final long  serialVersionUID = 510l;
+
+    private static final int   NONE             = -1;
+
+    private static final int   INITIAL_CAPACITY = 16;
+
+    private String             name;
+
+    private boolean            active;
+
+    private PropagationContext autoFocusActivator;
+
+    /** The activations of the rules without a sequence */
+    private BinaryHeapQueue    queue;
+
+    /** The sequential activations by slot */
+    private AgendaItem[]       items;
+
+    /** The next activation of the same rule by slot, or the next free slot */
+    private int[]              next;
+
+    /** The previous activation of the same rule by slot */
+    private int[]              previous;
+
+    /** The sequence each slot was added with */
+    private int[]              sequences;
+
+    /** The number of slots used so far */
+    private int                used;
+
+    /** The first free slot below used */
+    private int                free;
+
+    private int                size;
+
+    /** The slots of the first and last activations of each rule by sequence */
+    private int[]              heads;
+    private int[]              tails;
+
+    /** No rule of a lower sequence has an activation */
+    private int                first;
+
+    public MostlySequentialAgendaGroup() {
+
+    }
+
+    public MostlySequentialAgendaGroup(final String name,
+                                       final InternalRuleBase ruleBase) {
+        this.name = name;
+        this.queue = new BinaryHeapQueue( ruleBase.getConfiguration().getConflictResolver() );
+        Integer rules = ruleBase.getAgendaGroupRuleTotals() == null ? null : (Integer) ruleBase.getAgendaGroupRuleTotals().get( name );
+        init( rules == null ? 0 : rules.intValue() );
+    }
+
+    private void init(int rules) {
+        this.items = new AgendaItem[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.previous = new int[INITIAL_CAPACITY];
+        this.sequences = new int[INITIAL_CAPACITY];
+        this.used = 0;
+        this.free = NONE;
+        this.size = 0;
+        this.heads = new int[rules];
+        this.tails = new int[rules];
+        Arrays.fill( this.heads,
+                     NONE );
+        this.first = rules;
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        name = (String) in.readObject();
+        active = in.readBoolean();
+        queue = (BinaryHeapQueue) in.readObject();
+        init( in.readInt() );
+        Activation[] activations = (Activation[]) in.readObject();
+        for ( int i = 0; i < activations.length; i++ ) {
+            add( activations[i] );
+        }
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject( name );
+        out.writeBoolean( active );
+        out.writeObject( queue );
+        out.writeInt( heads.length );
+        out.writeObject( getSequentialActivations() );
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void clear() {
+        this.queue.clear();
+        Arrays.fill( this.items,
+                     0,
+                     this.used,
+                     null );
+        Arrays.fill( this.heads,
+                     NONE );
+        this.used = 0;
+        this.free = NONE;
+        this.size = 0;
+        this.first = this.heads.length;
+    }
+
+    public Activation[] getAndClear() {
+        final Activation[] activations = getActivations();
+        clear();
+        return activations;
+    }
+
+    public int size() {
+        return this.size + this.queue.size();
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0 && this.queue.isEmpty();
+    }
+
+    public void add(final Activation activation) {
+        final AgendaItem item = (AgendaItem) activation;
+        final int sequence = item.getSequenence();
+        if ( sequence < 0 ) {
+            this.queue.enqueue( item );
+            return;
+        }
+        if ( sequence >= this.heads.length ) {
+            // a rule added since this group was created
+            growRules( sequence + 1 );
+        }
+
+        final int slot = allocate();
+        this.items[slot] = item;
+        this.sequences[slot] = sequence;
+        final int tail = this.heads[sequence] == NONE ? NONE : this.tails[sequence];
+        this.previous[slot] = tail;
+        this.next[slot] = NONE;
+        if ( tail == NONE ) {
+            this.heads[sequence] = slot;
+        } else {
+            this.next[tail] = slot;
+        }
+        this.tails[sequence] = slot;
+        if ( sequence < this.first ) {
+            this.first = sequence;
+        }
+        this.size++;
+        item.enqueued( slot );
+    }
+
+    public Activation getNext() {
+        AgendaItem item = null;
+        if ( this.size > 0 ) {
+            while ( this.heads[this.first] == NONE ) {
+                this.first++;
+            }
+            item = this.items[this.heads[this.first]];
+            final Queueable queued = this.queue.peek();
+            if ( queued != null && this.queue.getComparator().compare( queued,
+                                                                       item ) > 0 ) {
+                item = null;
+            }
+        }
+        if ( item == null ) {
+            return (Activation) this.queue.dequeue();
+        }
+        // removes it from this group, as the BinaryHeapQueue does
+        item.dequeue();
+        return item;
+    }
+
+    public void remove(final AgendaItem agendaItem) {
+        final int slot = agendaItem.getIndex();
+        if ( slot < 0 || slot >= this.used || this.items[slot] != agendaItem ) {
+            // not a sequential activation
+            this.queue.dequeue( slot );
+            return;
+        }
+        final int sequence = this.sequences[slot];
+        final int after = this.previous[slot];
+        final int before = this.next[slot];
+        if ( after == NONE ) {
+            this.heads[sequence] = before;
+        } else {
+            this.next[after] = before;
+        }
+        if ( before == NONE ) {
+            this.tails[sequence] = after;
+        } else {
+            this.previous[before] = after;
+        }
+        this.items[slot] = null;
+        this.next[slot] = this.free;
+        this.free = slot;
+        this.size--;
+    }
+
+    public Activation[] getActivations() {
+        final Activation[] activations = new Activation[size()];
+        final Activation[] sequential = getSequentialActivations();
+        System.arraycopy( sequential,
+                          0,
+                          activations,
+                          0,
+                          sequential.length );
+        final Object[] queued = this.queue.toArray( new AgendaItem[this.queue.size()] );
+        System.arraycopy( queued,
+                          0,
+                          activations,
+                          sequential.length,
+                          queued.length );
+        return activations;
+    }
+
+    private Activation[] getSequentialActivations() {
+        final Activation[] activations = new Activation[this.size];
+        int i = 0;
+        for ( int sequence = this.first; i < this.size; sequence++ ) {
+            for ( int slot = this.heads[sequence]; slot != NONE; slot = this.next[slot] ) {
+                activations[i++] = this.items[slot];
+            }
+        }
+        return activations;
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    public void setActive(final boolean activate) {
+        this.active = activate;
+    }
+
+    public void setAutoFocusActivator(PropagationContext autoFocusActivator) {
+        this.autoFocusActivator = autoFocusActivator;
+    }
+
+    public PropagationContext getAutoFocusActivator() {
+        return this.autoFocusActivator;
+    }
+
+    public void setFocus() {
+        throw new UnsupportedOperationException();
+    }
+
+    public String toString() {
+        return "AgendaGroup '" + this.name + "'";
+    }
+
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    private int allocate() {
+        if ( this.free != NONE ) {
+            final int slot = this.free;
+            this.free = this.next[slot];
+            return slot;
+        }
+        if ( this.used == this.items.length ) {
+            final int capacity = this.used * 2;
+            final AgendaItem[] items = new AgendaItem[capacity];
+            System.arraycopy( this.items,
+                              0,
+                              items,
+                              0,
+                              this.used );
+            this.items = items;
+            this.next = grow( this.next,
+                              capacity );
+            this.previous = grow( this.previous,
+                                  capacity );
+            this.sequences = grow( this.sequences,
+                                   capacity );
+        }
+        return this.used++;
+    }
+
+    private void growRules(final int rules) {
+        final int length = this.heads.length;
+        this.heads = grow( this.heads,
+                           rules );
+        this.tails = grow( this.tails,
+                           rules );
+        Arrays.fill( this.heads,
+                     length,
+                     rules,
+                     NONE );
+        if ( this.first == length ) {
+            this.first = rules;
+        }
+    }
+
+    private static int[] grow(final int[] array,
+                              final int capacity) {
+        final int[] grown = new int[capacity];
+        System.arraycopy( array,
+                          0,
+                          grown,
+                          0,
+                          array.length );
+        return grown;
+    }
+
+}
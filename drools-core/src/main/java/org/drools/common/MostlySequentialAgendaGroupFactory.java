@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Creates <code>MostlySequentialAgendaGroup</code>s, the agenda groups used
+ * when the drools.mostlySequential rule base property is set.
+ */
+public class MostlySequentialAgendaGroupFactory implements AgendaGroupFactory, Externalizable {
+    private static final AgendaGroupFactory INSTANCE = new MostlySequentialAgendaGroupFactory();
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+    }
+
+    public static AgendaGroupFactory getInstance() {
+        return INSTANCE;
+    }
+
+    public InternalAgendaGroup createAgendaGroup(String name, InternalRuleBase ruleBase) {
+        return new MostlySequentialAgendaGroup( name,
+                                                ruleBase );
+    }
+}
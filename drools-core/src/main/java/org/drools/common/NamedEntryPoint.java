@@ -38,6 +38,7 @@ import org.drools.reteoo.EntryPointNode;
 import org.drools.reteoo.LeftTupleImpl;
 import org.drools.reteoo.ObjectTypeConf;
 import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.PropertyReactiveUtil;
 import org.drools.reteoo.Rete;
 import org.drools.rule.EntryPoint;
 import org.drools.rule.Rule;
@@ -73,6 +74,13 @@ public class NamedEntryPoint
 
     protected final ReentrantLock           lock;
 
+    /**
+     * Whether the equality keys of the truth maintenance system find the
+     * handles of this entry point, so that inserting an object of a type with
+     * TMS enabled only needs one lookup.
+     */
+    private final boolean                   equalityKeysIndexHandles;
+
     public NamedEntryPoint(EntryPoint entryPoint,
                            EntryPointNode entryPointNode,
                            AbstractWorkingMemory wm) {
@@ -95,6 +103,11 @@ public class NamedEntryPoint
         this.handleFactory = this.wm.getFactHandleFactory();
         this.objectStore = new SingleThreadedObjectStore( this.ruleBase.getConfiguration(),
                                                           this.lock );
+        // TMS is only enabled, and existing facts given equality keys, in the
+        // default entry point, and the keys only find the same handles as the
+        // assert map when it compares objects by equality
+        this.equalityKeysIndexHandles = EntryPoint.DEFAULT.equals( entryPoint ) &&
+                                        AssertBehaviour.EQUALITY.equals( this.ruleBase.getConfiguration().getAssertBehaviour() );
     }
 
     public void reset() {
@@ -164,16 +177,25 @@ public class NamedEntryPoint
             try {
                 this.ruleBase.readLock();
                 this.lock.lock();
-                // check if the object already exists in the WM
-                handle = (InternalFactHandle) this.objectStore.getHandleForObject( object );
+                EqualityKey key = null;
+                final boolean keyLookedUp = typeConf.isTMSEnabled() && this.equalityKeysIndexHandles;
+                if ( keyLookedUp ) {
+                    // the equality key of the object, if any, lists the handles of all
+                    // the equal objects, so there is no need to look up the assert map
+                    key = this.wm.tms.get( object );
+                    handle = key == null ? null : getHandle( key );
+                } else {
+                    // check if the object already exists in the WM
+                    handle = (InternalFactHandle) this.objectStore.getHandleForObject( object );
+                }
 
                 if ( typeConf.isTMSEnabled() ) {
-                  
-                    EqualityKey key = null;
 
                     if ( handle == null ) {
-                        // lets see if the object is already logical asserted
-                        key = this.wm.tms.get( object );
+                        if ( !keyLookedUp ) {
+                            // lets see if the object is already logical asserted
+                            key = this.wm.tms.get( object );
+                        }
                     } else {
                         // Object is already asserted, so check and possibly correct its
                         // status and then return the handle
@@ -368,10 +390,37 @@ public class NamedEntryPoint
                 activation );
     }
 
+    /**
+     * Updates a property reactive fact of which only the given properties
+     * changed. The patterns that read none of them keep their matches.
+     */
+    public void update(final org.drools.runtime.rule.FactHandle handle,
+                       final Object object,
+                       final String... modifiedProperties) throws FactException {
+        update( handle,
+                object,
+                object == null ? PropertyReactiveUtil.ALL_PROPERTIES : PropertyReactiveUtil.getModificationMask( object.getClass(),
+                                                                                                                 modifiedProperties ),
+                null,
+                null );
+    }
+
     public void update(org.drools.FactHandle factHandle,
                        final Object object,
                        final Rule rule,
                        final Activation activation) throws FactException {
+        update( factHandle,
+                object,
+                PropertyReactiveUtil.ALL_PROPERTIES,
+                rule,
+                activation );
+    }
+
+    public void update(org.drools.runtime.rule.FactHandle factHandle,
+                       final Object object,
+                       final long modificationMask,
+                       final Rule rule,
+                       final Activation activation) throws FactException {
         try {
             this.ruleBase.readLock();
             this.lock.lock();
@@ -456,6 +505,7 @@ public class NamedEntryPoint
                                                                                       this.wm.agenda.getActiveActivations(),
                                                                                       this.wm.agenda.getDormantActivations(),
                                                                                       entryPoint );
+            propagationContext.setModificationMask( modificationMask );
 
             this.entryPointNode.modifyObject( handle,
                                               propagationContext,
@@ -726,6 +776,24 @@ public class NamedEntryPoint
         return handle;
     }
     
+    /**
+     * Returns the handle of this entry point among those of the given key.
+     */
+    private InternalFactHandle getHandle(EqualityKey key) {
+        InternalFactHandle handle = key.getFactHandle();
+        if ( handle != null && handle.getEntryPoint() == this ) {
+            return handle;
+        }
+        if ( key.getOtherFactHandle() != null ) {
+            for ( InternalFactHandle other : key.getOtherFactHandle() ) {
+                if ( other.getEntryPoint() == this ) {
+                    return other;
+                }
+            }
+        }
+        return null;
+    }
+
     /** Side-effects, will add the created key to the handle. */
     private EqualityKey createEqualityKey(InternalFactHandle handle) {
       EqualityKey key = new EqualityKey( handle );
@@ -25,6 +25,7 @@ import org.drools.FactHandle;
 import org.drools.core.util.ObjectHashSet;
 import org.drools.reteoo.LeftTuple;
 import org.drools.reteoo.ObjectTypeNode;
+import org.drools.reteoo.PropertyReactiveUtil;
 import org.drools.reteoo.ReteooWorkingMemory.QueryInsertAction;
 import org.drools.reteoo.ReteooWorkingMemory.QueryResultInsertAction;
 import org.drools.rule.EntryPoint;
@@ -65,6 +66,8 @@ public class PropagationContextImpl
     
     private LinkedList<WorkingMemoryAction> queue2; // for evaluations and fixers
 
+    private long               modificationMask = PropertyReactiveUtil.ALL_PROPERTIES;
+
 
     public PropagationContextImpl() {
 
@@ -119,6 +122,7 @@ public class PropagationContextImpl
         this.propagationAttempts = (ObjectHashSet) in.readObject();
         this.currentPropagatingOTN = (ObjectTypeNode) in.readObject();
         this.shouldPropagateAll = in.readBoolean();        
+        this.modificationMask = in.readLong();
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -133,6 +137,7 @@ public class PropagationContextImpl
         out.writeObject( this.propagationAttempts );
         out.writeObject( this.currentPropagatingOTN );
         out.writeObject( this.shouldPropagateAll );        
+        out.writeLong( this.modificationMask );
     }
 
     public long getPropagationNumber() {
@@ -237,6 +242,14 @@ public class PropagationContextImpl
     public boolean shouldPropagateAll() {
         return this.shouldPropagateAll;
     }          
+
+    public long getModificationMask() {
+        return this.modificationMask;
+    }
+
+    public void setModificationMask(long modificationMask) {
+        this.modificationMask = modificationMask;
+    }
     
     public LinkedList<WorkingMemoryAction> getQueue1() {
         if ( this.queue1 == null ) {
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import org.drools.spi.Activation;
+import org.drools.spi.PropagationContext;
+
+/**
+ * <code>AgendaGroup</code> implementation that orders the activations as the
+ * <code>DepthConflictResolver</code> does, keeping one list per salience
+ * value, each list from the most recent activation to the oldest one.
+ *
+ * The lists are linked through arrays indexed by the slot of each activation,
+ * its queue index, so adding the most recent activation and removing any
+ * activation take constant time and allocate nothing once the arrays have
+ * grown to the number of activations. Only the activations added again with
+ * their former activation number, as when a dormant activation is reactivated,
+ * are inserted further down their list.
+ */
+public class SalienceBucketAgendaGroup
+    implements
+    InternalAgendaGroup {
+
+    private static final long  serialVersionUID = 510l;
+
+    private static final int   NONE             = -1;
+
+    private static final int   INITIAL_CAPACITY = 16;
+
+    private String             name;
+
+    private boolean            active;
+
+    private PropagationContext autoFocusActivator;
+
+    /** The activations by slot */
+    private AgendaItem[]       items;
+
+    /** The next, older, activation of the same list by slot, or the next free slot */
+    private int[]              next;
+
+    /** The previous, more recent, activation of the same list by slot */
+    private int[]              previous;
+
+    /** The number of slots used so far */
+    private int                used;
+
+    /** The first free slot below used */
+    private int                free;
+
+    private int                size;
+
+    /** The salience values with a list, in ascending order */
+    private int[]              saliences;
+
+    /** The slot of the most recent activation of each list */
+    private int[]              heads;
+
+    private int                buckets;
+
+    public SalienceBucketAgendaGroup() {
+
+    }
+
+    public SalienceBucketAgendaGroup(final String name,
+                                     final InternalRuleBase ruleBase) {
+        this.name = name;
+        init();
+    }
+
+    private void init() {
+        this.items = new AgendaItem[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.previous = new int[INITIAL_CAPACITY];
+        this.used = 0;
+        this.free = NONE;
+        this.size = 0;
+        this.saliences = new int[4];
+        this.heads = new int[4];
+        this.buckets = 0;
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+                                            ClassNotFoundException {
+        name = (String) in.readObject();
+        active = in.readBoolean();
+        init();
+        Activation[] activations = (Activation[]) in.readObject();
+        for ( int i = 0; i < activations.length; i++ ) {
+            add( activations[i] );
+        }
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject( name );
+        out.writeBoolean( active );
+        out.writeObject( getActivations() );
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void clear() {
+        Arrays.fill( this.items,
+                     0,
+                     this.used,
+                     null );
+        this.used = 0;
+        this.free = NONE;
+        this.size = 0;
+        this.buckets = 0;
+    }
+
+    public Activation[] getAndClear() {
+        final Activation[] activations = getActivations();
+        clear();
+        return activations;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void add(final Activation activation) {
+        final AgendaItem item = (AgendaItem) activation;
+        final int slot = allocate();
+        this.items[slot] = item;
+
+        final int bucket = getBucket( item.getSalience(),
+                                      true );
+        int after = NONE;
+        int before = this.heads[bucket];
+        while ( before != NONE && this.items[before].getActivationNumber() > item.getActivationNumber() ) {
+            after = before;
+            before = this.next[before];
+        }
+        this.previous[slot] = after;
+        this.next[slot] = before;
+        if ( after == NONE ) {
+            this.heads[bucket] = slot;
+        } else {
+            this.next[after] = slot;
+        }
+        if ( before != NONE ) {
+            this.previous[before] = slot;
+        }
+        this.size++;
+        item.enqueued( slot );
+    }
+
+    public Activation getNext() {
+        while ( this.buckets > 0 ) {
+            final int head = this.heads[this.buckets - 1];
+            if ( head != NONE ) {
+                final AgendaItem item = this.items[head];
+                // removes it from this group, as the BinaryHeapQueue does
+                item.dequeue();
+                return item;
+            }
+            // drop the empty list of the highest salience
+            this.buckets--;
+        }
+        return null;
+    }
+
+    public void remove(final AgendaItem agendaItem) {
+        final int slot = agendaItem.getIndex();
+        if ( slot < 0 || slot >= this.used || this.items[slot] != agendaItem ) {
+            return;
+        }
+        final int after = this.previous[slot];
+        final int before = this.next[slot];
+        if ( after == NONE ) {
+            this.heads[getBucket( agendaItem.getSalience(),
+                                  false )] = before;
+        } else {
+            this.next[after] = before;
+        }
+        if ( before != NONE ) {
+            this.previous[before] = after;
+        }
+        this.items[slot] = null;
+        this.next[slot] = this.free;
+        this.free = slot;
+        this.size--;
+    }
+
+    public Activation[] getActivations() {
+        final Activation[] activations = new Activation[this.size];
+        int i = 0;
+        for ( int bucket = this.buckets - 1; bucket >= 0; bucket-- ) {
+            for ( int slot = this.heads[bucket]; slot != NONE; slot = this.next[slot] ) {
+                activations[i++] = this.items[slot];
+            }
+        }
+        return activations;
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    public void setActive(final boolean activate) {
+        this.active = activate;
+    }
+
+    public void setAutoFocusActivator(PropagationContext autoFocusActivator) {
+        this.autoFocusActivator = autoFocusActivator;
+    }
+
+    public PropagationContext getAutoFocusActivator() {
+        return this.autoFocusActivator;
+    }
+
+    public void setFocus() {
+        throw new UnsupportedOperationException();
+    }
+
+    public String toString() {
+        return "AgendaGroup '" + this.name + "'";
+    }
+
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    private int allocate() {
+        if ( this.free != NONE ) {
+            final int slot = this.free;
+            this.free = this.next[slot];
+            return slot;
+        }
+        if ( this.used == this.items.length ) {
+            final int capacity = this.used * 2;
+            final AgendaItem[] items = new AgendaItem[capacity];
+            System.arraycopy( this.items,
+                              0,
+                              items,
+                              0,
+                              this.used );
+            this.items = items;
+            this.next = grow( this.next,
+                              capacity );
+            this.previous = grow( this.previous,
+                                  capacity );
+        }
+        return this.used++;
+    }
+
+    /**
+     * Returns the list of the given salience, adding an empty one if there
+     * is none and create is true.
+     */
+    private int getBucket(final int salience,
+                          final boolean create) {
+        int low = 0;
+        int high = this.buckets - 1;
+        while ( low <= high ) {
+            final int mid = (low + high) >>> 1;
+            if ( this.saliences[mid] < salience ) {
+                low = mid + 1;
+            } else if ( this.saliences[mid] > salience ) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        if ( !create ) {
+            throw new IllegalStateException( "No activation of salience " + salience + " in " + this );
+        }
+        if ( this.buckets == this.saliences.length ) {
+            this.saliences = grow( this.saliences,
+                                   this.buckets * 2 );
+            this.heads = grow( this.heads,
+                               this.buckets * 2 );
+        }
+        System.arraycopy( this.saliences,
+                          low,
+                          this.saliences,
+                          low + 1,
+                          this.buckets - low );
+        System.arraycopy( this.heads,
+                          low,
+                          this.heads,
+                          low + 1,
+                          this.buckets - low );
+        this.saliences[low] = salience;
+        this.heads[low] = NONE;
+        this.buckets++;
+        return low;
+    }
+
+    private static int[] grow(final int[] array,
+                              final int capacity) {
+        final int[] grown = new int[capacity];
+        System.arraycopy( array,
+                          0,
+                          grown,
+                          0,
+                          array.length );
+        return grown;
+    }
+
+}
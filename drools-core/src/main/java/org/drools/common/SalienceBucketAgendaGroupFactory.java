@@ -0,0 +1,55 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.drools.conflict.DepthConflictResolver;
+
+/**
+ * Creates <code>SalienceBucketAgendaGroup</code>s, or
+ * <code>BinaryHeapQueueAgendaGroup</code>s when the rule base uses another
+ * conflict resolver than the <code>DepthConflictResolver</code>.
+ *
+ * To use it, set the drools.agendaGroupFactory rule base property to the
+ * name of this class.
+ */
+public class SalienceBucketAgendaGroupFactory implements AgendaGroupFactory, Externalizable {
+    private static final AgendaGroupFactory INSTANCE = new SalienceBucketAgendaGroupFactory();
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+    }
+
+    public static AgendaGroupFactory getInstance() {
+        return INSTANCE;
+    }
+
+    public InternalAgendaGroup createAgendaGroup(String name, InternalRuleBase ruleBase) {
+        if ( ruleBase.getConfiguration().getConflictResolver() instanceof DepthConflictResolver ) {
+            return new SalienceBucketAgendaGroup( name,
+                                                  ruleBase );
+        }
+        return new BinaryHeapQueueAgendaGroup( name,
+                                               ruleBase );
+    }
+}
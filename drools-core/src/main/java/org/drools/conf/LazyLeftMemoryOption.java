@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.conf;
+
+/**
+ * An Enum for the LazyLeftMemory option: with left and right unlinking, the
+ * left memories of the joins whose right memory is empty are not populated.
+ *
+ * drools.lazyLeftMemory = &lt;true|false&gt;
+ *
+ * DEFAULT = false
+ */
+public enum LazyLeftMemoryOption implements SingleValueKnowledgeBaseOption {
+
+    ENABLED(true),
+    DISABLED(false);
+
+    /**
+     * The property name for the lazy left memories
+     */
+    public static final String PROPERTY_NAME = "drools.lazyLeftMemory";
+
+    private boolean            value;
+
+    LazyLeftMemoryOption(final boolean value) {
+        this.value = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPropertyName() {
+        return PROPERTY_NAME;
+    }
+
+    public boolean isLazyLeftMemoryEnabled() {
+        return this.value;
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.conf;
+
+/**
+ * An Enum for the MostlySequential option: the rules whose consequences do
+ * not change the working memory are fired in a precomputed order.
+ *
+ * drools.mostlySequential = &lt;true|false&gt;
+ *
+ * DEFAULT = false
+ */
+public enum MostlySequentialOption implements SingleValueKnowledgeBaseOption {
+
+    YES(true),
+    NO(false);
+
+    /**
+     * The property name for the mostly sequential mode
+     */
+    public static final String PROPERTY_NAME = "drools.mostlySequential";
+
+    private boolean            value;
+
+    MostlySequentialOption(final boolean value) {
+        this.value = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPropertyName() {
+        return PROPERTY_NAME;
+    }
+
+    public boolean isMostlySequential() {
+        return this.value;
+    }
+
+}
@@ -165,6 +165,15 @@ public class BinaryHeapQueue
         return this.size;
     }
 
+    /**
+     * Returns the comparator ordering this heap.
+     *
+     * @return the comparator ordering this heap
+     */
+    public Comparator getComparator() {
+        return this.comparator;
+    }
+
     /**
      * Inserts an Queueable into queue.
      *
@@ -205,6 +214,20 @@ public class BinaryHeapQueue
         }        
     }
 
+    /**
+     * Returns the Queueable on top of heap without removing it.
+     *
+     * @return the Queueable at top of heap, or null if empty
+     */
+    public Queueable peek() {
+        try {
+            this.lock.lock();
+            return isEmpty() ? null : this.elements[1];
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     /**
      *
      * @param index
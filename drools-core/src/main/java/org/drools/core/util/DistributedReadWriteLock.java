@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A reentrant read write lock for data that is read all the time and seldom
+ * written, like the rulebase network that every session operation reads.
+ *
+ * Each reading thread registers in a slot of its own, so taking the read lock
+ * is a write to that slot followed by a read of the writer flag, with no
+ * compare and swap on a location shared by all the readers. A writer raises
+ * the flag and waits until every slot is empty, that is until each reader has
+ * reached the end of its current operation. The readers arriving meanwhile
+ * park on a plain ReentrantReadWriteLock until the writer is done.
+ *
+ * As with ReentrantReadWriteLock, a thread holding the write lock may take the
+ * read lock, but a thread holding the read lock must not take the write lock,
+ * and a read lock must be released by the thread that took it.
+ */
+public class DistributedReadWriteLock {
+
+    private static final int                  SPINS      = 64;
+
+    private static final long                 PARK_NANOS = 50000L;
+
+    /** Excludes the writers from each other, and from the parked readers */
+    private final ReentrantReadWriteLock      lock       = new ReentrantReadWriteLock();
+
+    private final CopyOnWriteArrayList<Slot>  slots      = new CopyOnWriteArrayList<Slot>();
+
+    private final ThreadLocal<Slot>           slot       = new ThreadLocal<Slot>() {
+                                                             protected Slot initialValue() {
+                                                                 Slot slot = new Slot( Thread.currentThread() );
+                                                                 slots.add( slot );
+                                                                 return slot;
+                                                             }
+                                                         };
+
+    private volatile boolean                  writing;
+
+    public void readLock() {
+        final Slot slot = this.slot.get();
+        if ( slot.holds > 0 ) {
+            // reentrant, a writer waits for the outermost hold anyway
+            slot.holds++;
+            return;
+        }
+        slot.holds = 1;
+        if ( !this.writing ) {
+            return;
+        }
+        // a writer is either waiting for the readers or updating
+        slot.holds = 0;
+        this.lock.readLock().lock();
+        slot.parked = true;
+        slot.holds = 1;
+    }
+
+    public void readUnlock() {
+        final Slot slot = this.slot.get();
+        if ( slot.holds <= 0 ) {
+            throw new IllegalMonitorStateException( "Read lock not held by the current thread" );
+        }
+        if ( slot.holds == 1 && slot.parked ) {
+            slot.parked = false;
+            slot.holds = 0;
+            this.lock.readLock().unlock();
+        } else {
+            slot.holds--;
+        }
+    }
+
+    public void writeLock() {
+        if ( this.lock.isWriteLockedByCurrentThread() ) {
+            this.lock.writeLock().lock();
+            return;
+        }
+        this.lock.writeLock().lock();
+        this.writing = true;
+        awaitReaders();
+    }
+
+    public void writeUnlock() {
+        if ( this.lock.getWriteHoldCount() == 1 ) {
+            this.writing = false;
+        }
+        this.lock.writeLock().unlock();
+    }
+
+    public boolean isWriteLockedByCurrentThread() {
+        return this.lock.isWriteLockedByCurrentThread();
+    }
+
+    public int getWriteHoldCount() {
+        return this.lock.getWriteHoldCount();
+    }
+
+    /**
+     * Returns the number of threads that registered a slot and are still alive.
+     */
+    public int getReaderThreadCount() {
+        int count = 0;
+        for ( Slot slot : this.slots ) {
+            if ( slot.isAlive() ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void awaitReaders() {
+        for ( Slot slot : this.slots ) {
+            if ( !slot.isAlive() ) {
+                // the thread is gone, so it holds nothing anymore
+                this.slots.remove( slot );
+                continue;
+            }
+            int spins = 0;
+            while ( slot.holds > 0 && !slot.parked ) {
+                if ( spins++ < SPINS ) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos( PARK_NANOS );
+                }
+            }
+        }
+    }
+
+    private static class Slot {
+        private final WeakReference<Thread> owner;
+
+        /** Only written by the owner thread */
+        private volatile int                holds;
+
+        /** True if the owner waited for a writer, and holds the read lock */
+        private volatile boolean            parked;
+
+        private Slot(final Thread owner) {
+            this.owner = new WeakReference<Thread>( owner );
+        }
+
+        private boolean isAlive() {
+            Thread thread = this.owner.get();
+            return thread != null && thread.isAlive();
+        }
+    }
+
+}
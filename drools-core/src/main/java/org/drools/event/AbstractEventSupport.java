@@ -40,6 +40,9 @@ public abstract class AbstractEventSupport<E extends EventListener> implements E
 
     private static final long serialVersionUID = 510l;
 
+    /** Iterating no listener does not allocate an iterator each time */
+    private static final Iterator EMPTY_ITERATOR = Collections.EMPTY_LIST.iterator();
+
     private List<E> listeners = new CopyOnWriteArrayList<E>();
 
     @SuppressWarnings("unchecked")
@@ -51,7 +54,11 @@ public abstract class AbstractEventSupport<E extends EventListener> implements E
         out.writeObject(listeners);
     }
 
+    @SuppressWarnings("unchecked")
     protected final Iterator<E> getEventListenersIterator() {
+        if ( this.listeners.isEmpty() ) {
+            return EMPTY_ITERATOR;
+        }
         return listeners.iterator();
     }
 
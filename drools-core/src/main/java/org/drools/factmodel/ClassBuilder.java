@@ -30,8 +30,20 @@ import org.mvel2.asm.*;
 
 /**
  * A builder to dynamically build simple Javabean(TM) classes
+ *
+ * The fields of a compact class declared with a primitive wrapper type are
+ * stored as primitives, with one bit each in an int mask telling whether
+ * they are set. Their getters and setters still take and return the wrapper,
+ * and two more methods, named with the COMPACT_VALUE_PREFIX and the
+ * COMPACT_SET_PREFIX followed by the field name, return the primitive value
+ * and whether it is set, for the field readers to use without boxing.
  */
 public class ClassBuilder {
+    public static final String  COMPACT_VALUE_PREFIX = "__value$";
+    public static final String  COMPACT_SET_PREFIX   = "__isSet$";
+
+    private static final String COMPACT_MASK         = "__set";
+
     private boolean     debug  = false;
 
     public ClassBuilder() {
@@ -82,9 +94,20 @@ public class ClassBuilder {
         for ( FieldDefinition fieldDef : classDef.getFieldsDefinitions() ) {
             if (! fieldDef.isInherited())
                 this.buildField( cw,
+                        classDef,
                         fieldDef );
         }
 
+        // Building the masks of the compact fields
+        int compactFields = getCompactFieldCount( classDef );
+        for ( int mask = 0; mask * 32 < compactFields; mask++ ) {
+            cw.visitField( Opcodes.ACC_PRIVATE,
+                    COMPACT_MASK + mask,
+                    "I",
+                    null,
+                    null ).visitEnd();
+        }
+
         // Building default constructor
         this.buildDefaultConstructor( cw,
                 classDef );
@@ -111,7 +134,18 @@ public class ClassBuilder {
 
         // Building methods
         for ( FieldDefinition fieldDef : classDef.getFieldsDefinitions() ) {
-            if (! fieldDef.isInherited()) {
+            if ( isCompacted( classDef,
+                              fieldDef ) ) {
+                this.buildCompactGetMethod( cw,
+                        classDef,
+                        fieldDef );
+                this.buildCompactSetMethod( cw,
+                        classDef,
+                        fieldDef );
+                this.buildCompactValueMethods( cw,
+                        classDef,
+                        fieldDef );
+            } else if (! fieldDef.isInherited()) {
                 this.buildGetMethod( cw,
                         classDef,
                         fieldDef );
@@ -171,14 +205,17 @@ public class ClassBuilder {
      * Creates the field defined by the given FieldDefinition
      *
      * @param cw
+     * @param classDef
      * @param fieldDef
      */
     private void buildField(ClassVisitor cw,
+                            ClassDefinition classDef,
                             FieldDefinition fieldDef) {
         FieldVisitor fv;
         fv = cw.visitField( Opcodes.ACC_PRIVATE,
                 fieldDef.getName(),
-                getTypeDescriptor( fieldDef.getTypeName() ),
+                getStorageDescriptor( classDef,
+                                      fieldDef ),
                 null,
                 null );
 
@@ -229,7 +266,22 @@ public class ClassBuilder {
 
             for (FieldDefinition field : classDef.getFieldsDefinitions()) {
 
-                if (! field.isInherited()) {
+                if ( isCompacted( classDef,
+                                  field ) ) {
+                    // wrappers always have a default value
+                    mv.visitVarInsn( Opcodes.ALOAD,
+                            0 );
+                    mv.visitLdcInsn( toPrimitiveConstant( getDefaultValue( field ) ) );
+                    mv.visitFieldInsn( Opcodes.PUTFIELD,
+                            getInternalType( classDef.getClassName() ),
+                            field.getName(),
+                            getStorageDescriptor( classDef,
+                                                  field ) );
+                    visitSetMask( mv,
+                            classDef,
+                            field,
+                            true );
+                } else if (! field.isInherited()) {
                     Object val = getDefaultValue(field);
 
                     if (val != null) {
@@ -334,7 +386,7 @@ public class ClassBuilder {
                     index++;
                 }
 
-                if (! field.isInherited()) {
+                if (! field.isInherited() && ! isCompacted( classDef, field )) {
                     mv.visitFieldInsn( Opcodes.PUTFIELD,
                             getInternalType( classDef.getClassName() ),
                             field.getName(),
@@ -479,6 +531,246 @@ public class ClassBuilder {
         }
     }
 
+    /**
+     * Creates the get method of a compact field, boxing its value
+     *
+     * @param cw
+     * @param classDef
+     * @param fieldDef
+     */
+    private void buildCompactGetMethod(ClassVisitor cw,
+                                       ClassDefinition classDef,
+                                       FieldDefinition fieldDef) {
+        String type = fieldDef.getTypeName();
+        String primitive = unBox( type );
+        MethodVisitor mv = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                fieldDef.getReadMethod(),
+                Type.getMethodDescriptor( Type.getType( getTypeDescriptor( type ) ),
+                        new Type[]{} ),
+                null,
+                null );
+        mv.visitCode();
+        Label l0 = null;
+        if ( this.debug ) {
+            l0 = new Label();
+            mv.visitLabel( l0 );
+        }
+
+        // if ( ( this.__set<n> & <bit> ) == 0 ) return null;
+        visitMaskTest( mv,
+                classDef,
+                fieldDef );
+        Label isSet = new Label();
+        mv.visitJumpInsn( Opcodes.IFNE,
+                isSet );
+        mv.visitInsn( Opcodes.ACONST_NULL );
+        mv.visitInsn( Opcodes.ARETURN );
+
+        // return <Wrapper>.valueOf( this.<attr> );
+        mv.visitLabel( isSet );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitFieldInsn( Opcodes.GETFIELD,
+                getInternalType( classDef.getClassName() ),
+                fieldDef.getName(),
+                primitive );
+        mv.visitMethodInsn( Opcodes.INVOKESTATIC,
+                getInternalType( type ),
+                "valueOf",
+                "(" + primitive + ")" + getTypeDescriptor( type ) );
+        mv.visitInsn( Opcodes.ARETURN );
+        Label l1 = null;
+        if ( this.debug ) {
+            l1 = new Label();
+            mv.visitLabel( l1 );
+            mv.visitLocalVariable( "this",
+                    getTypeDescriptor( classDef.getClassName() ),
+                    null,
+                    l0,
+                    l1,
+                    0 );
+        }
+        mv.visitMaxs( 0,
+                0 );
+        mv.visitEnd();
+    }
+
+    /**
+     * Creates the set method of a compact field, unboxing its value
+     *
+     * @param cw
+     * @param classDef
+     * @param fieldDef
+     */
+    private void buildCompactSetMethod(ClassVisitor cw,
+                                       ClassDefinition classDef,
+                                       FieldDefinition fieldDef) {
+        String type = fieldDef.getTypeName();
+        String primitive = unBox( type );
+        MethodVisitor mv = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                fieldDef.getWriteMethod(),
+                Type.getMethodDescriptor( Type.VOID_TYPE,
+                        new Type[]{Type.getType( getTypeDescriptor( type ) )} ),
+                null,
+                null );
+        mv.visitCode();
+        Label l0 = null;
+        if ( this.debug ) {
+            l0 = new Label();
+            mv.visitLabel( l0 );
+        }
+
+        // if ( value == null ) { this.<attr> = 0; this.__set<n> &= ~<bit>; return; }
+        mv.visitVarInsn( Opcodes.ALOAD,
+                1 );
+        Label notNull = new Label();
+        mv.visitJumpInsn( Opcodes.IFNONNULL,
+                notNull );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitLdcInsn( getZero( primitive ) );
+        mv.visitFieldInsn( Opcodes.PUTFIELD,
+                getInternalType( classDef.getClassName() ),
+                fieldDef.getName(),
+                primitive );
+        visitSetMask( mv,
+                classDef,
+                fieldDef,
+                false );
+        mv.visitInsn( Opcodes.RETURN );
+
+        // this.<attr> = value.<primitive>Value(); this.__set<n> |= <bit>;
+        mv.visitLabel( notNull );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                1 );
+        mv.visitMethodInsn( Opcodes.INVOKEVIRTUAL,
+                getInternalType( type ),
+                Type.getType( primitive ).getClassName() + "Value",
+                "()" + primitive );
+        mv.visitFieldInsn( Opcodes.PUTFIELD,
+                getInternalType( classDef.getClassName() ),
+                fieldDef.getName(),
+                primitive );
+        visitSetMask( mv,
+                classDef,
+                fieldDef,
+                true );
+        mv.visitInsn( Opcodes.RETURN );
+        Label l1 = null;
+        if ( this.debug ) {
+            l1 = new Label();
+            mv.visitLabel( l1 );
+            mv.visitLocalVariable( "this",
+                    getTypeDescriptor( classDef.getClassName() ),
+                    null,
+                    l0,
+                    l1,
+                    0 );
+        }
+        mv.visitMaxs( 0,
+                0 );
+        mv.visitEnd();
+    }
+
+    /**
+     * Creates the methods returning the primitive value of a compact
+     * field and whether it is set
+     *
+     * @param cw
+     * @param classDef
+     * @param fieldDef
+     */
+    private void buildCompactValueMethods(ClassVisitor cw,
+                                          ClassDefinition classDef,
+                                          FieldDefinition fieldDef) {
+        String primitive = unBox( fieldDef.getTypeName() );
+
+        // public <primitive> __value$<attr>() { return this.<attr>; }
+        MethodVisitor mv = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                COMPACT_VALUE_PREFIX + fieldDef.getName(),
+                "()" + primitive,
+                null,
+                null );
+        mv.visitCode();
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitFieldInsn( Opcodes.GETFIELD,
+                getInternalType( classDef.getClassName() ),
+                fieldDef.getName(),
+                primitive );
+        mv.visitInsn( Type.getType( primitive ).getOpcode( Opcodes.IRETURN ) );
+        mv.visitMaxs( 0,
+                0 );
+        mv.visitEnd();
+
+        // public boolean __isSet$<attr>() { return ( this.__set<n> & <bit> ) != 0; }
+        mv = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                COMPACT_SET_PREFIX + fieldDef.getName(),
+                "()Z",
+                null,
+                null );
+        mv.visitCode();
+        visitMaskTest( mv,
+                classDef,
+                fieldDef );
+        Label notSet = new Label();
+        mv.visitJumpInsn( Opcodes.IFEQ,
+                notSet );
+        mv.visitInsn( Opcodes.ICONST_1 );
+        mv.visitInsn( Opcodes.IRETURN );
+        mv.visitLabel( notSet );
+        mv.visitInsn( Opcodes.ICONST_0 );
+        mv.visitInsn( Opcodes.IRETURN );
+        mv.visitMaxs( 0,
+                0 );
+        mv.visitEnd();
+    }
+
+    /**
+     * Pushes the bit of the given compact field in its mask, 0 if not set
+     */
+    private void visitMaskTest(MethodVisitor mv,
+                               ClassDefinition classDef,
+                               FieldDefinition field) {
+        int index = getCompactIndex( classDef,
+                                     field );
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitFieldInsn( Opcodes.GETFIELD,
+                getInternalType( classDef.getClassName() ),
+                COMPACT_MASK + (index / 32),
+                "I" );
+        mv.visitLdcInsn( Integer.valueOf( 1 << (index % 32) ) );
+        mv.visitInsn( Opcodes.IAND );
+    }
+
+    /**
+     * Sets or clears the bit of the given compact field in its mask
+     */
+    private void visitSetMask(MethodVisitor mv,
+                              ClassDefinition classDef,
+                              FieldDefinition field,
+                              boolean set) {
+        int index = getCompactIndex( classDef,
+                                     field );
+        int bit = 1 << (index % 32);
+        mv.visitVarInsn( Opcodes.ALOAD,
+                0 );
+        mv.visitInsn( Opcodes.DUP );
+        mv.visitFieldInsn( Opcodes.GETFIELD,
+                getInternalType( classDef.getClassName() ),
+                COMPACT_MASK + (index / 32),
+                "I" );
+        mv.visitLdcInsn( Integer.valueOf( set ? bit : ~bit ) );
+        mv.visitInsn( set ? Opcodes.IOR : Opcodes.IAND );
+        mv.visitFieldInsn( Opcodes.PUTFIELD,
+                getInternalType( classDef.getClassName() ),
+                COMPACT_MASK + (index / 32),
+                "I" );
+    }
+
     private void buildEquals(ClassVisitor cw,
                              ClassDefinition classDef) {
         MethodVisitor mv;
@@ -1171,6 +1463,88 @@ public class ClassBuilder {
         return internalType;
     }
 
+    /**
+     * Returns true if the given field is stored as a primitive, that is
+     * a field of a compact class declared with a primitive wrapper type
+     *
+     * @param classDef
+     * @param field
+     * @return
+     */
+    private boolean isCompacted(ClassDefinition classDef,
+                                FieldDefinition field) {
+        return classDef.isCompact() && !field.isInherited() && isBoxed( field.getTypeName() );
+    }
+
+    private int getCompactFieldCount(ClassDefinition classDef) {
+        int count = 0;
+        for ( FieldDefinition field : classDef.getFieldsDefinitions() ) {
+            if ( isCompacted( classDef,
+                              field ) ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the position of the given compact field among the compact
+     * fields, which is also the position of its bit in the masks
+     */
+    private int getCompactIndex(ClassDefinition classDef,
+                                FieldDefinition field) {
+        int index = 0;
+        for ( FieldDefinition other : classDef.getFieldsDefinitions() ) {
+            if ( other == field ) {
+                return index;
+            }
+            if ( isCompacted( classDef,
+                              other ) ) {
+                index++;
+            }
+        }
+        throw new RuntimeDroolsException( "Field " + field.getName() + " is not a field of " + classDef.getClassName() );
+    }
+
+    /**
+     * Returns the type descriptor of the class field holding the given
+     * field, a primitive for a compact field
+     */
+    private String getStorageDescriptor(ClassDefinition classDef,
+                                        FieldDefinition field) {
+        if ( isCompacted( classDef,
+                          field ) ) {
+            return unBox( field.getTypeName() );
+        }
+        return getTypeDescriptor( field.getTypeName() );
+    }
+
+    /**
+     * Returns the constant to load for the given wrapper default value, as
+     * the smaller primitives are loaded as ints
+     */
+    private Object toPrimitiveConstant(Object value) {
+        if ( value instanceof Boolean ) {
+            return Integer.valueOf( ((Boolean) value).booleanValue() ? 1 : 0 );
+        } else if ( value instanceof Character ) {
+            return Integer.valueOf( ((Character) value).charValue() );
+        } else if ( value instanceof Byte || value instanceof Short ) {
+            return Integer.valueOf( ((Number) value).intValue() );
+        }
+        return value;
+    }
+
+    private Object getZero(String primitive) {
+        if ( "J".equals( primitive ) ) {
+            return Long.valueOf( 0 );
+        } else if ( "F".equals( primitive ) ) {
+            return Float.valueOf( 0 );
+        } else if ( "D".equals( primitive ) ) {
+            return Double.valueOf( 0 );
+        }
+        return Integer.valueOf( 0 );
+    }
+
     /**
      * Returns true if the provided type is a primitive type
      *
@@ -1187,7 +1561,7 @@ public class ClassBuilder {
 
 
     private void visitFieldOrGetter(MethodVisitor mv, ClassDefinition classDef, FieldDefinition field) {
-        if (! field.isInherited()) {
+        if (! field.isInherited() && ! isCompacted( classDef, field )) {
             mv.visitFieldInsn( Opcodes.GETFIELD,
                     getInternalType( classDef.getClassName() ),
                     field.getName(),
@@ -47,6 +47,8 @@ public class ClassDefinition
 
     private List<AnnotationDefinition> annotations;
 
+    private boolean                      compact;
+
     public ClassDefinition() {
         this( null,
               null,
@@ -88,6 +90,7 @@ public class ClassDefinition
         this.interfaces = (String[]) in.readObject();
         this.fields = (LinkedHashMap<String, FieldDefinition>) in.readObject();
         this.annotations = (List<AnnotationDefinition>) in.readObject();
+        this.compact = in.readBoolean();
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -96,6 +99,7 @@ public class ClassDefinition
         out.writeObject( this.interfaces );
         out.writeObject( this.fields );
         out.writeObject( this.annotations );
+        out.writeBoolean( this.compact );
     }
 
     /**
@@ -112,6 +116,21 @@ public class ClassDefinition
         this.className = className;
     }
 
+    /**
+     * @return true if the wrapper fields of the class are stored as primitives
+     */
+    public boolean isCompact() {
+        return this.compact;
+    }
+
+    /**
+     * @param compact true to store the wrapper fields of the class as
+     * primitives, with one bit each telling whether they are null
+     */
+    public void setCompact(final boolean compact) {
+        this.compact = compact;
+    }
+
     /**
      * @return Returns the className.
      */
@@ -24,25 +24,20 @@ import java.util.Arrays;
 
 //import woolfel.engine.rule.Rule;
 
+/**
+ * A fact of a FactTemplate. The numeric, boolean and char fields are stored
+ * unboxed, as laid out by the FactLayout of the template, and can be read
+ * without boxing with the primitive getters.
+ */
 public class FactImpl
     implements
     Fact,
     Externalizable {
 
-    private static int hashCode(final Object[] array) {
-        final int PRIME = 31;
-        if ( array == null ) {
-            return 0;
-        }
-        int result = 1;
-        for ( int index = 0; index < array.length; index++ ) {
-            result = PRIME * result + (array[index] == null ? 0 : array[index].hashCode());
-        }
-        return result;
-    }
-
     private FactTemplate factTemplate = null;
-    private Object[]     values       = null;
+    private FactLayout   layout       = null;
+    private long[]       primitives   = null;
+    private Object[]     references   = null;
     private int          hashCode;
 
     /**
@@ -61,28 +56,36 @@ public class FactImpl
     public FactImpl(final FactTemplate template,
                     final Object[] values,
                     final long id) {
-        this.factTemplate = template;
-        this.values = values;
-        this.id = id;
+        this( template,
+              id );
+        for ( int index = 0; index < values.length; index++ ) {
+            setFieldValue( index,
+                           values[index] );
+        }
     }
 
     public FactImpl(final FactTemplate template,
                     final long id) {
         this.factTemplate = template;
-        this.values = new Object[template.getNumberOfFields()];
+        this.layout = FactLayout.getLayout( template );
+        this.primitives = this.layout.newPrimitives();
+        this.references = this.layout.newReferences();
         this.id = id;
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         factTemplate    = (FactTemplate)in.readObject();
-        values          = (Object[])in.readObject();
+        primitives      = (long[])in.readObject();
+        references      = (Object[])in.readObject();
         hashCode        = in.readInt();
         id              = in.readLong();
+        layout          = FactLayout.getLayout( factTemplate );
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeObject(factTemplate);
-        out.writeObject(values);
+        out.writeObject(primitives);
+        out.writeObject(references);
         out.writeInt(hashCode);
         out.writeLong(id);
     }
@@ -94,11 +97,37 @@ public class FactImpl
      * @return
      */
     public Object getFieldValue(final int index) {
-        return this.values[index];
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( kind == FactLayout.REFERENCE ) {
+            return this.references[slot];
+        }
+        if ( isNull( slot ) ) {
+            return null;
+        }
+        final long bits = this.primitives[slot];
+        switch ( kind ) {
+            case FactLayout.BYTE :
+                return Byte.valueOf( (byte) bits );
+            case FactLayout.SHORT :
+                return Short.valueOf( (short) bits );
+            case FactLayout.INT :
+                return Integer.valueOf( (int) bits );
+            case FactLayout.LONG :
+                return Long.valueOf( bits );
+            case FactLayout.FLOAT :
+                return Float.valueOf( Float.intBitsToFloat( (int) bits ) );
+            case FactLayout.DOUBLE :
+                return Double.valueOf( Double.longBitsToDouble( bits ) );
+            case FactLayout.BOOLEAN :
+                return Boolean.valueOf( bits != 0 );
+            default :
+                return Character.valueOf( (char) bits );
+        }
     }
 
     public Object getFieldValue(final String name) {
-        return this.values[this.factTemplate.getFieldTemplateIndex( name )];
+        return getFieldValue( this.factTemplate.getFieldTemplateIndex( name ) );
     }
 
     public void setFieldValue(final String name,
@@ -107,9 +136,262 @@ public class FactImpl
                        value );
     }
 
+    /**
+     * Sets the value of the field at the given index. A number set to a
+     * numeric field is converted to the type of the field.
+     *
+     * @throws IllegalArgumentException if the value does not fit the type
+     * of a numeric, boolean or char field
+     */
     public void setFieldValue(final int index,
                               final Object value) {
-        this.values[index] = value;
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( kind == FactLayout.REFERENCE ) {
+            this.references[slot] = value;
+            return;
+        }
+        if ( value == null ) {
+            // cleared, so equal facts have equal arrays
+            this.primitives[slot] = 0;
+            setNull( slot,
+                     true );
+            return;
+        }
+        if ( FactLayout.isIntegral( kind ) || FactLayout.isDecimal( kind ) ) {
+            if ( !(value instanceof Number) ) {
+                throw this.layout.invalidValue( index,
+                                                value );
+            }
+            final Number number = (Number) value;
+            if ( FactLayout.isIntegral( kind ) ) {
+                setLongValue( index,
+                              number.longValue() );
+            } else {
+                setDoubleValue( index,
+                                number.doubleValue() );
+            }
+        } else if ( kind == FactLayout.BOOLEAN ) {
+            if ( !(value instanceof Boolean) ) {
+                throw this.layout.invalidValue( index,
+                                                value );
+            }
+            setBooleanValue( index,
+                             ((Boolean) value).booleanValue() );
+        } else {
+            if ( !(value instanceof Character) ) {
+                throw this.layout.invalidValue( index,
+                                                value );
+            }
+            this.primitives[slot] = ((Character) value).charValue();
+            setNull( slot,
+                     false );
+        }
+    }
+
+    /**
+     * Sets a numeric field without boxing, converting the value to the type
+     * of the field.
+     */
+    public void setLongValue(final int index,
+                             final long value) {
+        final int slot = this.layout.slots[index];
+        switch ( this.layout.kinds[index] ) {
+            case FactLayout.BYTE :
+                this.primitives[slot] = (byte) value;
+                break;
+            case FactLayout.SHORT :
+                this.primitives[slot] = (short) value;
+                break;
+            case FactLayout.INT :
+                this.primitives[slot] = (int) value;
+                break;
+            case FactLayout.LONG :
+                this.primitives[slot] = value;
+                break;
+            case FactLayout.FLOAT :
+            case FactLayout.DOUBLE :
+                setDoubleValue( index,
+                                value );
+                return;
+            default :
+                setFieldValue( index,
+                               Long.valueOf( value ) );
+                return;
+        }
+        setNull( slot,
+                 false );
+    }
+
+    /**
+     * Sets a numeric field without boxing, converting the value to the type
+     * of the field.
+     */
+    public void setDoubleValue(final int index,
+                               final double value) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( kind == FactLayout.FLOAT ) {
+            this.primitives[slot] = Float.floatToIntBits( (float) value );
+        } else if ( kind == FactLayout.DOUBLE ) {
+            this.primitives[slot] = Double.doubleToLongBits( value );
+        } else if ( FactLayout.isIntegral( kind ) ) {
+            // as Number.longValue() and friends would
+            setLongValue( index,
+                          kind == FactLayout.LONG ? (long) value : (int) value );
+            return;
+        } else {
+            setFieldValue( index,
+                           Double.valueOf( value ) );
+            return;
+        }
+        setNull( slot,
+                 false );
+    }
+
+    public void setBooleanValue(final int index,
+                                final boolean value) {
+        final int slot = this.layout.slots[index];
+        if ( this.layout.kinds[index] != FactLayout.BOOLEAN ) {
+            setFieldValue( index,
+                           Boolean.valueOf( value ) );
+            return;
+        }
+        this.primitives[slot] = value ? 1 : 0;
+        setNull( slot,
+                 false );
+    }
+
+    public boolean isNullValue(final int index) {
+        final int slot = this.layout.slots[index];
+        if ( this.layout.kinds[index] == FactLayout.REFERENCE ) {
+            return this.references[slot] == null;
+        }
+        return isNull( slot );
+    }
+
+    public long getLongValue(final int index) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( FactLayout.isIntegral( kind ) && !isNull( slot ) ) {
+            return this.primitives[slot];
+        }
+        if ( FactLayout.isDecimal( kind ) && !isNull( slot ) ) {
+            return (long) getDecimal( kind,
+                                      slot );
+        }
+        return ((Number) getFieldValue( index )).longValue();
+    }
+
+    public int getIntValue(final int index) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( FactLayout.isIntegral( kind ) && !isNull( slot ) ) {
+            return (int) this.primitives[slot];
+        }
+        if ( FactLayout.isDecimal( kind ) && !isNull( slot ) ) {
+            return (int) getDecimal( kind,
+                                     slot );
+        }
+        return ((Number) getFieldValue( index )).intValue();
+    }
+
+    public short getShortValue(final int index) {
+        return (short) getIntValue( index );
+    }
+
+    public byte getByteValue(final int index) {
+        return (byte) getIntValue( index );
+    }
+
+    public double getDoubleValue(final int index) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( FactLayout.isDecimal( kind ) && !isNull( slot ) ) {
+            return getDecimal( kind,
+                               slot );
+        }
+        if ( FactLayout.isIntegral( kind ) && !isNull( slot ) ) {
+            return this.primitives[slot];
+        }
+        return ((Number) getFieldValue( index )).doubleValue();
+    }
+
+    public float getFloatValue(final int index) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( FactLayout.isDecimal( kind ) && !isNull( slot ) ) {
+            return (float) getDecimal( kind,
+                                       slot );
+        }
+        if ( FactLayout.isIntegral( kind ) && !isNull( slot ) ) {
+            return this.primitives[slot];
+        }
+        return ((Number) getFieldValue( index )).floatValue();
+    }
+
+    public boolean getBooleanValue(final int index) {
+        final int slot = this.layout.slots[index];
+        if ( this.layout.kinds[index] == FactLayout.BOOLEAN && !isNull( slot ) ) {
+            return this.primitives[slot] != 0;
+        }
+        return ((Boolean) getFieldValue( index )).booleanValue();
+    }
+
+    public char getCharValue(final int index) {
+        final int slot = this.layout.slots[index];
+        if ( this.layout.kinds[index] == FactLayout.CHAR && !isNull( slot ) ) {
+            return (char) this.primitives[slot];
+        }
+        return ((Character) getFieldValue( index )).charValue();
+    }
+
+    /**
+     * Returns the hash code of the value of the field at the given index, the
+     * same as the one of the boxed value, or 0 if the field is null.
+     */
+    public int getFieldHashCode(final int index) {
+        final int slot = this.layout.slots[index];
+        final byte kind = this.layout.kinds[index];
+        if ( kind == FactLayout.REFERENCE ) {
+            final Object value = this.references[slot];
+            return value == null ? 0 : value.hashCode();
+        }
+        if ( isNull( slot ) ) {
+            return 0;
+        }
+        final long bits = this.primitives[slot];
+        switch ( kind ) {
+            case FactLayout.LONG :
+            case FactLayout.DOUBLE :
+                // the double bits are stored as Double.doubleToLongBits()
+                return (int) (bits ^ (bits >>> 32));
+            case FactLayout.BOOLEAN :
+                return bits != 0 ? 1231 : 1237;
+            default :
+                // byte, short, int, char and the float bits
+                return (int) bits;
+        }
+    }
+
+    private double getDecimal(final byte kind,
+                              final int slot) {
+        final long bits = this.primitives[slot];
+        return kind == FactLayout.FLOAT ? Float.intBitsToFloat( (int) bits ) : Double.longBitsToDouble( bits );
+    }
+
+    private boolean isNull(final int slot) {
+        return (this.primitives[this.layout.primitiveCount + (slot >>> 6)] & (1L << slot)) != 0;
+    }
+
+    private void setNull(final int slot,
+                         final boolean isNull) {
+        final int word = this.layout.primitiveCount + (slot >>> 6);
+        if ( isNull ) {
+            this.primitives[word] |= 1L << slot;
+        } else {
+            this.primitives[word] &= ~(1L << slot);
+        }
     }
 
     /**
@@ -140,7 +422,11 @@ public class FactImpl
             final int PRIME = 31;
             int result = 1;
             result = PRIME * result + this.factTemplate.hashCode();
-            result = PRIME * result + FactImpl.hashCode( this.values );
+            int values = 1;
+            for ( int index = 0; index < this.layout.kinds.length; index++ ) {
+                values = PRIME * values + getFieldHashCode( index );
+            }
+            result = PRIME * result + values;
             this.hashCode = result;
 
         }
@@ -162,8 +448,13 @@ public class FactImpl
             return false;
         }
 
-        if ( !Arrays.equals( this.values,
-                             other.values ) ) {
+        if ( !Arrays.equals( this.primitives,
+                             other.primitives ) ) {
+            return false;
+        }
+
+        if ( !Arrays.equals( this.references,
+                             other.references ) ) {
             return false;
         }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.facttemplates;
+
+import org.drools.base.ValueType;
+
+/**
+ * Where the fields of the facts of a template are stored.
+ *
+ * The fields holding a primitive or a primitive wrapper are stored unboxed
+ * in a long array, the doubles and floats as their bits, followed by one bit
+ * per field telling whether it is null. The other fields are stored in an
+ * object array.
+ */
+final class FactLayout {
+
+    static final byte      REFERENCE = 0;
+    static final byte      BYTE      = 1;
+    static final byte      SHORT     = 2;
+    static final byte      INT       = 3;
+    static final byte      LONG      = 4;
+    static final byte      FLOAT     = 5;
+    static final byte      DOUBLE    = 6;
+    static final byte      BOOLEAN   = 7;
+    static final byte      CHAR      = 8;
+
+    private final String   templateName;
+    private final String[] names;
+
+    /** The kind of each field */
+    final byte[]           kinds;
+
+    /** The position of each field in the array of its kind */
+    final int[]            slots;
+
+    final int              primitiveCount;
+    final int              referenceCount;
+
+    FactLayout(final FactTemplate template) {
+        final int size = template.getNumberOfFields();
+        this.templateName = template.getName();
+        this.names = new String[size];
+        this.kinds = new byte[size];
+        this.slots = new int[size];
+
+        int primitives = 0;
+        int references = 0;
+        for ( int i = 0; i < size; i++ ) {
+            final FieldTemplate field = template.getFieldTemplate( i );
+            this.names[i] = field.getName();
+            this.kinds[i] = kindOf( field.getValueType() );
+            this.slots[i] = this.kinds[i] == REFERENCE ? references++ : primitives++;
+        }
+        this.primitiveCount = primitives;
+        this.referenceCount = references;
+    }
+
+    static FactLayout getLayout(final FactTemplate template) {
+        if ( template instanceof FactTemplateImpl ) {
+            return ((FactTemplateImpl) template).getLayout();
+        }
+        return new FactLayout( template );
+    }
+
+    static boolean isIntegral(final byte kind) {
+        return kind >= BYTE && kind <= LONG;
+    }
+
+    static boolean isDecimal(final byte kind) {
+        return kind == FLOAT || kind == DOUBLE;
+    }
+
+    /**
+     * Returns a new array for the primitive fields, all of them null.
+     */
+    long[] newPrimitives() {
+        if ( this.primitiveCount == 0 ) {
+            return null;
+        }
+        final long[] primitives = new long[this.primitiveCount + ((this.primitiveCount + 63) >>> 6)];
+        for ( int slot = 0; slot < this.primitiveCount; slot++ ) {
+            primitives[this.primitiveCount + (slot >>> 6)] |= 1L << slot;
+        }
+        return primitives;
+    }
+
+    Object[] newReferences() {
+        return this.referenceCount == 0 ? null : new Object[this.referenceCount];
+    }
+
+    IllegalArgumentException invalidValue(final int index,
+                                          final Object value) {
+        return new IllegalArgumentException( "Field '" + this.names[index] + "' of template '" + this.templateName + "' can not be set to a " + value.getClass().getName() );
+    }
+
+    private static byte kindOf(final ValueType valueType) {
+        if ( valueType == null ) {
+            return REFERENCE;
+        }
+        final Class< ? > clazz = valueType.getClassType();
+        if ( clazz == Byte.class || clazz == byte.class ) {
+            return BYTE;
+        } else if ( clazz == Short.class || clazz == short.class ) {
+            return SHORT;
+        } else if ( clazz == Integer.class || clazz == int.class ) {
+            return INT;
+        } else if ( clazz == Long.class || clazz == long.class ) {
+            return LONG;
+        } else if ( clazz == Float.class || clazz == float.class ) {
+            return FLOAT;
+        } else if ( clazz == Double.class || clazz == double.class ) {
+            return DOUBLE;
+        } else if ( clazz == Boolean.class || clazz == boolean.class ) {
+            return BOOLEAN;
+        } else if ( clazz == Character.class || clazz == char.class ) {
+            return CHAR;
+        }
+        return REFERENCE;
+    }
+
+}
@@ -83,41 +83,65 @@ public class FactTemplateFieldExtractor
 
     public boolean getBooleanValue(InternalWorkingMemory workingMemory,
                                    final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getBooleanValue( this.fieldIndex );
+        }
         return ((Boolean) ((Fact) object).getFieldValue( this.fieldIndex )).booleanValue();
     }
 
     public byte getByteValue(InternalWorkingMemory workingMemory,
                              final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getByteValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).byteValue();
     }
 
     public char getCharValue(InternalWorkingMemory workingMemory,
                              final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getCharValue( this.fieldIndex );
+        }
         return ((Character) ((Fact) object).getFieldValue( this.fieldIndex )).charValue();
     }
 
     public double getDoubleValue(InternalWorkingMemory workingMemory,
                                  final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getDoubleValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).doubleValue();
     }
 
     public float getFloatValue(InternalWorkingMemory workingMemory,
                                final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getFloatValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).floatValue();
     }
 
     public int getIntValue(InternalWorkingMemory workingMemory,
                            final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getIntValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).intValue();
     }
 
     public long getLongValue(InternalWorkingMemory workingMemory,
                              final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getLongValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).longValue();
     }
 
     public short getShortValue(InternalWorkingMemory workingMemory,
                                final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getShortValue( this.fieldIndex );
+        }
         return ((Number) ((Fact) object).getFieldValue( this.fieldIndex )).shortValue();
     }
 
@@ -133,6 +157,9 @@ public class FactTemplateFieldExtractor
 
     public int getHashCode(InternalWorkingMemory workingMemory,
                            final Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).getFieldHashCode( this.fieldIndex );
+        }
         return getValue( workingMemory,
                          object ).hashCode();
     }
@@ -147,6 +174,9 @@ public class FactTemplateFieldExtractor
 
     public boolean isNullValue(InternalWorkingMemory workingMemory,
                                Object object) {
+        if ( object instanceof FactImpl ) {
+            return ((FactImpl) object).isNullValue( this.fieldIndex );
+        }
         return ((Fact) object).getFieldValue( this.fieldIndex ) == null;
     }
 
@@ -42,6 +42,8 @@ public class FactTemplateImpl
     private Package         pkg;
     private String          name;
 
+    private FactLayout      layout;
+
     public FactTemplateImpl() {
         
     }
@@ -144,6 +146,17 @@ public class FactTemplateImpl
                              id );
     }
 
+    /**
+     * Return where the fields of the facts are stored, computed once
+     * the fields are known.
+     */
+    FactLayout getLayout() {
+        if ( this.layout == null ) {
+            this.layout = new FactLayout( this );
+        }
+        return this.layout;
+    }
+
     /**
      * Method will return a string format with the int type code
      * for the slot type
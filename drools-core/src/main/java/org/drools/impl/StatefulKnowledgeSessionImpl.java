@@ -271,6 +271,14 @@ public class StatefulKnowledgeSessionImpl
                              object );
     }
 
+    public void update(FactHandle factHandle,
+                       Object object,
+                       String... modifiedProperties) {
+        ((AbstractWorkingMemory) this.session).update( factHandle,
+                                                       object,
+                                                       modifiedProperties );
+    }
+
     public FactHandle getFactHandle(Object object) {
         return this.session.getFactHandle( object );
     }
@@ -411,6 +419,18 @@ public class StatefulKnowledgeSessionImpl
                                                        activation );
     }
 
+    public void update(FactHandle factHandle,
+                       Object object,
+                       long modificationMask,
+                       Rule rule,
+                       Activation activation) throws FactException {
+        ((AbstractWorkingMemory) this.session).update( factHandle,
+                                                       object,
+                                                       modificationMask,
+                                                       rule,
+                                                       activation );
+    }
+
     public EntryPoint getEntryPoint() {
         return session.getEntryPoint();
     }
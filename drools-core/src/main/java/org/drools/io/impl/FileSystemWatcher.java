@@ -0,0 +1,212 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.io.impl;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches directories for the creation, modification and deletion of their
+ * files with the file system notifications of the java.nio.file.WatchService.
+ *
+ * The WatchService only exists from Java 7 on, so it is used through
+ * reflection; newWatcher() returns null when it is not available.
+ */
+class FileSystemWatcher {
+
+    private static final Method        NEW_WATCH_SERVICE;
+    private static final Method        TO_PATH;
+    private static final Method        REGISTER;
+    private static final Method        POLL;
+    private static final Method        CLOSE;
+    private static final Method        POLL_EVENTS;
+    private static final Method        RESET;
+    private static final Object        FILE_SYSTEM;
+    private static final Object        KINDS;
+
+    static {
+        Method newWatchService = null;
+        Method toPath = null;
+        Method register = null;
+        Method poll = null;
+        Method close = null;
+        Method pollEvents = null;
+        Method reset = null;
+        Object fileSystem = null;
+        Object kinds = null;
+        try {
+            Class< ? > fileSystemClass = Class.forName( "java.nio.file.FileSystem" );
+            Class< ? > watchServiceClass = Class.forName( "java.nio.file.WatchService" );
+            Class< ? > watchKeyClass = Class.forName( "java.nio.file.WatchKey" );
+            Class< ? > kindClass = Class.forName( "java.nio.file.WatchEvent$Kind" );
+            Class< ? > kindsClass = Class.forName( "java.nio.file.StandardWatchEventKinds" );
+
+            kinds = Array.newInstance( kindClass,
+                                       3 );
+            Array.set( kinds,
+                       0,
+                       kindsClass.getField( "ENTRY_CREATE" ).get( null ) );
+            Array.set( kinds,
+                       1,
+                       kindsClass.getField( "ENTRY_MODIFY" ).get( null ) );
+            Array.set( kinds,
+                       2,
+                       kindsClass.getField( "ENTRY_DELETE" ).get( null ) );
+
+            fileSystem = Class.forName( "java.nio.file.FileSystems" ).getMethod( "getDefault" ).invoke( null );
+            newWatchService = fileSystemClass.getMethod( "newWatchService" );
+            toPath = File.class.getMethod( "toPath" );
+            register = Class.forName( "java.nio.file.Path" ).getMethod( "register",
+                                                                        watchServiceClass,
+                                                                        kinds.getClass() );
+            poll = watchServiceClass.getMethod( "poll",
+                                                long.class,
+                                                TimeUnit.class );
+            close = watchServiceClass.getMethod( "close" );
+            pollEvents = watchKeyClass.getMethod( "pollEvents" );
+            reset = watchKeyClass.getMethod( "reset" );
+        } catch ( Exception e ) {
+            // before Java 7, the resources are polled
+            newWatchService = null;
+        }
+        NEW_WATCH_SERVICE = newWatchService;
+        TO_PATH = toPath;
+        REGISTER = register;
+        POLL = poll;
+        CLOSE = close;
+        POLL_EVENTS = pollEvents;
+        RESET = reset;
+        FILE_SYSTEM = fileSystem;
+        KINDS = kinds;
+    }
+
+    private final Object            watchService;
+
+    /** The watched directory of each key */
+    private final Map<Object, File> directories;
+
+    /** The key of each watched directory */
+    private final Map<File, Object> keys;
+
+    private FileSystemWatcher(Object watchService) {
+        this.watchService = watchService;
+        this.directories = new HashMap<Object, File>();
+        this.keys = new HashMap<File, Object>();
+    }
+
+    static boolean isAvailable() {
+        return NEW_WATCH_SERVICE != null;
+    }
+
+    /**
+     * Returns a new watcher, or null if the file system notifications are
+     * not available.
+     */
+    static FileSystemWatcher newWatcher() {
+        if ( !isAvailable() ) {
+            return null;
+        }
+        try {
+            return new FileSystemWatcher( NEW_WATCH_SERVICE.invoke( FILE_SYSTEM ) );
+        } catch ( Exception e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Watches the files of the given directory, returning false if it can
+     * not be watched.
+     */
+    synchronized boolean watch(File directory) {
+        if ( this.keys.containsKey( directory ) ) {
+            return true;
+        }
+        try {
+            Object key = REGISTER.invoke( TO_PATH.invoke( directory ),
+                                          this.watchService,
+                                          KINDS );
+            this.keys.put( directory,
+                           key );
+            this.directories.put( key,
+                                  directory );
+            return true;
+        } catch ( Exception e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Waits up to timeout milliseconds for a change and returns the
+     * directories changed until no other change happened for quietPeriod
+     * milliseconds, so a burst of changes is returned at once. Returns an
+     * empty set if nothing changed before the timeout.
+     */
+    Set<File> take(long timeout,
+                   long quietPeriod) throws InterruptedException {
+        Set<File> changed = new HashSet<File>();
+        Object key = poll( timeout );
+        while ( key != null ) {
+            File directory;
+            synchronized ( this ) {
+                directory = this.directories.get( key );
+            }
+            if ( directory != null ) {
+                changed.add( directory );
+            }
+            try {
+                POLL_EVENTS.invoke( key );
+                RESET.invoke( key );
+            } catch ( Exception e ) {
+                // the directory was deleted, it is still scanned
+            }
+            key = poll( quietPeriod );
+        }
+        return changed;
+    }
+
+    void close() {
+        try {
+            CLOSE.invoke( this.watchService );
+        } catch ( Exception e ) {
+            // already closed
+        }
+    }
+
+    private Object poll(long timeout) throws InterruptedException {
+        try {
+            return POLL.invoke( this.watchService,
+                                timeout,
+                                TimeUnit.MILLISECONDS );
+        } catch ( InvocationTargetException e ) {
+            if ( e.getCause() instanceof InterruptedException ) {
+                throw (InterruptedException) e.getCause();
+            }
+            // the watch service is closed
+            throw new InterruptedException( e.getCause().toString() );
+        } catch ( IllegalAccessException e ) {
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+}
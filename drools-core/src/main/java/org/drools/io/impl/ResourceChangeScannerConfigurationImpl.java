@@ -24,6 +24,8 @@ import org.drools.io.ResourceChangeScannerConfiguration;
 public class ResourceChangeScannerConfigurationImpl implements ResourceChangeScannerConfiguration {
     
     private int interval;
+
+    private boolean watch = true;
     
     public ResourceChangeScannerConfigurationImpl() {
         interval = 60;
@@ -44,6 +46,8 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
         
         if ( name.equals(   "drools.resource.scanner.interval" ) ) {
             setInterval( StringUtils.isEmpty( value ) ? 60 : Integer.parseInt( value ) );
+        } else if ( name.equals( "drools.resource.scanner.watch" ) ) {
+            setWatch( StringUtils.isEmpty( value ) ? true : Boolean.valueOf( value ) );
         }
     }
 
@@ -55,6 +59,8 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
         
         if ( name.equals(   "drools.resource.scanner.interval" ) ) {
             return Integer.toString( this.interval );
+        } else if ( name.equals( "drools.resource.scanner.watch" ) ) {
+            return Boolean.toString( this.watch );
         }
         
         return null;
@@ -67,5 +73,18 @@ public class ResourceChangeScannerConfigurationImpl implements ResourceChangeSca
     public void setInterval(int interval) {
         this.interval = interval;
     }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Sets whether the directories of the file system resources are watched
+     * for changes, when the file system notifications are available, rather
+     * than scanned at every interval.
+     */
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
    
 }
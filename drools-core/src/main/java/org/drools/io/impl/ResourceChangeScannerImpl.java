@@ -16,6 +16,7 @@
 
 package org.drools.io.impl;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,19 +35,37 @@ import org.drools.io.ResourceChangeScanner;
 import org.drools.io.ResourceChangeScannerConfiguration;
 import org.drools.io.internal.InternalResource;
 
+/**
+ * Scans the subscribed resources for changes every interval seconds.
+ *
+ * When the file system notifications are available and watch is set, the
+ * file system resources are not scanned at every interval: the directories
+ * holding them are watched, and only the resources of the directories
+ * changed are scanned, once a burst of changes is over. The other resources,
+ * such as the UrlResources, are still scanned every interval.
+ */
 public class ResourceChangeScannerImpl
     implements
     ResourceChangeScanner {
 
+    /** How long a burst of file system changes lasts at least, in milliseconds */
+    static final long                                  QUIET_PERIOD = 200;
+
     private Map<Resource, Set<ResourceChangeNotifier>> resources;
     private Set<Resource>                              directories;
     private SystemEventListener                        listener;
     private int                                        interval;
+    private boolean                                    watch        = true;
+    private FileSystemWatcher                          watcher;
+
+    /** The watched directory of each file system resource */
+    private Map<Resource, File>                        watched;
 
     public ResourceChangeScannerImpl() {
         this.listener = SystemEventListenerFactory.getSystemEventListener();
         this.resources = new HashMap<Resource, Set<ResourceChangeNotifier>>();
         this.directories = new HashSet<Resource>();
+        this.watched = new HashMap<Resource, File>();
         this.setInterval( 60 );
         this.listener.info( "ResourceChangeScanner created with default interval=60" );
     }
@@ -56,8 +75,9 @@ public class ResourceChangeScannerImpl
     }
 
     public void configure(ResourceChangeScannerConfiguration configuration) {
+        this.watch = ((ResourceChangeScannerConfigurationImpl) configuration).isWatch();
         this.setInterval( ((ResourceChangeScannerConfigurationImpl) configuration).getInterval() );
-        this.listener.info( "ResourceChangeScanner reconfigured with interval=" + getInterval() );
+        this.listener.info( "ResourceChangeScanner reconfigured with interval=" + getInterval() + " watch=" + isWatch() );
 
         // restart it if it's already running.
         if ( this.scannerScheduler != null && this.scannerScheduler.isRunning() ) {
@@ -88,6 +108,7 @@ public class ResourceChangeScannerImpl
             }
             this.listener.debug( "ResourceChangeScanner subcribing notifier=" + notifier + " to resource=" + resource );
             notifiers.add( notifier );
+            watch( resource );
         }
     }
 
@@ -103,6 +124,7 @@ public class ResourceChangeScannerImpl
             if ( notifiers.isEmpty() ) {
                 this.listener.debug( "ResourceChangeScanner resource=" + resource + " now has no subscribers" );
                 this.resources.remove( resource );
+                this.watched.remove( resource );
                 this.directories.remove( resource ); // don't bother with
                 // isDirectory check, as
                 // doing a remove is
@@ -117,6 +139,17 @@ public class ResourceChangeScannerImpl
     }
 
     public void scan() {
+        scan( null,
+              true );
+    }
+
+    /**
+     * Scans the resources of the given changed directories, and the
+     * resources not watched if unwatched is set. Scans all the resources if
+     * changed is null.
+     */
+    void scan(Set<File> changed,
+              boolean unwatched) {
         this.listener.debug( "ResourceChangeScanner attempt to scan " + this.resources.size() + " resources" );
 
         synchronized ( this.resources ) {
@@ -126,6 +159,11 @@ public class ResourceChangeScannerImpl
 
             // detect modified and added
             for ( Resource resource : this.directories ) {
+                if ( !isScanned( resource,
+                                 changed,
+                                 unwatched ) ) {
+                    continue;
+                }
                 this.listener.debug( "ResourceChangeScanner scanning directory=" + resource );
                 for ( Resource child : ((InternalResource) resource).listResources() ) {
                     if ( ((InternalResource) child).isDirectory() ) {
@@ -161,7 +199,10 @@ public class ResourceChangeScannerImpl
                 Resource resource = entry.getKey();
                 Set<ResourceChangeNotifier> notifiers = entry.getValue();
 
-                if ( !((InternalResource) resource).isDirectory() ) {
+                // checks isScanned first, as isDirectory reads the file system
+                if ( isScanned( resource,
+                                changed,
+                                unwatched ) && !((InternalResource) resource).isDirectory() ) {
                     // detect if Resource has been removed
                     long lastModified = ((InternalResource) resource).getLastModified();
                     long lastRead = ((InternalResource) resource).getLastRead();
@@ -211,6 +252,7 @@ public class ResourceChangeScannerImpl
             // not to mutate the foreach loop while iterating
             for ( Resource resource : removed ) {
                 this.resources.remove( resource );
+                this.watched.remove( resource );
             }
 
             for ( Entry<ResourceChangeNotifier, ChangeSet> entry : notifications.entrySet() ) {
@@ -239,11 +281,34 @@ public class ResourceChangeScannerImpl
         return this.interval;
     }
 
+    public boolean isWatch() {
+        return this.watch;
+    }
+
+    /**
+     * Sets whether the directories of the file system resources are watched
+     * instead of scanned at every interval, from the next start on.
+     */
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
     public void start() {
+        if ( this.watch ) {
+            this.watcher = FileSystemWatcher.newWatcher();
+            if ( this.watcher != null ) {
+                synchronized ( this.resources ) {
+                    for ( Resource resource : this.resources.keySet() ) {
+                        watch( resource );
+                    }
+                }
+            }
+        }
         this.scannerScheduler = new ProcessChangeSet( this.resources,
                                                       this,
                                                       this.listener,
-                                                      this.interval );
+                                                      this.interval,
+                                                      this.watcher );
         thread = new Thread( this.scannerScheduler );
         thread.start();
     }
@@ -254,11 +319,56 @@ public class ResourceChangeScannerImpl
             this.thread.interrupt();
             this.scannerScheduler = null;
         }
+        if ( this.watcher != null ) {
+            this.watcher.close();
+            this.watcher = null;
+            synchronized ( this.resources ) {
+                this.watched.clear();
+            }
+        }
     }
 
     public void reset() {
         this.resources.clear();
         this.directories.clear();
+        this.watched.clear();
+    }
+
+    private void watch(Resource resource) {
+        if ( this.watcher == null || this.watched.containsKey( resource ) ) {
+            return;
+        }
+        File directory = getDirectory( resource );
+        if ( directory != null && this.watcher.watch( directory ) ) {
+            this.listener.debug( "ResourceChangeScanner watching directory=" + directory + " for resource=" + resource );
+            this.watched.put( resource,
+                              directory );
+        }
+    }
+
+    private boolean isScanned(Resource resource,
+                              Set<File> changed,
+                              boolean unwatched) {
+        if ( changed == null ) {
+            return true;
+        }
+        File directory = this.watched.get( resource );
+        if ( directory == null ) {
+            return unwatched;
+        }
+        return changed.contains( directory );
+    }
+
+    /**
+     * Returns the directory holding the file of the given resource, or the
+     * directory itself, or null if it is not a file system resource.
+     */
+    private static File getDirectory(Resource resource) {
+        if ( !(resource instanceof FileSystemResource) ) {
+            return null;
+        }
+        File file = ((FileSystemResource) resource).getFile().getAbsoluteFile();
+        return file.isDirectory() ? file : file.getParentFile();
     }
 
     private Thread           thread;
@@ -272,15 +382,29 @@ public class ResourceChangeScannerImpl
         private long                                       interval;
         private Map<Resource, Set<ResourceChangeNotifier>> resources;
         private SystemEventListener                        listener;
+        private FileSystemWatcher                          watcher;
 
         ProcessChangeSet(Map<Resource, Set<ResourceChangeNotifier>> resources,
                          ResourceChangeScannerImpl scanner,
                          SystemEventListener listener,
                          int interval) {
+            this( resources,
+                  scanner,
+                  listener,
+                  interval,
+                  null );
+        }
+
+        ProcessChangeSet(Map<Resource, Set<ResourceChangeNotifier>> resources,
+                         ResourceChangeScannerImpl scanner,
+                         SystemEventListener listener,
+                         int interval,
+                         FileSystemWatcher watcher) {
             this.resources = resources;
             this.scanner = scanner;
             this.listener = listener;
             this.interval = interval;
+            this.watcher = watcher;
             this.scan = true;
         }
 
@@ -301,6 +425,10 @@ public class ResourceChangeScannerImpl
                 if ( this.scan ) {
                     this.listener.info( "ResourceChangeNotification scanner has started" );
                 }
+                // the first scan is a full one
+                Set<File> changed = null;
+                boolean unwatched = true;
+                long nextScan = 0;
                 while ( this.scan ) {
                     Exception exception = null;
                     // System.out.println( "BEFORE : sync this.resources" );
@@ -308,12 +436,24 @@ public class ResourceChangeScannerImpl
                         // System.out.println( "DURING : sync this.resources" );
                         // lock the resources, as we don't want this modified
                         // while processing
-                        this.scanner.scan();
+                        this.scanner.scan( changed,
+                                           unwatched );
                     }
                     // System.out.println( "AFTER : SCAN" );
                     try {
-                        this.listener.debug( "ResourceChangeScanner thread is waiting for " + this.interval + " seconds." );
-                        wait( this.interval * 1000 );
+                        if ( this.watcher == null ) {
+                            this.listener.debug( "ResourceChangeScanner thread is waiting for " + this.interval + " seconds." );
+                            wait( this.interval * 1000 );
+                        } else {
+                            if ( unwatched ) {
+                                nextScan = System.currentTimeMillis() + this.interval * 1000;
+                            }
+                            this.listener.debug( "ResourceChangeScanner thread is waiting for file system changes." );
+                            changed = this.watcher.take( Math.max( 1,
+                                                                   nextScan - System.currentTimeMillis() ),
+                                                         QUIET_PERIOD );
+                            unwatched = System.currentTimeMillis() >= nextScan;
+                        }
                     } catch ( InterruptedException e ) {
                         exception = e;
                     }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.management;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.drools.common.InternalRuleBase;
+import org.drools.common.InternalWorkingMemory;
+import org.drools.common.RuleBasePartitionId;
+import org.drools.reteoo.PartitionManager;
+
+/**
+ * The monitor MBean for the partition manager of a multithreaded knowledge session,
+ * exposing the depth of the partition queues and the work stealing statistics
+ */
+public class PartitionManagerMonitor implements PartitionManagerMonitorMBean {
+
+    private static final String   KSESSION_PREFIX = "org.drools.kbases";
+
+    private InternalWorkingMemory ksession;
+    private InternalRuleBase      kbase;
+    private PartitionManager      manager;
+    private ObjectName            name;
+
+    public PartitionManagerMonitor(InternalWorkingMemory ksession,
+                                   PartitionManager manager) {
+        this.ksession = ksession;
+        this.kbase = (InternalRuleBase) ksession.getRuleBase();
+        this.manager = manager;
+        this.name = DroolsManagementAgent.createObjectName( KSESSION_PREFIX + ":type=" + kbase.getId() + ",group=Sessions,sessionId=Session-" + ksession.getId() + ",component=Partitions" );
+    }
+
+    public ObjectName getName() {
+        return name;
+    }
+
+    public String getKnowledgeBaseId() {
+        return kbase.getId();
+    }
+
+    public int getKnowledgeSessionId() {
+        return ksession.getId();
+    }
+
+    public int getPartitionCount() {
+        return manager.getPartitionCount();
+    }
+
+    public int getParallelism() {
+        return manager.getParallelism();
+    }
+
+    public int getActiveWorkers() {
+        return manager.getActiveWorkerCount();
+    }
+
+    public int getReadyPartitions() {
+        return manager.getReadyTaskCount();
+    }
+
+    public int getHeldPartitions() {
+        return manager.getHeldTaskCount();
+    }
+
+    public boolean isOnHold() {
+        return manager.isOnHold();
+    }
+
+    public long getQueuedActions() {
+        long queued = 0;
+        for ( Integer size : manager.getQueueSizes().values() ) {
+            queued += size.intValue();
+        }
+        return queued;
+    }
+
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<String, Integer>();
+        for ( Map.Entry<RuleBasePartitionId, Integer> entry : manager.getQueueSizes().entrySet() ) {
+            depths.put( entry.getKey().getId(),
+                        entry.getValue() );
+        }
+        return depths;
+    }
+
+    public long getExecutedActions() {
+        return manager.getExecutedActionCount();
+    }
+
+    public long getSteals() {
+        return manager.getStealCount();
+    }
+
+}
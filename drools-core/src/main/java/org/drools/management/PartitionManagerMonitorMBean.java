@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.management;
+
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+/**
+ * The monitor MBean for the partition manager of a multithreaded knowledge session
+ */
+public interface PartitionManagerMonitorMBean {
+
+    public ObjectName getName();
+
+    public String getKnowledgeBaseId();
+
+    public int getKnowledgeSessionId();
+
+    public int getPartitionCount();
+
+    public int getParallelism();
+
+    public int getActiveWorkers();
+
+    public int getReadyPartitions();
+
+    public int getHeldPartitions();
+
+    public boolean isOnHold();
+
+    public long getQueuedActions();
+
+    public Map<String, Integer> getQueueDepths();
+
+    public long getExecutedActions();
+
+    public long getSteals();
+
+}
@@ -30,7 +30,6 @@ import org.drools.base.DroolsQuery;
 import org.drools.common.AbstractWorkingMemory;
 import org.drools.common.AgendaItem;
 import org.drools.common.BaseNode;
-import org.drools.common.BinaryHeapQueueAgendaGroup;
 import org.drools.common.DefaultAgenda;
 import org.drools.common.DefaultFactHandle;
 import org.drools.common.EqualityKey;
@@ -260,8 +259,8 @@ public class InputMarshaller {
         agenda.setActiveActivations( stream.readInt() );
         
         while ( stream.readShort() == PersisterEnums.AGENDA_GROUP ) {
-            BinaryHeapQueueAgendaGroup group = new BinaryHeapQueueAgendaGroup( stream.readUTF(),
-                                                                               context.ruleBase );
+            InternalAgendaGroup group = context.ruleBase.getConfiguration().getAgendaGroupFactory().createAgendaGroup( stream.readUTF(),
+                                                                                                                       context.ruleBase );
             group.setActive( stream.readBoolean() );
             agenda.getAgendaGroupsMap().put( group.getName(),
                                              group );
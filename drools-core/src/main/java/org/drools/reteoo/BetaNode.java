@@ -40,6 +40,7 @@ import org.drools.common.SingleBetaConstraints;
 import org.drools.common.SingleNonIndexSkipBetaConstraints;
 import org.drools.common.TripleBetaConstraints;
 import org.drools.common.TripleNonIndexSkipBetaConstraints;
+import org.drools.core.util.Entry;
 import org.drools.core.util.FastIterator;
 import org.drools.core.util.Iterator;
 import org.drools.core.util.LinkedList;
@@ -96,6 +97,9 @@ public abstract class BetaNode extends LeftTupleSource
 
     /** @see LRUnlinkingOption */
     protected boolean         lrUnlinkingEnabled         = false;
+
+    /** @see RuleBaseConfiguration#setLazyLeftMemoryEnabled(boolean) */
+    protected boolean         lazyLeftMemory             = false;
     
     private boolean indexedUnificationJoin;
 
@@ -146,6 +150,7 @@ public abstract class BetaNode extends LeftTupleSource
         tupleMemoryEnabled = in.readBoolean();
         concurrentRightTupleMemory = in.readBoolean();
         lrUnlinkingEnabled = in.readBoolean();
+        lazyLeftMemory = in.readBoolean();
         setUnificationJoin();
         super.readExternal( in );
     }
@@ -167,6 +172,7 @@ public abstract class BetaNode extends LeftTupleSource
         out.writeBoolean( tupleMemoryEnabled );
         out.writeBoolean( concurrentRightTupleMemory );
         out.writeBoolean( lrUnlinkingEnabled );
+        out.writeBoolean( lazyLeftMemory );
 
         super.writeExternal( out );
     }
@@ -427,6 +433,11 @@ public abstract class BetaNode extends LeftTupleSource
         RightTuple rightTuple = modifyPreviousTuples.removeRightTuple( this );
         if ( rightTuple != null ) {
             rightTuple.reAdd();
+            if ( !PropertyReactiveUtil.isAffected( this.rightInput.getPropertyMask(),
+                                                   context.getModificationMask() ) ) {
+                // the pattern reads none of the modified properties, so the matches still hold
+                return;
+            }
             // RightTuple previously existed, so continue as modify
             modifyRightTuple( rightTuple,
                               context,
@@ -626,10 +637,34 @@ public abstract class BetaNode extends LeftTupleSource
             context.setShouldPropagateAll( this );    
             // updates the right input memory before going on.
             this.rightInput.updateSink(this, context, workingMemory);
+
+            if ( this.lazyLeftMemory && memory.getRightTupleMemory().size() == 0 ) {
+                // nothing to join with: the right input stays linked, so that
+                // its first fact links and populates the left input back
+                memory.unlinkLeft();
+                return true;
+            }
         }
         
         return false;
     }
+
+    /**
+     * Releases the left tuples of the memory, which has no right tuple, so
+     * they have no children, and unlinks the left input until the next right
+     * tuple comes.
+     */
+    protected void releaseLeftMemory(final BetaMemory memory) {
+        final LeftTupleMemory leftMemory = memory.getLeftTupleMemory();
+        final Entry[] leftTuples = leftMemory.toArray();
+        for ( int i = 0; i < leftTuples.length; i++ ) {
+            final LeftTuple leftTuple = (LeftTuple) leftTuples[i];
+            leftMemory.remove( leftTuple );
+            leftTuple.unlinkFromLeftParent();
+            leftTuple.unlinkFromRightParent();
+        }
+        memory.unlinkLeft();
+    }
     
     protected boolean rightUnlinked(final PropagationContext context,
             final InternalWorkingMemory workingMemory, final BetaMemory memory) {
@@ -41,7 +41,11 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
@@ -60,6 +64,13 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
     ObjectHashMap             hashedSinkMap;
 
+    LinkedList                rangeIndexes;
+
+    // the order the others and the range indexed sinks were added in, as they propagate in that order
+    private Map<ObjectSink, Integer> sinkOrder;
+
+    private int               sinkSequence;
+
     private int               alphaNodeHashingThreshold;
 
     public CompositeObjectSinkAdapter() {
@@ -73,6 +84,7 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         this.alphaNodeHashingThreshold = alphaNodeHashingThreshold;
     }
 
+    @SuppressWarnings("unchecked")
     public void readExternal(ObjectInput in) throws IOException,
                                             ClassNotFoundException {
         super.readExternal( in );
@@ -80,6 +92,9 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         hashableSinks = (ObjectSinkNodeList) in.readObject();
         hashedFieldIndexes = (LinkedList) in.readObject();
         hashedSinkMap = (ObjectHashMap) in.readObject();
+        rangeIndexes = (LinkedList) in.readObject();
+        sinkOrder = (Map<ObjectSink, Integer>) in.readObject();
+        sinkSequence = in.readInt();
         alphaNodeHashingThreshold = in.readInt();
     }
 
@@ -89,6 +104,9 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         out.writeObject( hashableSinks );
         out.writeObject( hashedFieldIndexes );
         out.writeObject( hashedSinkMap );
+        out.writeObject( rangeIndexes );
+        out.writeObject( sinkOrder );
+        out.writeInt( sinkSequence );
         out.writeInt( alphaNodeHashingThreshold );
     }
 
@@ -104,6 +122,20 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         return this.hashedSinkMap;
     }
 
+    /**
+     * Returns the alpha nodes held by the range indexes, rather than in the
+     * other sinks.
+     */
+    public ObjectSink[] getRangeIndexedSinks() {
+        final List<ObjectSink> sinks = new ArrayList<ObjectSink>();
+        if ( this.rangeIndexes != null ) {
+            for ( RangeIndex rangeIndex = (RangeIndex) this.rangeIndexes.getFirst(); rangeIndex != null; rangeIndex = (RangeIndex) rangeIndex.getNext() ) {
+                rangeIndex.collectSinks( sinks );
+            }
+        }
+        return sinks.toArray( new ObjectSink[sinks.size()] );
+    }
+
     public void addObjectSink(final ObjectSink sink) {
         if ( sink instanceof AlphaNode ) {
             final AlphaNode alphaNode = (AlphaNode) sink;
@@ -138,6 +170,18 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                     }
                     return;
                 }
+
+                if ( RangeIndex.isIndexable( literalConstraint ) ) {
+                    final RangeIndex rangeIndex = registerRangeIndex( literalConstraint.getFieldExtractor() );
+                    if ( rangeIndex.getCount() >= this.alphaNodeHashingThreshold && this.alphaNodeHashingThreshold != 0 ) {
+                        if ( !rangeIndex.isIndexed() ) {
+                            indexRangeSinks( rangeIndex );
+                        }
+                        rangeIndex.add( alphaNode );
+                        recordOrder( alphaNode );
+                        return;
+                    }
+                }
             }
         }
 
@@ -146,6 +190,7 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         }
 
         this.otherSinks.add( (ObjectSinkNode) sink );
+        recordOrder( sink );
     }
 
     public void removeObjectSink(final ObjectSink sink) {
@@ -182,14 +227,32 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
                     return;
                 }
+
+                if ( RangeIndex.isIndexable( literalConstraint ) ) {
+                    final RangeIndex rangeIndex = unregisterRangeIndex( literalConstraint.getFieldExtractor().getIndex() );
+                    if ( rangeIndex.isIndexed() ) {
+                        rangeIndex.remove( alphaNode );
+                        this.sinkOrder.remove( alphaNode );
+                        if ( rangeIndex.getCount() <= this.alphaNodeHashingThreshold - 1 ) {
+                            // too few left to be worth indexing
+                            unIndexRangeSinks( rangeIndex );
+                        }
+                        return;
+                    }
+                }
             }
         }
 
         this.otherSinks.remove( (ObjectSinkNode) sink );
+        this.sinkOrder.remove( sink );
 
         if ( this.otherSinks.isEmpty() ) {
             this.otherSinks = null;
         }
+
+        if ( this.sinkOrder.isEmpty() ) {
+            this.sinkOrder = null;
+        }
     }
 
     void hashSinks(final FieldIndex fieldIndex) {
@@ -272,6 +335,163 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
         fieldIndex.setHashed( false );
     }
 
+    void indexRangeSinks(final RangeIndex rangeIndex) {
+        ObjectSinkNode currentSink = this.otherSinks.getFirst();
+
+        while ( currentSink != null ) {
+            final ObjectSinkNode sink = currentSink;
+            // position to the next sink first, as the sink may be moved to the index
+            currentSink = currentSink.getNextObjectSinkNode();
+
+            if ( sink instanceof AlphaNode && ((AlphaNode) sink).getConstraint() instanceof LiteralConstraint ) {
+                final LiteralConstraint literalConstraint = (LiteralConstraint) ((AlphaNode) sink).getConstraint();
+                if ( RangeIndex.isIndexable( literalConstraint ) && literalConstraint.getFieldExtractor().getIndex() == rangeIndex.getIndex() ) {
+                    this.otherSinks.remove( sink );
+                    rangeIndex.add( (AlphaNode) sink );
+                }
+            }
+        }
+
+        if ( this.otherSinks.isEmpty() ) {
+            this.otherSinks = null;
+        }
+
+        rangeIndex.setIndexed( true );
+    }
+
+    void unIndexRangeSinks(final RangeIndex rangeIndex) {
+        final List<ObjectSink> sinks = new ArrayList<ObjectSink>();
+        rangeIndex.collectSinks( sinks );
+        rangeIndex.clear();
+        rangeIndex.setIndexed( false );
+        if ( sinks.isEmpty() ) {
+            return;
+        }
+
+        // put the sinks back among the others in the order they were added
+        if ( this.otherSinks == null ) {
+            this.otherSinks = new ObjectSinkNodeList();
+        }
+        for ( ObjectSinkNode sink = this.otherSinks.removeFirst(); sink != null; sink = this.otherSinks.removeFirst() ) {
+            sinks.add( sink );
+        }
+        Collections.sort( sinks,
+                          new SinkOrderComparator() );
+        for ( ObjectSink sink : sinks ) {
+            this.otherSinks.add( (ObjectSinkNode) sink );
+        }
+    }
+
+    private void recordOrder(final ObjectSink sink) {
+        if ( this.sinkOrder == null ) {
+            this.sinkOrder = new IdentityHashMap<ObjectSink, Integer>();
+        }
+        this.sinkOrder.put( sink,
+                            this.sinkSequence++ );
+    }
+
+    /**
+     * Returns the range indexed sinks the object matches, in the order they were added, or null
+     * if there is none.
+     */
+    private List<AlphaNode> getRangeMatches(final InternalWorkingMemory workingMemory,
+                                            final Object object) {
+        if ( this.rangeIndexes == null ) {
+            return null;
+        }
+        List<AlphaNode> matches = null;
+        for ( RangeIndex rangeIndex = (RangeIndex) this.rangeIndexes.getFirst(); rangeIndex != null; rangeIndex = (RangeIndex) rangeIndex.getNext() ) {
+            if ( rangeIndex.isIndexed() ) {
+                if ( matches == null ) {
+                    matches = new ArrayList<AlphaNode>();
+                }
+                rangeIndex.collectMatches( workingMemory,
+                                           object,
+                                           matches );
+            }
+        }
+        if ( matches == null || matches.isEmpty() ) {
+            return null;
+        }
+        if ( matches.size() > 1 ) {
+            Collections.sort( matches,
+                              new SinkOrderComparator() );
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the position of the first range match added after the sink.
+     */
+    private int nextRangeMatch(final List<AlphaNode> rangeMatches,
+                               int next,
+                               final ObjectSink sink) {
+        final int sequence = this.sinkOrder.get( sink );
+        while ( next < rangeMatches.size() && this.sinkOrder.get( rangeMatches.get( next ) ) < sequence ) {
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Orders the others and the range indexed sinks by the order they were added in.
+     */
+    private class SinkOrderComparator
+        implements
+        Comparator<ObjectSink> {
+        public int compare(final ObjectSink sink1,
+                           final ObjectSink sink2) {
+            return sinkOrder.get( sink1 ) - sinkOrder.get( sink2 );
+        }
+    }
+
+    /**
+     * Returns the RangeIndex which keeps a count on how many times a field is used with a range check in the sinks.
+     */
+    private RangeIndex registerRangeIndex(final InternalReadAccessor fieldExtractor) {
+        if ( this.rangeIndexes == null ) {
+            this.rangeIndexes = new LinkedList();
+        }
+
+        RangeIndex rangeIndex = findRangeIndex( fieldExtractor.getIndex() );
+        if ( rangeIndex == null ) {
+            rangeIndex = new RangeIndex( fieldExtractor.getIndex(),
+                                         fieldExtractor );
+            this.rangeIndexes.add( rangeIndex );
+        }
+
+        rangeIndex.increaseCounter();
+
+        return rangeIndex;
+    }
+
+    private RangeIndex unregisterRangeIndex(final int index) {
+        final RangeIndex rangeIndex = findRangeIndex( index );
+        rangeIndex.decreaseCounter();
+
+        if ( rangeIndex.getCount() == 0 ) {
+            this.rangeIndexes.remove( rangeIndex );
+            if ( this.rangeIndexes.isEmpty() ) {
+                this.rangeIndexes = null;
+            }
+        }
+
+        return rangeIndex;
+    }
+
+    private RangeIndex findRangeIndex(final int index) {
+        if ( this.rangeIndexes == null ) {
+            return null;
+        }
+        for ( RangeIndex node = (RangeIndex) this.rangeIndexes.getFirst(); node != null; node = (RangeIndex) node.getNext() ) {
+            if ( node.getIndex() == index ) {
+                return node;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Returns a FieldIndex which Keeps a count on how many times a particular field is used with an equality check
      * in the sinks.
@@ -373,15 +593,37 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
             }
         }
 
+        // range indexed sinks were others before indexing, so they keep propagating among them in the order they were added
+        final List<AlphaNode> rangeMatches = getRangeMatches( workingMemory,
+                                                              object );
+        int matched = 0;
         if ( this.otherSinks != null ) {
             // propagate others
             for ( ObjectSinkNode sink = this.otherSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                if ( rangeMatches != null ) {
+                    // go straight to the matched AlphaNodes' propagators, as we know they are true and no need to retest
+                    for ( int end = nextRangeMatch( rangeMatches,
+                                                    matched,
+                                                    sink ); matched < end; matched++ ) {
+                        rangeMatches.get( matched ).getSinkPropagator().propagateAssertObject( factHandle,
+                                                                                               context,
+                                                                                               workingMemory );
+                    }
+                }
                 doPropagateAssertObject( factHandle,
                                          context,
                                          workingMemory,
                                          sink );
             }
         }
+
+        if ( rangeMatches != null ) {
+            for ( ; matched < rangeMatches.size(); matched++ ) {
+                rangeMatches.get( matched ).getSinkPropagator().propagateAssertObject( factHandle,
+                                                                                       context,
+                                                                                       workingMemory );
+            }
+        }
     }
 
     public void propagateModifyObject(final InternalFactHandle factHandle,
@@ -423,9 +665,23 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
             }
         }
 
+        // range indexed sinks were others before indexing, so they keep propagating among them in the order they were added
+        final List<AlphaNode> rangeMatches = getRangeMatches( workingMemory,
+                                                              object );
+        int matched = 0;
         if ( this.otherSinks != null ) {
             // propagate others
             for ( ObjectSinkNode sink = this.otherSinks.getFirst(); sink != null; sink = sink.getNextObjectSinkNode() ) {
+                if ( rangeMatches != null ) {
+                    for ( int end = nextRangeMatch( rangeMatches,
+                                                    matched,
+                                                    sink ); matched < end; matched++ ) {
+                        rangeMatches.get( matched ).getSinkPropagator().propagateModifyObject( factHandle,
+                                                                                               modifyPreviousTuples,
+                                                                                               context,
+                                                                                               workingMemory );
+                    }
+                }
                 doPropagateModifyObject( factHandle,
                                          modifyPreviousTuples,
                                          context,
@@ -433,6 +689,15 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                                          sink );
             }
         }
+
+        if ( rangeMatches != null ) {
+            for ( ; matched < rangeMatches.size(); matched++ ) {
+                rangeMatches.get( matched ).getSinkPropagator().propagateModifyObject( factHandle,
+                                                                                       modifyPreviousTuples,
+                                                                                       context,
+                                                                                       workingMemory );
+            }
+        }
     }
 
     /**
@@ -490,6 +755,16 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                 }
             }
         }
+
+        if ( this.rangeIndexes != null && candidate instanceof AlphaNode && ((AlphaNode) candidate).getConstraint() instanceof LiteralConstraint ) {
+            final LiteralConstraint literalConstraint = (LiteralConstraint) ((AlphaNode) candidate).getConstraint();
+            if ( RangeIndex.isIndexable( literalConstraint ) ) {
+                final RangeIndex rangeIndex = findRangeIndex( literalConstraint.getFieldExtractor().getIndex() );
+                if ( rangeIndex != null && rangeIndex.isIndexed() ) {
+                    return rangeIndex.find( (AlphaNode) candidate );
+                }
+            }
+        }
         return null;
     }
 
@@ -515,11 +790,21 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
                 sinks[at++] = (ObjectSink) entry.getValue();
             }
         }
+
+        for ( ObjectSink sink : getRangeIndexedSinks() ) {
+            sinks[at++] = sink;
+        }
         return sinks;
     }
 
     public int size() {
-        return (this.otherSinks != null ? this.otherSinks.size() : 0) + (this.hashableSinks != null ? this.hashableSinks.size() : 0) + (this.hashedSinkMap != null ? this.hashedSinkMap.size() : 0);
+        int rangeIndexed = 0;
+        if ( this.rangeIndexes != null ) {
+            for ( RangeIndex rangeIndex = (RangeIndex) this.rangeIndexes.getFirst(); rangeIndex != null; rangeIndex = (RangeIndex) rangeIndex.getNext() ) {
+                rangeIndexed += rangeIndex.size();
+            }
+        }
+        return (this.otherSinks != null ? this.otherSinks.size() : 0) + (this.hashableSinks != null ? this.hashableSinks.size() : 0) + (this.hashedSinkMap != null ? this.hashedSinkMap.size() : 0) + rangeIndexed;
     }
 
     public static class HashKey
@@ -803,6 +1088,326 @@ public class CompositeObjectSinkAdapter extends AbstractObjectSinkAdapter {
 
     }
 
+    /**
+     * Indexes the alpha nodes testing a field against a literal with <, <=, > or >=, so that the
+     * nodes an object matches are found with a binary search on the field's value, rather than by
+     * evaluating each constraint. Only integer and double fields are indexed, as only they are
+     * compared by value exactly the way the evaluators do.
+     */
+    public static class RangeIndex
+        implements
+        LinkedListNode {
+        private static final long    serialVersionUID = 510l;
+        private int                  index;
+        private InternalReadAccessor fieldExtractor;
+
+        private int                  count;
+
+        private boolean              indexed;
+
+        // x > v and x >= v, ordered by v, >= before > for the same v: the matches are a prefix
+        private List<AlphaNode>      lowerBounds      = new ArrayList<AlphaNode>();
+        // x < v and x <= v, ordered by v, < before <= for the same v: the matches are a suffix
+        private List<AlphaNode>      upperBounds      = new ArrayList<AlphaNode>();
+
+        private LinkedListNode       previous;
+        private LinkedListNode       next;
+
+        public RangeIndex() {
+        }
+
+        public RangeIndex(final int index,
+                          final InternalReadAccessor fieldExtractor) {
+            this.index = index;
+            this.fieldExtractor = fieldExtractor;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+            index = in.readInt();
+            fieldExtractor = (InternalReadAccessor) in.readObject();
+            count = in.readInt();
+            indexed = in.readBoolean();
+            lowerBounds = (List<AlphaNode>) in.readObject();
+            upperBounds = (List<AlphaNode>) in.readObject();
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt( index );
+            out.writeObject( fieldExtractor );
+            out.writeInt( count );
+            out.writeBoolean( indexed );
+            out.writeObject( lowerBounds );
+            out.writeObject( upperBounds );
+        }
+
+        /**
+         * Returns true if the constraint is a range check that can be indexed.
+         */
+        public static boolean isIndexable(final LiteralConstraint literalConstraint) {
+            final Operator operator = literalConstraint.getEvaluator().getOperator();
+            if ( operator != Operator.LESS && operator != Operator.LESS_OR_EQUAL && operator != Operator.GREATER && operator != Operator.GREATER_OR_EQUAL ) {
+                return false;
+            }
+            final FieldValue field = literalConstraint.getField();
+            if ( field == null || field.isNull() ) {
+                return false;
+            }
+            final ValueType valueType = literalConstraint.getFieldExtractor().getValueType();
+            if ( valueType.isIntegerNumber() ) {
+                return field.isIntegerNumberField();
+            }
+            if ( valueType == ValueType.DOUBLE_TYPE || valueType == ValueType.PDOUBLE_TYPE ) {
+                return field.isIntegerNumberField() || field.isFloatNumberField();
+            }
+            return false;
+        }
+
+        public void add(final AlphaNode alphaNode) {
+            final List<AlphaNode> bounds = getBounds( alphaNode );
+            // insert after the nodes with the same bound, to keep the order they were added in
+            int low = 0;
+            int high = bounds.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( compare( bounds.get( mid ),
+                              alphaNode ) <= 0 ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            bounds.add( low,
+                        alphaNode );
+        }
+
+        public void remove(final AlphaNode alphaNode) {
+            final List<AlphaNode> bounds = getBounds( alphaNode );
+            for ( int i = firstWithBound( bounds,
+                                          alphaNode ); i < bounds.size(); i++ ) {
+                if ( bounds.get( i ) == alphaNode ) {
+                    bounds.remove( i );
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the indexed node equal to the candidate, if any.
+         */
+        public AlphaNode find(final AlphaNode candidate) {
+            final List<AlphaNode> bounds = getBounds( candidate );
+            for ( int i = firstWithBound( bounds,
+                                          candidate ); i < bounds.size() && compare( bounds.get( i ),
+                                                                                     candidate ) == 0; i++ ) {
+                if ( candidate.equals( bounds.get( i ) ) ) {
+                    return bounds.get( i );
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Adds the indexed nodes the object matches to the given list.
+         */
+        public void collectMatches(final InternalWorkingMemory workingMemory,
+                                   final Object object,
+                                   final List<AlphaNode> matches) {
+            if ( this.fieldExtractor.isNullValue( workingMemory,
+                                                  object ) ) {
+                return;
+            }
+            matches.addAll( this.lowerBounds.subList( 0,
+                                                      lowerBoundsEnd( workingMemory,
+                                                                      object ) ) );
+            matches.addAll( this.upperBounds.subList( upperBoundsStart( workingMemory,
+                                                                        object ),
+                                                      this.upperBounds.size() ) );
+        }
+
+        /**
+         * Returns the number of lower bound nodes, x > v or x >= v, the object's value matches.
+         */
+        private int lowerBoundsEnd(final InternalWorkingMemory workingMemory,
+                                   final Object object) {
+            int low = 0;
+            int high = this.lowerBounds.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                final AlphaNode node = this.lowerBounds.get( mid );
+                final int cmp = compareValue( node,
+                                              workingMemory,
+                                              object );
+                if ( cmp < 0 || (cmp == 0 && getOperator( node ) == Operator.GREATER_OR_EQUAL) ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the position of the first upper bound node, x < v or x <= v, the object's value
+         * matches.
+         */
+        private int upperBoundsStart(final InternalWorkingMemory workingMemory,
+                                     final Object object) {
+            int low = 0;
+            int high = this.upperBounds.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                final AlphaNode node = this.upperBounds.get( mid );
+                final int cmp = compareValue( node,
+                                              workingMemory,
+                                              object );
+                if ( cmp > 0 || (cmp == 0 && getOperator( node ) == Operator.LESS_OR_EQUAL) ) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private int firstWithBound(final List<AlphaNode> bounds,
+                                   final AlphaNode alphaNode) {
+            int low = 0;
+            int high = bounds.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( compare( bounds.get( mid ),
+                              alphaNode ) < 0 ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private List<AlphaNode> getBounds(final AlphaNode alphaNode) {
+            final Operator operator = getOperator( alphaNode );
+            return operator == Operator.GREATER || operator == Operator.GREATER_OR_EQUAL ? this.lowerBounds : this.upperBounds;
+        }
+
+        /**
+         * Orders two nodes of the same bounds list by their literal, then by their operator.
+         */
+        private int compare(final AlphaNode node1,
+                            final AlphaNode node2) {
+            final FieldValue value1 = ((LiteralConstraint) node1.getConstraint()).getField();
+            final FieldValue value2 = ((LiteralConstraint) node2.getConstraint()).getField();
+            int cmp;
+            if ( isLongValued() ) {
+                final long l1 = value1.getLongValue();
+                final long l2 = value2.getLongValue();
+                cmp = l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            } else {
+                cmp = Double.compare( value1.getDoubleValue(),
+                                      value2.getDoubleValue() );
+            }
+            if ( cmp != 0 ) {
+                return cmp;
+            }
+            return rank( getOperator( node1 ) ) - rank( getOperator( node2 ) );
+        }
+
+        /**
+         * Compares a node's literal with the object's value of the field.
+         */
+        private int compareValue(final AlphaNode node,
+                                 final InternalWorkingMemory workingMemory,
+                                 final Object object) {
+            final FieldValue field = ((LiteralConstraint) node.getConstraint()).getField();
+            if ( isLongValued() ) {
+                final long bound = field.getLongValue();
+                final long value = this.fieldExtractor.getLongValue( workingMemory,
+                                                                     object );
+                return bound < value ? -1 : (bound == value ? 0 : 1);
+            }
+            final double bound = field.getDoubleValue();
+            final double value = this.fieldExtractor.getDoubleValue( workingMemory,
+                                                                     object );
+            return bound < value ? -1 : (bound == value ? 0 : 1);
+        }
+
+        private static int rank(final Operator operator) {
+            return operator == Operator.GREATER_OR_EQUAL || operator == Operator.LESS ? 0 : 1;
+        }
+
+        private static Operator getOperator(final AlphaNode alphaNode) {
+            return ((LiteralConstraint) alphaNode.getConstraint()).getEvaluator().getOperator();
+        }
+
+        private boolean isLongValued() {
+            return this.fieldExtractor.getValueType().isIntegerNumber();
+        }
+
+        void collectSinks(final List<ObjectSink> sinks) {
+            sinks.addAll( this.lowerBounds );
+            sinks.addAll( this.upperBounds );
+        }
+
+        void clear() {
+            this.lowerBounds.clear();
+            this.upperBounds.clear();
+        }
+
+        public int size() {
+            return this.lowerBounds.size() + this.upperBounds.size();
+        }
+
+        public InternalReadAccessor getFieldExtractor() {
+            return this.fieldExtractor;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public int getCount() {
+            return this.count;
+        }
+
+        public boolean isIndexed() {
+            return this.indexed;
+        }
+
+        public void setIndexed(final boolean indexed) {
+            this.indexed = indexed;
+        }
+
+        public void increaseCounter() {
+            this.count++;
+        }
+
+        public void decreaseCounter() {
+            this.count--;
+        }
+
+        public LinkedListNode getNext() {
+            return this.next;
+        }
+
+        public LinkedListNode getPrevious() {
+            return this.previous;
+        }
+
+        public void setNext(final LinkedListNode next) {
+            this.next = next;
+        }
+
+        public void setPrevious(final LinkedListNode previous) {
+            this.previous = previous;
+        }
+
+        public void setNext(Entry next) {
+            this.next = ( LinkedListNode ) next;
+        }
+    }
+
     public static class FieldIndex
         implements
         LinkedListNode {
@@ -39,14 +39,6 @@ public class EvalNodeLeftTuple
 
     private LeftTuple          parent;
 
-    private Object             object;
-
-    private RightTuple         blocker;
-
-    private LeftTuple          blockedPrevious;
-
-    private LeftTuple          blockedNext;
-
     // left and right tuples in parent
     private LeftTuple          leftParent;
     private LeftTuple          leftParentPrevious;
@@ -322,8 +314,6 @@ public class EvalNodeLeftTuple
         this.leftParent = null;
         this.leftParentPrevious = null;
         this.leftParentNext = null;
-        //
-        this.blocker = null;
     }
 
     /* (non-Javadoc)
@@ -356,8 +346,6 @@ public class EvalNodeLeftTuple
             this.rightParent.lastChild = null;
         }
 
-        this.blocker = null;
-
         this.rightParent = null;
         this.rightParentPrevious = null;
         this.rightParentNext = null;
@@ -581,56 +569,56 @@ public class EvalNodeLeftTuple
      * @see org.drools.reteoo.LeftTuple#setBlocker(org.drools.reteoo.RightTuple)
      */
     public void setBlocker(RightTuple blocker) {
-        this.blocker = blocker;
+        throw new UnsupportedOperationException();
     }
 
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#getBlocker()
      */
     public RightTuple getBlocker() {
-        return this.blocker;
+        throw new UnsupportedOperationException();
     }
 
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#getBlockedPrevious()
      */
     public LeftTuple getBlockedPrevious() {
-        return this.blockedPrevious;
+        throw new UnsupportedOperationException();
     }
 
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#setBlockedPrevious(org.drools.reteoo.LeftTuple)
      */
     public void setBlockedPrevious(LeftTuple blockerPrevious) {
-        this.blockedPrevious = blockerPrevious;
+        throw new UnsupportedOperationException();
     }
 
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#getBlockedNext()
      */
     public LeftTuple getBlockedNext() {
-        return this.blockedNext;
+        throw new UnsupportedOperationException();
     }
 
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#setBlockedNext(org.drools.reteoo.LeftTuple)
      */
     public void setBlockedNext(LeftTuple blockerNext) {
-        this.blockedNext = blockerNext;
+        throw new UnsupportedOperationException();
     }
     
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#getObject()
      */
     public Object getObject() {
-        return this.object;
+        throw new UnsupportedOperationException();
     }
     
     /* (non-Javadoc)
      * @see org.drools.reteoo.LeftTuple#setObject(java.lang.Object)
      */
     public void setObject(final Object object) {
-        this.object = object;
+        throw new UnsupportedOperationException();
     }
 
 //    public int hashCode() {
@@ -815,7 +803,6 @@ public class EvalNodeLeftTuple
         }
         builder.append( Arrays.toString( ids ) )
                .append( " activation=" )
-               .append( this.object != null ? this.object : "null" )
                .append( " sink=" )
                .append( this.sink.getClass().getSimpleName() )
                .append( "(" ).append( sink.getId() ).append( ")" );
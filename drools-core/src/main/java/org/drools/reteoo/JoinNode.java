@@ -57,6 +57,9 @@ public class JoinNode extends BetaNode {
                behaviors );
         this.tupleMemoryEnabled = context.isTupleMemoryEnabled();
         this.lrUnlinkingEnabled = context.getRuleBase().getConfiguration().isLRUnlinkingEnabled();
+        // the left tuples not stored must be unlinked from their parents
+        this.lazyLeftMemory = this.lrUnlinkingEnabled && this.tupleMemoryEnabled &&
+                              context.getRuleBase().getConfiguration().isLazyLeftMemoryEnabled();
     }
 
     public void assertLeftTuple( final LeftTuple leftTuple,
@@ -68,6 +71,12 @@ public class JoinNode extends BetaNode {
              leftUnlinked( context,
                            workingMemory,
                            memory ) ) {
+            if ( lazyLeftMemory ) {
+                // the tuple is rebuilt when the left input is linked back
+                context.getPropagationAttemptsMemory().add( this );
+                leftTuple.unlinkFromLeftParent();
+                leftTuple.unlinkFromRightParent();
+            }
             return;
         }        
 
@@ -190,6 +199,11 @@ public class JoinNode extends BetaNode {
                                                   context,
                                                   workingMemory );
         }
+
+        if ( lazyLeftMemory &&
+             memory.getRightTupleMemory().size() == 0 ) {
+            releaseLeftMemory( memory );
+        }
     }
 
     public void retractLeftTuple( final LeftTuple leftTuple,
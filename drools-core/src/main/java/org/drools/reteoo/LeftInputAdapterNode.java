@@ -171,6 +171,23 @@ public class LeftInputAdapterNode extends LeftTupleSource
                              final ModifyPreviousTuples modifyPreviousTuples,
                              PropagationContext context,
                              InternalWorkingMemory workingMemory) {
+        if ( !PropertyReactiveUtil.isAffected( this.objectSource.getPropertyMask(),
+                                               context.getModificationMask() ) ) {
+            // the pattern reads none of the modified properties, so the tuples still hold
+            for ( LeftTupleSink sink : this.sink.getSinks() ) {
+                LeftTuple leftTuple = modifyPreviousTuples.removeLeftTuple( sink );
+                if ( leftTuple != null ) {
+                    leftTuple.reAdd();
+                } else {
+                    sink.modifyLeftTuple( factHandle,
+                                          modifyPreviousTuples,
+                                          context,
+                                          workingMemory );
+                }
+            }
+            return;
+        }
+
         this.sink.propagateModifyObject( factHandle,
                                          modifyPreviousTuples,
                                          context,
@@ -52,6 +52,11 @@ public abstract class ObjectSource extends BaseNode
 
     private int                    alphaNodeHashingThreshold;
 
+    /** The properties read by the patterns this node is the last alpha node of */
+    private long                   propertyMask = PropertyReactiveUtil.ALL_PROPERTIES;
+
+    private boolean                propertyMaskSet;
+
     // ------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------
@@ -99,6 +104,8 @@ public abstract class ObjectSource extends BaseNode
         sink = (ObjectSinkPropagator) in.readObject();
         source = (ObjectSource) in.readObject();
         alphaNodeHashingThreshold = in.readInt();
+        propertyMask = in.readLong();
+        propertyMaskSet = in.readBoolean();
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -106,6 +113,30 @@ public abstract class ObjectSource extends BaseNode
         out.writeObject( sink );
         out.writeObject( source );
         out.writeInt( alphaNodeHashingThreshold );
+        out.writeLong( propertyMask );
+        out.writeBoolean( propertyMaskSet );
+    }
+
+    /**
+     * Adds the mask of the properties read by a pattern whose alpha network
+     * ends with this node. As nodes are shared, the mask is the union of the
+     * masks of all these patterns.
+     */
+    public void addPropertyMask(final long mask) {
+        if ( this.propertyMaskSet ) {
+            this.propertyMask |= mask;
+        } else {
+            this.propertyMask = mask;
+            this.propertyMaskSet = true;
+        }
+    }
+
+    /**
+     * Returns the mask of the properties read by the patterns fed by this
+     * node, all bits set if it is unknown.
+     */
+    public long getPropertyMask() {
+        return this.propertyMask;
     }
     
     public ObjectSource getParentObjectSource() {
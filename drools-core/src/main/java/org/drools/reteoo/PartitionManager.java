@@ -16,11 +16,16 @@
 
 package org.drools.reteoo;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.drools.common.InternalWorkingMemory;
@@ -34,6 +39,16 @@ import org.drools.reteoo.PartitionTaskManager.PartitionTask;
  * 
  * The purpose of this class is to keep the reference to all individual partition task managers 
  * and centralise the synchronisation mechanism between the network and the agenda.
+ * 
+ * The partition tasks with actions to execute are scheduled in one ready queue per
+ * worker, by decreasing priority of their next action. Up to parallelism workers run
+ * in the thread pool, each taking the tasks of its own queue first, then stealing the
+ * tasks of the other queues when its own is empty, and leaving the pool once there is
+ * nothing left to run. The tasks scheduled from a worker go to its own queue, the others
+ * are spread over the queues.
+ * 
+ * While the tasks are on hold, only the high priority actions are executed: the tasks
+ * whose next action is of lower priority are held until the tasks are released.
  */
 public class PartitionManager {
 
@@ -43,17 +58,52 @@ public class PartitionManager {
     // this is the actual thread pool
     private AtomicReference<ExternalExecutorService>       executorService;
 
-    // this is a queue that holds new tasks whenever the actual task submission is on hold
-    private PriorityBlockingQueue<PartitionTask>           queue;
-    // a boolean flag and monitor lock for holding the task queue
+    // the ready queues and the running flags of the workers
+    private int                                            parallelism;
+    private List<PriorityBlockingQueue<PartitionTask>>     readyQueues;
+    private AtomicBoolean[]                                activeWorkers;
+    private AtomicInteger                                  activeWorkerCount;
+    private AtomicInteger                                  readyCount;
+    private AtomicInteger                                  nextQueue;
+    private AtomicLong                                     sequence;
+    // the worker running on the current thread, if any
+    private ThreadLocal<Worker>                            currentWorker;
+
+    // these are the tasks held whenever the actual task submission is on hold
+    private Map<PartitionTask, Boolean>                    heldTasks;
+    // a boolean flag for holding the task queues
     private AtomicBoolean                                  onHold;
 
+    private AtomicLong                                     executedActions;
+    private AtomicLong                                     steals;
+
     public PartitionManager(InternalWorkingMemory workingMemory) {
+        this( workingMemory,
+              Runtime.getRuntime().availableProcessors() );
+    }
+
+    public PartitionManager(InternalWorkingMemory workingMemory,
+                            int parallelism) {
         this.workingMemory = workingMemory;
         this.executorService = new AtomicReference<ExternalExecutorService>();
         this.partitionManagers = new ConcurrentHashMap<RuleBasePartitionId, PartitionTaskManager>();
-        this.queue = new PriorityBlockingQueue<PartitionTask>();
+        this.parallelism = Math.max( 1,
+                                     parallelism );
+        this.readyQueues = new ArrayList<PriorityBlockingQueue<PartitionTask>>( this.parallelism );
+        this.activeWorkers = new AtomicBoolean[this.parallelism];
+        for ( int i = 0; i < this.parallelism; i++ ) {
+            this.readyQueues.add( new PriorityBlockingQueue<PartitionTask>() );
+            this.activeWorkers[i] = new AtomicBoolean( false );
+        }
+        this.activeWorkerCount = new AtomicInteger( 0 );
+        this.readyCount = new AtomicInteger( 0 );
+        this.nextQueue = new AtomicInteger( 0 );
+        this.sequence = new AtomicLong( 0 );
+        this.currentWorker = new ThreadLocal<Worker>();
+        this.heldTasks = new ConcurrentHashMap<PartitionTask, Boolean>();
         this.onHold = new AtomicBoolean( false );
+        this.executedActions = new AtomicLong( 0 );
+        this.steals = new AtomicLong( 0 );
     }
 
     /**
@@ -70,48 +120,107 @@ public class PartitionManager {
     }
 
     public void setPool(final ExternalExecutorService executorService) {
-        // any monitor/lock could be used... using onHold so that it is obvious
-        synchronized ( onHold ) {
-            this.executorService.set( executorService );
-            while( this.executorService.get() != null && ! queue.isEmpty() ) {
-                PartitionTask task = queue.poll();
-                this.executorService.get().execute( task );
+        this.executorService.set( executorService );
+        if ( executorService != null ) {
+            // starts the workers for the tasks scheduled so far
+            for ( int i = 0; i < this.parallelism; i++ ) {
+                if ( !this.readyQueues.get( i ).isEmpty() ) {
+                    startWorker( i );
+                }
             }
         }
     }
 
+    /**
+     * Schedules the given task, that has actions to execute
+     * and is neither scheduled nor running
+     */
     public void execute(PartitionTask task) {
-        // any monitor/lock could be used... using onHold so that it is obvious
-        synchronized ( onHold ) {
-            if ( (task.getPriority() < Action.PRIORITY_HIGH && onHold.get()) || this.executorService.get() == null ) {
-                this.queue.add( task );
-            } else {
-                this.executorService.get().execute( task );
+        if ( task.getPriority() < Action.PRIORITY_HIGH && onHold.get() ) {
+            hold( task );
+        } else {
+            ready( task );
+        }
+    }
+
+    private void hold(PartitionTask task) {
+        this.heldTasks.put( task,
+                            Boolean.TRUE );
+        // a high priority action or a release may come at any time, so the
+        // task is unscheduled and checked again once held
+        task.unschedule();
+        if ( !onHold.get() || task.getNextPriority() >= Action.PRIORITY_HIGH ) {
+            task.addToExecutorQueue();
+        }
+    }
+
+    private void ready(PartitionTask task) {
+        this.heldTasks.remove( task );
+        Worker worker = this.currentWorker.get();
+        int index = worker != null ? worker.index : (this.nextQueue.getAndIncrement() & Integer.MAX_VALUE) % this.parallelism;
+        task.setSequence( this.sequence.getAndIncrement() );
+        this.readyQueues.get( index ).add( task );
+        this.readyCount.incrementAndGet();
+        startWorker( index );
+        // lets idle workers help with the tasks waiting behind busy ones
+        for ( int i = 1; i < this.parallelism && this.activeWorkerCount.get() < this.readyCount.get(); i++ ) {
+            startWorker( (index + i) % this.parallelism );
+        }
+    }
+
+    private void startWorker(int index) {
+        ExternalExecutorService service = this.executorService.get();
+        if ( service != null && this.activeWorkers[index].compareAndSet( false,
+                                                                        true ) ) {
+            this.activeWorkerCount.incrementAndGet();
+            try {
+                service.execute( new Worker( index ) );
+            } catch ( RejectedExecutionException e ) {
+                // the pool is shutting down
+                this.activeWorkerCount.decrementAndGet();
+                this.activeWorkers[index].set( false );
             }
         }
     }
 
-    public void holdTasks() {
-        // any monitor/lock could be used... using onHold so that it is obvious
-        synchronized ( onHold ) {
-            this.onHold.set( true );
+    /**
+     * Removes the next task of the given worker, from its own
+     * ready queue first, then from the other ones
+     */
+    private PartitionTask nextTask(int index) {
+        PartitionTask task = this.readyQueues.get( index ).poll();
+        for ( int i = 1; task == null && i < this.parallelism; i++ ) {
+            task = this.readyQueues.get( (index + i) % this.parallelism ).poll();
+            if ( task != null ) {
+                this.steals.incrementAndGet();
+            }
+        }
+        if ( task != null ) {
+            this.readyCount.decrementAndGet();
         }
+        return task;
+    }
+
+    void actionsExecuted(int executed) {
+        this.executedActions.addAndGet( executed );
+    }
+
+    public void holdTasks() {
+        this.onHold.set( true );
     }
 
     public void waitForPendingTasks() {
-        this.executorService.get().waitUntilEmpty();
+        ExternalExecutorService service = this.executorService.get();
+        if ( service != null ) {
+            service.waitUntilEmpty();
+        }
     }
 
     public void releaseTasks() {
-        // any monitor/lock could be used... using onHold so that it is obvious
-        synchronized ( onHold ) {
-            ExecutorService service = this.executorService.get();
-            if ( service != null ) {
-                for ( PartitionTask task : queue ) {
-                    service.execute( task );
-                }
-            }
-            this.onHold.set( false );
+        this.onHold.set( false );
+        for ( PartitionTask task : this.heldTasks.keySet() ) {
+            this.heldTasks.remove( task );
+            task.addToExecutorQueue();
         }
     }
 
@@ -127,4 +236,90 @@ public class PartitionManager {
         return this.onHold.get();
     }
 
+    public int getPartitionCount() {
+        return this.partitionManagers.size();
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    public int getActiveWorkerCount() {
+        return this.activeWorkerCount.get();
+    }
+
+    /**
+     * Returns the number of partitions waiting for a worker
+     */
+    public int getReadyTaskCount() {
+        return Math.max( 0,
+                         this.readyCount.get() );
+    }
+
+    /**
+     * Returns the number of partitions waiting for the tasks to be released
+     */
+    public int getHeldTaskCount() {
+        return this.heldTasks.size();
+    }
+
+    /**
+     * Returns the number of actions waiting in each partition
+     */
+    public Map<RuleBasePartitionId, Integer> getQueueSizes() {
+        Map<RuleBasePartitionId, Integer> sizes = new HashMap<RuleBasePartitionId, Integer>();
+        for ( Map.Entry<RuleBasePartitionId, PartitionTaskManager> entry : this.partitionManagers.entrySet() ) {
+            sizes.put( entry.getKey(),
+                       entry.getValue().getQueueSize() );
+        }
+        return sizes;
+    }
+
+    public long getExecutedActionCount() {
+        return this.executedActions.get();
+    }
+
+    /**
+     * Returns the number of tasks a worker took from the ready queue of another
+     */
+    public long getStealCount() {
+        return this.steals.get();
+    }
+
+    /**
+     * Runs the ready tasks until there is none left
+     */
+    private class Worker
+        implements
+        Runnable {
+        private final int index;
+
+        Worker(final int index) {
+            this.index = index;
+        }
+
+        public void run() {
+            currentWorker.set( this );
+            try {
+                for ( ;; ) {
+                    PartitionTask task = nextTask( index );
+                    if ( task != null ) {
+                        task.run();
+                    } else {
+                        activeWorkerCount.decrementAndGet();
+                        activeWorkers[index].set( false );
+                        // a task may have been scheduled here before the flag was cleared
+                        if ( readyQueues.get( index ).isEmpty() || !activeWorkers[index].compareAndSet( false,
+                                                                                                       true ) ) {
+                            return;
+                        }
+                        activeWorkerCount.incrementAndGet();
+                    }
+                }
+            } finally {
+                currentWorker.set( null );
+            }
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import java.io.ObjectOutput;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.drools.common.InternalFactHandle;
 import org.drools.common.InternalWorkingMemory;
@@ -55,33 +56,50 @@ public class PartitionTaskManager {
         return this.task.enqueue( action );
     }
 
+    /**
+     * Returns the number of actions waiting in this partition
+     */
+    public int getQueueSize() {
+        return this.task.getQueueSize();
+    }
+
     /**
      * A worker task that keeps processing the nodes queue.
-     * The task uses a non-blocking queue and is re-submitted
-     * for execution for each element that is added to the queue.
+     *
+     * The actions are executed by decreasing priority, in the order they were
+     * enqueued for the same priority. The task is handed to the partition
+     * manager whenever it has actions to execute, and runs on one thread at a
+     * time, executing at most MAX_BATCH actions before giving the thread back
+     * to the other partitions.
      */
     public static class PartitionTask
         implements
         Runnable,
         Comparable<PartitionTask> {
 
-        // the priority of this task
-        private int                   priority;
+        // the number of actions executed each time the task runs
+        public static final int                  MAX_BATCH = 32;
 
-        // the executor service (thread pool) reference
-        private PartitionManager      manager;
+        // the priority of the next action when this task was last scheduled
+        private int                              priority;
 
-        // the shared priority queue with the nodes that need to be processed
-        private BlockingQueue<Action> queue;
+        // the order this task was last scheduled in, for tasks of the same priority
+        private long                             sequence;
 
-        // the working memory reference
-        private InternalWorkingMemory workingMemory;
+        // the partition manager, that schedules this task
+        private PartitionManager                 manager;
+
+        // the priority queue with the nodes that need to be processed
+        private BlockingQueue<QueuedAction>      queue;
 
-        // true if this task is already enqueued
-        private AtomicBoolean         enqueued;
+        // the order the actions are enqueued in
+        private AtomicLong                       actionSequence;
 
-        // true if YieldAction already added to queue
-        private AtomicBoolean         isYieldAdded;
+        // the working memory reference
+        private InternalWorkingMemory            workingMemory;
+
+        // true if this task is already scheduled or running
+        private AtomicBoolean                    enqueued;
 
         /**
          * Constructor
@@ -90,16 +108,17 @@ public class PartitionTaskManager {
          */
         public PartitionTask(final PartitionManager manager,
                              final InternalWorkingMemory workingMemory) {
-            this.queue = new PriorityBlockingQueue<Action>();
+            this.queue = new PriorityBlockingQueue<QueuedAction>();
             this.manager = manager;
             this.workingMemory = workingMemory;
             this.priority = Action.PRIORITY_NORMAL;
+            this.actionSequence = new AtomicLong( 0 );
             this.enqueued = new AtomicBoolean( false );
-            this.isYieldAdded = new AtomicBoolean( false );
         }
 
         public boolean enqueue(Action action) {
-            boolean result = queue.add( action );
+            boolean result = queue.add( new QueuedAction( action,
+                                                          actionSequence.getAndIncrement() ) );
             addToExecutorQueue();
             return result;
         }
@@ -110,55 +129,79 @@ public class PartitionTaskManager {
          * @see Runnable
          */
         public void run() {
+            int executed = 0;
             try {
-                Action action = queue.poll();
-                if ( action != null ) {
+                Action action;
+                while ( executed < MAX_BATCH && (action = nextAction()) != null ) {
                     action.execute( workingMemory );
+                    executed++;
                 }
-                enqueued.set( false );
-                addToExecutorQueue();
             } catch ( Exception e ) {
                 System.err.println( "*******************************************************************************************************" );
                 System.err.println( "Partition task manager caught an unexpected exception: " + e.getMessage() );
                 System.err.println( "Drools is capturing the exception to avoid thread death. Please report stack trace to development team." );
                 e.printStackTrace();
+            } finally {
+                manager.actionsExecuted( executed );
+                enqueued.set( false );
+                addToExecutorQueue();
             }
         }
 
-        public void addToExecutorQueue() {
-            synchronized ( isYieldAdded ) {
-                if ( this.manager.isOnHold() && (!queue.isEmpty()) && isYieldAdded.compareAndSet( false,
-                                                                                                  true ) ) {
-                    //System.out.println( "Adding yield " + System.identityHashCode( this ) );
-                    queue.add( YieldAction.INSTANCE );
-                }
+        /**
+         * Removes the next action, unless the tasks are on hold and it is
+         * not of high priority
+         */
+        private Action nextAction() {
+            QueuedAction head = queue.peek();
+            if ( head == null || (manager.isOnHold() && head.action.getPriority() < Action.PRIORITY_HIGH) ) {
+                return null;
             }
+            // only this thread removes actions, so the head can only be replaced by a higher priority one
+            return queue.poll().action;
+        }
+
+        /**
+         * Schedules this task in the partition manager, unless it is
+         * already scheduled or has nothing to execute
+         */
+        public void addToExecutorQueue() {
             if ( !queue.isEmpty() && enqueued.compareAndSet( false,
                                                              true ) ) {
-                Action head = queue.peek();
-                int priority = Action.PRIORITY_HIGH;
-                while ( head != null && head instanceof YieldAction ) {
-                    isYieldAdded.compareAndSet( true,
-                                                false );
-                    //System.out.println( "Yield consumed " + System.identityHashCode( this ) );
-                    priority = Action.PRIORITY_NORMAL;
-                    queue.remove();
-                    head = queue.peek();
-                }
+                QueuedAction head = queue.peek();
                 if ( head != null ) {
-                    this.setPriority( priority );
+                    this.setPriority( head.action.getPriority() );
                     manager.execute( this );
                 } else {
-                    enqueued.compareAndSet( true,
-                                            false );
+                    enqueued.set( false );
                 }
             }
         }
 
+        /**
+         * Releases this task, held by the partition manager, so that it is
+         * scheduled again by the next enqueued action or release
+         */
+        void unschedule() {
+            enqueued.set( false );
+        }
+
         public int getPriority() {
             return priority;
         }
 
+        /**
+         * Returns the priority of the next action, or PRIORITY_LOW if there is none
+         */
+        int getNextPriority() {
+            QueuedAction head = queue.peek();
+            return head != null ? head.action.getPriority() : Action.PRIORITY_LOW;
+        }
+
+        public int getQueueSize() {
+            return queue.size();
+        }
+
         public boolean isEnqueued() {
             return enqueued.get();
         }
@@ -167,8 +210,19 @@ public class PartitionTaskManager {
             this.priority = priority;
         }
 
+        void setSequence(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Orders the tasks by decreasing priority of their next action, then
+         * in the order they were scheduled
+         */
         public int compareTo(PartitionTask o) {
-            return this.getPriority() - o.getPriority();
+            if ( this.priority != o.priority ) {
+                return this.priority > o.priority ? -1 : 1;
+            }
+            return this.sequence < o.sequence ? -1 : (this.sequence == o.sequence ? 0 : 1);
         }
 
         @Override
@@ -177,6 +231,37 @@ public class PartitionTaskManager {
         }
     }
 
+    /**
+     * An action in the queue of a partition task, ordered by decreasing
+     * priority, then in the order the actions were enqueued
+     */
+    private static class QueuedAction
+        implements
+        Comparable<QueuedAction> {
+        private final Action action;
+        private final long   sequence;
+
+        QueuedAction(final Action action,
+                     final long sequence) {
+            this.action = action;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(QueuedAction o) {
+            int priority = this.action.getPriority();
+            int other = o.action.getPriority();
+            if ( priority != other ) {
+                return priority > other ? -1 : 1;
+            }
+            return this.sequence < o.sequence ? -1 : (this.sequence == o.sequence ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return action.toString();
+        }
+    }
+
     /**
      * An interface for all actions to be executed by the PartitionTask
      */
@@ -372,35 +457,4 @@ public class PartitionTaskManager {
                                        workingMemory );
         }
     }
-
-    /**
-     * A markup action used to mark spots in the queue where
-     * the next action must be executed at normal priority
-     */
-    private static class YieldAction
-        implements
-        Action {
-        public static final YieldAction INSTANCE = new YieldAction();
-
-        private YieldAction() {
-        }
-
-        public void execute(InternalWorkingMemory workingMemory) {
-        }
-
-        public int getPriority() {
-            return PRIORITY_NORMAL;
-        }
-
-        public void readExternal(ObjectInput in) throws IOException,
-                                                ClassNotFoundException {
-        }
-
-        public void writeExternal(ObjectOutput out) throws IOException {
-        }
-
-        public int compareTo(Action o) {
-            return this.getPriority() - o.getPriority();
-        }
-    }
 }
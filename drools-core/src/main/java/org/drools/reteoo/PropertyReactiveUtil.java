@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo;
+
+import java.beans.Introspector;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import org.drools.PropertyReactive;
+
+/**
+ * Maps the properties of a property reactive class to bits of a long mask.
+ *
+ * The properties of a class are sorted by name, and each one gets the bit
+ * of its position. Classes with more than 63 properties share the last bit
+ * between the remaining ones, which only makes them more conservative.
+ *
+ * The masks of the patterns are computed when the network is built, and the
+ * mask of a modification when the fact is updated. A modification is only
+ * propagated to the patterns whose mask has a bit in common with it.
+ */
+public final class PropertyReactiveUtil {
+
+    public static final long                           ALL_PROPERTIES = -1L;
+
+    private static final int                           LAST_BIT       = 63;
+
+    private static final Map<Class< ? >, List<String>> properties     = new WeakHashMap<Class< ? >, List<String>>();
+
+    private PropertyReactiveUtil() {
+    }
+
+    public static boolean isPropertyReactive(final Class< ? > cls) {
+        return cls != null && cls.isAnnotationPresent( PropertyReactive.class );
+    }
+
+    /**
+     * Returns the sorted names of the readable and writable properties of
+     * the given class.
+     */
+    public static List<String> getProperties(final Class< ? > cls) {
+        synchronized ( properties ) {
+            List<String> names = properties.get( cls );
+            if ( names == null ) {
+                names = Collections.unmodifiableList( new ArrayList<String>( inspect( cls ) ) );
+                properties.put( cls,
+                                names );
+            }
+            return names;
+        }
+    }
+
+    /**
+     * Returns the bit of the given property, or ALL_PROPERTIES if the class
+     * is not property reactive or has no such property.
+     */
+    public static long getPropertyBit(final Class< ? > cls,
+                                      final String property) {
+        if ( !isPropertyReactive( cls ) ) {
+            return ALL_PROPERTIES;
+        }
+        final int index = Collections.binarySearch( getProperties( cls ),
+                                                    property );
+        if ( index < 0 ) {
+            return ALL_PROPERTIES;
+        }
+        return 1L << Math.min( index,
+                               LAST_BIT );
+    }
+
+    /**
+     * Returns the mask of a modification of the given properties of an
+     * instance of the given class.
+     */
+    public static long getModificationMask(final Class< ? > cls,
+                                           final String... modifiedProperties) {
+        if ( modifiedProperties == null || !isPropertyReactive( cls ) ) {
+            return ALL_PROPERTIES;
+        }
+        long mask = 0;
+        for ( String property : modifiedProperties ) {
+            mask |= getPropertyBit( cls,
+                                    property );
+        }
+        return mask;
+    }
+
+    /**
+     * Returns true if a node, reading the properties of the given mask,
+     * has to see a modification of the properties of the given mask.
+     */
+    public static boolean isAffected(final long nodeMask,
+                                     final long modificationMask) {
+        return (nodeMask & modificationMask) != 0;
+    }
+
+    private static TreeSet<String> inspect(final Class< ? > cls) {
+        final TreeSet<String> names = new TreeSet<String>();
+        for ( Method method : cls.getMethods() ) {
+            if ( Modifier.isStatic( method.getModifiers() ) || method.getDeclaringClass() == Object.class ) {
+                continue;
+            }
+            final String name = method.getName();
+            final int params = method.getParameterTypes().length;
+            if ( params == 0 && method.getReturnType() != void.class ) {
+                if ( name.startsWith( "get" ) && name.length() > 3 ) {
+                    names.add( Introspector.decapitalize( name.substring( 3 ) ) );
+                } else if ( name.startsWith( "is" ) && name.length() > 2 ) {
+                    names.add( Introspector.decapitalize( name.substring( 2 ) ) );
+                }
+            } else if ( params == 1 && name.startsWith( "set" ) && name.length() > 3 ) {
+                names.add( Introspector.decapitalize( name.substring( 3 ) ) );
+            }
+        }
+        return names;
+    }
+
+}
@@ -40,6 +40,7 @@ import org.drools.common.DroolsObjectInputStream;
 import org.drools.common.DroolsObjectOutputStream;
 import org.drools.common.InternalRuleBase;
 import org.drools.common.InternalWorkingMemory;
+import org.drools.core.util.StringUtils;
 import org.drools.reteoo.builder.ReteooRuleBuilder;
 import org.drools.rule.InvalidPatternException;
 import org.drools.rule.Rule;
@@ -129,12 +130,18 @@ public class ReteooBuilder
             return;
         }
         Map map = new HashMap();
+        boolean mostlySequential = this.ruleBase.getConfiguration().isMostlySequential();
 
         for ( Iterator it = this.rules.values().iterator(); it.hasNext(); ) {
             BaseNode[] nodes = (BaseNode[]) it.next();
             for ( int i = 0; i < nodes.length; i++ ) {
                 if ( nodes[i] instanceof RuleTerminalNode ) {
                     RuleTerminalNode node = (RuleTerminalNode) nodes[i];
+                    if ( mostlySequential && !isSequential( node.getRule() ) ) {
+                        // its activations go through the agenda heap
+                        node.setSequence( -1 );
+                        continue;
+                    }
                     String agendaGroup = node.getRule().getAgendaGroup();
                     if ( agendaGroup == null || agendaGroup.equals( "" ) ) {
                         agendaGroup = "MAIN";
@@ -169,6 +176,18 @@ public class ReteooBuilder
         ordered = true;
     }
 
+    /**
+     * Returns whether the activations of the given rule can be fired in the
+     * precomputed order in mostly sequential mode: its consequences do not
+     * change the working memory, it is not in an activation group, whose
+     * firing cancels the other activations of the group, and its salience
+     * and firing time are known in advance.
+     */
+    public static boolean isSequential(Rule rule) {
+        Salience salience = rule.getSalience();
+        return rule.isReadOnly() && StringUtils.isEmpty( rule.getActivationGroup() ) && (salience == null || salience instanceof SalienceInteger) && rule.getTimer() == null;
+    }
+
     public static class RuleSequenceComparator
         implements
         Comparator {
@@ -428,6 +428,10 @@ public class ReteooRuleBase extends AbstractRuleBase {
         super.addPackages( pkgs );
         if ( this.getConfig().isSequential() ) {
             this.reteooBuilder.setOrdered( false );
+        } else if ( this.getConfig().isMostlySequential() ) {
+            // the sessions may already be running, so the rules are ordered straight away
+            this.reteooBuilder.setOrdered( false );
+            this.reteooBuilder.order();
         }
     }
 
@@ -406,6 +406,11 @@ public class RuleTerminalNode extends BaseNode
         workingMemory.getTruthMaintenanceSystem().removeLogicalDependencies( activation,
                                                                              context,
                                                                              this.rule );        
+
+        if ( !activation.isActivated() ) {
+            // the tuple is gone, so the activation may be reused
+            agenda.releaseAgendaItem( item );
+        }
     }
     
 
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.ListIterator;
 
 import org.drools.RuntimeDroolsException;
+import org.drools.base.ClassFieldReader;
 import org.drools.base.ClassObjectType;
 import org.drools.base.DroolsQuery;
 import org.drools.base.mvel.ActivationPropertyHandler;
@@ -36,19 +37,31 @@ import org.drools.reteoo.EntryPointNode;
 import org.drools.reteoo.ObjectSource;
 import org.drools.reteoo.ObjectTypeNode;
 import org.drools.reteoo.PropagationQueuingNode;
+import org.drools.reteoo.PropertyReactiveUtil;
+import org.drools.rule.AbstractCompositeConstraint;
+import org.drools.rule.Accumulate;
 import org.drools.rule.Behavior;
+import org.drools.rule.Collect;
 import org.drools.rule.Declaration;
 import org.drools.rule.EntryPoint;
+import org.drools.rule.EvalCondition;
+import org.drools.rule.Forall;
+import org.drools.rule.From;
 import org.drools.rule.GroupElement;
 import org.drools.rule.InvalidPatternException;
+import org.drools.rule.LiteralConstraint;
 import org.drools.rule.Pattern;
 import org.drools.rule.PatternSource;
+import org.drools.rule.PredicateConstraint;
+import org.drools.rule.QueryElement;
+import org.drools.rule.ReturnValueConstraint;
 import org.drools.rule.RuleConditionElement;
 import org.drools.rule.TypeDeclaration;
 import org.drools.rule.VariableConstraint;
 import org.drools.runtime.rule.Activation;
 import org.drools.spi.AlphaNodeFieldConstraint;
 import org.drools.spi.Constraint;
+import org.drools.spi.InternalReadAccessor;
 import org.drools.spi.ObjectType;
 import org.drools.time.impl.CompositeMaxDurationTimer;
 import org.drools.time.impl.DurationTimer;
@@ -141,6 +154,9 @@ public class PatternBuilder
                 // the entry-point specific network nodes are attached, so, set context to default entry-point 
                 context.setCurrentEntryPoint( EntryPoint.DEFAULT );
             }
+
+            context.getObjectSource().addPropertyMask( calculatePropertyMask( context,
+                                                                              pattern ) );
         }
 
         // last thing to do is increment the offset, since if the pattern has a source,
@@ -226,6 +242,173 @@ public class PatternBuilder
         }
     }
 
+    /**
+     * Calculates the mask of the properties the pattern reads, in its constraints
+     * and bindings. The modifications of the other properties of a property
+     * reactive fact do not need to be propagated to the pattern. If another
+     * element of the rule reads the whole fact, the pattern reads everything.
+     */
+    private long calculatePropertyMask(final BuildContext context,
+                                       final Pattern pattern) {
+        if ( !(pattern.getObjectType() instanceof ClassObjectType) ) {
+            return PropertyReactiveUtil.ALL_PROPERTIES;
+        }
+        final Class< ? > cls = ((ClassObjectType) pattern.getObjectType()).getClassType();
+        if ( !PropertyReactiveUtil.isPropertyReactive( cls ) ) {
+            return PropertyReactiveUtil.ALL_PROPERTIES;
+        }
+        if ( pattern.getDeclaration() != null && isReferenced( getSubRule( context ),
+                                                               pattern.getDeclaration().getIdentifier() ) ) {
+            return PropertyReactiveUtil.ALL_PROPERTIES;
+        }
+
+        long mask = 0;
+        for ( Declaration declaration : pattern.getDeclarations().values() ) {
+            if ( declaration != pattern.getDeclaration() ) {
+                mask |= getPropertyMask( cls,
+                                         declaration.getExtractor() );
+            }
+        }
+        for ( Object object : pattern.getConstraints() ) {
+            if ( object instanceof Constraint ) {
+                mask |= getPropertyMask( cls,
+                                         (Constraint) object );
+            }
+        }
+        return mask;
+    }
+
+    private long getPropertyMask(final Class< ? > cls,
+                                 final Constraint constraint) {
+        if ( constraint instanceof LiteralConstraint ) {
+            return getPropertyMask( cls,
+                                    ((LiteralConstraint) constraint).getFieldExtractor() );
+        } else if ( constraint instanceof VariableConstraint ) {
+            return getPropertyMask( cls,
+                                    ((VariableConstraint) constraint).getFieldExtractor() );
+        } else if ( constraint instanceof ReturnValueConstraint ) {
+            final ReturnValueConstraint returnValue = (ReturnValueConstraint) constraint;
+            return getPropertyMask( cls,
+                                    returnValue.getFieldExtractor() ) | getPropertyMask( cls,
+                                                                                          returnValue.getRestriction().getLocalDeclarations() );
+        } else if ( constraint instanceof PredicateConstraint ) {
+            return getPropertyMask( cls,
+                                    ((PredicateConstraint) constraint).getLocalDeclarations() );
+        } else if ( constraint instanceof AbstractCompositeConstraint ) {
+            final AbstractCompositeConstraint composite = (AbstractCompositeConstraint) constraint;
+            long mask = 0;
+            for ( Constraint nested : composite.getAlphaConstraints() ) {
+                mask |= getPropertyMask( cls,
+                                         nested );
+            }
+            for ( Constraint nested : composite.getBetaConstraints() ) {
+                mask |= getPropertyMask( cls,
+                                         nested );
+            }
+            return mask;
+        } else if ( constraint instanceof InstanceNotEqualsConstraint ) {
+            // compares the fact handles only
+            return 0;
+        }
+        // unknown constraints might read anything
+        return PropertyReactiveUtil.ALL_PROPERTIES;
+    }
+
+    private long getPropertyMask(final Class< ? > cls,
+                                 final Declaration[] declarations) {
+        if ( declarations == null ) {
+            return 0;
+        }
+        long mask = 0;
+        for ( Declaration declaration : declarations ) {
+            mask |= getPropertyMask( cls,
+                                     declaration.getExtractor() );
+        }
+        return mask;
+    }
+
+    private long getPropertyMask(final Class< ? > cls,
+                                 final InternalReadAccessor reader) {
+        if ( reader instanceof ClassFieldReader ) {
+            return PropertyReactiveUtil.getPropertyBit( cls,
+                                                        ((ClassFieldReader) reader).getFieldName() );
+        }
+        // the pattern extractor or an expression, such as a nested accessor
+        return PropertyReactiveUtil.ALL_PROPERTIES;
+    }
+
+    /**
+     * Returns the sub rule being built, the outermost element on the build stack.
+     */
+    private RuleConditionElement getSubRule(final BuildContext context) {
+        RuleConditionElement root = context.getRule().getLhs();
+        for ( ListIterator<RuleConditionElement> it = context.stackIterator(); it.hasPrevious(); ) {
+            root = it.previous();
+        }
+        return root;
+    }
+
+    /**
+     * Returns true if any element, other than the declarations of the patterns,
+     * requires the declaration with the given identifier.
+     */
+    private boolean isReferenced(final RuleConditionElement rce,
+                                 final String identifier) {
+        if ( rce instanceof Pattern ) {
+            for ( Object object : ((Pattern) rce).getConstraints() ) {
+                if ( object instanceof Constraint && isReferenced( ((Constraint) object).getRequiredDeclarations(),
+                                                                   identifier ) ) {
+                    return true;
+                }
+            }
+        } else if ( rce instanceof EvalCondition ) {
+            if ( isReferenced( ((EvalCondition) rce).getRequiredDeclarations(),
+                               identifier ) ) {
+                return true;
+            }
+        } else if ( rce instanceof QueryElement ) {
+            if ( isReferenced( ((QueryElement) rce).getRequiredDeclarations(),
+                               identifier ) ) {
+                return true;
+            }
+        } else if ( rce instanceof From ) {
+            if ( isReferenced( ((From) rce).getDataProvider().getRequiredDeclarations(),
+                               identifier ) ) {
+                return true;
+            }
+        } else if ( rce instanceof Accumulate ) {
+            final Accumulate accumulate = (Accumulate) rce;
+            if ( isReferenced( accumulate.getRequiredDeclarations(),
+                               identifier ) || accumulate.getInnerDeclarations().containsKey( identifier ) ) {
+                return true;
+            }
+        } else if ( !(rce instanceof GroupElement || rce instanceof Collect || rce instanceof Forall || rce instanceof EntryPoint) ) {
+            // an element we know nothing about
+            return true;
+        }
+
+        for ( Object nested : rce.getNestedElements() ) {
+            if ( isReferenced( (RuleConditionElement) nested,
+                               identifier ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isReferenced(final Declaration[] declarations,
+                                 final String identifier) {
+        if ( declarations == null ) {
+            return false;
+        }
+        for ( Declaration declaration : declarations ) {
+            if ( declaration.getIdentifier().equals( identifier ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean isNegative(final BuildContext context) {
         for ( ListIterator<RuleConditionElement> it = context.stackIterator(); it.hasPrevious(); ) {
             RuleConditionElement rce = it.previous();
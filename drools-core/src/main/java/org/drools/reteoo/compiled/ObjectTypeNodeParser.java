@@ -82,6 +82,7 @@ public class ObjectTypeNodeParser {
 
             traverseSinkLisk(composite.getHashableSinks(), handler);
             traverseSinkLisk(composite.getOthers(), handler);
+            traverseSinkLisk(composite.getRangeIndexedSinks(), handler);
             traverseHashedAlphaNodes(composite.getHashedSinkMap(), handler);
         }
     }
@@ -109,6 +110,12 @@ public class ObjectTypeNodeParser {
         }
     }
 
+    private void traverseSinkLisk(ObjectSink[] sinks, NetworkHandler handler) {
+        for (int sinkIndex = 0; sinkIndex < sinks.length; ++sinkIndex) {
+            traverseSink(sinks[sinkIndex], handler);
+        }
+    }
+
     private void traverseSinkLisk(LeftTupleSink[] sinks, NetworkHandler handler) {
         if (sinks != null) {
             for (int sinkIndex = 0; sinkIndex < sinks.length; ++sinkIndex) {
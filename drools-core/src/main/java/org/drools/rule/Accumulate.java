@@ -281,6 +281,10 @@ public class Accumulate extends ConditionalElement
         return this.source;
     }
 
+    public Declaration[] getRequiredDeclarations() {
+        return this.requiredDeclarations;
+    }
+
     public Map<String, Declaration> getInnerDeclarations() {
         return this.source.getInnerDeclarations();
     }
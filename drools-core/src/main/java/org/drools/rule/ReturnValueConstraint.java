@@ -69,6 +69,10 @@ public class ReturnValueConstraint extends MutableTypeConstraint
         this.readAccessor = readAccessor;
     }
 
+    public InternalReadAccessor getFieldExtractor() {
+        return this.readAccessor;
+    }
+
     public Declaration[] getRequiredDeclarations() {
         return this.restriction.getRequiredDeclarations();
     }
@@ -114,6 +114,9 @@ public class Rule
 
     private boolean                  hasLogicalDependency;
 
+    /** Whether the consequences neither change the working memory nor the agenda */
+    private boolean                  readOnly;
+
     /** indicates that the rule is semantically correct. */
     private boolean                  semanticallyValid;
 
@@ -164,6 +167,7 @@ public class Rule
         out.writeObject( enabled );
         out.writeObject( resource );
         out.writeObject( activationListener );
+        out.writeBoolean( readOnly );
     }
 
     @SuppressWarnings("unchecked")
@@ -199,6 +203,7 @@ public class Rule
         enabled = (Enabled) in.readObject();
         resource = (Resource) in.readObject();
         activationListener = ( String ) in.readObject();
+        readOnly = in.readBoolean();
     }
 
     // ------------------------------------------------------------
@@ -471,6 +476,20 @@ public class Rule
         this.hasLogicalDependency = hasLogicalDependency;
     }
 
+    /**
+     * Returns whether the consequences of this rule were found, when it was
+     * built, to neither insert, modify nor retract facts, nor to use the
+     * knowledge helper, so that firing it never changes the other
+     * activations.
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
     public boolean isLockOnActive() {
         return this.lockOnActive;
     }
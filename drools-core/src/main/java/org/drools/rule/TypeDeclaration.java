@@ -54,6 +54,7 @@ public class TypeDeclaration
     public static final String ATTR_KEY                 = "key";
     public static final String ATTR_FIELD_POSITION      = "position";
     public static final String ATTR_PROP_CHANGE_SUPPORT = "propertyChangeSupport";
+    public static final String ATTR_COMPACT             = "compact";
 
     public int setMask                                  = 0;
     
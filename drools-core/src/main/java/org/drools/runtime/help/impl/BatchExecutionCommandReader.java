@@ -0,0 +1,142 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.runtime.help.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.drools.command.impl.GenericCommand;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+
+/**
+ * Decodes the commands of a batch execution one at a time, as they are read
+ * from the stream, rather than decoding the whole batch execution at once,
+ * so that they can be executed while the rest of the batch is read.
+ *
+ * Reads both the XML batch executions, where the commands are the children
+ * of the batch-execution element, and the JSON ones, where they are in a
+ * commands container. The lookup is known once it has been read, that is
+ * from the start with XML.
+ *
+ * Each command is decoded on its own, so references between commands are
+ * not supported.
+ */
+public class BatchExecutionCommandReader
+    implements
+    Iterator<GenericCommand< ? >> {
+
+    private final XStream                  xstream;
+    private final HierarchicalStreamReader reader;
+
+    private String                         lookup;
+
+    /** Whether the reader is in the commands container of a JSON batch */
+    private boolean                        inCommands;
+
+    private GenericCommand< ? >            next;
+
+    public BatchExecutionCommandReader(XStream xstream,
+                                       HierarchicalStreamReader reader) {
+        this.xstream = xstream;
+        this.reader = reader;
+        if ( !"batch-execution".equals( reader.getNodeName() ) ) {
+            throw new IllegalArgumentException( "Expected a batch-execution but found '" + reader.getNodeName() + "'" );
+        }
+        this.lookup = reader.getAttribute( "lookup" );
+    }
+
+    public String getLookup() {
+        return this.lookup;
+    }
+
+    public boolean hasNext() {
+        if ( this.next == null ) {
+            this.next = readNext();
+        }
+        return this.next != null;
+    }
+
+    public GenericCommand< ? > next() {
+        if ( !hasNext() ) {
+            throw new NoSuchElementException();
+        }
+        GenericCommand< ? > command = this.next;
+        this.next = null;
+        return command;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads the remaining commands and returns the batch execution they form.
+     */
+    public BatchExecutionCommandImpl readAll() {
+        List<GenericCommand< ? >> commands = new ArrayList<GenericCommand< ? >>();
+        while ( hasNext() ) {
+            commands.add( next() );
+        }
+        return new BatchExecutionCommandImpl( commands,
+                                              this.lookup );
+    }
+
+    public void close() {
+        this.reader.close();
+    }
+
+    private GenericCommand< ? > readNext() {
+        while ( true ) {
+            if ( this.inCommands ) {
+                if ( this.reader.hasMoreChildren() ) {
+                    this.reader.moveDown();
+                    return readCommand();
+                }
+                this.reader.moveUp();
+                this.inCommands = false;
+            }
+            if ( !this.reader.hasMoreChildren() ) {
+                return null;
+            }
+            this.reader.moveDown();
+            String name = this.reader.getNodeName();
+            if ( "commands".equals( name ) ) {
+                this.inCommands = true;
+            } else if ( "lookup".equals( name ) ) {
+                this.lookup = this.reader.getValue();
+                this.reader.moveUp();
+            } else {
+                return readCommand();
+            }
+        }
+    }
+
+    /**
+     * Decodes the command of the current node and moves back up to its parent.
+     */
+    private GenericCommand< ? > readCommand() {
+        GenericCommand< ? > command = (GenericCommand< ? >) this.xstream.unmarshal( this.reader );
+        this.reader.moveUp();
+        return command;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.runtime.help.impl;
+
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.json.JettisonMappedXmlDriver;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * The XML and JSON batch execution marshallers shared by all the threads,
+ * one of each per class loader, as creating one and registering all its
+ * converters takes much longer than most (un)marshallings.
+ *
+ * XStream instances are thread safe once configured, so the shared
+ * marshallers must not be configured further: the callers needing aliases
+ * or converters of their own still create their marshallers with the
+ * BatchExecutionHelper.
+ *
+ * The marshallers reference their class loader, so they are only softly
+ * referenced in order not to keep the class loaders of undeployed
+ * applications.
+ */
+public final class BatchExecutionMarshallers {
+
+    private static final Map<ClassLoader, SoftReference<XStream>> xmlMarshallers  = new WeakHashMap<ClassLoader, SoftReference<XStream>>();
+
+    private static final Map<ClassLoader, SoftReference<XStream>> jsonMarshallers = new WeakHashMap<ClassLoader, SoftReference<XStream>>();
+
+    private BatchExecutionMarshallers() {
+    }
+
+    /**
+     * Returns the shared XML marshaller loading the classes of the facts
+     * with the given class loader.
+     */
+    public static XStream getXStreamMarshaller(ClassLoader classLoader) {
+        synchronized ( xmlMarshallers ) {
+            XStream xstream = get( xmlMarshallers,
+                                   classLoader );
+            if ( xstream == null ) {
+                xstream = XStreamXML.newXStreamMarshaller( new XStream() );
+                if ( classLoader != null ) {
+                    xstream.setClassLoader( classLoader );
+                }
+                xmlMarshallers.put( classLoader,
+                                    new SoftReference<XStream>( xstream ) );
+            }
+            return xstream;
+        }
+    }
+
+    /**
+     * Returns the shared JSON marshaller loading the classes of the facts
+     * with the given class loader.
+     */
+    public static XStream getJSonMarshaller(ClassLoader classLoader) {
+        synchronized ( jsonMarshallers ) {
+            XStream xstream = get( jsonMarshallers,
+                                   classLoader );
+            if ( xstream == null ) {
+                xstream = XStreamJSon.newJSonMarshaller();
+                if ( classLoader != null ) {
+                    xstream.setClassLoader( classLoader );
+                }
+                jsonMarshallers.put( classLoader,
+                                     new SoftReference<XStream>( xstream ) );
+            }
+            return xstream;
+        }
+    }
+
+    /**
+     * Returns a reader decoding the commands of the given XML batch
+     * execution one at a time.
+     */
+    public static BatchExecutionCommandReader newXStreamReader(ClassLoader classLoader,
+                                                               Reader reader) {
+        return new BatchExecutionCommandReader( getXStreamMarshaller( classLoader ),
+                                                new XppDriver().createReader( reader ) );
+    }
+
+    /**
+     * Returns a reader decoding the commands of the given JSON batch
+     * execution one at a time.
+     */
+    public static BatchExecutionCommandReader newJSonReader(ClassLoader classLoader,
+                                                            Reader reader) {
+        return new BatchExecutionCommandReader( getJSonMarshaller( classLoader ),
+                                                new JettisonMappedXmlDriver().createReader( reader ) );
+    }
+
+    static void clear() {
+        synchronized ( xmlMarshallers ) {
+            xmlMarshallers.clear();
+        }
+        synchronized ( jsonMarshallers ) {
+            jsonMarshallers.clear();
+        }
+    }
+
+    private static XStream get(Map<ClassLoader, SoftReference<XStream>> marshallers,
+                               ClassLoader classLoader) {
+        SoftReference<XStream> reference = marshallers.get( classLoader );
+        return reference == null ? null : reference.get();
+    }
+
+}
@@ -0,0 +1,666 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.runtime.help.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.drools.command.impl.GenericCommand;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+import org.drools.command.runtime.GetGlobalCommand;
+import org.drools.command.runtime.SetGlobalCommand;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.GetObjectsCommand;
+import org.drools.command.runtime.rule.InsertElementsCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+import org.drools.command.runtime.rule.QueryCommand;
+import org.drools.command.runtime.rule.RetractCommand;
+import org.drools.common.DefaultFactHandle;
+import org.drools.common.InternalFactHandle;
+import org.drools.runtime.ExecutionResults;
+import org.drools.runtime.impl.ExecutionResultImpl;
+import org.drools.runtime.rule.FactHandle;
+import org.drools.runtime.rule.QueryResults;
+import org.drools.runtime.rule.QueryResultsRow;
+import org.drools.runtime.rule.impl.FlatQueryResults;
+
+/**
+ * Encodes the batch executions, their commands and their
+ * <code>ExecutionResults</code> in a compact binary format, for the remote
+ * clients for which the XML and JSON marshallings cost more than executing
+ * the commands.
+ *
+ * Each command is written as a tag followed by its fields in a fixed order,
+ * and each value as a tag followed by its content. The facts of the common
+ * types are written directly, those accepted by a registered
+ * <code>FactSerializer</code> by it, and the others with the Java
+ * serialization.
+ *
+ * The commands are read from and written to <code>ByteBuffer</code>s, so they
+ * can be read and written in place, including in direct buffers, without
+ * going through streams. A codec is thread safe once its serializers are
+ * registered.
+ */
+public class BinaryCommandCodec {
+
+    private static final byte       MAGIC            = (byte) 0xD5;
+    private static final byte       VERSION          = 1;
+
+    // commands
+    private static final byte       BATCH_EXECUTION  = 1;
+    private static final byte       INSERT           = 2;
+    private static final byte       INSERT_ELEMENTS  = 3;
+    private static final byte       RETRACT          = 4;
+    private static final byte       FIRE_ALL_RULES   = 5;
+    private static final byte       QUERY            = 6;
+    private static final byte       SET_GLOBAL       = 7;
+    private static final byte       GET_GLOBAL       = 8;
+    private static final byte       GET_OBJECTS      = 9;
+    private static final byte       RESULTS          = 10;
+
+    // values
+    private static final byte       NULL             = 0;
+    private static final byte       STRING           = 1;
+    private static final byte       INTEGER          = 2;
+    private static final byte       LONG             = 3;
+    private static final byte       DOUBLE           = 4;
+    private static final byte       BOOLEAN          = 5;
+    private static final byte       FACT_HANDLE      = 6;
+    private static final byte       LIST             = 7;
+    private static final byte       MAP              = 8;
+    private static final byte       QUERY_RESULTS    = 9;
+    private static final byte       SERIALIZED       = 10;
+    private static final byte       CUSTOM           = 11;
+
+    private final ClassLoader       classLoader;
+
+    private final List<FactSerializer> serializers;
+
+    public BinaryCommandCodec() {
+        this( null );
+    }
+
+    /**
+     * Creates a codec reading the serialized facts with the given class
+     * loader, or the context class loader if null.
+     */
+    public BinaryCommandCodec(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.serializers = new ArrayList<FactSerializer>();
+    }
+
+    /**
+     * Registers a serializer, the readers of the commands having to register
+     * the same serializers in the same order as their writers.
+     */
+    public void addFactSerializer(FactSerializer serializer) {
+        if ( this.serializers.size() == 255 ) {
+            throw new IllegalStateException( "No more than 255 fact serializers can be registered" );
+        }
+        this.serializers.add( serializer );
+    }
+
+    /**
+     * Writes the given batch execution, command or execution results into
+     * the given buffer from its position, and returns the buffer holding
+     * them, which is a larger one if the given buffer was too small.
+     */
+    public ByteBuffer encode(Object object,
+                             ByteBuffer buffer) {
+        Output out = new Output( buffer );
+        out.putByte( MAGIC );
+        out.putByte( VERSION );
+        if ( object instanceof ExecutionResults ) {
+            out.putByte( RESULTS );
+            writeResults( out,
+                          (ExecutionResults) object );
+        } else {
+            writeCommand( out,
+                          object );
+        }
+        return out.buffer;
+    }
+
+    /**
+     * Returns the bytes of the given batch execution, command or execution
+     * results.
+     */
+    public byte[] encode(Object object) {
+        ByteBuffer buffer = encode( object,
+                                    ByteBuffer.allocate( 256 ) );
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get( bytes );
+        return bytes;
+    }
+
+    /**
+     * Reads a batch execution, command or execution results from the given
+     * buffer, which is left positioned after them.
+     */
+    public Object decode(ByteBuffer in) {
+        if ( in.get() != MAGIC ) {
+            throw new IllegalArgumentException( "Not a binary encoded command" );
+        }
+        byte version = in.get();
+        if ( version != VERSION ) {
+            throw new IllegalArgumentException( "Unsupported binary command version " + version );
+        }
+        return readCommand( in );
+    }
+
+    public Object decode(byte[] bytes) {
+        return decode( ByteBuffer.wrap( bytes ) );
+    }
+
+    private void writeCommand(Output out,
+                              Object command) {
+        if ( command instanceof BatchExecutionCommandImpl ) {
+            BatchExecutionCommandImpl batch = (BatchExecutionCommandImpl) command;
+            out.putByte( BATCH_EXECUTION );
+            out.putString( batch.getLookup() );
+            List<GenericCommand< ? >> commands = batch.getCommands();
+            out.putInt( commands.size() );
+            for ( GenericCommand< ? > child : commands ) {
+                writeCommand( out,
+                              child );
+            }
+        } else if ( command instanceof InsertObjectCommand ) {
+            InsertObjectCommand insert = (InsertObjectCommand) command;
+            out.putByte( INSERT );
+            out.putString( insert.getOutIdentifier() );
+            out.putString( insert.getEntryPoint() );
+            out.putByte( (byte) ((insert.isReturnObject() ? 1 : 0) | (insert.isDisconnected() ? 2 : 0)) );
+            writeValue( out,
+                        insert.getObject() );
+        } else if ( command instanceof InsertElementsCommand ) {
+            InsertElementsCommand insert = (InsertElementsCommand) command;
+            out.putByte( INSERT_ELEMENTS );
+            out.putString( insert.getOutIdentifier() );
+            out.putString( insert.getEntryPoint() );
+            out.putByte( (byte) (insert.isReturnObject() ? 1 : 0) );
+            out.putInt( insert.getObjects().size() );
+            for ( Object object : insert.getObjects() ) {
+                writeValue( out,
+                            object );
+            }
+        } else if ( command instanceof RetractCommand ) {
+            out.putByte( RETRACT );
+            out.putString( ((InternalFactHandle) ((RetractCommand) command).getFactHandle()).toExternalForm() );
+        } else if ( command instanceof FireAllRulesCommand ) {
+            FireAllRulesCommand fire = (FireAllRulesCommand) command;
+            if ( fire.getAgendaFilter() != null ) {
+                throw new IllegalArgumentException( "The agenda filter of " + command + " can not be encoded" );
+            }
+            out.putByte( FIRE_ALL_RULES );
+            out.putString( fire.getOutIdentifier() );
+            out.putInt( fire.getMax() );
+        } else if ( command instanceof QueryCommand ) {
+            QueryCommand query = (QueryCommand) command;
+            out.putByte( QUERY );
+            out.putString( query.getOutIdentifier() );
+            out.putString( query.getName() );
+            writeValue( out,
+                        query.getArguments() );
+        } else if ( command instanceof SetGlobalCommand ) {
+            SetGlobalCommand set = (SetGlobalCommand) command;
+            out.putByte( SET_GLOBAL );
+            out.putString( set.getIdentifier() );
+            out.putString( set.getOutIdentifier() );
+            out.putByte( (byte) (set.isOut() ? 1 : 0) );
+            writeValue( out,
+                        set.getObject() );
+        } else if ( command instanceof GetGlobalCommand ) {
+            GetGlobalCommand get = (GetGlobalCommand) command;
+            out.putByte( GET_GLOBAL );
+            out.putString( get.getIdentifier() );
+            out.putString( get.getOutIdentifier() );
+        } else if ( command instanceof GetObjectsCommand ) {
+            if ( ((GetObjectsCommand) command).getFilter() != null ) {
+                throw new IllegalArgumentException( "The object filter of " + command + " can not be encoded" );
+            }
+            out.putByte( GET_OBJECTS );
+            out.putString( ((GetObjectsCommand) command).getOutIdentifier() );
+        } else {
+            throw new IllegalArgumentException( "The command " + command + " can not be encoded" );
+        }
+    }
+
+    private Object readCommand(ByteBuffer in) {
+        byte tag = in.get();
+        switch ( tag ) {
+            case BATCH_EXECUTION : {
+                String lookup = getString( in );
+                int size = in.getInt();
+                List<GenericCommand< ? >> commands = new ArrayList<GenericCommand< ? >>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    commands.add( (GenericCommand< ? >) readCommand( in ) );
+                }
+                return new BatchExecutionCommandImpl( commands,
+                                                      lookup );
+            }
+            case INSERT : {
+                InsertObjectCommand insert = new InsertObjectCommand();
+                insert.setOutIdentifier( getString( in ) );
+                insert.setEntryPoint( getString( in ) );
+                byte flags = in.get();
+                insert.setReturnObject( (flags & 1) != 0 );
+                insert.setDisconnected( (flags & 2) != 0 );
+                insert.setObject( readValue( in ) );
+                return insert;
+            }
+            case INSERT_ELEMENTS : {
+                InsertElementsCommand insert = new InsertElementsCommand();
+                insert.setOutIdentifier( getString( in ) );
+                insert.setEntryPoint( getString( in ) );
+                insert.setReturnObject( in.get() != 0 );
+                int size = in.getInt();
+                List<Object> objects = new ArrayList<Object>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    objects.add( readValue( in ) );
+                }
+                insert.setObjects( objects );
+                return insert;
+            }
+            case RETRACT :
+                return new RetractCommand( new DefaultFactHandle( getString( in ) ) );
+            case FIRE_ALL_RULES : {
+                FireAllRulesCommand fire = new FireAllRulesCommand();
+                fire.setOutIdentifier( getString( in ) );
+                fire.setMax( in.getInt() );
+                return fire;
+            }
+            case QUERY : {
+                QueryCommand query = new QueryCommand();
+                query.setOutIdentifier( getString( in ) );
+                query.setName( getString( in ) );
+                query.setArguments( (List<Object>) readValue( in ) );
+                return query;
+            }
+            case SET_GLOBAL : {
+                SetGlobalCommand set = new SetGlobalCommand();
+                set.setIdentifier( getString( in ) );
+                set.setOutIdentifier( getString( in ) );
+                set.setOut( in.get() != 0 );
+                set.setObject( readValue( in ) );
+                return set;
+            }
+            case GET_GLOBAL : {
+                GetGlobalCommand get = new GetGlobalCommand( getString( in ) );
+                get.setOutIdentifier( getString( in ) );
+                return get;
+            }
+            case GET_OBJECTS : {
+                GetObjectsCommand get = new GetObjectsCommand();
+                get.setOutIdentifier( getString( in ) );
+                return get;
+            }
+            case RESULTS :
+                return readResults( in );
+            default :
+                throw new IllegalArgumentException( "Unknown binary command " + tag );
+        }
+    }
+
+    private void writeResults(Output out,
+                              ExecutionResults results) {
+        Collection<String> identifiers = results.getIdentifiers();
+        out.putInt( identifiers.size() );
+        for ( String identifier : identifiers ) {
+            out.putString( identifier );
+            writeValue( out,
+                        results.getValue( identifier ) );
+            writeValue( out,
+                        results.getFactHandle( identifier ) );
+        }
+    }
+
+    private ExecutionResults readResults(ByteBuffer in) {
+        ExecutionResultImpl results = new ExecutionResultImpl();
+        int size = in.getInt();
+        for ( int i = 0; i < size; i++ ) {
+            String identifier = getString( in );
+            results.getResults().put( identifier,
+                                      readValue( in ) );
+            Object handle = readValue( in );
+            if ( handle != null ) {
+                results.getFactHandles().put( identifier,
+                                              handle );
+            }
+        }
+        return results;
+    }
+
+    private void writeValue(Output out,
+                            Object value) {
+        if ( value == null ) {
+            out.putByte( NULL );
+        } else if ( value instanceof String ) {
+            out.putByte( STRING );
+            out.putString( (String) value );
+        } else if ( value instanceof Integer ) {
+            out.putByte( INTEGER );
+            out.putInt( ((Integer) value).intValue() );
+        } else if ( value instanceof Long ) {
+            out.putByte( LONG );
+            out.ensure( 8 );
+            out.buffer.putLong( ((Long) value).longValue() );
+        } else if ( value instanceof Double ) {
+            out.putByte( DOUBLE );
+            out.ensure( 8 );
+            out.buffer.putDouble( ((Double) value).doubleValue() );
+        } else if ( value instanceof Boolean ) {
+            out.putByte( BOOLEAN );
+            out.putByte( (byte) (((Boolean) value).booleanValue() ? 1 : 0) );
+        } else if ( value instanceof InternalFactHandle ) {
+            out.putByte( FACT_HANDLE );
+            out.putString( ((InternalFactHandle) value).toExternalForm() );
+        } else if ( value instanceof QueryResults ) {
+            out.putByte( QUERY_RESULTS );
+            writeQueryResults( out,
+                               (QueryResults) value );
+        } else if ( !writeCustom( out,
+                                  value ) ) {
+            if ( value instanceof List ) {
+                List< ? > list = (List< ? >) value;
+                out.putByte( LIST );
+                out.putInt( list.size() );
+                for ( Object element : list ) {
+                    writeValue( out,
+                                element );
+                }
+            } else if ( value instanceof Map && isStringKeyed( (Map< ? , ? >) value ) ) {
+                Map< ? , ? > map = (Map< ? , ? >) value;
+                out.putByte( MAP );
+                out.putInt( map.size() );
+                for ( Entry< ? , ? > entry : map.entrySet() ) {
+                    out.putString( (String) entry.getKey() );
+                    writeValue( out,
+                                entry.getValue() );
+                }
+            } else if ( value instanceof Serializable ) {
+                out.putByte( SERIALIZED );
+                out.putBytes( serialize( value ) );
+            } else {
+                throw new IllegalArgumentException( "The fact " + value + " is not serializable and no FactSerializer accepts it" );
+            }
+        }
+    }
+
+    private boolean writeCustom(Output out,
+                                Object value) {
+        for ( int i = 0; i < this.serializers.size(); i++ ) {
+            FactSerializer serializer = this.serializers.get( i );
+            if ( serializer.accept( value ) ) {
+                out.putByte( CUSTOM );
+                out.putByte( (byte) i );
+                serializer.write( out,
+                                  value );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch ( tag ) {
+            case NULL :
+                return null;
+            case STRING :
+                return getString( in );
+            case INTEGER :
+                return Integer.valueOf( in.getInt() );
+            case LONG :
+                return Long.valueOf( in.getLong() );
+            case DOUBLE :
+                return Double.valueOf( in.getDouble() );
+            case BOOLEAN :
+                return Boolean.valueOf( in.get() != 0 );
+            case FACT_HANDLE :
+                return new DefaultFactHandle( getString( in ) );
+            case LIST : {
+                int size = in.getInt();
+                List<Object> list = new ArrayList<Object>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    list.add( readValue( in ) );
+                }
+                return list;
+            }
+            case MAP : {
+                int size = in.getInt();
+                Map<String, Object> map = new HashMap<String, Object>( size * 2 );
+                for ( int i = 0; i < size; i++ ) {
+                    String key = getString( in );
+                    map.put( key,
+                             readValue( in ) );
+                }
+                return map;
+            }
+            case QUERY_RESULTS :
+                return readQueryResults( in );
+            case SERIALIZED : {
+                byte[] bytes = new byte[in.getInt()];
+                in.get( bytes );
+                return deserialize( bytes );
+            }
+            case CUSTOM : {
+                int index = in.get() & 0xff;
+                if ( index >= this.serializers.size() ) {
+                    throw new IllegalArgumentException( "No FactSerializer registered at " + index );
+                }
+                return this.serializers.get( index ).read( in );
+            }
+            default :
+                throw new IllegalArgumentException( "Unknown binary value " + tag );
+        }
+    }
+
+    private void writeQueryResults(Output out,
+                                   QueryResults results) {
+        String[] identifiers = results.getIdentifiers();
+        out.putInt( identifiers.length );
+        for ( String identifier : identifiers ) {
+            out.putString( identifier );
+        }
+        out.putInt( results.size() );
+        for ( QueryResultsRow row : results ) {
+            for ( String identifier : identifiers ) {
+                writeValue( out,
+                            row.get( identifier ) );
+                writeValue( out,
+                            row.getFactHandle( identifier ) );
+            }
+        }
+    }
+
+    private QueryResults readQueryResults(ByteBuffer in) {
+        int length = in.getInt();
+        Map<String, Integer> identifiers = new LinkedHashMap<String, Integer>( length * 2 );
+        for ( int i = 0; i < length; i++ ) {
+            identifiers.put( getString( in ),
+                             i );
+        }
+        int size = in.getInt();
+        ArrayList<ArrayList<Object>> results = new ArrayList<ArrayList<Object>>( size );
+        ArrayList<ArrayList<FactHandle>> factHandles = new ArrayList<ArrayList<FactHandle>>( size );
+        for ( int i = 0; i < size; i++ ) {
+            ArrayList<Object> row = new ArrayList<Object>( length );
+            ArrayList<FactHandle> rowHandles = new ArrayList<FactHandle>( length );
+            for ( int j = 0; j < length; j++ ) {
+                row.add( readValue( in ) );
+                rowHandles.add( (FactHandle) readValue( in ) );
+            }
+            results.add( row );
+            factHandles.add( rowHandles );
+        }
+        return new FlatQueryResults( identifiers,
+                                     results,
+                                     factHandles );
+    }
+
+    private static boolean isStringKeyed(Map< ? , ? > map) {
+        for ( Object key : map.keySet() ) {
+            if ( !(key instanceof String) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream( bytes );
+            out.writeObject( value );
+            out.close();
+            return bytes.toByteArray();
+        } catch ( IOException e ) {
+            throw new IllegalArgumentException( "Unable to serialize " + value,
+                                                e );
+        }
+    }
+
+    private Object deserialize(byte[] bytes) {
+        try {
+            final ClassLoader classLoader = this.classLoader != null ? this.classLoader : Thread.currentThread().getContextClassLoader();
+            ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) {
+                protected Class< ? > resolveClass(ObjectStreamClass desc) throws IOException,
+                                                                         ClassNotFoundException {
+                    if ( classLoader == null ) {
+                        return super.resolveClass( desc );
+                    }
+                    try {
+                        return Class.forName( desc.getName(),
+                                              false,
+                                              classLoader );
+                    } catch ( ClassNotFoundException e ) {
+                        return super.resolveClass( desc );
+                    }
+                }
+            };
+            return in.readObject();
+        } catch ( IOException e ) {
+            throw new IllegalArgumentException( "Unable to deserialize a fact",
+                                                e );
+        } catch ( ClassNotFoundException e ) {
+            throw new IllegalArgumentException( "Unable to deserialize a fact",
+                                                e );
+        }
+    }
+
+    /**
+     * Reads a string written by <code>Output.putString</code>.
+     */
+    public static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        try {
+            if ( in.hasArray() ) {
+                // decodes in place
+                String string = new String( in.array(),
+                                            in.arrayOffset() + in.position(),
+                                            length,
+                                            "UTF-8" );
+                in.position( in.position() + length );
+                return string;
+            }
+            byte[] bytes = new byte[length];
+            in.get( bytes );
+            return new String( bytes,
+                               "UTF-8" );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( "UTF-8 is not available: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Where the commands are written, growing the buffer as needed.
+     */
+    public static final class Output {
+        private ByteBuffer buffer;
+
+        Output(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public ByteBuffer getBuffer() {
+            return this.buffer;
+        }
+
+        /**
+         * Makes room for the given number of bytes at the position.
+         */
+        public ByteBuffer ensure(int length) {
+            if ( this.buffer.remaining() < length ) {
+                int capacity = Math.max( this.buffer.capacity() * 2,
+                                         this.buffer.position() + length );
+                ByteBuffer grown = this.buffer.isDirect() ? ByteBuffer.allocateDirect( capacity ) : ByteBuffer.allocate( capacity );
+                this.buffer.flip();
+                grown.put( this.buffer );
+                this.buffer = grown;
+            }
+            return this.buffer;
+        }
+
+        public void putByte(byte value) {
+            ensure( 1 ).put( value );
+        }
+
+        public void putInt(int value) {
+            ensure( 4 ).putInt( value );
+        }
+
+        public void putBytes(byte[] bytes) {
+            ensure( 4 + bytes.length ).putInt( bytes.length );
+            this.buffer.put( bytes );
+        }
+
+        /**
+         * Writes the length of the string in UTF-8, or -1 if null, then its
+         * UTF-8 bytes.
+         */
+        public void putString(String value) {
+            if ( value == null ) {
+                putInt( -1 );
+                return;
+            }
+            try {
+                putBytes( value.getBytes( "UTF-8" ) );
+            } catch ( UnsupportedEncodingException e ) {
+                throw new IllegalStateException( "UTF-8 is not available: " + e.getMessage() );
+            }
+        }
+    }
+
+}
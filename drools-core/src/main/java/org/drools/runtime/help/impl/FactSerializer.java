@@ -0,0 +1,42 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.runtime.help.impl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes and reads the facts of some type for the
+ * <code>BinaryCommandCodec</code>, the facts of the other types being
+ * written with the Java serialization.
+ */
+public interface FactSerializer {
+
+    /**
+     * Returns whether this serializer writes the given fact.
+     */
+    boolean accept(Object object);
+
+    void write(BinaryCommandCodec.Output out,
+               Object object);
+
+    /**
+     * Reads a fact written by this serializer, the buffer being positioned
+     * at its start.
+     */
+    Object read(ByteBuffer in);
+
+}
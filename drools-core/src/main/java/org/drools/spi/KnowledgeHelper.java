@@ -89,6 +89,15 @@ public interface KnowledgeHelper
     
     void update(FactHandle handle,
                       Object newObject) ;
+
+    /**
+     * Updates a fact of which only the given properties changed. If its
+     * class is property reactive, the patterns that read none of them keep
+     * their matches, so the rules they take part in are not fired again.
+     */
+    void update(FactHandle handle,
+                Object newObject,
+                String... modifiedProperties) ;
     
     void update( FactHandle newObject ) ;
     
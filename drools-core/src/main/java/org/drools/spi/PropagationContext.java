@@ -84,4 +84,13 @@ public interface PropagationContext
 
     public void evaluateActionQueue(InternalWorkingMemory workingMemory); 
 
+    /**
+     * Returns the bit mask of the properties changed by the modification
+     * being propagated, as computed by PropertyReactiveUtil. All bits are set
+     * unless the modification was restricted to some properties.
+     */
+    public long getModificationMask();
+
+    public void setModificationMask(long modificationMask);
+
 }
@@ -245,6 +245,8 @@ public class CronExpression implements Serializable, Cloneable {
     protected transient boolean lastdayOfMonth = false;
     protected transient boolean nearestWeekday = false;
     protected transient boolean expressionParsed = false;
+    private transient CronSchedule schedule = null;
+    private transient boolean scheduleResolved = false;
     
     /**
      * Constructs a new <CODE>CronExpression</CODE> based on the specified 
@@ -355,6 +357,7 @@ public class CronExpression implements Serializable, Cloneable {
      */
     public void setTimeZone(TimeZone timeZone) {
         this.timeZone = timeZone;
+        this.scheduleResolved = false;
     }
     
     /**
@@ -1101,6 +1104,21 @@ public class CronExpression implements Serializable, Cloneable {
     ////////////////////////////////////////////////////////////////////////////
 
     protected Date getTimeAfter(Date afterTime) {
+        if (!scheduleResolved) {
+            schedule = CronSchedule.getSchedule(this, getTimeZone());
+            scheduleResolved = true;
+        }
+        if (schedule != null) {
+            long next = schedule.getTimeAfter(afterTime.getTime());
+            if (next >= 0) {
+                return new Date(next);
+            }
+        }
+        // the special characters and the daylight saving transitions
+        return getTimeAfterWithCalendar(afterTime);
+    }
+
+    protected Date getTimeAfterWithCalendar(Date afterTime) {
 
         Calendar cl = Calendar.getInstance(getTimeZone());
 
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.time.impl;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The compiled form of a CronExpression, with each field as a bit mask, that
+ * computes the fire times with plain arithmetic on the local time instead of
+ * walking a java.util.Calendar.
+ *
+ * A schedule is shared by all the expressions with the same text and time
+ * zone, and caches the upcoming fire times, so the triggers firing together
+ * compute their next fire time only once.
+ *
+ * Only the expressions without the L, W and # special characters are
+ * compiled. The fire times are only computed when the offset of the time zone
+ * is the same at both ends of the search, so the daylight saving transitions
+ * are left to the Calendar of the CronExpression.
+ */
+public final class CronSchedule {
+
+    private static final int                                 CACHED_FIRE_TIMES = 16;
+
+    private static final int                                 MAX_SHARED        = 1024;
+
+    private static final int                                 MAX_YEAR          = 2999;
+
+    private static final long                                SECOND            = 1000L;
+
+    private static final long                                DAY               = 86400000L;
+
+    /** No two daylight saving transitions are this close */
+    private static final long                                MAX_SPAN          = 7 * DAY;
+
+    private static final ConcurrentMap<String, CronSchedule> shared            = new ConcurrentHashMap<String, CronSchedule>();
+
+    private final long                                       seconds;
+    private final long                                       minutes;
+    private final long                                       hours;
+    private final long                                       daysOfMonth;
+    private final long                                       months;
+    private final long                                       daysOfWeek;
+    private final boolean                                    dayOfMonthSpec;
+    private final BitSet                                     years;
+
+    private final TimeZone                                   timeZone;
+    private final boolean                                    daylight;
+
+    private volatile FireTimes                               fireTimes;
+
+    private CronSchedule(CronExpression expression,
+                         TimeZone timeZone) {
+        this.seconds = toMask( expression.seconds );
+        this.minutes = toMask( expression.minutes );
+        this.hours = toMask( expression.hours );
+        this.daysOfMonth = toMask( expression.daysOfMonth );
+        this.months = toMask( expression.months );
+        this.daysOfWeek = toMask( expression.daysOfWeek );
+        this.dayOfMonthSpec = !expression.daysOfMonth.contains( CronExpression.NO_SPEC );
+        this.years = new BitSet();
+        for ( Iterator it = expression.years.iterator(); it.hasNext(); ) {
+            int year = ((Integer) it.next()).intValue();
+            if ( year != CronExpression.ALL_SPEC_INT && year != CronExpression.NO_SPEC_INT ) {
+                this.years.set( year );
+            }
+        }
+        this.timeZone = timeZone;
+        this.daylight = timeZone.useDaylightTime();
+    }
+
+    /**
+     * Returns the schedule of the given expression in the given time zone,
+     * or null if the expression uses a feature that is not compiled.
+     */
+    public static CronSchedule getSchedule(CronExpression expression,
+                                           TimeZone timeZone) {
+        if ( expression.lastdayOfWeek || expression.nthdayOfWeek != 0 || expression.lastdayOfMonth || expression.nearestWeekday ) {
+            return null;
+        }
+        String key = expression.getCronExpression() + "|" + timeZone.getID();
+        CronSchedule schedule = shared.get( key );
+        if ( schedule != null ) {
+            if ( schedule.timeZone.hasSameRules( timeZone ) ) {
+                return schedule;
+            }
+            // a custom time zone reusing an id, do not share it
+            return new CronSchedule( expression,
+                                     timeZone );
+        }
+        if ( shared.size() >= MAX_SHARED ) {
+            shared.clear();
+        }
+        schedule = new CronSchedule( expression,
+                                     timeZone );
+        CronSchedule existing = shared.putIfAbsent( key,
+                                                    schedule );
+        return existing != null ? existing : schedule;
+    }
+
+    /**
+     * Returns the first fire time after the second of the given time, or -1
+     * if it can not be computed without a Calendar.
+     */
+    public long getTimeAfter(long afterTime) {
+        final long from = floor( afterTime,
+                                 SECOND );
+        final FireTimes cached = this.fireTimes;
+        if ( cached != null && from >= cached.from ) {
+            long next = cached.getTimeAfter( from );
+            if ( next >= 0 ) {
+                return next;
+            }
+        }
+
+        long[] times = new long[CACHED_FIRE_TIMES];
+        int size = 0;
+        long time = from;
+        while ( size < CACHED_FIRE_TIMES ) {
+            time = computeTimeAfter( time );
+            if ( time < 0 ) {
+                break;
+            }
+            times[size++] = time;
+        }
+        if ( size == 0 ) {
+            return -1;
+        }
+        if ( size < CACHED_FIRE_TIMES ) {
+            long[] copy = new long[size];
+            System.arraycopy( times,
+                              0,
+                              copy,
+                              0,
+                              size );
+            times = copy;
+        }
+        this.fireTimes = new FireTimes( from,
+                                        times );
+        return times[0];
+    }
+
+    /**
+     * Computes the first fire time after the given time, a whole second.
+     */
+    long computeTimeAfter(long from) {
+        final int offset = this.timeZone.getOffset( from );
+        final long local = from + offset + SECOND;
+        long day = floor( local,
+                          DAY ) / DAY;
+        int secondOfDay = (int) ((local - day * DAY) / SECOND);
+
+        while ( true ) {
+            if ( this.daylight && day * DAY - offset - from > MAX_SPAN ) {
+                return -1;
+            }
+            final int date = toDate( day );
+            final int year = date / 10000;
+            final int month = (date / 100) % 100;
+            final int dayOfMonth = date % 100;
+            if ( year > MAX_YEAR ) {
+                return -1;
+            }
+
+            if ( !this.years.get( year ) ) {
+                int next = this.years.nextSetBit( year + 1 );
+                if ( next < 0 || next > MAX_YEAR ) {
+                    return -1;
+                }
+                day = toDay( next,
+                             1,
+                             1 );
+                secondOfDay = 0;
+                continue;
+            }
+            if ( (this.months & (1L << month)) == 0 ) {
+                day = month == 12 ? toDay( year + 1,
+                                           1,
+                                           1 ) : toDay( year,
+                                                        month + 1,
+                                                        1 );
+                secondOfDay = 0;
+                continue;
+            }
+            if ( matchesDay( day,
+                             dayOfMonth ) ) {
+                int time = nextTimeOfDay( secondOfDay );
+                if ( time >= 0 ) {
+                    long next = day * DAY + time * SECOND - offset;
+                    if ( this.timeZone.getOffset( next ) != offset || (this.daylight && next - from > MAX_SPAN) ) {
+                        // a transition in between, the Calendar knows better
+                        return -1;
+                    }
+                    return next;
+                }
+            }
+            day++;
+            secondOfDay = 0;
+        }
+    }
+
+    private boolean matchesDay(long day,
+                               int dayOfMonth) {
+        if ( this.dayOfMonthSpec ) {
+            return (this.daysOfMonth & (1L << dayOfMonth)) != 0;
+        }
+        // the epoch was a thursday, and sunday is 1
+        int dayOfWeek = (int) (((day + 4) % 7 + 7) % 7) + 1;
+        return (this.daysOfWeek & (1L << dayOfWeek)) != 0;
+    }
+
+    private int nextTimeOfDay(int secondOfDay) {
+        final int hour = secondOfDay / 3600;
+        final int minute = (secondOfDay / 60) % 60;
+        final int second = secondOfDay % 60;
+        for ( int h = nextBit( this.hours,
+                               hour ); h >= 0; h = nextBit( this.hours,
+                                                            h + 1 ) ) {
+            for ( int m = nextBit( this.minutes,
+                                   h == hour ? minute : 0 ); m >= 0; m = nextBit( this.minutes,
+                                                                                  m + 1 ) ) {
+                int s = nextBit( this.seconds,
+                                 h == hour && m == minute ? second : 0 );
+                if ( s >= 0 ) {
+                    return h * 3600 + m * 60 + s;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int nextBit(long mask,
+                               int from) {
+        if ( from >= 64 ) {
+            return -1;
+        }
+        long bits = mask & (-1L << from);
+        return bits == 0 ? -1 : Long.numberOfTrailingZeros( bits );
+    }
+
+    private static long toMask(Set values) {
+        long mask = 0;
+        for ( Iterator it = values.iterator(); it.hasNext(); ) {
+            int value = ((Integer) it.next()).intValue();
+            if ( value >= 0 && value < 64 ) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static long floor(long value,
+                              long unit) {
+        long floor = value - value % unit;
+        return value < 0 && floor != value ? floor - unit : floor;
+    }
+
+    /**
+     * Returns the number of days between the epoch and the given date of the
+     * proleptic gregorian calendar.
+     */
+    static long toDay(int year,
+                      int month,
+                      int dayOfMonth) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns the date of the given number of days since the epoch, as
+     * yyyymmdd.
+     */
+    static int toDate(long day) {
+        final long z = day + 719468;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final int dayOfEra = (int) (z - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int dayOfMonth = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + dayOfMonth;
+    }
+
+    /**
+     * Consecutive fire times, all the ones after from up to the last one.
+     */
+    private static class FireTimes {
+        private final long   from;
+        private final long[] times;
+
+        private FireTimes(long from,
+                          long[] times) {
+            this.from = from;
+            this.times = times;
+        }
+
+        private long getTimeAfter(long time) {
+            int low = 0;
+            int high = this.times.length - 1;
+            if ( this.times[high] <= time ) {
+                return -1;
+            }
+            while ( low < high ) {
+                int mid = (low + high) >>> 1;
+                if ( this.times[mid] <= time ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return this.times[low];
+        }
+    }
+
+}
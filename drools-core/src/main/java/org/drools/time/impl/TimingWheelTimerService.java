@@ -0,0 +1,391 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.time.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.drools.time.Job;
+import org.drools.time.JobContext;
+import org.drools.time.JobHandle;
+import org.drools.time.SessionClock;
+import org.drools.time.TimerService;
+import org.drools.time.Trigger;
+
+/**
+ * A real time TimerService based on a hashed hierarchical timing wheel, for
+ * sessions with a large number of pending jobs, like the expiration of events
+ * or sliding time windows.
+ *
+ * Each wheel has a fixed number of buckets, each one covering one tick of the
+ * wheel, and a job is put in the bucket of its fire time. Jobs too far in the
+ * future for a wheel go to its overflow wheel, whose tick is the span of the
+ * whole wheel, and cascade down to the lower wheel when their bucket is
+ * reached. Scheduling and cancelling a job are constant time, as opposed to
+ * the logarithmic cost of the queue of the ScheduledThreadPoolExecutor.
+ *
+ * The wheels are only accessed by a single timer thread, that also executes
+ * the jobs. Scheduling and cancelling hand the job over to that thread, which
+ * processes all of them at the next tick, together with the expired buckets.
+ * Jobs fire with the precision of a tick, 1 millisecond by default.
+ *
+ * To use it, set the drools.timerService session property to the name of
+ * this class.
+ */
+public class TimingWheelTimerService
+    implements
+    TimerService,
+    SessionClock {
+
+    public static final long                 DEFAULT_TICK       = 1;
+
+    public static final int                  DEFAULT_WHEEL_SIZE = 256;
+
+    private final long                       tick;
+
+    private final int                        wheelSize;
+
+    /** Jobs to add to, or to remove from, the wheels */
+    private final BlockingQueue<WheelJobHandle> requests           = new LinkedBlockingQueue<WheelJobHandle>();
+
+    private final Thread                     thread;
+
+    private volatile boolean                 running            = true;
+
+    /** Only accessed by the timer thread */
+    private Wheel                            wheel;
+
+    /** The number of jobs in the wheels, only accessed by the timer thread */
+    private int                              size;
+
+    public TimingWheelTimerService() {
+        this( DEFAULT_TICK,
+              DEFAULT_WHEEL_SIZE );
+    }
+
+    public TimingWheelTimerService(long tick,
+                                   int wheelSize) {
+        if ( tick <= 0 || wheelSize <= 1 ) {
+            throw new IllegalArgumentException( "Invalid timing wheel of " + wheelSize + " buckets of " + tick + "ms" );
+        }
+        this.tick = tick;
+        this.wheelSize = wheelSize;
+        this.thread = new Thread( new Runnable() {
+                                      public void run() {
+                                          runTimer();
+                                      }
+                                  },
+                                  "drools-timer-wheel" );
+        this.thread.setDaemon( true );
+        this.thread.start();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public long getCurrentTime() {
+        return System.currentTimeMillis();
+    }
+
+    public void shutdown() {
+        this.running = false;
+        this.thread.interrupt();
+    }
+
+    public JobHandle scheduleJob(Job job,
+                                 JobContext ctx,
+                                 Trigger trigger) {
+        Date date = trigger.nextFireTime();
+        if ( date == null ) {
+            return null;
+        }
+        WheelJobHandle handle = new WheelJobHandle( job,
+                                                    ctx,
+                                                    trigger,
+                                                    date.getTime() );
+        this.requests.add( handle );
+        return handle;
+    }
+
+    public boolean removeJob(JobHandle jobHandle) {
+        WheelJobHandle handle = (WheelJobHandle) jobHandle;
+        if ( !handle.cancel() ) {
+            return false;
+        }
+        // let the timer thread unlink it, so its memory is released now
+        this.requests.add( handle );
+        return true;
+    }
+
+    public long getTimeToNextJob() {
+        return 0;
+    }
+
+    private void runTimer() {
+        final List<WheelJobHandle> expired = new ArrayList<WheelJobHandle>();
+        final List<WheelJobHandle> batch = new ArrayList<WheelJobHandle>();
+        while ( this.running ) {
+            try {
+                if ( this.size == 0 ) {
+                    // nothing to wait for, start over when a job comes
+                    batch.add( this.requests.take() );
+                    this.wheel = null;
+                } else {
+                    WheelJobHandle handle = this.requests.poll( this.tick,
+                                                                TimeUnit.MILLISECONDS );
+                    if ( handle != null ) {
+                        batch.add( handle );
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                // shutdown
+                continue;
+            }
+            this.requests.drainTo( batch );
+
+            final long now = System.currentTimeMillis();
+            if ( this.wheel == null ) {
+                this.wheel = new Wheel( this.tick,
+                                        this.wheelSize,
+                                        now - now % this.tick );
+            }
+            for ( WheelJobHandle handle : batch ) {
+                if ( handle.isCancel() ) {
+                    if ( handle.bucket != null ) {
+                        handle.bucket.remove( handle );
+                        this.size--;
+                    }
+                } else if ( handle.bucket == null ) {
+                    add( handle,
+                         expired );
+                }
+            }
+            batch.clear();
+
+            while ( this.wheel.currentTime + this.tick <= now ) {
+                this.wheel.advance( this.wheel.currentTime + this.tick,
+                                    expired );
+            }
+            fire( expired );
+        }
+        this.requests.clear();
+    }
+
+    private void add(WheelJobHandle handle,
+                     List<WheelJobHandle> expired) {
+        if ( this.wheel.add( handle ) ) {
+            this.size++;
+        } else {
+            expired.add( handle );
+        }
+    }
+
+    private void fire(List<WheelJobHandle> expired) {
+        // the list grows if a recurring job is due again already
+        for ( int i = 0; i < expired.size(); i++ ) {
+            WheelJobHandle handle = expired.get( i );
+            if ( handle.bucket != null ) {
+                // taken out of the wheel by advance()
+                handle.bucket = null;
+                this.size--;
+            }
+            if ( handle.isCancel() ) {
+                continue;
+            }
+            try {
+                handle.job.execute( handle.ctx );
+            } catch ( RuntimeException e ) {
+                // as with the JDK timer service, a failing job is not rescheduled
+                continue;
+            }
+            if ( handle.isCancel() ) {
+                continue;
+            }
+
+            // our triggers allow for flexible rescheduling
+            Date date = handle.trigger.nextFireTime();
+            if ( date != null ) {
+                handle.fireTime = date.getTime();
+                add( handle,
+                     expired );
+            }
+        }
+        expired.clear();
+    }
+
+    /**
+     * One level of the hierarchy of wheels.
+     */
+    private static class Wheel {
+        private final long     tick;
+        private final long     interval;
+        private final Bucket[] buckets;
+        private long           currentTime;
+        private Wheel          overflow;
+
+        private Wheel(long tick,
+                      int size,
+                      long startTime) {
+            this.tick = tick;
+            this.interval = tick * size;
+            this.buckets = new Bucket[size];
+            for ( int i = 0; i < size; i++ ) {
+                this.buckets[i] = new Bucket();
+            }
+            this.currentTime = startTime - startTime % tick;
+        }
+
+        /**
+         * Puts the job in the bucket of its fire time, or returns false if
+         * its fire time is within the current tick.
+         */
+        private boolean add(WheelJobHandle handle) {
+            final long fireTime = handle.fireTime;
+            if ( fireTime < this.currentTime + this.tick ) {
+                return false;
+            }
+            if ( fireTime < this.currentTime + this.interval ) {
+                this.buckets[(int) ((fireTime / this.tick) % this.buckets.length)].add( handle );
+                return true;
+            }
+            if ( this.overflow == null ) {
+                this.overflow = new Wheel( this.interval,
+                                           this.buckets.length,
+                                           this.currentTime );
+            }
+            return this.overflow.add( handle );
+        }
+
+        /**
+         * Moves the wheel to the given time, a multiple of its tick, and
+         * collects the jobs whose fire time is within the new current tick.
+         */
+        private void advance(long time,
+                             List<WheelJobHandle> expired) {
+            this.currentTime = time;
+            if ( this.overflow != null && time % this.overflow.tick == 0 ) {
+                // cascade the jobs of the overflow bucket reached now
+                List<WheelJobHandle> cascaded = new ArrayList<WheelJobHandle>();
+                this.overflow.advance( time,
+                                       cascaded );
+                for ( WheelJobHandle handle : cascaded ) {
+                    if ( !add( handle ) ) {
+                        expired.add( handle );
+                    }
+                }
+            }
+            this.buckets[(int) ((time / this.tick) % this.buckets.length)].drainTo( expired );
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of jobs, for constant time removal.
+     */
+    private static class Bucket {
+        private final WheelJobHandle head;
+
+        private Bucket() {
+            this.head = new WheelJobHandle( null,
+                                            null,
+                                            null,
+                                            0 );
+            this.head.previous = this.head;
+            this.head.next = this.head;
+        }
+
+        private void add(WheelJobHandle handle) {
+            handle.bucket = this;
+            handle.previous = this.head.previous;
+            handle.next = this.head;
+            this.head.previous.next = handle;
+            this.head.previous = handle;
+        }
+
+        private void remove(WheelJobHandle handle) {
+            handle.previous.next = handle.next;
+            handle.next.previous = handle.previous;
+            handle.previous = null;
+            handle.next = null;
+            handle.bucket = null;
+        }
+
+        /**
+         * Moves the jobs to the given list, leaving their bucket set, so the
+         * caller can tell they were in a wheel.
+         */
+        private void drainTo(List<WheelJobHandle> list) {
+            WheelJobHandle handle = this.head.next;
+            while ( handle != this.head ) {
+                WheelJobHandle next = handle.next;
+                handle.previous = null;
+                handle.next = null;
+                list.add( handle );
+                handle = next;
+            }
+            this.head.previous = this.head;
+            this.head.next = this.head;
+        }
+    }
+
+    public static class WheelJobHandle
+        implements
+        JobHandle {
+
+        private static final long   serialVersionUID = 510l;
+
+        private final AtomicBoolean cancel           = new AtomicBoolean( false );
+
+        private final Job           job;
+        private final JobContext    ctx;
+        private final Trigger       trigger;
+
+        /** The fields below are only accessed by the timer thread */
+        private long                fireTime;
+        private Bucket              bucket;
+        private WheelJobHandle      previous;
+        private WheelJobHandle      next;
+
+        private WheelJobHandle(Job job,
+                               JobContext ctx,
+                               Trigger trigger,
+                               long fireTime) {
+            this.job = job;
+            this.ctx = ctx;
+            this.trigger = trigger;
+            this.fireTime = fireTime;
+        }
+
+        public void setCancel(boolean cancel) {
+            this.cancel.set( cancel );
+        }
+
+        public boolean isCancel() {
+            return this.cancel.get();
+        }
+
+        private boolean cancel() {
+            return this.cancel.compareAndSet( false,
+                                              true );
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.audit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.drools.audit.event.ActivationLogEvent;
+import org.drools.audit.event.LogEvent;
+import org.drools.audit.event.ObjectLogEvent;
+import org.drools.audit.event.RuleFlowNodeLogEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryWorkingMemoryFileLoggerTest {
+
+    private String fileName;
+
+    @Before
+    public void setUp() throws Exception {
+        File tmp = File.createTempFile( "audit",
+                                        "" );
+        tmp.delete();
+        this.fileName = tmp.getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() {
+        for ( File file : BinaryAuditLogReader.getLogFiles( this.fileName ) ) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        BinaryWorkingMemoryFileLogger logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.logEventCreated( new ObjectLogEvent( LogEvent.INSERTED,
+                                                    42,
+                                                    "cheese" ) );
+        logger.logEventCreated( new ActivationLogEvent( LogEvent.ACTIVATION_CREATED,
+                                                        "1",
+                                                        "rule 1",
+                                                        "$c=cheese",
+                                                        null ) );
+        logger.logEventCreated( new RuleFlowNodeLogEvent( LogEvent.BEFORE_RULEFLOW_NODE_TRIGGERED,
+                                                          "2",
+                                                          "node",
+                                                          "3",
+                                                          "process",
+                                                          "my process",
+                                                          4 ) );
+        logger.stop();
+
+        List<LogEvent> events = BinaryAuditLogReader.readEvents( this.fileName );
+        assertEquals( 3,
+                      events.size() );
+
+        ObjectLogEvent inserted = (ObjectLogEvent) events.get( 0 );
+        assertEquals( LogEvent.INSERTED,
+                      inserted.getType() );
+        assertEquals( 42,
+                      inserted.getFactId() );
+        assertEquals( "cheese",
+                      inserted.getObjectToString() );
+
+        ActivationLogEvent created = (ActivationLogEvent) events.get( 1 );
+        assertEquals( "rule 1",
+                      created.getRule() );
+        assertEquals( "$c=cheese",
+                      created.getDeclarations() );
+        assertNull( created.getRuleFlowGroup() );
+
+        RuleFlowNodeLogEvent node = (RuleFlowNodeLogEvent) events.get( 2 );
+        assertEquals( "node",
+                      node.getNodeName() );
+        assertEquals( "my process",
+                      node.getProcessName() );
+        assertEquals( 4,
+                      node.getProcessInstanceId() );
+    }
+
+    @Test
+    public void testRotationKeepsOrder() throws Exception {
+        BinaryWorkingMemoryFileLogger logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.setMaxFileSize( 1024 );
+        for ( int i = 0; i < 500; i++ ) {
+            logger.logEventCreated( new ObjectLogEvent( LogEvent.UPDATED,
+                                                        i,
+                                                        "fact " + i ) );
+        }
+        logger.stop();
+
+        assertTrue( BinaryAuditLogReader.getLogFiles( this.fileName ).size() > 1 );
+        List<LogEvent> events = BinaryAuditLogReader.readEvents( this.fileName );
+        assertEquals( 500,
+                      events.size() );
+        for ( int i = 0; i < 500; i++ ) {
+            assertEquals( i,
+                          ((ObjectLogEvent) events.get( i )).getFactId() );
+        }
+    }
+
+    @Test
+    public void testMaxFiles() throws Exception {
+        BinaryWorkingMemoryFileLogger logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.setMaxFileSize( 1024 );
+        logger.setMaxFiles( 2 );
+        for ( int i = 0; i < 500; i++ ) {
+            logger.logEventCreated( new ObjectLogEvent( LogEvent.UPDATED,
+                                                        i,
+                                                        "fact " + i ) );
+        }
+        logger.stop();
+
+        assertEquals( 2,
+                      BinaryAuditLogReader.getLogFiles( this.fileName ).size() );
+        List<LogEvent> events = BinaryAuditLogReader.readEvents( this.fileName );
+        assertEquals( 499,
+                      ((ObjectLogEvent) events.get( events.size() - 1 )).getFactId() );
+    }
+
+    @Test
+    public void testEventsAfterStopAreDropped() throws Exception {
+        BinaryWorkingMemoryFileLogger logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.stop();
+        logger.logEventCreated( new ObjectLogEvent( LogEvent.INSERTED,
+                                                    1,
+                                                    "cheese" ) );
+        assertTrue( BinaryAuditLogReader.getLogFiles( this.fileName ).isEmpty() );
+
+        logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.logEventCreated( new ObjectLogEvent( LogEvent.INSERTED,
+                                                    1,
+                                                    "cheese" ) );
+        logger.stop();
+        logger.logEventCreated( new ObjectLogEvent( LogEvent.INSERTED,
+                                                    2,
+                                                    "cheese" ) );
+        assertEquals( 1,
+                      BinaryAuditLogReader.readEvents( this.fileName ).size() );
+    }
+
+    @Test
+    public void testStopWhileLogging() throws Exception {
+        final BinaryWorkingMemoryFileLogger logger = new BinaryWorkingMemoryFileLogger();
+        logger.setFileName( this.fileName );
+        logger.setMaxFileSize( 1024 );
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>() );
+        final List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 4; t++ ) {
+            Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        for ( int i = 0; i < 2000; i++ ) {
+                            logger.logEventCreated( new ObjectLogEvent( LogEvent.UPDATED,
+                                                                        i,
+                                                                        "fact " + i ) );
+                        }
+                    } catch ( Throwable e ) {
+                        errors.add( e );
+                    }
+                }
+            };
+            threads.add( thread );
+            thread.start();
+        }
+        Thread.sleep( 5 );
+        logger.stop();
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+
+        assertEquals( Collections.emptyList(),
+                      errors );
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.drools.command.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.KnowledgeBase;
+import org.drools.KnowledgeBaseFactory;
+import org.drools.command.Command;
+import org.drools.command.CommandService;
+import org.drools.command.Context;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+import org.drools.common.InternalFactHandle;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsynchronousInterceptorTest {
+
+    private StatefulKnowledgeSession ksession;
+    private List<Command< ? >>       executed;
+    private AsynchronousInterceptor  interceptor;
+
+    @Before
+    public void setUp() {
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        ksession = kbase.newStatefulKnowledgeSession();
+        KnowledgeCommandContext context = new KnowledgeCommandContext( new ContextImpl( "ksession", null ), null, null, this.ksession, null );
+        final DefaultCommandService commandService = new DefaultCommandService( context );
+
+        executed = new ArrayList<Command< ? >>();
+        interceptor = new AsynchronousInterceptor( 100,
+                                                   true );
+        interceptor.setNext( new CommandService() {
+            public Context getContext() {
+                return commandService.getContext();
+            }
+
+            public <T> T execute(Command<T> command) {
+                executed.add( command );
+                return commandService.execute( command );
+            }
+        } );
+    }
+
+    @After
+    public void tearDown() {
+        interceptor.shutdown();
+        ksession.dispose();
+    }
+
+    @Test
+    public void testInsertsAreBatched() throws Exception {
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        Future<Object> blocking = interceptor.submit( new GenericCommand<Object>() {
+            public Object execute(Context context) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    throw new RuntimeException( e );
+                }
+                return "done";
+            }
+        } );
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        List<Future<FactHandle>> handles = new ArrayList<Future<FactHandle>>();
+        for ( int i = 0; i < 10; i++ ) {
+            handles.add( interceptor.submit( new InsertObjectCommand( "fact" + i ) ) );
+        }
+        release.countDown();
+
+        assertEquals( "done", blocking.get( 10, TimeUnit.SECONDS ) );
+        int previous = -1;
+        for ( Future<FactHandle> future : handles ) {
+            int id = ((InternalFactHandle) future.get( 10, TimeUnit.SECONDS )).getId();
+            assertTrue( id > previous );
+            previous = id;
+        }
+        assertEquals( 10, ksession.getObjects().size() );
+
+        // waits for the rules to be fired
+        interceptor.submit( new FireAllRulesCommand() ).get( 10, TimeUnit.SECONDS );
+        assertEquals( 4, executed.size() );
+        assertFalse( executed.get( 1 ) instanceof InsertObjectCommand );
+        assertTrue( executed.get( 2 ) instanceof FireAllRulesCommand );
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        Future<Object> future = interceptor.submit( new GenericCommand<Object>() {
+            public Object execute(Context context) {
+                throw new IllegalStateException( "failed" );
+            }
+        } );
+        try {
+            future.get( 10, TimeUnit.SECONDS );
+            fail( "The command should have failed" );
+        } catch ( ExecutionException e ) {
+            assertTrue( e.getCause() instanceof IllegalStateException );
+        }
+        // the worker goes on
+        assertNotNull( interceptor.submit( new InsertObjectCommand( "fact" ) ).get( 10, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testFailedBatchFailsAllInserts() throws Exception {
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        interceptor.submit( new GenericCommand<Object>() {
+            public Object execute(Context context) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    throw new RuntimeException( e );
+                }
+                return null;
+            }
+        } );
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        List<Future<FactHandle>> handles = new ArrayList<Future<FactHandle>>();
+        handles.add( interceptor.submit( new InsertObjectCommand( "before" ) ) );
+        handles.add( interceptor.submit( new InsertObjectCommand( "failing" ) {
+            public FactHandle execute(Context context) {
+                throw new IllegalStateException( "failed" );
+            }
+        } ) );
+        handles.add( interceptor.submit( new InsertObjectCommand( "after" ) ) );
+        release.countDown();
+
+        for ( Future<FactHandle> future : handles ) {
+            try {
+                future.get( 10, TimeUnit.SECONDS );
+                fail( "The inserts of a failed batch should fail" );
+            } catch ( ExecutionException e ) {
+                assertTrue( e.getCause() instanceof IllegalStateException );
+            }
+        }
+    }
+
+    @Test
+    public void testCommandsSubmittedWhileStoppingComplete() throws Exception {
+        for ( int i = 0; i < 100; i++ ) {
+            interceptor.submit( new InsertObjectCommand( "fact" + i ) );
+            interceptor.shutdown();
+            // either cancelled by the stopping worker or run by a new one
+            Future<FactHandle> future = interceptor.submit( new InsertObjectCommand( "after" + i ) );
+            try {
+                assertNotNull( future.get( 10, TimeUnit.SECONDS ) );
+            } catch ( CancellationException e ) {
+                assertTrue( future.isCancelled() );
+            }
+        }
+    }
+
+}
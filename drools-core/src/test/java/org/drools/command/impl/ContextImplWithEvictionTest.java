@@ -0,0 +1,127 @@
+package org.drools.command.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.KnowledgeBase;
+import org.drools.KnowledgeBaseFactory;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContextImplWithEvictionTest {
+
+    private long                    now;
+    private ContextImplWithEviction context;
+    private List<String>            evicted;
+
+    @Before
+    public void setUp() {
+        now = 1000;
+        context = new ContextImplWithEviction( "context",
+                                               null ) {
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+        evicted = new ArrayList<String>();
+        context.setEvictionListener( new ContextImplWithEviction.EvictionListener() {
+            public void evicted(String identifier,
+                                Object value) {
+                evicted.add( identifier + "=" + value );
+            }
+        } );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        context.setMaxEntries( 2 );
+        context.set( "a", "1" );
+        context.set( "b", "2" );
+        assertEquals( "1", context.get( "a" ) );
+        context.set( "c", "3" );
+
+        assertEquals( 2, context.size() );
+        assertNull( context.get( "b" ) );
+        assertEquals( "1", context.get( "a" ) );
+        assertEquals( "3", context.get( "c" ) );
+        assertEquals( 3, context.getHits() );
+        assertEquals( 1, context.getMisses() );
+        assertEquals( 1, context.getEvictions() );
+        assertEquals( "[b=2]", evicted.toString() );
+
+        // removed entries are not evicted
+        context.remove( "a" );
+        assertEquals( 1, context.size() );
+        assertEquals( "[b=2]", evicted.toString() );
+    }
+
+    @Test
+    public void testWeight() {
+        context.setWeigher( new ContextImplWithEviction.Weigher() {
+            public int weigh(String identifier,
+                             Object value) {
+                return ((String) value).length();
+            }
+        } );
+        context.setMaxWeight( 5 );
+        context.set( "a", "12" );
+        context.set( "b", "123" );
+        assertEquals( 5, context.getWeight() );
+        context.set( "a", "1" );
+        assertEquals( 4, context.getWeight() );
+        context.set( "c", "1234" );
+
+        assertEquals( "[b=123]", evicted.toString() );
+        assertEquals( 5, context.getWeight() );
+        assertEquals( "1", context.get( "a" ) );
+    }
+
+    @Test
+    public void testIdleEntriesEvicted() {
+        context.setEntryEvictionTime( 100 );
+        context.setEvictionWakeUpTime( 50 );
+        context.set( "a", "1" );
+        context.set( "b", "2" );
+        now += 60;
+        assertEquals( "1", context.get( "a" ) );
+        now += 60;
+
+        // b has not been accessed for 120 ms
+        assertNull( context.get( "b" ) );
+        assertEquals( "[b=2]", evicted.toString() );
+
+        now += 200;
+        context.set( "c", "3" );
+        assertEquals( "[b=2, a=1]", evicted.toString() );
+        assertEquals( 1, context.size() );
+    }
+
+    @Test
+    public void testDelegate() {
+        ContextImpl parent = new ContextImpl( "parent",
+                                              null );
+        parent.set( "a", "parent" );
+        ContextImplWithEviction child = new ContextImplWithEviction( "child",
+                                                                     null,
+                                                                     parent );
+        assertEquals( "parent", child.get( "a" ) );
+        child.set( "a", "child" );
+        assertEquals( "child", child.get( "a" ) );
+    }
+
+    @Test
+    public void testEvictedSessionsDisposed() {
+        context.setEvictionListener( null );
+        context.setMaxEntries( 1 );
+        KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        context.set( "ksession", ksession );
+        context.set( "other", "value" );
+
+        assertEquals( 0, kbase.getStatefulKnowledgeSessions().size() );
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.drools.common;
+
+import org.drools.RuleBaseFactory;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.spi.Activation;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MostlySequentialAgendaGroupTest {
+
+    @Test
+    public void testSequentialAndQueuedOrder() {
+        ReteooRuleBase rbase = ( ReteooRuleBase ) RuleBaseFactory.newRuleBase();
+        InternalAgendaGroup group = new MostlySequentialAgendaGroup( "group", rbase );
+
+        AgendaItem low1 = newItem( 1, 0, 1, group );
+        AgendaItem queuedLow = newItem( 2, 0, -1, group );
+        AgendaItem high = newItem( 3, 10, 0, group );
+        AgendaItem queuedMiddle = newItem( 4, 5, -1, group );
+        AgendaItem low2 = newItem( 5, 0, 1, group );
+        assertEquals( 5, group.size() );
+
+        // the sequential activations of a rule in the order they were added,
+        // before the queued ones of the same salience
+        assertSame( high, group.getNext() );
+        assertSame( queuedMiddle, group.getNext() );
+        assertSame( low1, group.getNext() );
+        assertFalse( low1.isActivated() );
+        assertEquals( -1, low1.getIndex() );
+        assertSame( low2, group.getNext() );
+        assertSame( queuedLow, group.getNext() );
+        assertTrue( group.isEmpty() );
+        assertNull( group.getNext() );
+    }
+
+    @Test
+    public void testRemove() {
+        ReteooRuleBase rbase = ( ReteooRuleBase ) RuleBaseFactory.newRuleBase();
+        InternalAgendaGroup group = new MostlySequentialAgendaGroup( "group", rbase );
+
+        AgendaItem item1 = newItem( 1, 0, 0, group );
+        AgendaItem item2 = newItem( 2, 0, 0, group );
+        AgendaItem item3 = newItem( 3, 0, 0, group );
+        AgendaItem queued = newItem( 4, 0, -1, group );
+        assertArrayEquals( new Activation[]{item1, item2, item3, queued}, group.getActivations() );
+
+        item2.remove();
+        // removing it twice does nothing
+        group.remove( item2 );
+        queued.remove();
+        assertEquals( 2, group.size() );
+        item3.remove();
+        group.add( item2 );
+
+        assertSame( item1, group.getNext() );
+        assertSame( item2, group.getNext() );
+        assertTrue( group.isEmpty() );
+
+        group.add( item3 );
+        group.add( queued );
+        assertArrayEquals( new Activation[]{item3, queued}, group.getAndClear() );
+        assertTrue( group.isEmpty() );
+        assertNull( group.getNext() );
+    }
+
+    private AgendaItem newItem(int number,
+                               int salience,
+                               int sequence,
+                               InternalAgendaGroup group) {
+        AgendaItem item = new AgendaItem( number, null, salience, null, null );
+        item.setSequenence( sequence );
+        item.setAgendaGroup( group );
+        item.setActivated( true );
+        group.add( item );
+        return item;
+    }
+}
@@ -0,0 +1,115 @@
+package org.drools.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.drools.RuleBaseConfiguration;
+import org.drools.RuleBaseFactory;
+import org.drools.StatefulSession;
+import org.drools.reteoo.ReteooRuleBase;
+import org.drools.spi.Activation;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SalienceBucketAgendaGroupTest {
+
+    @Test
+    public void testSameOrderAsBinaryHeap() {
+        ReteooRuleBase rbase = ( ReteooRuleBase ) RuleBaseFactory.newRuleBase();
+        InternalAgendaGroup heap = new BinaryHeapQueueAgendaGroup( "heap", rbase );
+        InternalAgendaGroup buckets = new SalienceBucketAgendaGroup( "buckets", rbase );
+
+        Random random = new Random( 0 );
+        List<AgendaItem> heapItems = new ArrayList<AgendaItem>();
+        List<AgendaItem> bucketItems = new ArrayList<AgendaItem>();
+        for ( int i = 0; i < 1000; i++ ) {
+            int salience = random.nextInt( 5 ) - 2;
+            heapItems.add( newItem( i, salience, heap ) );
+            bucketItems.add( newItem( i, salience, buckets ) );
+        }
+        // re-add some of them, as dormant activations are
+        for ( int i = 0; i < 1000; i++ ) {
+            int index = random.nextInt( heapItems.size() );
+            heapItems.get( index ).remove();
+            bucketItems.get( index ).remove();
+            if ( random.nextBoolean() ) {
+                heap.add( heapItems.get( index ) );
+                buckets.add( bucketItems.get( index ) );
+            }
+        }
+
+        assertEquals( heap.size(), buckets.size() );
+        while ( !heap.isEmpty() ) {
+            Activation expected = heap.getNext();
+            Activation actual = buckets.getNext();
+            assertEquals( expected.getActivationNumber(), actual.getActivationNumber() );
+            assertEquals( expected.getSalience(), actual.getSalience() );
+            assertFalse( actual.isActivated() );
+        }
+        assertTrue( buckets.isEmpty() );
+        assertNull( buckets.getNext() );
+    }
+
+    @Test
+    public void testRemove() {
+        ReteooRuleBase rbase = ( ReteooRuleBase ) RuleBaseFactory.newRuleBase();
+        InternalAgendaGroup group = new SalienceBucketAgendaGroup( "group", rbase );
+
+        AgendaItem item1 = newItem( 1, 0, group );
+        AgendaItem item2 = newItem( 2, 10, group );
+        AgendaItem item3 = newItem( 3, 0, group );
+        assertEquals( 3, group.size() );
+        assertArrayEquals( new Activation[]{item2, item3, item1}, group.getActivations() );
+
+        item3.remove();
+        assertEquals( -1, item3.getIndex() );
+        // removing it twice does nothing
+        group.remove( item3 );
+        assertEquals( 2, group.size() );
+
+        assertSame( item2, group.getNext() );
+        assertSame( item1, group.getNext() );
+        assertTrue( group.isEmpty() );
+
+        group.add( item3 );
+        group.add( item1 );
+        assertArrayEquals( new Activation[]{item3, item1}, group.getAndClear() );
+        assertTrue( group.isEmpty() );
+    }
+
+    @Test
+    public void testAgendaItemReuse() {
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setAgendaItemPoolSize( 1 );
+        ReteooRuleBase rbase = ( ReteooRuleBase ) RuleBaseFactory.newRuleBase( conf );
+        StatefulSession wm = rbase.newStatefulSession();
+
+        DefaultAgenda agenda = ( DefaultAgenda ) wm.getAgenda();
+        AgendaItem item1 = agenda.createAgendaItem( null, 0, null, null );
+        AgendaItem item2 = agenda.createAgendaItem( null, 0, null, null );
+        item2.setActivated( true );
+        assertFalse( agenda.releaseAgendaItem( item2 ) );
+
+        assertTrue( agenda.releaseAgendaItem( item1 ) );
+        // the pool is full
+        item2.setActivated( false );
+        assertFalse( agenda.releaseAgendaItem( item2 ) );
+
+        AgendaItem item3 = agenda.createAgendaItem( null, 5, null, null );
+        assertSame( item1, item3 );
+        assertEquals( 2, item3.getActivationNumber() );
+        assertEquals( 5, item3.getSalience() );
+        assertNotSame( item1, agenda.createAgendaItem( null, 0, null, null ) );
+    }
+
+    private AgendaItem newItem(int number,
+                               int salience,
+                               InternalAgendaGroup group) {
+        AgendaItem item = new AgendaItem( number, null, salience, null, null );
+        item.setAgendaGroup( group );
+        item.setActivated( true );
+        group.add( item );
+        return item;
+    }
+}
@@ -0,0 +1,104 @@
+package org.drools.core.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DistributedReadWriteLockTest {
+
+    @Test
+    public void testReentrantLocks() {
+        DistributedReadWriteLock lock = new DistributedReadWriteLock();
+        lock.readLock();
+        lock.readLock();
+        lock.readUnlock();
+        lock.readUnlock();
+
+        lock.writeLock();
+        lock.writeLock();
+        assertEquals( 2,
+                      lock.getWriteHoldCount() );
+        // the writer can read what it writes
+        lock.readLock();
+        lock.readUnlock();
+        lock.writeUnlock();
+        lock.writeUnlock();
+        assertFalse( lock.isWriteLockedByCurrentThread() );
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void testUnlockWithoutLock() {
+        new DistributedReadWriteLock().readUnlock();
+    }
+
+    @Test
+    public void testWriterWaitsForReaders() throws Exception {
+        final DistributedReadWriteLock lock = new DistributedReadWriteLock();
+        final CountDownLatch reading = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicBoolean written = new AtomicBoolean();
+
+        Thread reader = new Thread() {
+            public void run() {
+                lock.readLock();
+                try {
+                    reading.countDown();
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    // exits
+                } finally {
+                    lock.readUnlock();
+                }
+            }
+        };
+        reader.start();
+        assertTrue( reading.await( 5,
+                                   TimeUnit.SECONDS ) );
+
+        Thread writer = new Thread() {
+            public void run() {
+                lock.writeLock();
+                try {
+                    written.set( true );
+                } finally {
+                    lock.writeUnlock();
+                }
+            }
+        };
+        writer.start();
+        writer.join( 200 );
+        assertFalse( written.get() );
+
+        release.countDown();
+        writer.join( 5000 );
+        reader.join( 5000 );
+        assertTrue( written.get() );
+    }
+
+    @Test
+    public void testReadersWaitForWriter() throws Exception {
+        final DistributedReadWriteLock lock = new DistributedReadWriteLock();
+        final CountDownLatch read = new CountDownLatch( 1 );
+
+        lock.writeLock();
+        Thread reader = new Thread() {
+            public void run() {
+                lock.readLock();
+                read.countDown();
+                lock.readUnlock();
+            }
+        };
+        reader.start();
+        assertFalse( read.await( 200,
+                                 TimeUnit.MILLISECONDS ) );
+
+        lock.writeUnlock();
+        assertTrue( read.await( 5,
+                                TimeUnit.SECONDS ) );
+        reader.join( 5000 );
+    }
+
+}
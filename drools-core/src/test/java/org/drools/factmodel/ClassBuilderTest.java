@@ -31,6 +31,7 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import org.drools.base.ClassFieldAccessor;
 import org.drools.base.ClassFieldAccessorCache;
 import org.drools.base.ClassFieldAccessorStore;
 import org.drools.rule.JavaDialectRuntimeData;
@@ -526,4 +527,104 @@ public class ClassBuilderTest {
         }
 
     }
+
+    @Test
+    public void testCompactClass() throws Exception {
+        ClassBuilder builder = new ClassBuilder();
+
+        ClassDefinition classDef = new ClassDefinition( "org.drools.TestCompactClass",
+                                                        null,
+                                                        new String[]{"java.io.Serializable"} );
+        classDef.setCompact( true );
+        FieldDefinition intDef = new FieldDefinition( "intAttr",
+                                                      "java.lang.Integer",
+                                                      true );
+        FieldDefinition doubleDef = new FieldDefinition( "doubleAttr",
+                                                         "java.lang.Double" );
+        FieldDefinition booleanDef = new FieldDefinition( "booleanAttr",
+                                                          "java.lang.Boolean" );
+        FieldDefinition stringDef = new FieldDefinition( "stringAttr",
+                                                         "java.lang.String" );
+        classDef.addField( intDef );
+        classDef.addField( doubleDef );
+        classDef.addField( booleanDef );
+        classDef.addField( stringDef );
+
+        Class clazz = build( builder,
+                             classDef );
+        for ( FieldDefinition field : classDef.getFieldsDefinitions() ) {
+            field.setReadWriteAccessor( store.getAccessor( clazz,
+                                                           field.getName(),
+                                                           classLoader ) );
+        }
+
+        // the wrappers are stored as primitives
+        assertEquals( int.class,
+                      clazz.getDeclaredField( "intAttr" ).getType() );
+        assertEquals( double.class,
+                      clazz.getDeclaredField( "doubleAttr" ).getType() );
+        assertEquals( boolean.class,
+                      clazz.getDeclaredField( "booleanAttr" ).getType() );
+        assertEquals( String.class,
+                      clazz.getDeclaredField( "stringAttr" ).getType() );
+        assertEquals( Integer.class,
+                      clazz.getMethod( "getIntAttr" ).getReturnType() );
+
+        Object instance = clazz.newInstance();
+        assertEquals( 0,
+                      intDef.getValue( instance ) );
+
+        intDef.setValue( instance,
+                         42 );
+        doubleDef.setValue( instance,
+                            1.5d );
+        booleanDef.setValue( instance,
+                             true );
+        stringDef.setValue( instance,
+                            "abc" );
+        assertEquals( 42,
+                      intDef.getValue( instance ) );
+        assertEquals( 1.5d,
+                      doubleDef.getValue( instance ) );
+        assertEquals( true,
+                      booleanDef.getValue( instance ) );
+        assertEquals( "abc",
+                      stringDef.getValue( instance ) );
+
+        // the readers use the primitive values
+        ClassFieldAccessor intAccessor = store.getAccessor( clazz,
+                                                            "intAttr",
+                                                            classLoader );
+        assertEquals( 42,
+                      intAccessor.getIntValue( instance ) );
+        assertFalse( intAccessor.isNullValue( instance ) );
+        assertEquals( 1.5d,
+                      store.getAccessor( clazz,
+                                         "doubleAttr",
+                                         classLoader ).getDoubleValue( instance ),
+                      0 );
+
+        doubleDef.setValue( instance,
+                            null );
+        assertNull( doubleDef.getValue( instance ) );
+        assertTrue( store.getAccessor( clazz,
+                                       "doubleAttr",
+                                       classLoader ).isNullValue( instance ) );
+
+        Object other = clazz.getConstructor( Integer.class,
+                                             Double.class,
+                                             Boolean.class,
+                                             String.class ).newInstance( 42,
+                                                                         null,
+                                                                         false,
+                                                                         "xyz" );
+        assertNull( doubleDef.getValue( other ) );
+        assertEquals( false,
+                      booleanDef.getValue( other ) );
+        // intAttr is the only key
+        assertEquals( instance,
+                      other );
+        assertEquals( instance.hashCode(),
+                      other.hashCode() );
+    }
 }
@@ -123,4 +123,113 @@ public class FactTemplateFieldExtractorTest {
         assertEquals( "brie",
                       declaration.getValue( null, brie ) );
     }
+
+    @Test
+    public void testPrimitiveFields() {
+        final Package pkg = new Package( "org.store" );
+
+        final FieldTemplate cheeseName = new FieldTemplateImpl( "name",
+                                                                0,
+                                                                String.class );
+        final FieldTemplate cheesePrice = new FieldTemplateImpl( "price",
+                                                                 1,
+                                                                 int.class );
+        final FieldTemplate cheeseWeight = new FieldTemplateImpl( "weight",
+                                                                  2,
+                                                                  Double.class );
+        final FieldTemplate cheeseRipe = new FieldTemplateImpl( "ripe",
+                                                                3,
+                                                                boolean.class );
+        final FieldTemplate cheeseStock = new FieldTemplateImpl( "stock",
+                                                                 4,
+                                                                 Long.class );
+        final FieldTemplate[] fields = new FieldTemplate[]{cheeseName, cheesePrice, cheeseWeight, cheeseRipe, cheeseStock};
+        final FactTemplate cheese = new FactTemplateImpl( pkg,
+                                                          "Cheese",
+                                                          fields );
+
+        final InternalReadAccessor extractPrice = new FactTemplateFieldExtractor( cheese,
+                                                                                  1 );
+        final InternalReadAccessor extractWeight = new FactTemplateFieldExtractor( cheese,
+                                                                                   2 );
+        final InternalReadAccessor extractRipe = new FactTemplateFieldExtractor( cheese,
+                                                                                 3 );
+        final InternalReadAccessor extractStock = new FactTemplateFieldExtractor( cheese,
+                                                                                  4 );
+
+        final FactImpl stilton = (FactImpl) cheese.createFact( 10 );
+        assertTrue( extractPrice.isNullValue( null,
+                                              stilton ) );
+        assertNull( stilton.getFieldValue( "price" ) );
+
+        stilton.setFieldValue( "name",
+                               "stilton" );
+        // numbers are converted to the type of the field
+        stilton.setFieldValue( "price",
+                               new Long( 200 ) );
+        stilton.setDoubleValue( 2,
+                                1.5 );
+        stilton.setFieldValue( "ripe",
+                               Boolean.TRUE );
+        stilton.setLongValue( 4,
+                              -3 );
+
+        assertEquals( new Integer( 200 ),
+                      extractPrice.getValue( null,
+                                             stilton ) );
+        assertEquals( 200,
+                      extractPrice.getIntValue( null,
+                                                stilton ) );
+        assertEquals( 200.0,
+                      extractPrice.getDoubleValue( null,
+                                                   stilton ),
+                      0 );
+        assertEquals( new Double( 1.5 ),
+                      extractWeight.getValue( null,
+                                              stilton ) );
+        assertEquals( 1,
+                      extractWeight.getLongValue( null,
+                                                  stilton ) );
+        assertTrue( extractRipe.getBooleanValue( null,
+                                                 stilton ) );
+        assertEquals( new Long( -3 ),
+                      extractStock.getValue( null,
+                                             stilton ) );
+
+        // the same hash codes as the boxed values, for the indexes
+        assertEquals( new Integer( 200 ).hashCode(),
+                      extractPrice.getHashCode( null,
+                                                stilton ) );
+        assertEquals( new Double( 1.5 ).hashCode(),
+                      extractWeight.getHashCode( null,
+                                                 stilton ) );
+        assertEquals( Boolean.TRUE.hashCode(),
+                      extractRipe.getHashCode( null,
+                                               stilton ) );
+        assertEquals( new Long( -3 ).hashCode(),
+                      extractStock.getHashCode( null,
+                                                stilton ) );
+
+        final Fact copy = new FactImpl( cheese,
+                                        new Object[]{"stilton", new Integer( 200 ), new Double( 1.5 ), Boolean.TRUE, new Long( -3 )},
+                                        11 );
+        assertEquals( stilton,
+                      copy );
+        assertEquals( stilton.hashCode(),
+                      copy.hashCode() );
+
+        stilton.setFieldValue( "weight",
+                               null );
+        assertTrue( extractWeight.isNullValue( null,
+                                               stilton ) );
+        assertNull( stilton.getFieldValue( 2 ) );
+
+        try {
+            stilton.setFieldValue( "price",
+                                   "cheap" );
+            fail( "a String can not be set to an int field" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
 }
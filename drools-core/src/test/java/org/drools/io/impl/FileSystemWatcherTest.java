@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.io.impl;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FileSystemWatcherTest {
+
+    private File              directory;
+    private FileSystemWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile( "watched",
+                                         "" );
+        directory.delete();
+        directory.mkdir();
+        watcher = FileSystemWatcher.newWatcher();
+    }
+
+    @After
+    public void tearDown() {
+        if ( watcher != null ) {
+            watcher.close();
+        }
+        for ( File file : directory.listFiles() ) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testBurstOfChanges() throws Exception {
+        if ( watcher == null ) {
+            // the file system notifications need Java 7
+            return;
+        }
+        File watched = directory.getAbsoluteFile();
+        assertTrue( watcher.watch( watched ) );
+
+        assertTrue( watcher.take( 50,
+                                  50 ).isEmpty() );
+
+        for ( int i = 0; i < 3; i++ ) {
+            FileWriter writer = new FileWriter( new File( directory,
+                                                          "rule" + i + ".drl" ) );
+            writer.write( "package org.drools.test\n" );
+            writer.close();
+        }
+        // some file systems are only polled by the watch service
+        Set<File> changed = watcher.take( 30000,
+                                          500 );
+        assertEquals( Collections.singleton( watched ),
+                      changed );
+    }
+
+}
@@ -22,6 +22,9 @@ import java.io.ObjectOutput;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,6 +36,7 @@ import org.drools.RuleBaseFactory;
 import org.drools.base.ClassFieldAccessorCache;
 import org.drools.base.ClassFieldAccessorStore;
 import org.drools.base.ValueType;
+import org.drools.base.evaluators.ComparableEvaluatorsDefinition;
 import org.drools.base.evaluators.EqualityEvaluatorsDefinition;
 import org.drools.base.evaluators.Operator;
 import org.drools.base.field.LongFieldImpl;
@@ -54,6 +58,7 @@ public class CompositeObjectSinkAdapterTest {
     private BuildContext                 buildContext;
 
     private EqualityEvaluatorsDefinition equals = new EqualityEvaluatorsDefinition();
+    private ComparableEvaluatorsDefinition comparables = new ComparableEvaluatorsDefinition();
     ClassFieldAccessorStore store = new ClassFieldAccessorStore();
 
     @Before
@@ -491,6 +496,229 @@ public class CompositeObjectSinkAdapterTest {
 
     }
 
+    @Test
+    public void testRangeIndexedAlphas() {
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor extractor = store.getReader( Cheese.class,
+                                                          "price",
+                                                          this.getClass().getClassLoader() );
+
+        final AlphaNode lessThan10 = newRangeAlpha( extractor,
+                                                    Operator.LESS,
+                                                    10 );
+        final AlphaNode lessOrEqual10 = newRangeAlpha( extractor,
+                                                       Operator.LESS_OR_EQUAL,
+                                                       10 );
+        ad.addObjectSink( lessThan10 );
+        ad.addObjectSink( lessOrEqual10 );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+        assertFalse( ((CompositeObjectSinkAdapter.RangeIndex) ad.rangeIndexes.getFirst()).isIndexed() );
+
+        final AlphaNode greaterThan10 = newRangeAlpha( extractor,
+                                                       Operator.GREATER,
+                                                       10 );
+        final AlphaNode greaterOrEqual10 = newRangeAlpha( extractor,
+                                                          Operator.GREATER_OR_EQUAL,
+                                                          10 );
+        final AlphaNode greaterThan5 = newRangeAlpha( extractor,
+                                                      Operator.GREATER,
+                                                      5 );
+        final AlphaNode lessThan20 = newRangeAlpha( extractor,
+                                                    Operator.LESS,
+                                                    20 );
+        ad.addObjectSink( greaterThan10 );
+        ad.addObjectSink( greaterOrEqual10 );
+        ad.addObjectSink( greaterThan5 );
+        ad.addObjectSink( lessThan20 );
+
+        // the third range check on price moved them all to the index
+        assertNull( ad.otherSinks );
+        assertEquals( 6,
+                      ad.getSinks().length );
+        assertEquals( 6,
+                      ad.size() );
+        assertSame( greaterThan5,
+                    ad.getMatchingNode( newRangeAlpha( extractor,
+                                                       Operator.GREATER,
+                                                       5,
+                                                       greaterThan5.getParentObjectSource() ) ) );
+
+        assertPropagated( ad,
+                          10,
+                          new AlphaNode[]{lessOrEqual10, greaterOrEqual10, greaterThan5, lessThan20},
+                          new AlphaNode[]{lessThan10, greaterThan10} );
+        assertPropagated( ad,
+                          3,
+                          new AlphaNode[]{lessThan10, lessOrEqual10, lessThan20},
+                          new AlphaNode[]{greaterThan10, greaterOrEqual10, greaterThan5} );
+        assertPropagated( ad,
+                          25,
+                          new AlphaNode[]{greaterThan10, greaterOrEqual10, greaterThan5},
+                          new AlphaNode[]{lessThan10, lessOrEqual10, lessThan20} );
+
+        //now remove some, check the indexing is undone
+        ad.removeObjectSink( greaterThan10 );
+        ad.removeObjectSink( greaterOrEqual10 );
+        ad.removeObjectSink( greaterThan5 );
+        assertNull( ad.otherSinks );
+        ad.removeObjectSink( lessThan20 );
+        assertEquals( 2,
+                      ad.otherSinks.size() );
+        assertFalse( ((CompositeObjectSinkAdapter.RangeIndex) ad.rangeIndexes.getFirst()).isIndexed() );
+    }
+
+    @Test
+    public void testRangeIndexedAlphasPropagateInOrder() {
+        final List<Object> order = new ArrayList<Object>();
+        final CompositeObjectSinkAdapter ad = new CompositeObjectSinkAdapter();
+        InternalReadAccessor typeExtractor = store.getReader( Cheese.class,
+                                                              "type",
+                                                              this.getClass().getClassLoader() );
+        InternalReadAccessor priceExtractor = store.getReader( Cheese.class,
+                                                               "price",
+                                                               this.getClass().getClassLoader() );
+
+        final AlphaNode stilton = new AlphaNode( buildContext.getNextId(),
+                                                 new LiteralConstraint( typeExtractor,
+                                                                        equals.getEvaluator( ValueType.STRING_TYPE,
+                                                                                             Operator.EQUAL ),
+                                                                        new ObjectFieldImpl( "stilton" ) ),
+                                                 new MockObjectSource( buildContext.getNextId() ),
+                                                 buildContext );
+        stilton.addObjectSink( newOrderedSink( order,
+                                               stilton ) );
+        final AlphaNode greaterThan10 = newRangeAlpha( priceExtractor,
+                                                       Operator.GREATER,
+                                                       10 );
+        greaterThan10.addObjectSink( newOrderedSink( order,
+                                                     greaterThan10 ) );
+        final AlphaNode lessThan20 = newRangeAlpha( priceExtractor,
+                                                    Operator.LESS,
+                                                    20 );
+        lessThan20.addObjectSink( newOrderedSink( order,
+                                                  lessThan20 ) );
+        final AlphaNode greaterThan5 = newRangeAlpha( priceExtractor,
+                                                      Operator.GREATER,
+                                                      5 );
+        greaterThan5.addObjectSink( newOrderedSink( order,
+                                                    greaterThan5 ) );
+        final ObjectSink other = newOrderedSink( order,
+                                                 "other" );
+
+        // the range checks propagate among the others in the order they were added
+        ad.addObjectSink( greaterThan10 );
+        ad.addObjectSink( lessThan20 );
+        ad.addObjectSink( greaterThan5 );
+        ad.addObjectSink( stilton );
+        ad.addObjectSink( other );
+        assertTrue( ((CompositeObjectSinkAdapter.RangeIndex) ad.rangeIndexes.getFirst()).isIndexed() );
+
+        final InternalFactHandle handle = new ReteooFactHandleFactory().newFactHandle( new Cheese( "stilton",
+                                                                                                   15 ),
+                                                                                       null,
+                                                                                       null,
+                                                                                       new DisconnectedWorkingMemoryEntryPoint( "DEFAULT" ) );
+        // the hashable sink is evaluated, so it needs a working memory
+        final ReteooWorkingMemory workingMemory = (ReteooWorkingMemory) ruleBase.newStatefulSession();
+        ad.propagateAssertObject( handle,
+                                  null,
+                                  workingMemory );
+        workingMemory.dispose();
+
+        assertEquals( Arrays.asList( stilton,
+                                     greaterThan10,
+                                     lessThan20,
+                                     greaterThan5,
+                                     "other" ),
+                      order );
+
+        // and are put back among them in that order when unindexed
+        ad.removeObjectSink( greaterThan5 );
+        assertFalse( ((CompositeObjectSinkAdapter.RangeIndex) ad.rangeIndexes.getFirst()).isIndexed() );
+        assertSame( greaterThan10,
+                    ad.otherSinks.getFirst() );
+        assertSame( lessThan20,
+                    ad.otherSinks.getFirst().getNextObjectSinkNode() );
+        assertSame( other,
+                    ad.otherSinks.getLast() );
+    }
+
+    private ObjectSink newOrderedSink(final List<Object> order,
+                                      final Object name) {
+        return new MockObjectSink() {
+            public void assertObject(final InternalFactHandle factHandle,
+                                     final PropagationContext context,
+                                     final InternalWorkingMemory workingMemory) {
+                super.assertObject( factHandle,
+                                    context,
+                                    workingMemory );
+                order.add( name );
+            }
+        };
+    }
+
+    private AlphaNode newRangeAlpha(final InternalReadAccessor extractor,
+                                    final Operator operator,
+                                    final long value) {
+        return newRangeAlpha( extractor,
+                              operator,
+                              value,
+                              new MockObjectSource( buildContext.getNextId() ) );
+    }
+
+    private AlphaNode newRangeAlpha(final InternalReadAccessor extractor,
+                                    final Operator operator,
+                                    final long value,
+                                    final ObjectSource source) {
+        final LiteralConstraint lit = new LiteralConstraint( extractor,
+                                                             comparables.getEvaluator( extractor.getValueType(),
+                                                                                       operator ),
+                                                             new LongFieldImpl( value ) );
+        final AlphaNode alpha = new AlphaNode( buildContext.getNextId(),
+                                               lit,
+                                               source,
+                                               buildContext );
+        alpha.addObjectSink( new MockObjectSink() );
+        return alpha;
+    }
+
+    private void assertPropagated(final CompositeObjectSinkAdapter ad,
+                                  final int price,
+                                  final AlphaNode[] matching,
+                                  final AlphaNode[] notMatching) {
+        final Cheese cheese = new Cheese();
+        cheese.setPrice( price );
+        final InternalFactHandle handle = new ReteooFactHandleFactory().newFactHandle( cheese,
+                                                                                       null,
+                                                                                       null,
+                                                                                       new DisconnectedWorkingMemoryEntryPoint( "DEFAULT" ) );
+        final int[] before = new int[matching.length + notMatching.length];
+        for ( int i = 0; i < matching.length; i++ ) {
+            before[i] = getAssertedCount( matching[i] );
+        }
+        for ( int i = 0; i < notMatching.length; i++ ) {
+            before[matching.length + i] = getAssertedCount( notMatching[i] );
+        }
+
+        ad.propagateAssertObject( handle,
+                                  null,
+                                  null );
+
+        for ( int i = 0; i < matching.length; i++ ) {
+            assertEquals( before[i] + 1,
+                          getAssertedCount( matching[i] ) );
+        }
+        for ( int i = 0; i < notMatching.length; i++ ) {
+            assertEquals( before[matching.length + i],
+                          getAssertedCount( notMatching[i] ) );
+        }
+    }
+
+    private int getAssertedCount(final AlphaNode alpha) {
+        return ((MockObjectSink) alpha.getSinkPropagator().getSinks()[0]).getAsserted().size();
+    }
+
     public static class MockExtractor
         implements
         InternalReadAccessor {
@@ -16,6 +16,13 @@
 
 package org.drools.reteoo;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -113,4 +120,79 @@ public class PartitionTaskManagerTest {
         verify( action, times(5) ).execute(workingMemory);
     }
 
+    @Test
+    public void testPriorityAndHold() throws InterruptedException {
+        final List<String> executed = Collections.synchronizedList( new ArrayList<String>() );
+        manager = new PartitionManager( workingMemory,
+                                        1 );
+        taskManager = new PartitionTaskManager( manager,
+                                                workingMemory );
+
+        // higher priorities first, in the order enqueued for the same priority
+        taskManager.enqueue( new RecordingAction( "normal1", PartitionTaskManager.Action.PRIORITY_NORMAL, executed ) );
+        taskManager.enqueue( new RecordingAction( "low", PartitionTaskManager.Action.PRIORITY_LOW, executed ) );
+        taskManager.enqueue( new RecordingAction( "high", PartitionTaskManager.Action.PRIORITY_HIGH, executed ) );
+        taskManager.enqueue( new RecordingAction( "normal2", PartitionTaskManager.Action.PRIORITY_NORMAL, executed ) );
+
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        ExternalExecutorService service = new ExternalExecutorService( pool );
+        manager.setPool( service );
+        manager.waitForPendingTasks();
+        assertEquals( Arrays.asList( "high", "normal1", "normal2", "low" ), executed );
+
+        // only the high priority actions are executed while on hold
+        executed.clear();
+        manager.holdTasks();
+        taskManager.enqueue( new RecordingAction( "held", PartitionTaskManager.Action.PRIORITY_NORMAL, executed ) );
+        taskManager.enqueue( new RecordingAction( "high", PartitionTaskManager.Action.PRIORITY_HIGH, executed ) );
+        manager.waitForPendingTasks();
+        assertEquals( Arrays.asList( "high" ), executed );
+        assertEquals( 1, taskManager.getQueueSize() );
+
+        manager.releaseTasks();
+        manager.waitForPendingTasks();
+        assertEquals( Arrays.asList( "high", "held" ), executed );
+        assertEquals( 6, manager.getExecutedActionCount() );
+        assertEquals( 0, manager.getHeldTaskCount() );
+        pool.shutdown();
+    }
+
+    public static class RecordingAction
+        implements
+        PartitionTaskManager.Action {
+        private String       name;
+        private int          priority;
+        private List<String> executed;
+
+        public RecordingAction() {
+        }
+
+        public RecordingAction(String name,
+                               int priority,
+                               List<String> executed) {
+            this.name = name;
+            this.priority = priority;
+            this.executed = executed;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public void execute(InternalWorkingMemory workingMemory) {
+            executed.add( name );
+        }
+
+        public int compareTo(PartitionTaskManager.Action o) {
+            return this.priority - o.getPriority();
+        }
+
+        public void readExternal(ObjectInput in) throws IOException,
+                                                ClassNotFoundException {
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+        }
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.reteoo;
+
+import org.drools.common.DefaultFactHandle;
+import org.drools.common.InternalFactHandle;
+
+/**
+ * Prints the heap retained by each kind of tuple and by the fact handles,
+ * measured as the growth of the used heap while a large number of them is
+ * kept reachable.
+ *
+ * Usage: TupleFootprintBenchmark [tuples] [rounds]
+ */
+public class TupleFootprintBenchmark {
+
+    private interface Factory {
+        Object create(InternalFactHandle handle);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int tuples = args.length > 0 ? Integer.parseInt( args[0] ) : 500000;
+        int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 3;
+
+        final InternalFactHandle handle = new DefaultFactHandle( 1,
+                                                                 "object" );
+        for ( int i = 0; i < rounds; i++ ) {
+            run( "LeftTupleImpl             ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new LeftTupleImpl( handle,
+                                                   null,
+                                                   false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "JoinNodeLeftTuple         ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new JoinNodeLeftTuple( handle,
+                                                       null,
+                                                       false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "NotNodeLeftTuple          ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new NotNodeLeftTuple( handle,
+                                                      null,
+                                                      false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "EvalNodeLeftTuple         ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new EvalNodeLeftTuple( handle,
+                                                       null,
+                                                       false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "FromNodeLeftTuple         ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new FromNodeLeftTuple( handle,
+                                                       null,
+                                                       false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "QueryElementNodeLeftTuple ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new QueryElementNodeLeftTuple( handle,
+                                                               null,
+                                                               false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "QueryRiaFixerNodeLeftTuple",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new QueryRiaFixerNodeLeftTuple( handle,
+                                                                null,
+                                                                false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "RuleTerminalNodeLeftTuple ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new RuleTerminalNodeLeftTuple( handle,
+                                                               null,
+                                                               false );
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "RightTuple                ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new RightTuple();
+                     }
+                 },
+                 handle,
+                 tuples );
+            run( "DefaultFactHandle         ",
+                 new Factory() {
+                     public Object create(InternalFactHandle handle) {
+                         return new DefaultFactHandle();
+                     }
+                 },
+                 handle,
+                 tuples );
+        }
+    }
+
+    private static void run(String name,
+                            Factory factory,
+                            InternalFactHandle handle,
+                            int tuples) throws Exception {
+        Object[] retained = new Object[tuples];
+        long before = usedMemory();
+        for ( int i = 0; i < tuples; i++ ) {
+            retained[i] = factory.create( handle );
+        }
+        long after = usedMemory();
+        System.out.println( name + " " + (after - before) / tuples + " bytes" );
+        // keeps them reachable until measured
+        retained[0] = null;
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 4; i++ ) {
+            System.gc();
+            Thread.sleep( 50 );
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.drools.runtime.help.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.command.impl.GenericCommand;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+import org.junit.After;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class BatchExecutionMarshallersTest {
+
+    @After
+    public void tearDown() {
+        BatchExecutionMarshallers.clear();
+    }
+
+    @Test
+    public void testMarshallerPerClassLoader() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        XStream xml = BatchExecutionMarshallers.getXStreamMarshaller( classLoader );
+        assertSame( xml,
+                    BatchExecutionMarshallers.getXStreamMarshaller( classLoader ) );
+        assertNotSame( xml,
+                       BatchExecutionMarshallers.getJSonMarshaller( classLoader ) );
+        assertNotSame( xml,
+                       BatchExecutionMarshallers.getXStreamMarshaller( new ClassLoader( classLoader ) {
+                       } ) );
+    }
+
+    @Test
+    public void testXmlCommandsReadOneAtATime() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        String xml = BatchExecutionMarshallers.getXStreamMarshaller( classLoader ).toXML( newBatch() );
+
+        BatchExecutionCommandReader reader = BatchExecutionMarshallers.newXStreamReader( classLoader,
+                                                                                         new StringReader( xml ) );
+        assertEquals( "ksession1",
+                      reader.getLookup() );
+        assertCommands( reader );
+    }
+
+    @Test
+    public void testJSonCommandsReadOneAtATime() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        String json = BatchExecutionMarshallers.getJSonMarshaller( classLoader ).toXML( newBatch() );
+
+        BatchExecutionCommandReader reader = BatchExecutionMarshallers.newJSonReader( classLoader,
+                                                                                      new StringReader( json ) );
+        assertCommands( reader );
+        assertEquals( "ksession1",
+                      reader.getLookup() );
+    }
+
+    private BatchExecutionCommandImpl newBatch() {
+        List<GenericCommand< ? >> commands = new ArrayList<GenericCommand< ? >>();
+        commands.add( new InsertObjectCommand( "stilton",
+                                               "cheese" ) );
+        commands.add( new FireAllRulesCommand() );
+        return new BatchExecutionCommandImpl( commands,
+                                              "ksession1" );
+    }
+
+    private void assertCommands(BatchExecutionCommandReader reader) {
+        assertTrue( reader.hasNext() );
+        InsertObjectCommand insert = (InsertObjectCommand) reader.next();
+        assertEquals( "stilton",
+                      insert.getObject() );
+        assertEquals( "cheese",
+                      insert.getOutIdentifier() );
+        assertTrue( reader.next() instanceof FireAllRulesCommand );
+        assertFalse( reader.hasNext() );
+        reader.close();
+    }
+
+}
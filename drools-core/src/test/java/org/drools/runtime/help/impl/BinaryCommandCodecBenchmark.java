@@ -0,0 +1,118 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.runtime.help.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.StockTick;
+import org.drools.command.impl.GenericCommand;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Prints the size of a batch execution and the time taken to encode and
+ * decode it with the XML marshaller and with the binary codec.
+ *
+ * Usage: BinaryCommandCodecBenchmark [commands] [rounds]
+ */
+public class BinaryCommandCodecBenchmark {
+
+    public static void main(final String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt( args[0] ) : 1000;
+        int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 200;
+
+        List<GenericCommand< ? >> commands = new ArrayList<GenericCommand< ? >>();
+        for ( int i = 0; i < size; i++ ) {
+            commands.add( new InsertObjectCommand( new StockTick( i,
+                                                                  "RHT",
+                                                                  10 + i,
+                                                                  1000 * i ),
+                                                   "tick" + i ) );
+        }
+        commands.add( new FireAllRulesCommand() );
+        BatchExecutionCommandImpl batch = new BatchExecutionCommandImpl( commands,
+                                                                         "ksession1" );
+
+        XStream xstream = BatchExecutionMarshallers.getXStreamMarshaller( BinaryCommandCodecBenchmark.class.getClassLoader() );
+        BinaryCommandCodec codec = new BinaryCommandCodec();
+        codec.addFactSerializer( new StockTickSerializer() );
+
+        String xml = xstream.toXML( batch );
+        ByteBuffer buffer = codec.encode( batch,
+                                          ByteBuffer.allocate( 1024 ) );
+        System.out.println( "xml    : " + xml.getBytes( "UTF-8" ).length + " bytes" );
+        System.out.println( "binary : " + buffer.position() + " bytes" );
+
+        for ( int r = 0; r < 3; r++ ) {
+            long start = System.nanoTime();
+            for ( int i = 0; i < rounds; i++ ) {
+                xstream.fromXML( xstream.toXML( batch ) );
+            }
+            long xmlTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for ( int i = 0; i < rounds; i++ ) {
+                buffer.clear();
+                buffer = codec.encode( batch,
+                                       buffer );
+                buffer.flip();
+                codec.decode( buffer );
+            }
+            long binaryTime = System.nanoTime() - start;
+
+            System.out.println( "round " + r + ": xml " + (xmlTime / rounds / 1000) + " us, binary " + (binaryTime / rounds / 1000) + " us per batch" );
+        }
+    }
+
+    private static class StockTickSerializer
+        implements
+        FactSerializer {
+
+        public boolean accept(Object object) {
+            return object instanceof StockTick;
+        }
+
+        public void write(BinaryCommandCodec.Output out,
+                          Object object) {
+            StockTick tick = (StockTick) object;
+            ByteBuffer buffer = out.ensure( 28 );
+            buffer.putLong( tick.getSeq() );
+            buffer.putDouble( tick.getPrice() );
+            buffer.putLong( tick.getTime() );
+            buffer.putInt( (int) tick.getDuration() );
+            out.putString( tick.getCompany() );
+        }
+
+        public Object read(ByteBuffer in) {
+            long seq = in.getLong();
+            double price = in.getDouble();
+            long time = in.getLong();
+            long duration = in.getInt();
+            return new StockTick( seq,
+                                  BinaryCommandCodec.getString( in ),
+                                  price,
+                                  time,
+                                  duration );
+        }
+    }
+
+}
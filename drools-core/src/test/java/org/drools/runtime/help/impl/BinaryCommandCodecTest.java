@@ -0,0 +1,162 @@
+package org.drools.runtime.help.impl;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.Cheese;
+import org.drools.StockTick;
+import org.drools.command.impl.GenericCommand;
+import org.drools.command.runtime.BatchExecutionCommandImpl;
+import org.drools.command.runtime.SetGlobalCommand;
+import org.drools.command.runtime.rule.FireAllRulesCommand;
+import org.drools.command.runtime.rule.InsertElementsCommand;
+import org.drools.command.runtime.rule.InsertObjectCommand;
+import org.drools.command.runtime.rule.QueryCommand;
+import org.drools.command.runtime.rule.RetractCommand;
+import org.drools.common.DefaultFactHandle;
+import org.drools.common.InternalFactHandle;
+import org.drools.runtime.impl.ExecutionResultImpl;
+import org.junit.Test;
+
+public class BinaryCommandCodecTest {
+
+    @Test
+    public void testBatchExecutionRoundTrip() {
+        BinaryCommandCodec codec = new BinaryCommandCodec();
+
+        List<GenericCommand< ? >> commands = new ArrayList<GenericCommand< ? >>();
+        InsertObjectCommand insert = new InsertObjectCommand( new StockTick( 1,
+                                                                             "RHT",
+                                                                             10.5,
+                                                                             1000 ),
+                                                              "tick" );
+        insert.setDisconnected( true );
+        commands.add( insert );
+        InsertElementsCommand elements = new InsertElementsCommand( "list" );
+        elements.setObjects( new ArrayList<Object>( Arrays.asList( "a",
+                                                                   Integer.valueOf( 1 ),
+                                                                   Long.valueOf( 2 ) ) ) );
+        commands.add( elements );
+        commands.add( new RetractCommand( new DefaultFactHandle( "0:5:10:10:15:DEFAULT" ) ) );
+        commands.add( new SetGlobalCommand( "list",
+                                            new ArrayList<Object>() ) );
+        commands.add( new QueryCommand( "out",
+                                        "cheeses",
+                                        "stilton" ) );
+        commands.add( new FireAllRulesCommand( "fired",
+                                               10,
+                                               null ) );
+
+        // a small buffer, to check it grows
+        ByteBuffer buffer = codec.encode( new BatchExecutionCommandImpl( commands,
+                                                                         "ksession1" ),
+                                          ByteBuffer.allocate( 8 ) );
+        buffer.flip();
+        BatchExecutionCommandImpl batch = (BatchExecutionCommandImpl) codec.decode( buffer );
+        assertFalse( buffer.hasRemaining() );
+
+        assertEquals( "ksession1",
+                      batch.getLookup() );
+        assertEquals( 6,
+                      batch.getCommands().size() );
+
+        InsertObjectCommand decodedInsert = (InsertObjectCommand) batch.getCommands().get( 0 );
+        StockTick tick = (StockTick) decodedInsert.getObject();
+        assertEquals( "RHT",
+                      tick.getCompany() );
+        assertEquals( 1000,
+                      tick.getTime() );
+        assertEquals( "tick",
+                      decodedInsert.getOutIdentifier() );
+        assertTrue( decodedInsert.isDisconnected() );
+
+        assertEquals( Arrays.asList( "a",
+                                     Integer.valueOf( 1 ),
+                                     Long.valueOf( 2 ) ),
+                      new ArrayList<Object>( ((InsertElementsCommand) batch.getCommands().get( 1 )).getObjects() ) );
+        assertEquals( "0:5:10:10:15:DEFAULT",
+                      ((InternalFactHandle) ((RetractCommand) batch.getCommands().get( 2 )).getFactHandle()).toExternalForm() );
+        assertEquals( "list",
+                      ((SetGlobalCommand) batch.getCommands().get( 3 )).getIdentifier() );
+        QueryCommand query = (QueryCommand) batch.getCommands().get( 4 );
+        assertEquals( "cheeses",
+                      query.getName() );
+        assertEquals( Arrays.asList( "stilton" ),
+                      query.getArguments() );
+        FireAllRulesCommand fire = (FireAllRulesCommand) batch.getCommands().get( 5 );
+        assertEquals( "fired",
+                      fire.getOutIdentifier() );
+        assertEquals( 10,
+                      fire.getMax() );
+    }
+
+    @Test
+    public void testExecutionResultsRoundTrip() {
+        BinaryCommandCodec codec = new BinaryCommandCodec();
+
+        ExecutionResultImpl results = new ExecutionResultImpl();
+        results.getResults().put( "fired",
+                                  Integer.valueOf( 3 ) );
+        results.getResults().put( "cheese",
+                                  "stilton" );
+        results.getFactHandles().put( "cheese",
+                                      new DefaultFactHandle( "0:1:10:10:1:DEFAULT" ) );
+
+        ExecutionResultImpl decoded = (ExecutionResultImpl) codec.decode( codec.encode( results ) );
+        assertEquals( Integer.valueOf( 3 ),
+                      decoded.getValue( "fired" ) );
+        assertEquals( "stilton",
+                      decoded.getValue( "cheese" ) );
+        assertNull( decoded.getFactHandle( "fired" ) );
+        assertEquals( "0:1:10:10:1:DEFAULT",
+                      ((InternalFactHandle) decoded.getFactHandle( "cheese" )).toExternalForm() );
+    }
+
+    @Test
+    public void testFactSerializer() {
+        BinaryCommandCodec codec = new BinaryCommandCodec();
+        codec.addFactSerializer( new FactSerializer() {
+            public boolean accept(Object object) {
+                return object instanceof Cheese;
+            }
+
+            public void write(BinaryCommandCodec.Output out,
+                              Object object) {
+                Cheese cheese = (Cheese) object;
+                out.putString( cheese.getType() );
+                out.putInt( cheese.getPrice() );
+            }
+
+            public Object read(ByteBuffer in) {
+                return new Cheese( BinaryCommandCodec.getString( in ),
+                                   in.getInt() );
+            }
+        } );
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put( "brie",
+                 new Cheese( "brie",
+                             10 ) );
+        SetGlobalCommand set = new SetGlobalCommand( "cheeses",
+                                                     map );
+        byte[] bytes = codec.encode( set );
+
+        SetGlobalCommand decoded = (SetGlobalCommand) codec.decode( ByteBuffer.wrap( bytes ) );
+        assertEquals( map,
+                      decoded.getObject() );
+        // much smaller than the serialized cheese
+        assertTrue( bytes.length < 64 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotACommand() {
+        new BinaryCommandCodec().encode( "stilton" );
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.drools.time.impl;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CronScheduleTest {
+
+    private static final String[] EXPRESSIONS = new String[]{"0/5 * * * * ?", "0 0/15 9-17 ? * MON-FRI", "30 10 2 * * ?", "0 0 12 1,15,31 * ?", "0 0 0 ? JAN,JUN SUN", "15 45 23 29 2 ? *", "0 0 8 ? * SAT 2012-2014", "* * * * * ?"};
+
+    @Test
+    public void testDates() {
+        assertEquals( 0,
+                      CronSchedule.toDay( 1970,
+                                          1,
+                                          1 ) );
+        assertEquals( 19700101,
+                      CronSchedule.toDate( 0 ) );
+        assertEquals( 19691231,
+                      CronSchedule.toDate( -1 ) );
+        assertEquals( 20000229,
+                      CronSchedule.toDate( CronSchedule.toDay( 2000,
+                                                               2,
+                                                               29 ) ) );
+        for ( long day = -1000; day < 200000; day += 37 ) {
+            int date = CronSchedule.toDate( day );
+            assertEquals( day,
+                          CronSchedule.toDay( date / 10000,
+                                              (date / 100) % 100,
+                                              date % 100 ) );
+        }
+    }
+
+    @Test
+    public void testSameTimesAsCalendar() throws Exception {
+        assertSameTimesAsCalendar( TimeZone.getTimeZone( "UTC" ) );
+        assertSameTimesAsCalendar( TimeZone.getTimeZone( "Asia/Kolkata" ) );
+        assertSameTimesAsCalendar( TimeZone.getTimeZone( "America/New_York" ) );
+    }
+
+    @Test
+    public void testSharedByExpression() throws Exception {
+        TimeZone utc = TimeZone.getTimeZone( "UTC" );
+        CronExpression first = new CronExpression( "0 0/5 * * * ?" );
+        CronExpression second = new CronExpression( "0 0/5 * * * ?" );
+        assertSame( CronSchedule.getSchedule( first,
+                                              utc ),
+                    CronSchedule.getSchedule( second,
+                                              utc ) );
+        assertNotSame( CronSchedule.getSchedule( first,
+                                                 utc ),
+                       CronSchedule.getSchedule( first,
+                                                 TimeZone.getTimeZone( "Asia/Tokyo" ) ) );
+        // the special characters are left to the calendar
+        assertNull( CronSchedule.getSchedule( new CronExpression( "0 0 12 L * ?" ),
+                                              utc ) );
+        assertNull( CronSchedule.getSchedule( new CronExpression( "0 0 12 ? * 6#3" ),
+                                              utc ) );
+    }
+
+    private void assertSameTimesAsCalendar(TimeZone timeZone) throws Exception {
+        Random random = new Random( 0 );
+        for ( String text : EXPRESSIONS ) {
+            CronExpression expression = new CronExpression( text );
+            expression.setTimeZone( timeZone );
+            CronSchedule schedule = CronSchedule.getSchedule( expression,
+                                                              timeZone );
+            assertNotNull( schedule );
+            for ( int i = 0; i < 500; i++ ) {
+                // between 2011 and 2015
+                long time = 1293840000000L + (long) (random.nextDouble() * 4 * 365 * 86400000L);
+                long next = schedule.getTimeAfter( time );
+                Date expected = expression.getTimeAfterWithCalendar( new Date( time ) );
+                if ( next >= 0 ) {
+                    assertEquals( text + " after " + new Date( time ),
+                                  expected,
+                                  new Date( next ) );
+                } else if ( !timeZone.useDaylightTime() ) {
+                    assertNull( text + " after " + new Date( time ),
+                                expected );
+                }
+            }
+        }
+    }
+
+}
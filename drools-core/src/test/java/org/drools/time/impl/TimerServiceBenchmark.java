@@ -0,0 +1,64 @@
+package org.drools.time.impl;
+
+import java.util.Random;
+
+import org.drools.time.Job;
+import org.drools.time.JobContext;
+import org.drools.time.JobHandle;
+import org.drools.time.TimerService;
+
+/**
+ * Schedules and cancels a large number of far away jobs, as the expiration
+ * of events does, on the JDK and on the timing wheel timer services.
+ *
+ * Usage: TimerServiceBenchmark [jobs] [rounds]
+ */
+public class TimerServiceBenchmark {
+
+    private static final Job NOOP = new Job() {
+                                      public void execute(JobContext ctx) {
+                                      }
+                                  };
+
+    public static void main(final String[] args) throws Exception {
+        int jobs = args.length > 0 ? Integer.parseInt( args[0] ) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 5;
+
+        for ( int i = 0; i < rounds; i++ ) {
+            run( "jdk  ",
+                 new JDKTimerService(),
+                 jobs );
+            run( "wheel",
+                 new TimingWheelTimerService(),
+                 jobs );
+        }
+    }
+
+    private static void run(String name,
+                            TimerService timerService,
+                            int jobs) {
+        Random random = new Random( 0 );
+        JobHandle[] handles = new JobHandle[jobs];
+        long now = System.currentTimeMillis();
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < jobs; i++ ) {
+            // between one minute and one hour away
+            long delay = 60000 + random.nextInt( 3540000 );
+            handles[i] = timerService.scheduleJob( NOOP,
+                                                   null,
+                                                   new PointInTimeTrigger( now + delay,
+                                                                           null,
+                                                                           null ) );
+        }
+        long scheduled = System.nanoTime();
+        for ( int i = 0; i < jobs; i++ ) {
+            timerService.removeJob( handles[i] );
+        }
+        long cancelled = System.nanoTime();
+        timerService.shutdown();
+
+        System.out.println( name + " schedule: " + (scheduled - start) / jobs + "ns/job, cancel: " + (cancelled - scheduled) / jobs + "ns/job" );
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.drools.time.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.drools.ClockType;
+import org.drools.SessionConfiguration;
+import org.drools.time.Job;
+import org.drools.time.JobContext;
+import org.drools.time.JobHandle;
+import org.drools.time.TimerService;
+import org.drools.time.TimerServiceFactory;
+import org.drools.time.Trigger;
+import org.drools.time.impl.JDKTimerServiceTest.DelayedTrigger;
+import org.drools.time.impl.JDKTimerServiceTest.HelloWorldJob;
+import org.drools.time.impl.JDKTimerServiceTest.HelloWorldJobContext;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TimingWheelTimerServiceTest {
+
+    @Test
+    public void testSelectedByConfiguration() {
+        Properties properties = new Properties();
+        properties.setProperty( "drools.timerService",
+                                TimingWheelTimerService.class.getName() );
+        SessionConfiguration config = new SessionConfiguration( properties );
+        config.setClockType( ClockType.REALTIME_CLOCK );
+        TimerService timeService = TimerServiceFactory.getTimerService( config );
+        assertTrue( timeService instanceof TimingWheelTimerService );
+        timeService.shutdown();
+    }
+
+    @Test
+    public void testSingleExecutionJob() throws Exception {
+        TimerService timeService = new TimingWheelTimerService();
+        Trigger trigger = new DelayedTrigger( 100 );
+        HelloWorldJobContext ctx = new HelloWorldJobContext( "hello world",
+                                                             timeService );
+        timeService.scheduleJob( new HelloWorldJob(),
+                                 ctx,
+                                 trigger );
+        Thread.sleep( 500 );
+        timeService.shutdown();
+        assertEquals( 1,
+                      ctx.getList().size() );
+    }
+
+    @Test
+    public void testRepeatedExecutionJobWithRemove() throws Exception {
+        TimerService timeService = new TimingWheelTimerService();
+        Trigger trigger = new DelayedTrigger( new long[]{100, 100, 100, 100, 100, 100, 100, 100} );
+        HelloWorldJobContext ctx = new HelloWorldJobContext( "hello world",
+                                                             timeService );
+        ctx.setLimit( 3 );
+        ctx.setJobHandle( timeService.scheduleJob( new HelloWorldJob(),
+                                                   ctx,
+                                                   trigger ) );
+        Thread.sleep( 1000 );
+        timeService.shutdown();
+        // the job removes itself on its fifth execution
+        assertEquals( 5,
+                      ctx.getList().size() );
+    }
+
+    @Test
+    public void testJobsCascadeThroughTheWheels() throws Exception {
+        // 4 buckets of 5ms, so the later jobs start two levels up
+        TimerService timeService = new TimingWheelTimerService( 5,
+                                                                4 );
+        List<Integer> fired = Collections.synchronizedList( new ArrayList<Integer>() );
+        long now = System.currentTimeMillis();
+        int[] delays = new int[]{400, 20, 150, 60, 300};
+        for ( int delay : delays ) {
+            timeService.scheduleJob( new RecordJob( fired,
+                                                    delay ),
+                                     null,
+                                     new PointInTimeTrigger( now + delay,
+                                                             null,
+                                                             null ) );
+        }
+        JobHandle cancelled = timeService.scheduleJob( new RecordJob( fired,
+                                                                      200 ),
+                                                       null,
+                                                       new PointInTimeTrigger( now + 200,
+                                                                               null,
+                                                                               null ) );
+        assertTrue( timeService.removeJob( cancelled ) );
+        assertFalse( timeService.removeJob( cancelled ) );
+
+        Thread.sleep( 100 );
+        assertEquals( 2,
+                      fired.size() );
+        Thread.sleep( 600 );
+        timeService.shutdown();
+        assertEquals( 5,
+                      fired.size() );
+        assertEquals( new ArrayList<Integer>( fired ),
+                      sorted( fired ) );
+        assertFalse( fired.contains( 200 ) );
+    }
+
+    private static List<Integer> sorted(List<Integer> list) {
+        List<Integer> sorted = new ArrayList<Integer>( list );
+        Collections.sort( sorted );
+        return sorted;
+    }
+
+    public static class RecordJob
+        implements
+        Job {
+        private final List<Integer> fired;
+        private final int           delay;
+
+        public RecordJob(List<Integer> fired,
+                         int delay) {
+            this.fired = fired;
+            this.delay = delay;
+        }
+
+        public void execute(JobContext ctx) {
+            this.fired.add( this.delay );
+        }
+    }
+
+}
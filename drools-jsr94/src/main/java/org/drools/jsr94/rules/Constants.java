@@ -49,4 +49,10 @@ public final class Constants {
     
     /** <code>RuleExecutionSet</code> package builder config constant. */
     public static final String RES_PACKAGEBUILDER_CONFIG = "javax.rules.admin.RuleExecutionSet.packageBuilderConfiguration";
+
+    /** <code>RuleExecutionSet</code> number of released stateful sessions kept for reuse, 0 to disable. */
+    public static final String RES_SESSION_POOL_SIZE = "javax.rules.admin.RuleExecutionSet.sessionPoolSize";
+
+    /** <code>RuleExecutionSet</code> flag to recompile the sources even if a rule execution set was compiled from the same. */
+    public static final String RES_NO_CACHE = "javax.rules.admin.RuleExecutionSet.noCache";
 }
@@ -31,7 +31,6 @@ import javax.rules.RuleSessionCreateException;
 import javax.rules.StatefulRuleSession;
 
 import org.drools.FactHandle;
-import org.drools.SessionConfiguration;
 import org.drools.StatefulSession;
 import org.drools.jsr94.rules.admin.RuleExecutionSetImpl;
 import org.drools.jsr94.rules.repository.RuleExecutionSetRepository;
@@ -104,17 +103,16 @@ public class StatefulRuleSessionImpl extends AbstractRuleSessionImpl
 
         this.setRuleExecutionSet( ruleSet );
 
-        SessionConfiguration conf = new SessionConfiguration();
-        conf.setKeepReference( true );
-        initSession( conf );
+        initSession();
     }
     
     /**
      * Initialize this <code>RuleSession</code>
-     * with a new <code>WorkingMemory</code>.
+     * with a <code>WorkingMemory</code> from the pool of the
+     * <code>RuleExecutionSet</code>.
      */
-    protected void initSession(SessionConfiguration conf) {
-        this.session = this.getRuleExecutionSet().newStatefulSession( conf );
+    protected void initSession() {
+        this.session = this.getRuleExecutionSet().acquireStatefulSession();
 
         final Map props = this.getProperties();
         if ( props != null ) {
@@ -345,8 +343,8 @@ public class StatefulRuleSessionImpl extends AbstractRuleSessionImpl
      * <code>RuleExecutionSet</code>.
      */
     public void reset() {
-        // stateful rule sessions should not be high load, thus safe to keep references
-        initSession( new SessionConfiguration() );
+        this.getRuleExecutionSet().releaseStatefulSession( this.session );
+        initSession();
     }
 
     public int getType() throws InvalidRuleSessionException {
@@ -360,7 +358,8 @@ public class StatefulRuleSessionImpl extends AbstractRuleSessionImpl
      */
     public void release() {
         if ( this.session != null ) {
-            this.session.dispose();
+            // reset and kept for the next rule session
+            this.getRuleExecutionSet().releaseStatefulSession( this.session );
         }
         this.session = null;
         super.release();
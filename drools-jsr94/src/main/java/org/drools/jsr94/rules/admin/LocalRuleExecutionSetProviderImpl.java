@@ -28,6 +28,7 @@ import javax.rules.admin.RuleExecutionSet;
 import javax.rules.admin.RuleExecutionSetCreateException;
 
 import org.drools.IntegrationException;
+import org.drools.RuleBase;
 import org.drools.compiler.DroolsParserException;
 import org.drools.compiler.PackageBuilder;
 import org.drools.compiler.PackageBuilderConfiguration;
@@ -120,13 +121,6 @@ public class LocalRuleExecutionSetProviderImpl
                 config = (PackageBuilderConfiguration) properties.get( Constants.RES_PACKAGEBUILDER_CONFIG );
             }
             
-            PackageBuilder builder = null;
-            if ( config != null ) {
-                builder = new PackageBuilder(config);
-            } else {
-                builder = new PackageBuilder();
-            }
-            
             Object dsrl = null;
             String source = null;
             
@@ -146,38 +140,109 @@ public class LocalRuleExecutionSetProviderImpl
             if ( source == null ) {
                 source = "drl";
             }
+
+            Reader reader = ruleExecutionSetReader;
+            String key = null;
+            ClassLoader classLoader = null;
+            if ( isCacheable( properties ) ) {
+                // the same sources are compiled once, whatever the number of registrations
+                final String text = read( ruleExecutionSetReader );
+                if ( dsrl instanceof Reader ) {
+                    dsrl = read( (Reader) dsrl );
+                }
+                key = RuleBaseCache.digest( source,
+                                            (String) dsrl,
+                                            text );
+                classLoader = Thread.currentThread().getContextClassLoader();
+                if ( classLoader == null ) {
+                    classLoader = LocalRuleExecutionSetProviderImpl.class.getClassLoader();
+                }
+                final RuleBaseCache.Entry entry = RuleBaseCache.getInstance().get( classLoader,
+                                                                                   key );
+                if ( entry != null ) {
+                    return new RuleExecutionSetImpl( entry.getPackage(),
+                                                     entry.getRuleBase(),
+                                                     properties );
+                }
+                reader = new StringReader( text );
+            }
+            
+            PackageBuilder builder = null;
+            if ( config != null ) {
+                builder = new PackageBuilder(config);
+            } else {
+                builder = new PackageBuilder();
+            }
             
             if ( dsrl == null ) {
                 if ( source.equals( Constants.RES_SOURCE_TYPE_XML ) || source.equals( "xml" ) ) {
-                    builder.addPackageFromXml( ruleExecutionSetReader );
+                    builder.addPackageFromXml( reader );
                 } else {
-                    builder.addPackageFromDrl( ruleExecutionSetReader );
+                    builder.addPackageFromDrl( reader );
                 }
             } else {
                 if ( source.equals( Constants.RES_SOURCE_TYPE_XML ) || source.equals( "xml" ) ) {
                     // xml cannot specify a dsl
-                    builder.addPackageFromXml( ruleExecutionSetReader );
+                    builder.addPackageFromXml( reader );
                 } else {
                     if  ( dsrl instanceof Reader ) {
-                        builder.addPackageFromDrl( ruleExecutionSetReader,
+                        builder.addPackageFromDrl( reader,
                                                    (Reader) dsrl );
                     } else {
-                        builder.addPackageFromDrl( ruleExecutionSetReader,
+                        builder.addPackageFromDrl( reader,
                                                    new StringReader( (String) dsrl ) );
                     }
                 }
             }
             
             final Package pkg = builder.getPackage();
-            return createRuleExecutionSet( pkg,
-                                           properties );
+            if ( key == null || builder.hasErrors() ) {
+                return createRuleExecutionSet( pkg,
+                                               properties );
+            }
+            final RuleBase ruleBase = RuleExecutionSetImpl.newRuleBase( pkg,
+                                                                        null );
+            RuleBaseCache.getInstance().put( classLoader,
+                                             key,
+                                             pkg,
+                                             ruleBase );
+            return new RuleExecutionSetImpl( pkg,
+                                             ruleBase,
+                                             properties );
         } catch ( final IOException e ) {
             throw new RuleExecutionSetCreateException( "cannot create rule execution set",
                                                        e );
         } catch ( final DroolsParserException e ) {
             throw new RuleExecutionSetCreateException( "cannot create rule execution set",
                                                        e );
+        } catch ( final IntegrationException e ) {
+            throw new RuleExecutionSetCreateException( "Failed to create RuleExecutionSet",
+                                                       e );
+        }
+    }
+
+    /**
+     * The compiled sources are only shared when they are compiled with the
+     * default configurations, the configurations having no identity that
+     * could be part of the key.
+     */
+    private static boolean isCacheable(final Map properties) {
+        if ( properties == null ) {
+            return true;
+        }
+        return properties.get( Constants.RES_PACKAGEBUILDER_CONFIG ) == null && properties.get( Constants.RES_RULEBASE_CONFIG ) == null
+               && !Boolean.valueOf( String.valueOf( properties.get( Constants.RES_NO_CACHE ) ) ).booleanValue();
+    }
+
+    private static String read(final Reader reader) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final char[] buffer = new char[4096];
+        for ( int read = reader.read( buffer ); read != -1; read = reader.read( buffer ) ) {
+            text.append( buffer,
+                         0,
+                         read );
         }
+        return text.toString();
     }
     
     
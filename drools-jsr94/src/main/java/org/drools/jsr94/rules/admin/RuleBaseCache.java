@@ -0,0 +1,203 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.jsr94.rules.admin;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.drools.RuleBase;
+import org.drools.rule.Package;
+
+/**
+ * The packages compiled by the <code>LocalRuleExecutionSetProviderImpl</code>
+ * and their <code>RuleBase</code>, by digest of their sources and by class
+ * loader, so that registering the same sources again does not compile them
+ * again. Deployments with different class loaders do not share their rule
+ * bases, as these resolve the classes against the loader they were built with.
+ *
+ * Only the most recently used entries are kept. The class loaders are weakly
+ * held and the entries softly held, as a rule base references the loader it
+ * was built with, so that the cache does not keep undeployed class loaders
+ * from being collected: the entries of a collected loader are dropped.
+ */
+final class RuleBaseCache {
+
+    static final int                   MAX_ENTRIES = 32;
+
+    private static final char[]        HEX         = "0123456789abcdef".toCharArray();
+
+    private static final RuleBaseCache instance    = new RuleBaseCache( MAX_ENTRIES );
+
+    private final Map<Key, SoftReference<Entry>> entries;
+
+    private final ReferenceQueue<ClassLoader>    collected   = new ReferenceQueue<ClassLoader>();
+
+    RuleBaseCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<Key, SoftReference<Entry>>( 16,
+                                                                     0.75f,
+                                                                     true ) {
+            private static final long serialVersionUID = 510l;
+
+            protected boolean removeEldestEntry(final Map.Entry<Key, SoftReference<Entry>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static RuleBaseCache getInstance() {
+        return instance;
+    }
+
+    synchronized Entry get(final ClassLoader classLoader,
+                           final String digest) {
+        expunge();
+        final Key key = new Key( classLoader,
+                                 digest,
+                                 null );
+        final SoftReference<Entry> reference = this.entries.get( key );
+        if ( reference == null ) {
+            return null;
+        }
+        final Entry entry = reference.get();
+        if ( entry == null ) {
+            this.entries.remove( key );
+        }
+        return entry;
+    }
+
+    synchronized void put(final ClassLoader classLoader,
+                          final String digest,
+                          final Package pkg,
+                          final RuleBase ruleBase) {
+        expunge();
+        this.entries.put( new Key( classLoader,
+                                   digest,
+                                   this.collected ),
+                          new SoftReference<Entry>( new Entry( pkg,
+                                                               ruleBase ) ) );
+    }
+
+    synchronized void clear() {
+        expunge();
+        this.entries.clear();
+    }
+
+    synchronized int size() {
+        expunge();
+        return this.entries.size();
+    }
+
+    /**
+     * Drops the entries whose class loader was collected.
+     */
+    private void expunge() {
+        for ( Reference< ? extends ClassLoader> key = this.collected.poll(); key != null; key = this.collected.poll() ) {
+            this.entries.remove( key );
+        }
+    }
+
+    /**
+     * Returns the hexadecimal SHA-1 digest of the given texts, none of
+     * them being mistaken for the concatenation of others.
+     */
+    static String digest(final String... texts) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            for ( String text : texts ) {
+                if ( text == null ) {
+                    digest.update( (byte) 0 );
+                } else {
+                    digest.update( (byte) 1 );
+                    digest.update( text.getBytes( "UTF-8" ) );
+                    digest.update( (byte) 0 );
+                }
+            }
+            final byte[] bytes = digest.digest();
+            final char[] chars = new char[bytes.length * 2];
+            for ( int i = 0; i < bytes.length; i++ ) {
+                chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+            }
+            return new String( chars );
+        } catch ( final NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( "SHA-1 is not available: " + e.getMessage() );
+        } catch ( final UnsupportedEncodingException e ) {
+            throw new IllegalStateException( "UTF-8 is not available: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * The digest of the sources and the weakly held class loader, compared by
+     * identity. Once the class loader is collected, a key only equals itself.
+     */
+    private static final class Key extends WeakReference<ClassLoader> {
+        private final String digest;
+        private final int    hashCode;
+
+        private Key(final ClassLoader classLoader,
+                    final String digest,
+                    final ReferenceQueue<ClassLoader> queue) {
+            super( classLoader,
+                   queue );
+            this.digest = digest;
+            this.hashCode = 31 * System.identityHashCode( classLoader ) + digest.hashCode();
+        }
+
+        public boolean equals(final Object object) {
+            if ( this == object ) {
+                return true;
+            }
+            if ( !(object instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) object;
+            final ClassLoader classLoader = get();
+            return classLoader != null && classLoader == other.get() && this.digest.equals( other.digest );
+        }
+
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    static final class Entry {
+        private final Package  pkg;
+        private final RuleBase ruleBase;
+
+        private Entry(final Package pkg,
+                      final RuleBase ruleBase) {
+            this.pkg = pkg;
+            this.ruleBase = ruleBase;
+        }
+
+        Package getPackage() {
+            return this.pkg;
+        }
+
+        RuleBase getRuleBase() {
+            return this.ruleBase;
+        }
+    }
+
+}
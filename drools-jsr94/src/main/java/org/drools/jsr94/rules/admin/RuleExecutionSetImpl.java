@@ -19,6 +19,7 @@ package org.drools.jsr94.rules.admin;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,8 +33,14 @@ import org.drools.RuleIntegrationException;
 import org.drools.SessionConfiguration;
 import org.drools.StatefulSession;
 import org.drools.StatelessSession;
+import org.drools.base.MapGlobalResolver;
+import org.drools.common.AbstractWorkingMemory;
+import org.drools.common.InternalFactHandle;
+import org.drools.common.InternalRuleBase;
+import org.drools.conf.EventProcessingOption;
 import org.drools.jsr94.rules.Constants;
 import org.drools.jsr94.rules.Jsr94FactHandleFactory;
+import org.drools.reteoo.ReteooWorkingMemory.WorkingMemoryReteAssertAction;
 import org.drools.rule.Package;
 import org.drools.rule.Rule;
 
@@ -50,6 +57,9 @@ public class RuleExecutionSetImpl
     RuleExecutionSet {
     private static final long serialVersionUID = 510l;
 
+    /** The number of released stateful sessions kept by default */
+    public static final int   DEFAULT_SESSION_POOL_SIZE = 8;
+
     /**
      * A description of this rule execution set or null if no
      * description is specified.
@@ -83,6 +93,11 @@ public class RuleExecutionSetImpl
      */
     private ObjectFilter      objectFilter;
 
+    /** The stateful sessions released, ready to be acquired again */
+    private transient LinkedList<StatefulSession> sessionPool;
+
+    private transient Boolean poolable;
+
     /**
      * Instances of this class should be obtained from the
      * <code>LocalRuleExecutionSetProviderImpl</code>. Each
@@ -103,6 +118,20 @@ public class RuleExecutionSetImpl
      */
     RuleExecutionSetImpl(final Package pkg,
                          final Map properties) throws IntegrationException {
+        this( pkg,
+              newRuleBase( pkg,
+                           properties == null ? null : (RuleBaseConfiguration) properties.get( Constants.RES_RULEBASE_CONFIG ) ),
+              properties );
+    }
+
+    /**
+     * Creates a <code>RuleExecutionSet</code> sharing the
+     * <code>RuleBase</code> already built for the given
+     * <code>Package</code>.
+     */
+    RuleExecutionSetImpl(final Package pkg,
+                         final RuleBase ruleBase,
+                         final Map properties) {
         if ( null == properties ) {
             this.properties = new HashMap();
         } else {
@@ -110,8 +139,11 @@ public class RuleExecutionSetImpl
         }
         this.pkg = pkg;
         this.description = pkg.getName();//..getDocumentation( );
-        
-        RuleBaseConfiguration config = ( RuleBaseConfiguration ) this.properties.get( Constants.RES_RULEBASE_CONFIG );
+        this.ruleBase = ruleBase;
+    }
+
+    static RuleBase newRuleBase(final Package pkg,
+                                final RuleBaseConfiguration config) throws IntegrationException {
         org.drools.reteoo.ReteooRuleBase ruleBase;
         if ( config != null ) {
             ruleBase = new org.drools.reteoo.ReteooRuleBase( null,
@@ -122,8 +154,7 @@ public class RuleExecutionSetImpl
                                                              new Jsr94FactHandleFactory() );
         }
         ruleBase.addPackage( pkg );
-
-        this.ruleBase = ruleBase;
+        return ruleBase;
     }
 
     /**
@@ -176,6 +207,96 @@ public class RuleExecutionSetImpl
         return this.ruleBase.newStatelessSession();
     }
 
+    RuleBase getRuleBase() {
+        return this.ruleBase;
+    }
+
+    /**
+     * Returns a stateful session from the pool of this rule execution set,
+     * or a new one if the pool is empty. The session is to be handed back
+     * with <code>releaseStatefulSession</code> once done with.
+     *
+     * @return A stateful session without any fact nor global.
+     */
+    public StatefulSession acquireStatefulSession() {
+        synchronized ( this ) {
+            if ( this.sessionPool != null && !this.sessionPool.isEmpty() ) {
+                return this.sessionPool.removeLast();
+            }
+        }
+        final SessionConfiguration conf = new SessionConfiguration();
+        conf.setKeepReference( true );
+        return newStatefulSession( conf );
+    }
+
+    /**
+     * Resets the given session, acquired from this rule execution set, and
+     * keeps it in the pool for the next <code>acquireStatefulSession</code>.
+     * The session is disposed of instead if the pool is full, or if it can
+     * not be reset safely, as when its rules have timers or rule flows.
+     *
+     * @param session the session to release
+     */
+    public void releaseStatefulSession(final StatefulSession session) {
+        if ( getSessionPoolSize() > 0 && isPoolable() && session instanceof AbstractWorkingMemory ) {
+            final AbstractWorkingMemory workingMemory = (AbstractWorkingMemory) session;
+            // keep the fact handle ids growing, so that stale handles do not match
+            workingMemory.reset( workingMemory.getFactHandleFactory().getId(),
+                                 workingMemory.getFactHandleFactory().getRecency(),
+                                 workingMemory.getPropagationIdCounter() );
+            workingMemory.setGlobalResolver( new MapGlobalResolver() );
+            // the initial fact is asserted again, as for a new session, for the
+            // rules matching on it such as the ones with an empty left hand side
+            final InternalFactHandle initialFactHandle = workingMemory.getInitialFactHandle();
+            initialFactHandle.setFirstLeftTuple( null );
+            initialFactHandle.setLastLeftTuple( null );
+            initialFactHandle.setFirstRightTuple( null );
+            initialFactHandle.setLastRightTuple( null );
+            workingMemory.queueWorkingMemoryAction( new WorkingMemoryReteAssertAction( initialFactHandle,
+                                                                                       false,
+                                                                                       true,
+                                                                                       null,
+                                                                                       null ) );
+            synchronized ( this ) {
+                if ( this.sessionPool == null ) {
+                    this.sessionPool = new LinkedList<StatefulSession>();
+                }
+                if ( this.sessionPool.size() < getSessionPoolSize() ) {
+                    this.sessionPool.addLast( session );
+                    return;
+                }
+            }
+        }
+        session.dispose();
+    }
+
+    private int getSessionPoolSize() {
+        final Object size = this.properties.get( Constants.RES_SESSION_POOL_SIZE );
+        if ( size == null ) {
+            return DEFAULT_SESSION_POOL_SIZE;
+        }
+        return size instanceof Number ? ((Number) size).intValue() : Integer.parseInt( size.toString().trim() );
+    }
+
+    /**
+     * Sessions are only reset if nothing outlives their facts, as the
+     * reset does not cancel timers nor process instances.
+     */
+    private boolean isPoolable() {
+        if ( this.poolable == null ) {
+            boolean poolable = this.pkg.getRuleFlows().isEmpty();
+            final Rule[] rules = this.pkg.getRules();
+            for ( int i = 0; poolable && i < rules.length; i++ ) {
+                poolable = rules[i].getTimer() == null;
+            }
+            if ( this.ruleBase instanceof InternalRuleBase ) {
+                poolable &= ((InternalRuleBase) this.ruleBase).getConfiguration().getEventProcessingMode() == EventProcessingOption.CLOUD;
+            }
+            this.poolable = Boolean.valueOf( poolable );
+        }
+        return this.poolable.booleanValue();
+    }
+
     // JSR94 interface methods start here -------------------------------------
 
     /**
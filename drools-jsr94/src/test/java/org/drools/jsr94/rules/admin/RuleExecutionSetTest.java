@@ -17,11 +17,22 @@
 package org.drools.jsr94.rules.admin;
 
 import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import javax.rules.admin.LocalRuleExecutionSetProvider;
 import javax.rules.admin.RuleAdministrator;
 import javax.rules.admin.RuleExecutionSet;
 
+import org.drools.FactHandle;
+import org.drools.StatefulSession;
+import org.drools.jsr94.rules.Constants;
+import org.drools.jsr94.rules.Person;
 import org.drools.jsr94.rules.RuleEngineTestBase;
 
 import org.junit.After;
@@ -69,4 +80,117 @@ public class RuleExecutionSetTest extends RuleEngineTestBase {
         assertNull( "rule set default filter",
                     ruleSet.getDefaultObjectFilter() );
     }
+
+    @Test
+    public void testSourcesCompiledOnce() throws Exception {
+        final RuleExecutionSetImpl first = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                               null );
+        final RuleExecutionSetImpl second = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                                null );
+        assertNotSame( first,
+                       second );
+        assertSame( first.getRuleBase(),
+                    second.getRuleBase() );
+
+        final Map properties = new HashMap();
+        properties.put( Constants.RES_NO_CACHE,
+                        "true" );
+        final RuleExecutionSetImpl third = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                               properties );
+        assertNotSame( first.getRuleBase(),
+                       third.getRuleBase() );
+    }
+
+    @Test
+    public void testCacheDropsCollectedClassLoaders() throws Exception {
+        final RuleBaseCache cache = new RuleBaseCache( RuleBaseCache.MAX_ENTRIES );
+        ClassLoader classLoader = new URLClassLoader( new URL[0] );
+        final WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>( classLoader );
+        cache.put( classLoader,
+                   RuleBaseCache.digest( "rules" ),
+                   null,
+                   null );
+        assertNotNull( cache.get( classLoader,
+                                  RuleBaseCache.digest( "rules" ) ) );
+
+        // the cache does not keep the class loader from being collected
+        classLoader = null;
+        for ( int i = 0; i < 100 && reference.get() != null; i++ ) {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( reference.get() );
+        assertEquals( 0,
+                      cache.size() );
+    }
+
+    @Test
+    public void testSessionPool() throws Exception {
+        final RuleExecutionSetImpl ruleSet = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                                 null );
+        final StatefulSession session = ruleSet.acquireStatefulSession();
+        final FactHandle handle = session.insert( new Person( "bob" ) );
+        ruleSet.releaseStatefulSession( session );
+
+        final StatefulSession reused = ruleSet.acquireStatefulSession();
+        assertSame( session,
+                    reused );
+        assertFalse( reused.iterateObjects().hasNext() );
+        assertNull( reused.getObject( handle ) );
+        assertNotSame( session,
+                       ruleSet.acquireStatefulSession() );
+
+        ruleSet.setProperty( Constants.RES_SESSION_POOL_SIZE,
+                             "0" );
+        ruleSet.releaseStatefulSession( reused );
+        assertNotSame( reused,
+                       ruleSet.acquireStatefulSession() );
+    }
+
+    @Test
+    public void testSourcesCompiledPerClassLoader() throws Exception {
+        final RuleExecutionSetImpl first = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                               null );
+        final Thread thread = Thread.currentThread();
+        final ClassLoader classLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader( new URLClassLoader( new URL[0],
+                                                          classLoader ) );
+        try {
+            final RuleExecutionSetImpl second = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( RuleEngineTestBase.class.getResourceAsStream( this.bindUri ),
+                                                                                                                    null );
+            assertNotSame( first.getRuleBase(),
+                           second.getRuleBase() );
+        } finally {
+            thread.setContextClassLoader( classLoader );
+        }
+    }
+
+    @Test
+    public void testPooledSessionMatchesInitialFact() throws Exception {
+        final String drl = "package org.drools.jsr94.rules.admin\n" +
+                           "import org.drools.jsr94.rules.Person\n" +
+                           "rule \"nobody\"\n" +
+                           "when\n" +
+                           "    not Person()\n" +
+                           "then\n" +
+                           "    insert( \"nobody\" );\n" +
+                           "end\n";
+        final RuleExecutionSetImpl ruleSet = (RuleExecutionSetImpl) this.ruleSetProvider.createRuleExecutionSet( new StringReader( drl ),
+                                                                                                                 null );
+        final StatefulSession session = ruleSet.acquireStatefulSession();
+        session.fireAllRules();
+        assertEquals( "nobody",
+                      session.iterateObjects().next() );
+        ruleSet.releaseStatefulSession( session );
+
+        final StatefulSession reused = ruleSet.acquireStatefulSession();
+        assertSame( session,
+                    reused );
+        assertFalse( reused.iterateObjects().hasNext() );
+        reused.fireAllRules();
+        final Iterator it = reused.iterateObjects();
+        assertEquals( "nobody",
+                      it.next() );
+        assertFalse( it.hasNext() );
+    }
 }
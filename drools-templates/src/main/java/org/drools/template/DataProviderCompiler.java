@@ -20,8 +20,12 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.drools.lang.descr.PackageDescr;
 import org.drools.template.parser.DataListener;
+import org.drools.template.parser.DecisionTableParseException;
 import org.drools.template.parser.DefaultTemplateContainer;
+import org.drools.template.parser.DefaultTemplateRuleBase;
+import org.drools.template.parser.PackageDescrGenerator;
 import org.drools.template.parser.TemplateContainer;
 import org.drools.template.parser.TemplateDataListener;
 
@@ -74,6 +78,48 @@ public class DataProviderCompiler {
         return listener.renderDRL();
     }
 
+    /**
+     * Generates the rules for the data provider straight into a PackageDescr,
+     * row by row, without rendering the DRL of the whole table and parsing it.
+     * @param dataProvider the data provider for the spreadsheet data
+     * @param template the string containing the template resource name
+     * @return the PackageDescr of the template header, with the generated rules
+     */
+    public PackageDescr compileToPackageDescr(final DataProvider dataProvider,
+                                              final String template) {
+        final InputStream templateStream = this.getClass().getResourceAsStream( template );
+        return compileToPackageDescr( dataProvider,
+                                      templateStream );
+    }
+
+    /**
+     * Generates the rules for the data provider straight into a PackageDescr,
+     * row by row, without rendering the DRL of the whole table and parsing it.
+     * @param dataProvider the data provider for the spreadsheet data
+     * @param templateStream the InputStream for reading the templates
+     * @return the PackageDescr of the template header, with the generated rules
+     * @throws DecisionTableParseException if the header or a generated rule
+     *         cannot be parsed
+     */
+    public PackageDescr compileToPackageDescr(final DataProvider dataProvider,
+                                              final InputStream templateStream) {
+        TemplateContainer tc = new DefaultTemplateContainer( templateStream );
+        closeStream( templateStream );
+        PackageDescrGenerator generator = new PackageDescrGenerator( tc );
+        List<DataListener> listeners = new ArrayList<DataListener>();
+        listeners.add( new TemplateDataListener( 1,
+                                                 1,
+                                                 tc,
+                                                 new DefaultTemplateRuleBase( tc ),
+                                                 generator ) );
+        processData( dataProvider,
+                     listeners );
+        if ( generator.hasErrors() ) {
+            throw new DecisionTableParseException( "Unable to parse the generated rules: " + generator.getErrors() );
+        }
+        return generator.getPackageDescr();
+    }
+
     private void processData(final DataProvider dataProvider,
                              List<DataListener> listeners) {
         for ( int i = 0; dataProvider.hasNext(); i++ ) {
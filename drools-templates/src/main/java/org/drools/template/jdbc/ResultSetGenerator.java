@@ -1,7 +1,11 @@
 package org.drools.template.jdbc;
 
+import org.drools.lang.descr.PackageDescr;
 import org.drools.template.parser.TemplateContainer;
 import org.drools.template.parser.DefaultTemplateContainer;
+import org.drools.template.parser.DefaultTemplateRuleBase;
+import org.drools.template.parser.DecisionTableParseException;
+import org.drools.template.parser.PackageDescrGenerator;
 import org.drools.template.parser.TemplateDataListener;
 import org.drools.template.parser.DataListener;
 
@@ -65,6 +69,50 @@ public String compile(final ResultSet rs,
     return listener.renderDRL();
 }
 
+/**
+ * Generates the rules for the resultset straight into a PackageDescr, row by
+ * row, without rendering the DRL of the whole table and parsing it.
+ *
+ * @param rs       the resultset for the table data
+ * @param template the string containing the template resource name
+ * @return the PackageDescr of the template header, with the generated rules
+ */
+public PackageDescr compileToPackageDescr(final ResultSet rs,
+                                          final String template) {
+    final InputStream templateStream = this.getClass().getResourceAsStream(template);
+    return compileToPackageDescr(rs,
+            templateStream);
+}
+
+/**
+ * Generates the rules for the resultset straight into a PackageDescr, row by
+ * row, without rendering the DRL of the whole table and parsing it.
+ *
+ * @param rs             the resultset for the table data
+ * @param templateStream the InputStream for reading the templates
+ * @return the PackageDescr of the template header, with the generated rules
+ * @throws DecisionTableParseException if the header or a generated rule
+ *         cannot be parsed
+ */
+public PackageDescr compileToPackageDescr(final ResultSet rs,
+                                          final InputStream templateStream) {
+    TemplateContainer tc = new DefaultTemplateContainer(templateStream);
+    closeStream(templateStream);
+    PackageDescrGenerator generator = new PackageDescrGenerator(tc);
+    List<DataListener> listeners = new ArrayList<DataListener>();
+    listeners.add(new TemplateDataListener(1,
+            1,
+            tc,
+            new DefaultTemplateRuleBase(tc),
+            generator));
+    processData(rs,
+            listeners);
+    if (generator.hasErrors()) {
+        throw new DecisionTableParseException("Unable to parse the generated rules: " + generator.getErrors());
+    }
+    return generator.getPackageDescr();
+}
+
 /**
  * Iterate through the resultset.
  * @param rs       the resultset for the table data
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.template.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.drools.compiler.DrlParser;
+import org.drools.compiler.DroolsError;
+import org.drools.compiler.DroolsParserException;
+import org.drools.lang.descr.FunctionDescr;
+import org.drools.lang.descr.GlobalDescr;
+import org.drools.lang.descr.ImportDescr;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.lang.descr.RuleDescr;
+import org.mvel2.templates.CompiledTemplate;
+import org.mvel2.templates.SimpleTemplateRegistry;
+import org.mvel2.templates.TemplateCompiler;
+import org.mvel2.templates.TemplateRegistry;
+import org.mvel2.templates.TemplateRuntime;
+
+/**
+ * Generates the rules for the rows of a decision table straight into a
+ * PackageDescr, instead of DRL text that would then be parsed as a whole.
+ *
+ * A template is parsed once, rendered with markers in place of the cell
+ * values, and the RuleDescrs of each row are copies of that prototype with
+ * the row's values filled in. As optional lines of a template depend on which
+ * cells are empty, a prototype is kept for each combination of columns and
+ * empty cells met, checked once against the rendered DRL of the first row it
+ * is used for. Only templates made of plain cell values and optional lines
+ * are handled this way: the rows of the others, for instance with a value
+ * standing for an operator or with expressions on the values, are rendered
+ * and parsed on their own.
+ *
+ * Nothing is kept per row but the generated rules, so any number of rows can
+ * be streamed through it. The DRL of the rows is only kept, for getDrl(), if
+ * setRetainDrl(true) is called before generating them. Either way the rules
+ * are located at the lines they take in the DRL of the header followed by the
+ * rows, as rendered by the TemplateDataListener.
+ */
+public class PackageDescrGenerator
+    implements
+    Generator {
+
+    private static final String               ROW_NUMBER     = "row.rowNumber";
+
+    /** The number of prototypes kept, the least recently used being dropped */
+    static final int                          MAX_PROTOTYPES = 256;
+
+    /** The orbs RuleTemplate generates: plain values and optional lines */
+    private static final Pattern              ORB            = Pattern.compile( "@(\\w*)\\{([^}]*)\\}" );
+    private static final Pattern              VALUE          = Pattern.compile( "\\s*(\\w+|row\\.rowNumber)\\s*" );
+    private static final Pattern              OPTIONAL       = Pattern.compile( "\\s*\\w+\\s*!=\\s*null\\s*" );
+
+    private Map<String, RuleTemplate>         ruleTemplates;
+
+    private TemplateRegistry                  registry       = new SimpleTemplateRegistry();
+
+    private PackageDescr                      packageDescr;
+
+    private List<DroolsError>                 errors         = new ArrayList<DroolsError>();
+
+    private Map<String, Integer>              markerIndexes  = new HashMap<String, Integer>();
+
+    /** The prototypes by template, columns and empty cells, null if the rows are to be parsed */
+    private Map<String, RuleDescrPrototype>   prototypes     = new LinkedHashMap<String, RuleDescrPrototype>( 16,
+                                                                                                             0.75f,
+                                                                                                             true ) {
+                                                                 private static final long serialVersionUID = 510l;
+
+                                                                 protected boolean removeEldestEntry(Map.Entry<String, RuleDescrPrototype> eldest) {
+                                                                     return size() > MAX_PROTOTYPES;
+                                                                 }
+                                                             };
+
+    /** Whether each template is made of the orbs prototypes handle */
+    private Map<String, Boolean>              plainTemplates = new HashMap<String, Boolean>();
+
+    /** The rendered DRL or the GeneratedRow of each row, null unless retained for getDrl() */
+    List<Object>                              rows;
+
+    /** The lines taken by the header and the rows generated so far */
+    private int                               lineOffset;
+
+    private int                               parsedRows;
+
+    public PackageDescrGenerator(final TemplateContainer tc) {
+        this( tc.getTemplates(),
+              tc.getHeader() );
+    }
+
+    /**
+     * @param t the templates
+     * @param header the DRL heading the generated rules, usually the package
+     *        declaration, imports and globals
+     */
+    public PackageDescrGenerator(final Map<String, RuleTemplate> t,
+                                 final String header) {
+        ruleTemplates = t;
+        packageDescr = parse( header == null ? "" : header );
+        if ( packageDescr == null ) {
+            packageDescr = new PackageDescr();
+        }
+        lineOffset = RuleDescrPrototype.countLines( String.valueOf( header ) ) + 1;
+    }
+
+    /**
+     * Sets whether the DRL of the rows generated from now on is kept, to be
+     * returned by getDrl(). It is not by default, as it grows with the rows.
+     */
+    public void setRetainDrl(final boolean retainDrl) {
+        if ( !retainDrl ) {
+            rows = null;
+        } else if ( rows == null ) {
+            rows = new ArrayList<Object>();
+        }
+    }
+
+    public void generate(String templateName,
+                         Row row) {
+        CompiledTemplate template = getTemplate( templateName );
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put( "row",
+                  row );
+        for ( Cell cell : row.getCells() ) {
+            cell.addValue( vars );
+        }
+
+        RuleDescrPrototype prototype = null;
+        String[] values = null;
+        if ( isPlainTemplate( templateName ) ) {
+            // the vars the prototype is rendered with, and the key of the prototype
+            Map<String, Object> markerVars = new HashMap<String, Object>();
+            Map<Integer, String> rowValues = new HashMap<Integer, String>();
+            StringBuilder key = new StringBuilder( templateName );
+            List<String> names = new ArrayList<String>( vars.keySet() );
+            Collections.sort( names );
+            for ( String name : names ) {
+                Object value = vars.get( name );
+                key.append( '|' ).append( name );
+                if ( "row".equals( name ) ) {
+                    int index = getMarkerIndex( ROW_NUMBER );
+                    markerVars.put( name,
+                                    new MarkerRow( RuleDescrPrototype.marker( index ) ) );
+                    rowValues.put( index,
+                                   String.valueOf( row.getRowNumber() ) );
+                } else if ( value instanceof String || value instanceof Number ) {
+                    String text = value.toString();
+                    if ( text.indexOf( '\n' ) >= 0 || text.indexOf( '\r' ) >= 0 ) {
+                        // the lines of the copies would not match the DRL
+                        key = null;
+                        break;
+                    }
+                    int index = getMarkerIndex( name );
+                    markerVars.put( name,
+                                    RuleDescrPrototype.marker( index ) );
+                    rowValues.put( index,
+                                   text );
+                } else if ( value == null || value instanceof Boolean ) {
+                    // empty cells and booleans select the optional lines
+                    markerVars.put( name,
+                                    value );
+                    key.append( '=' ).append( value );
+                } else {
+                    key = null;
+                    break;
+                }
+            }
+            if ( key != null ) {
+                values = new String[markerIndexes.size()];
+                for ( Map.Entry<Integer, String> entry : rowValues.entrySet() ) {
+                    values[entry.getKey()] = entry.getValue();
+                }
+                prototype = getPrototype( key.toString(),
+                                          template,
+                                          markerVars,
+                                          vars,
+                                          values );
+            }
+        }
+
+        if ( prototype != null ) {
+            for ( RuleDescr rule : prototype.newRules( values,
+                                                       lineOffset ) ) {
+                packageDescr.addRule( rule );
+            }
+            if ( rows != null ) {
+                rows.add( new GeneratedRow( prototype,
+                                            values ) );
+            }
+            lineOffset += prototype.getLineCount() + 1;
+        } else {
+            parsedRows++;
+            String drl = render( template,
+                                 vars );
+            PackageDescr rowDescr = parse( drl );
+            if ( rowDescr != null ) {
+                RuleDescrPrototype.relocate( rowDescr.getRules(),
+                                             lineOffset );
+                merge( rowDescr );
+            }
+            if ( rows != null ) {
+                rows.add( drl );
+            }
+            lineOffset += RuleDescrPrototype.countLines( drl ) + 1;
+        }
+    }
+
+    /**
+     * Returns the DRL of the rules generated while setRetainDrl(true) was in
+     * effect, without the header, rendering the rows generated from a
+     * prototype. It is empty if the DRL was not retained.
+     */
+    public String getDrl() {
+        if ( rows == null ) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for ( Object row : rows ) {
+            sb.append( row ).append( "\n" );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the header's PackageDescr, with the rules generated so far.
+     */
+    public PackageDescr getPackageDescr() {
+        return packageDescr;
+    }
+
+    /**
+     * Returns the errors raised while parsing the header or the rows that
+     * could not be generated from a prototype.
+     */
+    public List<DroolsError> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * Returns the number of rows whose DRL had to be parsed.
+     */
+    public int getParsedRowCount() {
+        return parsedRows;
+    }
+
+    /**
+     * Returns the prototype for the given key, creating it for the given
+     * row if there is none, or null if the row is to be parsed.
+     */
+    private RuleDescrPrototype getPrototype(String key,
+                                            CompiledTemplate template,
+                                            Map<String, Object> markerVars,
+                                            Map<String, Object> vars,
+                                            String[] values) {
+        if ( prototypes.containsKey( key ) ) {
+            return prototypes.get( key );
+        }
+        RuleDescrPrototype prototype = newPrototype( template,
+                                                     markerVars );
+        if ( prototype != null && !prototype.getDrl( values ).equals( render( template,
+                                                                                vars ) ) ) {
+            prototype = null;
+        }
+        prototypes.put( key,
+                        prototype );
+        return prototype;
+    }
+
+    private RuleDescrPrototype newPrototype(CompiledTemplate template,
+                                            Map<String, Object> markerVars) {
+        try {
+            String drl = render( template,
+                                 markerVars );
+            DrlParser parser = new DrlParser();
+            PackageDescr descr = parser.parse( drl );
+            if ( parser.hasErrors() || descr == null || !descr.getImports().isEmpty() || !descr.getGlobals().isEmpty() || !descr.getFunctions().isEmpty() || !descr.getTypeDeclarations().isEmpty() || !descr.getAttributes().isEmpty() ) {
+                return null;
+            }
+            return RuleDescrPrototype.newPrototype( descr.getRules(),
+                                                    drl );
+        } catch ( DroolsParserException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the template only has plain cell values and optional
+     * lines, so that the DRL of a row is the prototype's with the values in
+     * place of the markers.
+     */
+    private boolean isPlainTemplate(String templateName) {
+        Boolean plain = plainTemplates.get( templateName );
+        if ( plain == null ) {
+            plain = Boolean.TRUE;
+            Matcher matcher = ORB.matcher( ruleTemplates.get( templateName ).getContents() );
+            while ( plain.booleanValue() && matcher.find() ) {
+                String tag = matcher.group( 1 );
+                String expression = matcher.group( 2 );
+                if ( !(tag.length() == 0 && VALUE.matcher( expression ).matches()) && !("if".equals( tag ) && OPTIONAL.matcher( expression ).matches()) && !("end".equals( tag ) && expression.trim().length() == 0) ) {
+                    plain = Boolean.FALSE;
+                }
+            }
+            plainTemplates.put( templateName,
+                                plain );
+        }
+        return plain.booleanValue();
+    }
+
+    private PackageDescr parse(String drl) {
+        DrlParser parser = new DrlParser();
+        try {
+            PackageDescr descr = parser.parse( drl );
+            if ( parser.hasErrors() ) {
+                errors.addAll( parser.getErrors() );
+                return null;
+            }
+            return descr;
+        } catch ( DroolsParserException e ) {
+            throw new DecisionTableParseException( "Unable to parse generated rule",
+                                                   e );
+        }
+    }
+
+    private void merge(PackageDescr descr) {
+        for ( ImportDescr importDescr : descr.getImports() ) {
+            packageDescr.addImport( importDescr );
+        }
+        for ( GlobalDescr global : descr.getGlobals() ) {
+            packageDescr.addGlobal( global );
+        }
+        for ( FunctionDescr function : descr.getFunctions() ) {
+            packageDescr.addFunction( function );
+        }
+        for ( RuleDescr rule : descr.getRules() ) {
+            packageDescr.addRule( rule );
+        }
+    }
+
+    private int getMarkerIndex(String name) {
+        Integer index = markerIndexes.get( name );
+        if ( index == null ) {
+            index = markerIndexes.size();
+            markerIndexes.put( name,
+                               index );
+        }
+        return index;
+    }
+
+    private String render(CompiledTemplate template,
+                          Map<String, Object> vars) {
+        return String.valueOf( TemplateRuntime.execute( template,
+                                                        vars,
+                                                        registry ) );
+    }
+
+    private CompiledTemplate getTemplate(String templateName) {
+        CompiledTemplate contents;
+        if ( !registry.contains( templateName ) ) {
+            RuleTemplate template = ruleTemplates.get( templateName );
+            contents = TemplateCompiler.compileTemplate( template.getContents() );
+            registry.addNamedTemplate( templateName,
+                                       contents );
+        } else {
+            contents = registry.getNamedTemplate( templateName );
+        }
+        return contents;
+    }
+
+    /**
+     * A row generated from a prototype, rendered on demand.
+     */
+    private static class GeneratedRow {
+        private final RuleDescrPrototype prototype;
+        private final String[]           values;
+
+        GeneratedRow(final RuleDescrPrototype prototype,
+                     final String[] values) {
+            this.prototype = prototype;
+            this.values = values;
+        }
+
+        public String toString() {
+            return prototype.getDrl( values );
+        }
+    }
+
+    /**
+     * Stands in for the Row while a prototype is rendered, so that the row
+     * number is rendered as a marker too.
+     */
+    public static class MarkerRow {
+        private final String rowNumber;
+
+        MarkerRow(final String rowNumber) {
+            this.rowNumber = rowNumber;
+        }
+
+        public String getRowNumber() {
+            return rowNumber;
+        }
+    }
+
+}
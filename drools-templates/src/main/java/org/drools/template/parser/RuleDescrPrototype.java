@@ -0,0 +1,435 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.template.parser;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.io.Resource;
+import org.drools.lang.descr.BaseDescr;
+import org.drools.lang.descr.RuleDescr;
+
+/**
+ * The rules of a template parsed once, with markers in place of the cell
+ * values. New rules are created for each row by copying the descr tree and
+ * replacing the markers by the row's values, so the rendered DRL of a row
+ * never has to be lexed and parsed.
+ *
+ * The descrs are copied reflectively, field by field. A prototype whose tree
+ * holds something that cannot be copied safely is rejected when it is
+ * created, and the caller falls back to parsing each row.
+ *
+ * The copies are moved to the lines the row takes in the generated DRL. As
+ * the values do not have the length of the markers, their character offsets
+ * are cleared.
+ */
+class RuleDescrPrototype {
+
+    static final String                         MARKER_PREFIX = "__tpl";
+    static final String                         MARKER_SUFFIX = "__";
+
+    private static final Map<Class<?>, Field[]> FIELDS        = new HashMap<Class<?>, Field[]>();
+
+    private final List<RuleDescr>               rules;
+
+    private final String                        drl;
+
+    private final int                           lineCount;
+
+    private RuleDescrPrototype(final List<RuleDescr> rules,
+                               final String drl) {
+        this.rules = rules;
+        this.drl = drl;
+        this.lineCount = countLines( drl );
+    }
+
+    /**
+     * Returns the prototype of the given rules, or null if they cannot be
+     * copied or if some markers in the DRL did not make it into the rules.
+     *
+     * @param rules the rules parsed from the rendered template
+     * @param drl the rendered template, with markers in place of the values
+     */
+    static RuleDescrPrototype newPrototype(final List<RuleDescr> rules,
+                                           final String drl) {
+        final Copier recorder = new Copier( null,
+                                            0 );
+        try {
+            recorder.copy( rules );
+        } catch ( UncopyableException e ) {
+            return null;
+        }
+        final Set<Integer> markers = new HashSet<Integer>();
+        collectMarkers( drl,
+                        markers );
+        if ( !recorder.markers.containsAll( markers ) ) {
+            // template values are not kept as text by the parser
+            return null;
+        }
+        return new RuleDescrPrototype( rules,
+                                       drl );
+    }
+
+    static String marker(final int index) {
+        return MARKER_PREFIX + index + MARKER_SUFFIX;
+    }
+
+    /**
+     * Returns the rendered template with the markers replaced by values.
+     */
+    String getDrl(final String[] values) {
+        return substitute( this.drl,
+                           values,
+                           null );
+    }
+
+    /**
+     * Returns the number of lines of the rendered template, the values
+     * being on a single line.
+     */
+    int getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * Returns new rules, with the markers replaced by values, moved down
+     * the given number of lines.
+     */
+    @SuppressWarnings("unchecked")
+    List<RuleDescr> newRules(final String[] values,
+                             final int lineOffset) {
+        try {
+            return (List<RuleDescr>) new Copier( values,
+                                                 lineOffset ).copy( this.rules );
+        } catch ( UncopyableException e ) {
+            // the rules were copied once already when the prototype was created
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+    /**
+     * Moves the given parsed rules down the given number of lines, clearing
+     * their character offsets as the copies do.
+     */
+    static void relocate(final List<RuleDescr> rules,
+                         final int lineOffset) {
+        relocate( rules,
+                  lineOffset,
+                  new IdentityHashMap<Object, Object>() );
+    }
+
+    private static void relocate(final Object source,
+                                 final int lineOffset,
+                                 final Map<Object, Object> visited) {
+        if ( source == null || source instanceof String || visited.put( source,
+                                                                        source ) != null ) {
+            return;
+        }
+        if ( source instanceof BaseDescr ) {
+            relocate( (BaseDescr) source,
+                      lineOffset );
+            try {
+                for ( Field field : getFields( source.getClass() ) ) {
+                    relocate( field.get( source ),
+                              lineOffset,
+                              visited );
+                }
+            } catch ( IllegalAccessException e ) {
+                // the fields are made accessible when they are looked up
+            }
+        } else if ( source instanceof Collection ) {
+            for ( Object element : (Collection< ? >) source ) {
+                relocate( element,
+                          lineOffset,
+                          visited );
+            }
+        } else if ( source instanceof Map ) {
+            for ( Map.Entry< ? , ? > entry : ((Map< ? , ? >) source).entrySet() ) {
+                relocate( entry.getKey(),
+                          lineOffset,
+                          visited );
+                relocate( entry.getValue(),
+                          lineOffset,
+                          visited );
+            }
+        } else if ( source instanceof Object[] ) {
+            for ( Object element : (Object[]) source ) {
+                relocate( element,
+                          lineOffset,
+                          visited );
+            }
+        }
+    }
+
+    private static void relocate(final BaseDescr descr,
+                                 final int lineOffset) {
+        if ( descr.getLine() >= 0 ) {
+            descr.setLocation( descr.getLine() + lineOffset,
+                               descr.getColumn() );
+        }
+        if ( descr.getEndLine() >= 0 ) {
+            descr.setEndLocation( descr.getEndLine() + lineOffset,
+                                  descr.getEndColumn() );
+        }
+        descr.setStartCharacter( -1 );
+        descr.setEndCharacter( -1 );
+    }
+
+    /**
+     * Returns the number of line breaks in the given text.
+     */
+    static int countLines(final String text) {
+        int lines = 0;
+        for ( int i = text.indexOf( '\n' ); i >= 0; i = text.indexOf( '\n',
+                                                                      i + 1 ) ) {
+            lines++;
+        }
+        return lines;
+    }
+
+    private static void collectMarkers(final String text,
+                                       final Set<Integer> markers) {
+        substitute( text,
+                    null,
+                    markers );
+    }
+
+    /**
+     * Replaces the markers in text by values, if given, and records the
+     * marker indexes found, if markers is given.
+     */
+    private static String substitute(final String text,
+                                     final String[] values,
+                                     final Set<Integer> markers) {
+        int start = text.indexOf( MARKER_PREFIX );
+        if ( start < 0 ) {
+            return text;
+        }
+        final StringBuilder sb = new StringBuilder( text.length() + 32 );
+        int last = 0;
+        while ( start >= 0 ) {
+            int end = start + MARKER_PREFIX.length();
+            while ( end < text.length() && Character.isDigit( text.charAt( end ) ) ) {
+                end++;
+            }
+            if ( end > start + MARKER_PREFIX.length() && text.startsWith( MARKER_SUFFIX,
+                                                                          end ) ) {
+                final int index = Integer.parseInt( text.substring( start + MARKER_PREFIX.length(),
+                                                                    end ) );
+                if ( markers != null ) {
+                    markers.add( index );
+                }
+                if ( values != null ) {
+                    sb.append( text,
+                               last,
+                               start ).append( values[index] );
+                    last = end + MARKER_SUFFIX.length();
+                }
+                start = text.indexOf( MARKER_PREFIX,
+                                      end + MARKER_SUFFIX.length() );
+            } else {
+                start = text.indexOf( MARKER_PREFIX,
+                                      start + 1 );
+            }
+        }
+        if ( values == null ) {
+            return text;
+        }
+        sb.append( text,
+                   last,
+                   text.length() );
+        return sb.toString();
+    }
+
+    private static Field[] getFields(final Class<?> cls) {
+        synchronized ( FIELDS ) {
+            Field[] fields = FIELDS.get( cls );
+            if ( fields == null ) {
+                final List<Field> list = new ArrayList<Field>();
+                for ( Class<?> c = cls; c != Object.class; c = c.getSuperclass() ) {
+                    for ( Field field : c.getDeclaredFields() ) {
+                        if ( !Modifier.isStatic( field.getModifiers() ) ) {
+                            field.setAccessible( true );
+                            list.add( field );
+                        }
+                    }
+                }
+                fields = list.toArray( new Field[list.size()] );
+                FIELDS.put( cls,
+                            fields );
+            }
+            return fields;
+        }
+    }
+
+    private static Object newInstance(final Class<?> cls) throws UncopyableException {
+        try {
+            final Constructor<?> constructor = cls.getDeclaredConstructor();
+            constructor.setAccessible( true );
+            return constructor.newInstance();
+        } catch ( NoSuchMethodException e ) {
+            return null;
+        } catch ( Exception e ) {
+            throw new UncopyableException( cls );
+        }
+    }
+
+    /**
+     * Raised when a descr tree holds something that cannot be copied safely.
+     */
+    private static class UncopyableException extends Exception {
+        private static final long serialVersionUID = 510l;
+
+        UncopyableException(final Class< ? > cls) {
+            super( "Unable to copy " + cls.getName() );
+        }
+    }
+
+    /**
+     * Deep copies a descr tree, substituting the markers in every String it
+     * holds and moving the descrs down the line offset. Without values it
+     * only records the markers it comes across.
+     */
+    private static class Copier {
+
+        private final String[]            values;
+        private final int                 lineOffset;
+        private final Set<Integer>        markers = new HashSet<Integer>();
+        private final Map<Object, Object> copies  = new IdentityHashMap<Object, Object>();
+
+        Copier(final String[] values,
+               final int lineOffset) {
+            this.values = values;
+            this.lineOffset = lineOffset;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object copy(final Object source) throws UncopyableException {
+            if ( source == null ) {
+                return null;
+            }
+            if ( source instanceof String ) {
+                return substitute( (String) source,
+                                   this.values,
+                                   this.markers );
+            }
+            if ( isImmutable( source ) ) {
+                return source;
+            }
+            Object copy = this.copies.get( source );
+            if ( copy != null ) {
+                return copy;
+            }
+
+            if ( source instanceof StringBuilder ) {
+                copy = new StringBuilder( (String) copy( source.toString() ) );
+            } else if ( source instanceof BaseDescr ) {
+                copy = newInstance( source.getClass() );
+                if ( copy == null ) {
+                    throw new UncopyableException( source.getClass() );
+                }
+                this.copies.put( source,
+                                 copy );
+                try {
+                    for ( Field field : getFields( source.getClass() ) ) {
+                        field.set( copy,
+                                   copy( field.get( source ) ) );
+                    }
+                } catch ( IllegalAccessException e ) {
+                    throw new UncopyableException( source.getClass() );
+                }
+                relocate( (BaseDescr) copy,
+                          this.lineOffset );
+            } else if ( source instanceof Collection ) {
+                final Collection<Object> collection = (Collection<Object>) source;
+                if ( collection.isEmpty() && !hasDefaultConstructor( source ) ) {
+                    // shared immutable empty collections, such as Collections.EMPTY_LIST
+                    return source;
+                }
+                Collection<Object> target = (Collection<Object>) newInstance( source.getClass() );
+                if ( target == null ) {
+                    target = source instanceof Set ? new LinkedHashSet<Object>() : new ArrayList<Object>();
+                }
+                this.copies.put( source,
+                                 target );
+                for ( Object element : collection ) {
+                    target.add( copy( element ) );
+                }
+                copy = target;
+            } else if ( source instanceof Map ) {
+                final Map<Object, Object> map = (Map<Object, Object>) source;
+                if ( map.isEmpty() && !hasDefaultConstructor( source ) ) {
+                    return source;
+                }
+                Map<Object, Object> target = (Map<Object, Object>) newInstance( source.getClass() );
+                if ( target == null ) {
+                    target = new LinkedHashMap<Object, Object>();
+                }
+                this.copies.put( source,
+                                 target );
+                for ( Map.Entry<Object, Object> entry : map.entrySet() ) {
+                    target.put( copy( entry.getKey() ),
+                                copy( entry.getValue() ) );
+                }
+                copy = target;
+            } else if ( source.getClass().isArray() ) {
+                final int length = Array.getLength( source );
+                copy = Array.newInstance( source.getClass().getComponentType(),
+                                          length );
+                this.copies.put( source,
+                                 copy );
+                for ( int i = 0; i < length; i++ ) {
+                    Array.set( copy,
+                               i,
+                               copy( Array.get( source,
+                                                i ) ) );
+                }
+            } else {
+                throw new UncopyableException( source.getClass() );
+            }
+            this.copies.put( source,
+                             copy );
+            return copy;
+        }
+
+        private static boolean isImmutable(final Object value) {
+            return value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum || value instanceof Class || value instanceof Resource;
+        }
+
+        private static boolean hasDefaultConstructor(final Object value) {
+            try {
+                value.getClass().getConstructor();
+                return true;
+            } catch ( NoSuchMethodException e ) {
+                return false;
+            }
+        }
+    }
+
+}
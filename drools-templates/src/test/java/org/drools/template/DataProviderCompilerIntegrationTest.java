@@ -8,6 +8,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.drools.compiler.DrlParser;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.lang.descr.PatternDescr;
+import org.drools.lang.descr.RuleDescr;
 import org.drools.template.parser.Column;
 import org.drools.template.parser.DefaultTemplateContainer;
 import org.drools.template.parser.TemplateContainer;
@@ -129,6 +133,43 @@ public class DataProviderCompilerIntegrationTest {
                                       drl );
     }
 
+    @Test
+    public void testCompileToPackageDescr() throws Exception {
+        final DataProviderCompiler converter = new DataProviderCompiler();
+        final PackageDescr pkg = converter.compileToPackageDescr( new TestDataProvider( rows ),
+                                                                  "/templates/rule_template_1.drl" );
+        final PackageDescr expected = new DrlParser().parse( EXPECTED_RULES.toString() );
+
+        assertEquals( expected.getNamespace(),
+                      pkg.getNamespace() );
+        assertEquals( 1,
+                      pkg.getGlobals().size() );
+        assertEquals( expected.getRules().size(),
+                      pkg.getRules().size() );
+        Map<String, RuleDescr> rules = new HashMap<String, RuleDescr>();
+        for ( RuleDescr rule : pkg.getRules() ) {
+            rules.put( rule.getName(),
+                       rule );
+        }
+        for ( RuleDescr rule : expected.getRules() ) {
+            RuleDescr generated = rules.get( rule.getName() );
+            assertNotNull( rule.getName(),
+                           generated );
+            assertEqualsIgnoreWhitespace( rule.getConsequence().toString(),
+                                          generated.getConsequence().toString() );
+            assertEquals( rule.getAttributes().get( "agenda-group" ).getValue(),
+                          generated.getAttributes().get( "agenda-group" ).getValue() );
+            PatternDescr pattern = (PatternDescr) rule.getLhs().getDescrs().get( 0 );
+            PatternDescr generatedPattern = (PatternDescr) generated.getLhs().getDescrs().get( 0 );
+            assertEquals( pattern.getDescrs().size(),
+                          generatedPattern.getDescrs().size() );
+            for ( int i = 0; i < pattern.getDescrs().size(); i++ ) {
+                assertEqualsIgnoreWhitespace( pattern.getDescrs().get( i ).toString(),
+                                              generatedPattern.getDescrs().get( i ).toString() );
+            }
+        }
+    }
+
     @Test
     public void testCompilerMaps() throws Exception {
         Collection<Map<String, Object>> maps = new ArrayList<Map<String, Object>>();
@@ -0,0 +1,162 @@
+package org.drools.template.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.drools.lang.descr.ExprConstraintDescr;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.lang.descr.PatternDescr;
+import org.drools.lang.descr.RuleDescr;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PackageDescrGeneratorTest {
+    private PackageDescrGenerator g;
+    private Map<String, RuleTemplate> templates;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, RuleTemplate> t = new HashMap<String, RuleTemplate>();
+        TemplateContainer tc = new TemplateContainer() {
+
+            public Column getColumn(String name) {
+                return null;
+            }
+
+            public Column[] getColumns() {
+                return null;
+            }
+
+            public String getHeader() {
+                return null;
+            }
+
+            public Map<String, RuleTemplate> getTemplates() {
+                return null;
+            }
+
+        };
+        RuleTemplate rt1 = new RuleTemplate("rt1", tc);
+        rt1.setContents("rule \"Cheese_@{row.rowNumber}\"\nwhen\n    Cheese(type == \"@{type}\", price < @{price})\nthen\n    list.add(\"@{type}\");\nend\n");
+        RuleTemplate rt2 = new RuleTemplate("rt2", tc);
+        rt2.setContents("rule \"Cheese_@{row.rowNumber}\"\nwhen\n    Cheese(price @{price})\nthen\nend\n");
+        RuleTemplate rt3 = new RuleTemplate("rt3", tc);
+        rt3.setContents("rule \"Cheese_@{row.rowNumber}\"\nwhen\n    Cheese(type == \"@{type.toUpperCase()}\")\nthen\nend\n");
+        t.put("rt1", rt1);
+        t.put("rt2", rt2);
+        t.put("rt3", rt3);
+        templates = t;
+        g = new PackageDescrGenerator(t, "package org.drools.test\nglobal java.util.List list\n");
+    }
+
+    @Test
+    public void testHeader() {
+        PackageDescr pkg = g.getPackageDescr();
+        assertEquals("org.drools.test", pkg.getNamespace());
+        assertEquals(1, pkg.getGlobals().size());
+        assertTrue(pkg.getRules().isEmpty());
+    }
+
+    @Test
+    public void testRowsAreCopiedFromPrototype() {
+        Column[] columns = {new StringColumn("type"), new LongColumn("price")};
+        for (int i = 0; i < 3; i++) {
+            Row r = new Row(i, columns);
+            r.getCell(0).setValue("type" + i);
+            r.getCell(1).setValue(String.valueOf(10 * i));
+            g.generate("rt1", r);
+        }
+        assertFalse(g.hasErrors());
+        assertEquals(0, g.getParsedRowCount());
+
+        PackageDescr pkg = g.getPackageDescr();
+        assertEquals(3, pkg.getRules().size());
+        for (int i = 0; i < 3; i++) {
+            RuleDescr rule = pkg.getRules().get(i);
+            assertEquals("Cheese_" + i, rule.getName());
+            assertEquals("list.add(\"type" + i + "\");", rule.getConsequence().toString().trim());
+            PatternDescr pattern = (PatternDescr) rule.getLhs().getDescrs().get(0);
+            assertEquals("Cheese", pattern.getObjectType());
+            assertEquals("type == \"type" + i + "\"", ((ExprConstraintDescr) pattern.getDescrs().get(0)).getExpression());
+            assertEquals("price < " + (10 * i), ((ExprConstraintDescr) pattern.getDescrs().get(1)).getExpression());
+        }
+        // the copies do not share their descrs
+        assertNotSame(pkg.getRules().get(0).getLhs(), pkg.getRules().get(1).getLhs());
+    }
+
+    @Test
+    public void testValueStandingForOperator() {
+        Column[] columns = {new StringColumn("price")};
+        Row r = new Row(0, columns);
+        r.getCell(0).setValue("< 30");
+        g.generate("rt2", r);
+        assertFalse(g.hasErrors());
+
+        RuleDescr rule = g.getPackageDescr().getRules().get(0);
+        assertEquals("Cheese_0", rule.getName());
+        PatternDescr pattern = (PatternDescr) rule.getLhs().getDescrs().get(0);
+        assertEquals("price < 30", ((ExprConstraintDescr) pattern.getDescrs().get(0)).getExpression());
+    }
+
+    @Test
+    public void testDrlAndLines() {
+        DefaultGenerator drlGenerator = new DefaultGenerator(templates);
+        g.setRetainDrl(true);
+        Column[] columns = {new StringColumn("type"), new LongColumn("price")};
+        for (int i = 0; i < 3; i++) {
+            Row r = new Row(i, columns);
+            r.getCell(0).setValue("type" + i);
+            r.getCell(1).setValue(String.valueOf(10 * i));
+            g.generate("rt1", r);
+            drlGenerator.generate("rt1", r);
+        }
+        assertEquals(0, g.getParsedRowCount());
+        assertEquals(drlGenerator.getDrl(), g.getDrl());
+
+        // the rules are located in the header followed by the rows, each
+        // row taking the 6 lines of the template and an empty one
+        for (int i = 0; i < 3; i++) {
+            RuleDescr rule = g.getPackageDescr().getRules().get(i);
+            assertEquals(4 + 7 * i, rule.getLine());
+            assertEquals(-1, rule.getStartCharacter());
+        }
+    }
+
+    @Test
+    public void testRowsAreNotRetained() {
+        Column[] columns = {new StringColumn("type"), new LongColumn("price")};
+        for (int i = 0; i < 10000; i++) {
+            Row r = new Row(i, columns);
+            r.getCell(0).setValue("type" + i);
+            r.getCell(1).setValue(String.valueOf(i));
+            g.generate("rt1", r);
+        }
+        assertFalse(g.hasErrors());
+        assertEquals(0, g.getParsedRowCount());
+        assertEquals(10000, g.getPackageDescr().getRules().size());
+
+        // only the generated rules grow with the rows
+        assertNull(g.rows);
+        assertEquals("", g.getDrl());
+    }
+
+    @Test
+    public void testExpressionOnValue() {
+        Column[] columns = {new StringColumn("type")};
+        for (int i = 0; i < 2; i++) {
+            Row r = new Row(i, columns);
+            r.getCell(0).setValue("type" + i);
+            g.generate("rt3", r);
+        }
+        assertFalse(g.hasErrors());
+        assertEquals(2, g.getParsedRowCount());
+
+        RuleDescr rule = g.getPackageDescr().getRules().get(1);
+        assertEquals("Cheese_1", rule.getName());
+        assertEquals(10, rule.getLine());
+        PatternDescr pattern = (PatternDescr) rule.getLhs().getDescrs().get(0);
+        assertEquals("type == \"TYPE1\"", ((ExprConstraintDescr) pattern.getDescrs().get(0)).getExpression());
+    }
+
+}
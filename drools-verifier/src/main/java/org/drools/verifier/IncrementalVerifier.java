@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.verifier;
+
+import java.util.List;
+import java.util.Set;
+
+import org.drools.lang.descr.PackageDescr;
+
+/**
+ * A verifier that can be kept open while the verified rules change. Rules
+ * can be added, replaced and removed one at a time, and fireAnalysis() only
+ * re-analyses the rules that share object types with the changed ones.
+ * Results for the rest are reused from the previous runs.
+ */
+public interface IncrementalVerifier
+    extends
+    Verifier {
+
+    /**
+     * Adds the rules of the package. Rules that were already added with the
+     * same package and name are replaced.
+     */
+    public void addPackageDescr(PackageDescr descr);
+
+    /**
+     * Removes a rule and all its components from the verified data.
+     * 
+     * @return true if the rule was found
+     */
+    public boolean removeRule(String packageName,
+                              String ruleName);
+
+    /**
+     * @return how many rules were analysed by the last call to fireAnalysis.
+     */
+    public int getLastAnalysedRuleCount();
+
+    /**
+     * @return the names of the rules analysed by the last call to
+     *         fireAnalysis, one set per analysis unit.
+     */
+    public List<Set<String>> getLastAnalysedUnits();
+
+}
@@ -26,6 +26,12 @@ public interface VerifierConfiguration
     extends
     PropertiesConfiguration {
 
+    /**
+     * Property for the number of threads used to analyse independent parts
+     * of the verified rules in parallel. Defaults to 1.
+     */
+    public static final String ANALYSIS_THREADS = "drools.verifier.analysisThreads";
+
     /**
      * Add external analyzing rules to verifier.
      * 
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.verifier.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.drools.KnowledgeBase;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.lang.descr.RuleDescr;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.verifier.IncrementalVerifier;
+import org.drools.verifier.VerifierConfiguration;
+import org.drools.verifier.components.Field;
+import org.drools.verifier.components.ObjectType;
+import org.drools.verifier.components.Pattern;
+import org.drools.verifier.components.RuleComponent;
+import org.drools.verifier.components.RulePackage;
+import org.drools.verifier.components.VerifierComponentType;
+import org.drools.verifier.components.VerifierRule;
+import org.drools.verifier.data.VerifierComponent;
+import org.drools.verifier.data.VerifierData;
+import org.drools.verifier.data.VerifierReport;
+import org.drools.verifier.data.VerifierReportFactory;
+import org.drools.verifier.report.components.Gap;
+import org.drools.verifier.report.components.MissingNumberPattern;
+import org.drools.verifier.report.components.MissingRange;
+import org.drools.verifier.report.components.Severity;
+import org.drools.verifier.report.components.VerifierMessageBase;
+
+/**
+ * Verifier that re-analyses only what changed since the last run.
+ *
+ * Rules are grouped into analysis units: two rules end up in the same unit
+ * when they have patterns on the same object type, directly or through other
+ * rules. The verifier rules only relate components that share object types
+ * and fields, so every unit can be analysed on its own, in a session that
+ * contains only the unit's rules, object types and fields plus the package
+ * level components. The results of each unit are cached and reused until one
+ * of its rules is added, replaced or removed.
+ *
+ * Because units are independent they can also be analysed in parallel, each
+ * in its own session, by setting VerifierConfiguration.ANALYSIS_THREADS. The
+ * unit results are merged into a single VerifierReport.
+ */
+public class IncrementalVerifierImpl extends VerifierImpl
+    implements
+    IncrementalVerifier {
+
+    private final ScopesAgendaFilter         defaultFilter    = new ScopesAgendaFilter( true,
+                                                                                        ScopesAgendaFilter.ALL_SCOPES );
+
+    private final Map<String, VerifierRule>  rulesByPath      = new HashMap<String, VerifierRule>();
+
+    // Object type paths, or the rule path for rules without patterns.
+    private final Map<String, Set<String>>   keysByRulePath   = new HashMap<String, Set<String>>();
+
+    private final Map<String, AnalysisUnit>  unitsByKey       = new HashMap<String, AnalysisUnit>();
+
+    private final Set<String>                dirtyKeys        = new HashSet<String>();
+
+    private ScopesAgendaFilter               lastFilter;
+
+    private VerifierReport                   report;
+
+    private int                              lastAnalysedRuleCount;
+
+    private List<Set<String>>                lastAnalysedUnits = Collections.emptyList();
+
+    private ExecutorService                  executor;
+
+    public IncrementalVerifierImpl() {
+        super();
+    }
+
+    public IncrementalVerifierImpl(VerifierConfiguration conf) {
+        super( conf );
+    }
+
+    public synchronized void addPackageDescr(PackageDescr descr) {
+        RulePackage rulePackage = getData().getPackageByName( descr.getName() );
+        if ( rulePackage != null ) {
+            for ( RuleDescr ruleDescr : descr.getRules() ) {
+                removeRule( rulePackage,
+                            ruleDescr.getName() );
+            }
+        }
+
+        super.addPackageDescr( descr );
+
+        rulePackage = getData().getPackageByName( descr.getName() );
+        if ( rulePackage == null ) {
+            return;
+        }
+        for ( RuleDescr ruleDescr : descr.getRules() ) {
+            VerifierRule rule = findRule( rulePackage,
+                                          ruleDescr.getName() );
+            if ( rule != null ) {
+                Set<String> keys = getKeys( rule );
+                rulesByPath.put( rule.getPath(),
+                                 rule );
+                keysByRulePath.put( rule.getPath(),
+                                    keys );
+                dirtyKeys.addAll( keys );
+            }
+        }
+    }
+
+    public synchronized boolean removeRule(String packageName,
+                                           String ruleName) {
+        RulePackage rulePackage = getData().getPackageByName( packageName );
+        if ( rulePackage == null ) {
+            return false;
+        }
+        return removeRule( rulePackage,
+                           ruleName );
+    }
+
+    public boolean fireAnalysis() {
+        return fireAnalysis( defaultFilter );
+    }
+
+    public synchronized boolean fireAnalysis(ScopesAgendaFilter scopesAgendaFilter) {
+        if ( !scopesAgendaFilter.equals( lastFilter ) ) {
+            // cached results were produced with other scopes
+            unitsByKey.clear();
+            for ( Set<String> keys : keysByRulePath.values() ) {
+                dirtyKeys.addAll( keys );
+            }
+            lastFilter = scopesAgendaFilter;
+        }
+
+        // Units that contain a changed key may have merged or split,
+        // so every key they covered is analysed again.
+        Set<String> seeds = new HashSet<String>( dirtyKeys );
+        for ( String key : dirtyKeys ) {
+            AnalysisUnit unit = unitsByKey.get( key );
+            if ( unit != null ) {
+                seeds.addAll( unit.keys );
+            }
+        }
+        for ( String key : seeds ) {
+            unitsByKey.remove( key );
+        }
+        dirtyKeys.clear();
+
+        final List<VerifierComponent> sharedComponents = getSharedComponents();
+
+        lastAnalysedRuleCount = 0;
+        List<Set<String>> analysedUnits = new ArrayList<Set<String>>();
+        List<AnalysisUnit> pending = new ArrayList<AnalysisUnit>();
+        Set<String> visited = new HashSet<String>();
+        for ( String seed : seeds ) {
+            if ( visited.contains( seed ) ) {
+                continue;
+            }
+            AnalysisUnit unit = new AnalysisUnit();
+            collectUnit( seed,
+                         unit.keys,
+                         unit.rules );
+            visited.addAll( unit.keys );
+
+            if ( !unit.rules.isEmpty() ) {
+                pending.add( unit );
+                lastAnalysedRuleCount += unit.rules.size();
+                Set<String> names = new LinkedHashSet<String>();
+                for ( VerifierRule rule : unit.rules ) {
+                    names.add( rule.getName() );
+                }
+                analysedUnits.add( names );
+            }
+        }
+
+        analyse( pending,
+                 sharedComponents,
+                 scopesAgendaFilter );
+        lastAnalysedUnits = analysedUnits;
+
+        for ( AnalysisUnit unit : pending ) {
+            for ( String key : unit.keys ) {
+                unitsByKey.put( key,
+                                unit );
+            }
+        }
+
+        report = buildReport();
+
+        return true;
+    }
+
+    public synchronized void flushKnowledgeSession() {
+        super.flushKnowledgeSession();
+        lastFilter = null;
+    }
+
+    public synchronized VerifierReport getResult() {
+        if ( report == null ) {
+            return super.getResult();
+        }
+        return report;
+    }
+
+    public int getLastAnalysedRuleCount() {
+        return lastAnalysedRuleCount;
+    }
+
+    public List<Set<String>> getLastAnalysedUnits() {
+        return lastAnalysedUnits;
+    }
+
+    public synchronized void dispose() {
+        super.dispose();
+        if ( executor != null ) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the executor for parallel analysis, or null if
+     *         VerifierConfiguration.ANALYSIS_THREADS is not above 1
+     */
+    private ExecutorService getExecutor() {
+        if ( executor == null ) {
+            String value = getConfiguration().getProperty( VerifierConfiguration.ANALYSIS_THREADS );
+            int threads = value == null ? 1 : Integer.parseInt( value.trim() );
+            if ( threads > 1 ) {
+                executor = Executors.newFixedThreadPool( threads,
+                                                         new ThreadFactory() {
+                                                             private int count = 0;
+
+                                                             public Thread newThread(Runnable runnable) {
+                                                                 Thread thread = new Thread( runnable,
+                                                                                             "verifier-analysis-" + (count++) );
+                                                                 thread.setDaemon( true );
+                                                                 return thread;
+                                                             }
+                                                         } );
+            }
+        }
+        return executor;
+    }
+
+    private VerifierData getData() {
+        return super.getResult().getVerifierData();
+    }
+
+    private boolean removeRule(RulePackage rulePackage,
+                               String ruleName) {
+        VerifierRule rule = findRule( rulePackage,
+                                      ruleName );
+        if ( rule == null ) {
+            return false;
+        }
+
+        Set<String> keys = keysByRulePath.remove( rule.getPath() );
+        if ( keys == null ) {
+            keys = getKeys( rule );
+        }
+        dirtyKeys.addAll( keys );
+        rulesByPath.remove( rule.getPath() );
+
+        VerifierData data = getData();
+        for ( RuleComponent component : new ArrayList<RuleComponent>( data.getRuleComponentsByRulePath( rule.getPath() ) ) ) {
+            data.remove( component );
+        }
+        data.remove( rule );
+        rulePackage.getRules().remove( rule );
+
+        return true;
+    }
+
+    private VerifierRule findRule(RulePackage rulePackage,
+                                  String ruleName) {
+        for ( VerifierRule rule : rulePackage.getRules() ) {
+            if ( rule.getName().equals( ruleName ) ) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private Set<String> getKeys(VerifierRule rule) {
+        Set<String> keys = new HashSet<String>();
+        for ( RuleComponent component : getData().getRuleComponentsByRulePath( rule.getPath() ) ) {
+            if ( component instanceof Pattern && ((Pattern) component).getObjectTypePath() != null ) {
+                keys.add( ((Pattern) component).getObjectTypePath() );
+            }
+        }
+        if ( keys.isEmpty() ) {
+            keys.add( rule.getPath() );
+        }
+        return keys;
+    }
+
+    /**
+     * Collects the rules and keys connected to the seed key.
+     */
+    private void collectUnit(String seed,
+                             Set<String> keys,
+                             Set<VerifierRule> rules) {
+        LinkedList<String> queue = new LinkedList<String>();
+        keys.add( seed );
+        queue.add( seed );
+        while ( !queue.isEmpty() ) {
+            String key = queue.removeFirst();
+
+            Collection<VerifierRule> keyRules;
+            if ( rulesByPath.containsKey( key ) ) {
+                keyRules = Collections.singleton( rulesByPath.get( key ) );
+            } else {
+                keyRules = getData().getRulesByObjectTypePath( key );
+            }
+
+            for ( VerifierRule rule : keyRules ) {
+                if ( rule != null && rules.add( rule ) ) {
+                    Set<String> ruleKeys = keysByRulePath.get( rule.getPath() );
+                    if ( ruleKeys == null ) {
+                        continue;
+                    }
+                    for ( String ruleKey : ruleKeys ) {
+                        if ( keys.add( ruleKey ) ) {
+                            queue.add( ruleKey );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Components that are not tied to a rule or an object type, like
+     * packages, imports and entry points. These go to every unit.
+     */
+    private List<VerifierComponent> getSharedComponents() {
+        List<VerifierComponent> shared = new ArrayList<VerifierComponent>();
+        for ( VerifierComponent component : getData().getAll() ) {
+            if ( !(component instanceof RuleComponent || component instanceof VerifierRule || component instanceof ObjectType || component instanceof Field) ) {
+                shared.add( component );
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Analyses the units, on the executor if there is one. Units are
+     * independent, so each one gets its own session and report.
+     */
+    private void analyse(List<AnalysisUnit> units,
+                         final List<VerifierComponent> sharedComponents,
+                         final ScopesAgendaFilter scopesAgendaFilter) {
+        final KnowledgeBase kbase = getVerifierKnowledgeBase();
+        ExecutorService executor = getExecutor();
+
+        if ( executor == null || units.size() < 2 ) {
+            for ( AnalysisUnit unit : units ) {
+                analyse( kbase,
+                         unit,
+                         sharedComponents,
+                         scopesAgendaFilter );
+            }
+            return;
+        }
+
+        // biggest units first, so that a large one does not start last
+        List<AnalysisUnit> sorted = new ArrayList<AnalysisUnit>( units );
+        Collections.sort( sorted,
+                          new Comparator<AnalysisUnit>() {
+                              public int compare(AnalysisUnit u1,
+                                                 AnalysisUnit u2) {
+                                  return u2.rules.size() - u1.rules.size();
+                              }
+                          } );
+
+        List<Future<AnalysisUnit>> futures = new ArrayList<Future<AnalysisUnit>>( sorted.size() );
+        for ( final AnalysisUnit unit : sorted ) {
+            futures.add( executor.submit( new Callable<AnalysisUnit>() {
+                public AnalysisUnit call() throws Exception {
+                    return analyse( kbase,
+                                    unit,
+                                    sharedComponents,
+                                    scopesAgendaFilter );
+                }
+            } ) );
+        }
+
+        try {
+            for ( Future<AnalysisUnit> future : futures ) {
+                future.get();
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while waiting for the analysis to finish",
+                                        e );
+        } catch ( ExecutionException e ) {
+            throw new RuntimeException( e.getCause() );
+        } finally {
+            for ( Future<AnalysisUnit> future : futures ) {
+                future.cancel( true );
+            }
+        }
+    }
+
+    private AnalysisUnit analyse(KnowledgeBase kbase,
+                                 AnalysisUnit unit,
+                                 List<VerifierComponent> sharedComponents,
+                                 ScopesAgendaFilter scopesAgendaFilter) {
+        VerifierData data = getData();
+        VerifierReport unitReport = VerifierReportFactory.newVerifierReport( data );
+
+        StatefulKnowledgeSession ksession = kbase.newStatefulKnowledgeSession();
+        try {
+            ksession.setGlobal( "result",
+                                unitReport );
+
+            for ( VerifierComponent component : sharedComponents ) {
+                ksession.insert( component );
+            }
+
+            for ( String key : unit.keys ) {
+                VerifierComponent objectType = data.getVerifierObject( VerifierComponentType.OBJECT_TYPE,
+                                                                       key );
+                if ( objectType != null ) {
+                    ksession.insert( objectType );
+                    for ( Field field : data.getFieldsByObjectTypeId( key ) ) {
+                        ksession.insert( field );
+                    }
+                }
+            }
+
+            for ( VerifierRule rule : unit.rules ) {
+                ksession.insert( rule );
+                for ( RuleComponent component : data.getRuleComponentsByRulePath( rule.getPath() ) ) {
+                    ksession.insert( component );
+                }
+            }
+
+            ksession.fireAllRules( scopesAgendaFilter );
+        } finally {
+            ksession.dispose();
+        }
+
+        for ( Severity severity : Severity.values() ) {
+            unit.messages.addAll( unitReport.getBySeverity( severity ) );
+        }
+        unit.missingRanges.addAll( unitReport.getRangeCheckCauses() );
+        return unit;
+    }
+
+    private VerifierReport buildReport() {
+        VerifierReport newReport = VerifierReportFactory.newVerifierReport( getData() );
+
+        Set<AnalysisUnit> units = new LinkedHashSet<AnalysisUnit>( unitsByKey.values() );
+        for ( AnalysisUnit unit : units ) {
+            for ( VerifierMessageBase message : unit.messages ) {
+                newReport.add( message );
+            }
+            for ( MissingRange missingRange : unit.missingRanges ) {
+                if ( missingRange instanceof Gap ) {
+                    newReport.add( (Gap) missingRange );
+                } else if ( missingRange instanceof MissingNumberPattern ) {
+                    newReport.add( (MissingNumberPattern) missingRange );
+                }
+            }
+        }
+
+        return newReport;
+    }
+
+    /**
+     * The rules and keys of one analysis unit, and its cached results.
+     */
+    private static class AnalysisUnit {
+        private final Set<String>               keys          = new LinkedHashSet<String>();
+        private final Set<VerifierRule>         rules         = new LinkedHashSet<VerifierRule>();
+        private final List<VerifierMessageBase> messages      = new ArrayList<VerifierMessageBase>();
+        private final List<MissingRange>        missingRanges = new ArrayList<MissingRange>();
+    }
+
+}
@@ -18,6 +18,7 @@ package org.drools.verifier.builder;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 import org.drools.runtime.rule.Activation;
@@ -57,7 +58,7 @@ public class ScopesAgendaFilter
     public ScopesAgendaFilter(boolean acceptEmpty,
                               Collection<String> scopes) {
         this.acceptEmpty = acceptEmpty;
-        this.scopes = scopes;
+        this.scopes = new ArrayList<String>( scopes );
     }
 
     public ScopesAgendaFilter(boolean acceptEmpty,
@@ -87,4 +88,23 @@ public class ScopesAgendaFilter
         return false;
     }
 
+    public int hashCode() {
+        return 31 * new HashSet<String>( scopes ).hashCode() + (acceptEmpty ? 1 : 0);
+    }
+
+    /**
+     * Two filters are equal when they accept the same activations, that is
+     * when they have the same scopes, in any order, and acceptEmpty flag.
+     */
+    public boolean equals(Object obj) {
+        if ( this == obj ) {
+            return true;
+        }
+        if ( obj == null || getClass() != obj.getClass() ) {
+            return false;
+        }
+        ScopesAgendaFilter other = (ScopesAgendaFilter) obj;
+        return acceptEmpty == other.acceptEmpty && new HashSet<String>( scopes ).equals( new HashSet<String>( other.scopes ) );
+    }
+
 }
@@ -18,6 +18,7 @@ package org.drools.verifier.builder;
 
 import java.util.List;
 
+import org.drools.verifier.IncrementalVerifier;
 import org.drools.verifier.Verifier;
 import org.drools.verifier.VerifierConfiguration;
 import org.drools.verifier.report.VerifierReportConfiguration;
@@ -32,6 +33,10 @@ public interface VerifierBuilder {
 
     public Verifier newVerifier(VerifierConfiguration conf);
 
+    public IncrementalVerifier newIncrementalVerifier();
+
+    public IncrementalVerifier newIncrementalVerifier(VerifierConfiguration conf);
+
     boolean hasErrors();
 
     List<VerifierBuilderError> getErrors();
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.drools.verifier.DefaultVerifierConfiguration;
+import org.drools.verifier.IncrementalVerifier;
 import org.drools.verifier.Verifier;
 import org.drools.verifier.VerifierConfiguration;
 import org.drools.verifier.VerifierConfigurationImpl;
@@ -45,9 +46,22 @@ public class VerifierBuilderImpl
     }
 
     public Verifier newVerifier(VerifierConfiguration conf) {
+        String threads = conf.getProperty( VerifierConfiguration.ANALYSIS_THREADS );
+        if ( threads != null && Integer.parseInt( threads.trim() ) > 1 ) {
+            // partitions the analysis so that it can run in parallel
+            return new IncrementalVerifierImpl( conf );
+        }
         return new VerifierImpl( conf );
     }
 
+    public IncrementalVerifier newIncrementalVerifier() {
+        return new IncrementalVerifierImpl();
+    }
+
+    public IncrementalVerifier newIncrementalVerifier(VerifierConfiguration conf) {
+        return new IncrementalVerifierImpl( conf );
+    }
+
     public List<VerifierBuilderError> getErrors() {
         return errors;
     }
@@ -148,6 +148,24 @@ public class VerifierImpl
         return true;
     }
 
+    protected VerifierConfiguration getConfiguration() {
+        return conf;
+    }
+
+    /**
+     * Returns the knowledge base of verifier rules, building it on first use.
+     */
+    protected KnowledgeBase getVerifierKnowledgeBase() {
+        if ( this.verifierKnowledgeBase == null ) {
+            synchronized ( this.getClass() ) {
+                if ( this.verifierKnowledgeBase == null ) {
+                    updateRuleBase();
+                }
+            }
+        }
+        return this.verifierKnowledgeBase;
+    }
+
     public void flushKnowledgeSession() {
         updateKnowledgeSession();
     }
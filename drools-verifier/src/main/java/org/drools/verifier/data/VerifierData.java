@@ -25,6 +25,11 @@ public interface VerifierData {
 
     public void add(VerifierComponent object);
 
+    /**
+     * Removes the component from all the indexes it was added to.
+     */
+    public void remove(VerifierComponent object);
+
     public <T extends VerifierComponent> T getVerifierObject(VerifierComponentType type,
                                                              String path);
 
@@ -50,6 +55,13 @@ public interface VerifierData {
 
     public Collection<Restriction> getRestrictionsByFieldPath(String path);
 
+    public Collection<Field> getFieldsByObjectTypeId(String id);
+
+    /**
+     * @return all the rule components that belong to the rule with the given path.
+     */
+    public Collection<RuleComponent> getRuleComponentsByRulePath(String rulePath);
+
     public Collection<ObjectType> getObjectTypesByRuleName(String ruleName);
 
     public EntryPoint getEntryPointByEntryId(String entryId);
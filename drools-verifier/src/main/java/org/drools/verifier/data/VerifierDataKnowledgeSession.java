@@ -26,6 +26,7 @@ import org.drools.builder.KnowledgeBuilder;
 import org.drools.builder.KnowledgeBuilderFactory;
 import org.drools.definition.KnowledgePackage;
 import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
 import org.drools.verifier.components.*;
 
 class VerifierDataKnowledgeSession
@@ -101,6 +102,17 @@ class VerifierDataKnowledgeSession
         kSession.insert( object );
     }
 
+    public void remove(VerifierComponent object) {
+        FactHandle handle = kSession.getFactHandle( object );
+        if ( handle != null ) {
+            kSession.retract( handle );
+        }
+    }
+
+    public Collection<RuleComponent> getRuleComponentsByRulePath(String rulePath) {
+        return null;
+    }
+
     //    public <T extends VerifierComponent> Collection<T> getAll(VerifierComponentType type) {
     public Collection< ? extends VerifierComponent> getAll(VerifierComponentType type) {
         return null;
@@ -40,6 +40,7 @@ class VerifierDataMaps
     private Map<String, VerifierRule> rulesByName = new TreeMap<String, VerifierRule>();
     private Map<String, Import> importsByName = new TreeMap<String, Import>();
     private Multimap<String, VerifierRule> rulesByCategory = TreeMultimap.create();
+    private Multimap<String, RuleComponent> ruleComponentsByRulePath = TreeMultimap.create();
 
     public Collection<ObjectType> getObjectTypesByRuleName(String ruleName) {
         Set<ObjectType> set = new HashSet<ObjectType>();
@@ -180,6 +181,78 @@ class VerifierDataMaps
         map.put(path,
                 object);
 
+        if (object instanceof RuleComponent) {
+            RuleComponent ruleComponent = (RuleComponent) object;
+            ruleComponentsByRulePath.put(ruleComponent.getRulePath(),
+                    ruleComponent);
+        }
+    }
+
+    public void remove(VerifierComponent object) {
+        if (VerifierComponentType.FIELD.equals(object.getVerifierComponentType())) {
+            Field field = (Field) object;
+            ObjectType objectType = (ObjectType) getVerifierObject(VerifierComponentType.OBJECT_TYPE,
+                    field.getObjectTypePath());
+            if (objectType != null) {
+                fieldsByObjectTypeAndFieldName.remove(objectType.getFullName() + "." + field.getName());
+            }
+
+            fieldsByObjectTypeId.remove(field.getObjectTypePath(),
+                    field);
+        } else if (VerifierComponentType.RULE.equals(object.getVerifierComponentType())) {
+            VerifierRule rule = (VerifierRule) object;
+            if (rulesByName.get(rule.getName()) == rule) {
+                rulesByName.remove(rule.getName());
+            }
+            if (rule.getMetadata().containsKey("category")) {
+                rulesByCategory.remove(rule.getMetaAttribute("category"),
+                        rule);
+            }
+        } else if (isAVariable(object)) {
+            Variable variable = (Variable) object;
+            variablesByRuleAndVariableName.remove(variable.getRuleName() + "." + variable.getName());
+        } else if (VerifierComponentType.PATTERN.equals(object.getVerifierComponentType())) {
+            Pattern pattern = (Pattern) object;
+
+            patternsByObjectTypeId.remove(pattern.getObjectTypePath(),
+                    pattern);
+            patternsByRuleName.remove(pattern.getRuleName(),
+                    pattern);
+        } else if (VerifierComponentType.RESTRICTION.equals(object.getVerifierComponentType())) {
+            Restriction restriction = (Restriction) object;
+
+            restrictionsByFieldId.remove(restriction.getFieldPath(),
+                    restriction);
+        } else if (VerifierComponentType.RULE_PACKAGE.equals(object.getVerifierComponentType())) {
+            RulePackage rulePackage = (RulePackage) object;
+
+            packagesByName.remove(rulePackage.getName());
+        } else if (VerifierComponentType.IMPORT.equals(object.getVerifierComponentType())) {
+            Import objectImport = (Import) object;
+            importsByName.remove(objectImport.getName());
+        } else if (VerifierComponentType.OBJECT_TYPE.equals(object.getVerifierComponentType())) {
+            ObjectType objectType = (ObjectType) object;
+            objectTypesByFullName.remove(objectType.getFullName());
+        } else if (VerifierComponentType.ENTRY_POINT_DESCR.equals(object.getVerifierComponentType())) {
+            EntryPoint entryPoint = (EntryPoint) object;
+            entryPointsByEntryId.remove(entryPoint.getEntryPointName());
+        }
+
+        Map<String, VerifierComponent> map = all.get(object.getVerifierComponentType());
+
+        if (map != null) {
+            map.remove(object.getPath());
+        }
+
+        if (object instanceof RuleComponent) {
+            RuleComponent ruleComponent = (RuleComponent) object;
+            ruleComponentsByRulePath.remove(ruleComponent.getRulePath(),
+                    ruleComponent);
+        }
+    }
+
+    public Collection<RuleComponent> getRuleComponentsByRulePath(String rulePath) {
+        return ruleComponentsByRulePath.get(rulePath);
     }
 
     private boolean isAVariable(VerifierComponent object) {
@@ -205,7 +278,13 @@ class VerifierDataMaps
     //                                                             String path) {
     public VerifierComponent getVerifierObject(VerifierComponentType type,
                                                String path) {
-        return all.get(type).get(path);
+        Map<String, VerifierComponent> map = all.get(type);
+
+        if (map == null) {
+            return null;
+        } else {
+            return map.get(path);
+        }
     }
 
     public EntryPoint getEntryPointByEntryId(String entryId) {
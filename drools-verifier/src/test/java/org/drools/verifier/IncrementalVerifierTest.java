@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.verifier;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import org.drools.builder.ResourceType;
+import org.drools.io.ResourceFactory;
+import org.drools.io.impl.ClassPathResource;
+import org.drools.verifier.builder.ScopesAgendaFilter;
+import org.drools.verifier.builder.VerifierBuilderFactory;
+import org.drools.verifier.data.VerifierReport;
+import org.drools.verifier.report.components.Severity;
+
+public class IncrementalVerifierTest {
+
+    private static final String INCOHERENT_RULE = "package mortgages\n" +
+                                                  "rule \"Bankruptcy history\"\n" +
+                                                  "when\n" +
+                                                  "Applicant( approved == \"true\" , approved != \"true\" )\n" +
+                                                  "then\n" +
+                                                  "end\n";
+
+    private static final String UNRELATED_RULE  = "package mortgages\n" +
+                                                  "rule \"Adult\"\n" +
+                                                  "when\n" +
+                                                  "Person( age > 18 )\n" +
+                                                  "then\n" +
+                                                  "end\n";
+
+    @Test
+    public void testSameResultsAsFullVerifier() {
+        Verifier verifier = VerifierBuilderFactory.newVerifierBuilder().newVerifier();
+        verifier.addResourcesToVerify( new ClassPathResource( "Misc3.drl",
+                                                              Verifier.class ),
+                                       ResourceType.DRL );
+        verifier.fireAnalysis();
+
+        IncrementalVerifier incremental = VerifierBuilderFactory.newVerifierBuilder().newIncrementalVerifier();
+        incremental.addResourcesToVerify( new ClassPathResource( "Misc3.drl",
+                                                                 Verifier.class ),
+                                          ResourceType.DRL );
+        incremental.fireAnalysis();
+
+        for ( Severity severity : Severity.values() ) {
+            assertEquals( verifier.getResult().getBySeverity( severity ).size(),
+                          incremental.getResult().getBySeverity( severity ).size() );
+        }
+
+        verifier.dispose();
+        incremental.dispose();
+    }
+
+    @Test
+    public void testParallelAnalysis() {
+        Verifier verifier = VerifierBuilderFactory.newVerifierBuilder().newVerifier();
+        verifier.addResourcesToVerify( new ClassPathResource( "Misc3.drl",
+                                                              Verifier.class ),
+                                       ResourceType.DRL );
+        verifier.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( UNRELATED_RULE ) ),
+                                       ResourceType.DRL );
+        verifier.fireAnalysis();
+
+        DefaultVerifierConfiguration conf = new DefaultVerifierConfiguration();
+        conf.setProperty( VerifierConfiguration.ANALYSIS_THREADS,
+                          "4" );
+        Verifier parallel = VerifierBuilderFactory.newVerifierBuilder().newVerifier( conf );
+        assertTrue( parallel instanceof IncrementalVerifier );
+        parallel.addResourcesToVerify( new ClassPathResource( "Misc3.drl",
+                                                              Verifier.class ),
+                                       ResourceType.DRL );
+        parallel.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( UNRELATED_RULE ) ),
+                                       ResourceType.DRL );
+        assertTrue( parallel.fireAnalysis() );
+
+        // the Misc3 rules share RedundancyPattern, the unrelated one has a unit of its own
+        assertEquals( units( names( "Redundant rule 2, rules",
+                                    "Equivalent rule" ),
+                             names( "Adult" ) ),
+                      units( ((IncrementalVerifier) parallel).getLastAnalysedUnits() ) );
+        for ( Severity severity : Severity.values() ) {
+            assertEquals( verifier.getResult().getBySeverity( severity ).size(),
+                          parallel.getResult().getBySeverity( severity ).size() );
+        }
+
+        verifier.dispose();
+        parallel.dispose();
+    }
+
+    @Test
+    public void testOnlyChangedRulesAreAnalysed() {
+        ScopesAgendaFilter filter = new ScopesAgendaFilter( true,
+                                                            ScopesAgendaFilter.VERIFYING_SCOPE_KNOWLEDGE_PACKAGE );
+
+        IncrementalVerifier verifier = VerifierBuilderFactory.newVerifierBuilder().newIncrementalVerifier();
+        verifier.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( INCOHERENT_RULE ) ),
+                                       ResourceType.DRL );
+        verifier.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( UNRELATED_RULE ) ),
+                                       ResourceType.DRL );
+        assertFalse( verifier.hasErrors() );
+
+        assertTrue( verifier.fireAnalysis( filter ) );
+        assertEquals( units( names( "Bankruptcy history" ),
+                             names( "Adult" ) ),
+                      units( verifier.getLastAnalysedUnits() ) );
+        VerifierReport result = verifier.getResult();
+        assertEquals( 3,
+                      result.getBySeverity( Severity.ERROR ).size() );
+
+        // Nothing changed, everything comes from the cache, also with an
+        // equal filter
+        assertTrue( verifier.fireAnalysis( new ScopesAgendaFilter( true,
+                                                                   Arrays.asList( ScopesAgendaFilter.VERIFYING_SCOPE_KNOWLEDGE_PACKAGE ) ) ) );
+        assertEquals( Collections.emptyList(),
+                      verifier.getLastAnalysedUnits() );
+        assertEquals( 3,
+                      verifier.getResult().getBySeverity( Severity.ERROR ).size() );
+
+        assertTrue( verifier.removeRule( "mortgages",
+                                         "Bankruptcy history" ) );
+        assertFalse( verifier.removeRule( "mortgages",
+                                          "Bankruptcy history" ) );
+        assertTrue( verifier.fireAnalysis( filter ) );
+        assertEquals( Collections.emptyList(),
+                      verifier.getLastAnalysedUnits() );
+        assertEquals( 0,
+                      verifier.getResult().getBySeverity( Severity.ERROR ).size() );
+
+        verifier.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( INCOHERENT_RULE ) ),
+                                       ResourceType.DRL );
+        assertTrue( verifier.fireAnalysis( filter ) );
+        assertEquals( Collections.singletonList( names( "Bankruptcy history" ) ),
+                      verifier.getLastAnalysedUnits() );
+        assertEquals( 1,
+                      verifier.getLastAnalysedRuleCount() );
+        assertEquals( 3,
+                      verifier.getResult().getBySeverity( Severity.ERROR ).size() );
+
+        verifier.dispose();
+    }
+
+    @Test
+    public void testOtherFilterAnalysesEverything() {
+        IncrementalVerifier verifier = VerifierBuilderFactory.newVerifierBuilder().newIncrementalVerifier();
+        verifier.addResourcesToVerify( ResourceFactory.newReaderResource( new StringReader( INCOHERENT_RULE ) ),
+                                       ResourceType.DRL );
+
+        assertTrue( verifier.fireAnalysis() );
+        assertTrue( verifier.fireAnalysis( new ScopesAgendaFilter( false,
+                                                                   ScopesAgendaFilter.VERIFYING_SCOPE_KNOWLEDGE_PACKAGE ) ) );
+        assertEquals( Collections.singletonList( names( "Bankruptcy history" ) ),
+                      verifier.getLastAnalysedUnits() );
+
+        verifier.dispose();
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<String>( Arrays.asList( names ) );
+    }
+
+    private static Set<Set<String>> units(Set<String>... units) {
+        return units( Arrays.asList( units ) );
+    }
+
+    private static Set<Set<String>> units(Collection<Set<String>> units) {
+        return new HashSet<Set<String>>( units );
+    }
+
+}
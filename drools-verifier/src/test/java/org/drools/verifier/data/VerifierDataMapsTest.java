@@ -122,6 +122,36 @@ public class VerifierDataMapsTest {
         saveVerifierComponentAndGet( new PatternEval( pattern ) );
     }
 
+    @Test
+    public void testRemovePatternAndRule() {
+        VerifierData data = VerifierReportFactory.newVerifierData();
+
+        VerifierRule rule = VerifierComponentMockFactory.createRule1();
+        ObjectType objectType = new ObjectType();
+        Pattern pattern = VerifierComponentMockFactory.createPattern1();
+        pattern.setObjectTypePath( objectType.getPath() );
+
+        data.add( rule );
+        data.add( objectType );
+        data.add( pattern );
+
+        assertEquals( 1,
+                      data.getRuleComponentsByRulePath( rule.getPath() ).size() );
+        assertEquals( 1,
+                      data.getRulesByObjectTypePath( objectType.getPath() ).size() );
+
+        data.remove( pattern );
+        data.remove( rule );
+
+        assertEquals( 1,
+                      data.getAll().size() );
+        assertTrue( data.getRuleComponentsByRulePath( rule.getPath() ).isEmpty() );
+        assertTrue( data.getRulesByObjectTypePath( objectType.getPath() ).isEmpty() );
+        assertNull( data.getRuleByName( rule.getName() ) );
+        assertNull( data.getVerifierObject( VerifierComponentType.RULE,
+                                            rule.getPath() ) );
+    }
+
     @Test
     public void testSaveVerifierComponentAndGetForAllFields() {
         saveVerifierComponentAndGet( new EnumField() );